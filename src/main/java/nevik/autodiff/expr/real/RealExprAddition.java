@@ -16,9 +16,11 @@
 package nevik.autodiff.expr.real;
 
 import nevik.autodiff.expr.real.visitor.VisitorRealExpression;
+import nevik.autodiff.util.PersistentList;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * N-ary addition expression, i.e. sum of 1 or more terms.
@@ -153,6 +155,45 @@ public class RealExprAddition extends RealSuperExpression {
 		this.hashCode = HASHCODE_PRIME_OFFSET + super.hashCode;
 	}
 
+	private RealExprAddition(final RealExprAddition original, final PersistentList<RealExpression> subexpressions,
+			final RealExpression changed, final boolean inserted) {
+		super(RealExprAddition.class, original, subexpressions, changed, inserted);
+		this.hashCode = HASHCODE_PRIME_OFFSET + super.hashCode;
+	}
+
+	/**
+	 * Create a new sum containing the sub-expressions of this sum plus the given term, in sorted order. The
+	 * sub-expressions of this sum must be sorted (as is the case for all sums created by the sorting factory
+	 * methods and constructors, and by this method).
+	 * <p/>
+	 * The new sum shares most of its structure with this one: after the first such derivation, each further one
+	 * takes {@code O(log n)} time, including the update of the hash code and the variable set.
+	 *
+	 * @param term
+	 * 		the term to add; must be non-{@code null}
+	 * @return a new sum equal to the sorted sum of all sub-expressions of this sum and {@code term}
+	 */
+	public RealExprAddition withTerm(final RealExpression term) {
+		Objects.requireNonNull(term);
+		return new RealExprAddition(this, this.subexpressionsWith(term), term, /*inserted=*/true);
+	}
+
+	/**
+	 * Create a new sum containing the sub-expressions of this sum except for one occurrence of the given
+	 * term. The sub-expressions of this sum must be sorted; cf. {@link #withTerm(RealExpression)}.
+	 *
+	 * @param term
+	 * 		the term to remove; must be non-{@code null}
+	 * @return a new sum equal to the sorted sum of the remaining sub-expressions
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code term} is not a sub-expression of this sum, or if it is the only one
+	 */
+	public RealExprAddition withoutTerm(final RealExpression term) {
+		Objects.requireNonNull(term);
+		return new RealExprAddition(this, this.subexpressionsWithout(term), term, /*inserted=*/false);
+	}
+
 	@Override
 	public boolean equals(final Object o) {
 		return this == o || (o instanceof RealExprAddition && ((RealExprAddition) o).hashCode == this.hashCode);
@@ -0,0 +1,261 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real;
+
+import nevik.autodiff.expr.real.visitor.VisitorRealExpression;
+
+import java.util.Objects;
+
+/**
+ * Application of an elementary unary function ({@link Function}) to a sub-expression.
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealExprFunction extends RealExpressionUnary {
+	// ===============================================================================================================
+	// ====  Static fields and methods  ==============================================================================
+	// ===============================================================================================================
+	private static final int HASHCODE_PRIME_OFFSET = 57899;
+
+	/**
+	 * Elementary unary functions, each with its value and its first and second derivative.
+	 */
+	public enum Function {
+		EXP("exp") {
+			@Override
+			public double apply(final double x) {
+				return Math.exp(x);
+			}
+
+			@Override
+			public double derivative(final double x) {
+				return Math.exp(x);
+			}
+
+			@Override
+			public double secondDerivative(final double x) {
+				return Math.exp(x);
+			}
+		},
+		LOG("log") {
+			@Override
+			public double apply(final double x) {
+				return Math.log(x);
+			}
+
+			@Override
+			public double derivative(final double x) {
+				return 1 / x;
+			}
+
+			@Override
+			public double secondDerivative(final double x) {
+				return -1 / (x * x);
+			}
+		},
+		SQRT("sqrt") {
+			@Override
+			public double apply(final double x) {
+				return Math.sqrt(x);
+			}
+
+			@Override
+			public double derivative(final double x) {
+				return 0.5 / Math.sqrt(x);
+			}
+
+			@Override
+			public double secondDerivative(final double x) {
+				return -0.25 / (x * Math.sqrt(x));
+			}
+		},
+		SIN("sin") {
+			@Override
+			public double apply(final double x) {
+				return Math.sin(x);
+			}
+
+			@Override
+			public double derivative(final double x) {
+				return Math.cos(x);
+			}
+
+			@Override
+			public double secondDerivative(final double x) {
+				return -Math.sin(x);
+			}
+		},
+		COS("cos") {
+			@Override
+			public double apply(final double x) {
+				return Math.cos(x);
+			}
+
+			@Override
+			public double derivative(final double x) {
+				return -Math.sin(x);
+			}
+
+			@Override
+			public double secondDerivative(final double x) {
+				return -Math.cos(x);
+			}
+		},
+		TANH("tanh") {
+			@Override
+			public double apply(final double x) {
+				return Math.tanh(x);
+			}
+
+			@Override
+			public double derivative(final double x) {
+				final double tanh = Math.tanh(x);
+				return 1 - tanh * tanh;
+			}
+
+			@Override
+			public double secondDerivative(final double x) {
+				final double tanh = Math.tanh(x);
+				return -2 * tanh * (1 - tanh * tanh);
+			}
+		};
+
+		/**
+		 * Name of the function, as used in infix notation.
+		 */
+		public final String name;
+
+		Function(final String name) {
+			this.name = name;
+		}
+
+		/**
+		 * @return the value of this function at {@code x}
+		 */
+		public abstract double apply(double x);
+
+		/**
+		 * @return the value of the derivative of this function at {@code x}
+		 */
+		public abstract double derivative(double x);
+
+		/**
+		 * @return the value of the second derivative of this function at {@code x}
+		 */
+		public abstract double secondDerivative(double x);
+	}
+
+	/**
+	 * Create a new expression applying the given function to the given sub-expression.
+	 *
+	 * @param function
+	 * 		the function to apply; must be non-{@code null}
+	 * @param subexpression
+	 * 		argument of the function; must be non-{@code null}
+	 * @throws java.lang.NullPointerException
+	 * 		if either argument is {@code null}
+	 */
+	public static RealExprFunction reFunc(final Function function, final RealExpression subexpression) {
+		return new RealExprFunction(function, subexpression);
+	}
+
+	/**
+	 * Create a new expression {@code exp(subexpression)}.
+	 */
+	public static RealExprFunction reExp(final RealExpression subexpression) {
+		return new RealExprFunction(Function.EXP, subexpression);
+	}
+
+	/**
+	 * Create a new expression {@code log(subexpression)}.
+	 */
+	public static RealExprFunction reLog(final RealExpression subexpression) {
+		return new RealExprFunction(Function.LOG, subexpression);
+	}
+
+	/**
+	 * Create a new expression {@code sqrt(subexpression)}.
+	 */
+	public static RealExprFunction reSqrt(final RealExpression subexpression) {
+		return new RealExprFunction(Function.SQRT, subexpression);
+	}
+
+	/**
+	 * Create a new expression {@code sin(subexpression)}.
+	 */
+	public static RealExprFunction reSin(final RealExpression subexpression) {
+		return new RealExprFunction(Function.SIN, subexpression);
+	}
+
+	/**
+	 * Create a new expression {@code cos(subexpression)}.
+	 */
+	public static RealExprFunction reCos(final RealExpression subexpression) {
+		return new RealExprFunction(Function.COS, subexpression);
+	}
+
+	/**
+	 * Create a new expression {@code tanh(subexpression)}.
+	 */
+	public static RealExprFunction reTanh(final RealExpression subexpression) {
+		return new RealExprFunction(Function.TANH, subexpression);
+	}
+
+	// ===============================================================================================================
+	// ====  Instance fields and methods  ============================================================================
+	// ===============================================================================================================
+
+	public final Function function;
+	protected final int hashCode;
+
+	/**
+	 * Create a new expression applying the given function to the given sub-expression.
+	 *
+	 * @param function
+	 * 		the function to apply; must be non-{@code null}
+	 * @param subexpression
+	 * 		argument of the function; must be non-{@code null}
+	 * @throws java.lang.NullPointerException
+	 * 		if either argument is {@code null}
+	 */
+	public RealExprFunction(final Function function, final RealExpression subexpression) {
+		super(RealExprFunction.class, Objects.requireNonNull(subexpression));
+		this.function = Objects.requireNonNull(function);
+		this.hashCode = HASHCODE_PRIME_OFFSET + 31 * function.ordinal() + super.hashCode;
+	}
+
+	@Override
+	public boolean equals(final Object o) {
+		return this == o || (o instanceof RealExprFunction && ((RealExprFunction) o).hashCode == this.hashCode);
+	}
+
+	@Override
+	public int hashCode() {
+		return this.hashCode;
+	}
+
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName() + "{" + this.function.name + "," + this.subexpressions.get(0) + "}";
+	}
+
+	@Override
+	public <ExprResultType, StateType> ExprResultType accept(
+			final VisitorRealExpression<?, ExprResultType, StateType> visitor, final StateType state) {
+		return visitor.visit(this, state);
+	}
+}
@@ -0,0 +1,180 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real;
+
+import nevik.autodiff.expr.real.visitor.VisitorRealExpression;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import static nevik.autodiff.expr.real.RealConstant.reCons;
+import static nevik.autodiff.expr.real.RealExprAddition.reAdd;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMult;
+
+/**
+ * Linear form {@code c_0 + c_1*t_1 + ... + c_n*t_n}, i.e. a sum of scaled terms with the coefficients stored as a
+ * primitive {@code double[]}.
+ * <p/>
+ * The terms are the sub-expressions of this expression; typically (and as emitted by {@link
+ * nevik.autodiff.expr.real.visitor.VisitorRealExpressionSimplifier}) they are variables, so a linear form is evaluated
+ * as a dot product of its coefficients with the values of its variables, and its gradient is just its coefficients.
+ * Compared to the equivalent {@link RealExprAddition} of {@link RealExprMultiplication}s, this saves two nodes per
+ * term.
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealExprLinear extends RealSuperExpression {
+	// ===============================================================================================================
+	// ====  Static fields and methods  ==============================================================================
+	// ===============================================================================================================
+	private static final int HASHCODE_PRIME_OFFSET = 55049;
+
+	/**
+	 * Create a new linear form with the given constant, coefficients and terms, with the terms in sorted order.
+	 *
+	 * @param constant
+	 * 		the constant summand
+	 * @param coefficients
+	 * 		the coefficient of each term; copied internally
+	 * @param terms
+	 * 		the terms; must be non-empty, contain no {@code null} entries, and have as many entries as {@code
+	 * 		coefficients}; copied internally
+	 * @throws java.lang.NullPointerException
+	 * 		if {@code coefficients} or {@code terms} is {@code null}
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code terms} is empty, contains {@code null}, or has a different size than {@code coefficients}
+	 */
+	public static RealExprLinear reLinear(final double constant, final double[] coefficients,
+			final List<? extends RealExpression> terms) {
+		return new RealExprLinear(constant, coefficients, terms);
+	}
+
+	private static List<RealExpression> sortedTerms(final double[] coefficients,
+			final List<? extends RealExpression> terms, final double[] sortedCoefficients) {
+		if (terms.isEmpty() || terms.size() != coefficients.length) {
+			throw new IllegalArgumentException(
+					"Linear form needs as many coefficients as terms, and at least one term");
+		}
+		final Integer[] order = new Integer[coefficients.length];
+		for (int i = 0; i < order.length; i++) {
+			if (terms.get(i) == null) {
+				throw new IllegalArgumentException("Terms of linear form may not be null");
+			}
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> COMPARATOR.compare(terms.get(a), terms.get(b)));
+		final ArrayList<RealExpression> sorted = new ArrayList<>(order.length);
+		for (int i = 0; i < order.length; i++) {
+			sorted.add(terms.get(order[i]));
+			sortedCoefficients[i] = coefficients[order[i]];
+		}
+		return Collections.unmodifiableList(sorted);
+	}
+
+	// ===============================================================================================================
+	// ====  Instance fields and methods  ============================================================================
+	// ===============================================================================================================
+
+	public final double constant;
+	private final double[] coefficients;
+	protected final int hashCode;
+
+	/**
+	 * Create a new linear form with the given constant, coefficients and terms, with the terms in sorted order.
+	 *
+	 * @see #reLinear(double, double[], List)
+	 */
+	public RealExprLinear(final double constant, final double[] coefficients,
+			final List<? extends RealExpression> terms) {
+		this(constant, new double[coefficients.length], coefficients, Objects.requireNonNull(terms));
+	}
+
+	private RealExprLinear(final double constant, final double[] sortedCoefficients, final double[] coefficients,
+			final List<? extends RealExpression> terms) {
+		super(RealExprLinear.class, sortedTerms(coefficients, terms, sortedCoefficients));
+		this.constant = constant;
+		this.coefficients = sortedCoefficients;
+		this.hashCode = HASHCODE_PRIME_OFFSET + super.hashCode + 31 * Arrays.hashCode(sortedCoefficients) +
+				Double.hashCode(constant);
+	}
+
+	public int getTermCount() {
+		return this.coefficients.length;
+	}
+
+	/**
+	 * @return the coefficient of the {@code i}-th term (i.e. of {@code subexpressions.get(i)})
+	 */
+	public double getCoefficient(final int i) {
+		return this.coefficients[i];
+	}
+
+	/**
+	 * Compute the value of this linear form for the given values of its terms, as a dot product.
+	 *
+	 * @param termValues
+	 * 		the value of each term, in the order of {@link #subexpressions}
+	 */
+	public double dot(final double[] termValues) {
+		double sum = this.constant;
+		for (int i = 0; i < this.coefficients.length; i++) {
+			sum += this.coefficients[i] * termValues[i];
+		}
+		return sum;
+	}
+
+	/**
+	 * @return the equivalent addition of scaled terms, for consumers that do not support linear forms
+	 */
+	public RealExpression toAddition() {
+		final List<RealExpression> summands = new ArrayList<>(this.coefficients.length + 1);
+		if (this.constant != 0) {
+			summands.add(reCons(this.constant));
+		}
+		for (int i = 0; i < this.coefficients.length; i++) {
+			final RealExpression term = this.subexpressions.get(i);
+			summands.add(this.coefficients[i] == 1 ? term :
+					reMult(reCons(this.coefficients[i]), term));
+		}
+		return summands.size() == 1 ? summands.get(0) : reAdd(summands);
+	}
+
+	@Override
+	public boolean equals(final Object o) {
+		return this == o || (o instanceof RealExprLinear && ((RealExprLinear) o).hashCode == this.hashCode);
+	}
+
+	@Override
+	public int hashCode() {
+		return this.hashCode;
+	}
+
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName() + "{" + this.constant + "," + Arrays.toString(this.coefficients) + "," +
+				this.subexpressions + "}";
+	}
+
+	@Override
+	public <ExprResultType, StateType> ExprResultType accept(
+			final VisitorRealExpression<?, ExprResultType, StateType> visitor, final StateType state) {
+		return visitor.visit(this, state);
+	}
+}
@@ -16,9 +16,11 @@
 package nevik.autodiff.expr.real;
 
 import nevik.autodiff.expr.real.visitor.VisitorRealExpression;
+import nevik.autodiff.util.PersistentList;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * N-ary multiplication expression, i.e. product of 1 or more terms.
@@ -153,6 +155,45 @@ public class RealExprMultiplication extends RealSuperExpression {
 		this.hashCode = HASHCODE_PRIME_OFFSET + super.hashCode;
 	}
 
+	private RealExprMultiplication(final RealExprMultiplication original,
+			final PersistentList<RealExpression> subexpressions, final RealExpression changed, final boolean inserted) {
+		super(RealExprMultiplication.class, original, subexpressions, changed, inserted);
+		this.hashCode = HASHCODE_PRIME_OFFSET + super.hashCode;
+	}
+
+	/**
+	 * Create a new product containing the sub-expressions of this product plus the given factor, in sorted order. The
+	 * sub-expressions of this product must be sorted (as is the case for all products created by the sorting factory
+	 * methods and constructors, and by this method).
+	 * <p/>
+	 * The new product shares most of its structure with this one: after the first such derivation, each further one
+	 * takes {@code O(log n)} time, including the update of the hash code and the variable set.
+	 *
+	 * @param factor
+	 * 		the factor to add; must be non-{@code null}
+	 * @return a new product equal to the sorted product of all sub-expressions of this product and {@code factor}
+	 */
+	public RealExprMultiplication withFactor(final RealExpression factor) {
+		Objects.requireNonNull(factor);
+		return new RealExprMultiplication(this, this.subexpressionsWith(factor), factor, /*inserted=*/true);
+	}
+
+	/**
+	 * Create a new product containing the sub-expressions of this product except for one occurrence of the given
+	 * factor. The sub-expressions of this product must be sorted; cf. {@link #withFactor(RealExpression)}.
+	 *
+	 * @param factor
+	 * 		the factor to remove; must be non-{@code null}
+	 * @return a new product equal to the sorted product of the remaining sub-expressions
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code factor} is not a sub-expression of this product, or if it is the only one
+	 */
+	public RealExprMultiplication withoutFactor(final RealExpression factor) {
+		Objects.requireNonNull(factor);
+		return new RealExprMultiplication(this, this.subexpressionsWithout(factor), factor, /*inserted=*/false);
+	}
+
 	@Override
 	public boolean equals(final Object o) {
 		return this == o || (o instanceof RealExprMultiplication
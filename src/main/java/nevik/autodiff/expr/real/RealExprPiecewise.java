@@ -0,0 +1,217 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real;
+
+import nevik.autodiff.expr.real.visitor.VisitorRealExpression;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Piecewise-defined expression ({@code min}, {@code max}, {@code abs} or {@code select}), as used for clipping,
+ * ReLU-style and piecewise-linear terms.
+ * <p/>
+ * These expressions are continuous in their operands except for {@code select} in its condition, but not everywhere
+ * differentiable. Where a derivative does not exist, the derivative visitors use a subgradient: at ties, {@code min}
+ * and {@code max} are differentiated as their first operand, {@code abs} has derivative zero at zero, and the
+ * condition of {@code select} does not contribute to the derivative at all.
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealExprPiecewise extends RealSuperExpression {
+	// ===============================================================================================================
+	// ====  Static fields and methods  ==============================================================================
+	// ===============================================================================================================
+	private static final int HASHCODE_PRIME_OFFSET = 55021;
+
+	public enum Kind {
+		/**
+		 * {@code min(a, b)}: the smaller of both operands (NaN if either is NaN).
+		 */
+		MIN("min", 2),
+		/**
+		 * {@code max(a, b)}: the larger of both operands (NaN if either is NaN).
+		 */
+		MAX("max", 2),
+		/**
+		 * {@code abs(a)}: the absolute value of the operand.
+		 */
+		ABS("abs", 1),
+		/**
+		 * {@code select(c, a, b)}: {@code a} if {@code c > 0}, otherwise {@code b}.
+		 */
+		SELECT("select", 3);
+
+		/**
+		 * Name of the kind, as used in infix notation.
+		 */
+		public final String name;
+		/**
+		 * Number of operands.
+		 */
+		public final int arity;
+
+		Kind(final String name, final int arity) {
+			this.name = name;
+			this.arity = arity;
+		}
+
+		/**
+		 * Evaluate this kind of expression for the given operand values (only the first {@link #arity} values are
+		 * used).
+		 */
+		public double apply(final double first, final double second, final double third) {
+			switch (this) {
+				case MIN:
+					return Math.min(first, second);
+				case MAX:
+					return Math.max(first, second);
+				case ABS:
+					return Math.abs(first);
+				default:
+					return select(first, second, third);
+			}
+		}
+
+		/**
+		 * Compute the index of the operand that the (sub-)gradient of this kind of expression passes through for the
+		 * given operand values, or {@code -1} if it vanishes; {@code abs} passes through its only operand with the
+		 * sign given by {@link Math#signum(double)}.
+		 */
+		public int activeOperand(final double first, final double second, final double third) {
+			switch (this) {
+				case MIN:
+					return second < first ? 1 : 0;
+				case MAX:
+					return second > first ? 1 : 0;
+				case ABS:
+					return first != 0 ? 0 : -1;
+				default:
+					return first > 0 ? 1 : 2;
+			}
+		}
+	}
+
+	/**
+	 * Compute {@code select(condition, ifPositive, otherwise)}. Both values are already computed, so this is a pure
+	 * blend, which the JIT compiles to a conditional move (or, in loops, a vector blend) rather than a branch.
+	 */
+	public static double select(final double condition, final double ifPositive, final double otherwise) {
+		return condition > 0 ? ifPositive : otherwise;
+	}
+
+	/**
+	 * Create a new expression {@code min(left, right)}.
+	 */
+	public static RealExprPiecewise reMin(final RealExpression left, final RealExpression right) {
+		return new RealExprPiecewise(Kind.MIN, left, right);
+	}
+
+	/**
+	 * Create a new expression {@code max(left, right)}.
+	 */
+	public static RealExprPiecewise reMax(final RealExpression left, final RealExpression right) {
+		return new RealExprPiecewise(Kind.MAX, left, right);
+	}
+
+	/**
+	 * Create a new expression {@code abs(subexpression)}.
+	 */
+	public static RealExprPiecewise reAbs(final RealExpression subexpression) {
+		return new RealExprPiecewise(Kind.ABS, subexpression);
+	}
+
+	/**
+	 * Create a new expression that is {@code ifPositive} where {@code condition > 0}, and {@code otherwise} elsewhere.
+	 */
+	public static RealExprPiecewise reSelect(final RealExpression condition, final RealExpression ifPositive,
+			final RealExpression otherwise) {
+		return new RealExprPiecewise(Kind.SELECT, condition, ifPositive, otherwise);
+	}
+
+	// ===============================================================================================================
+	// ====  Instance fields and methods  ============================================================================
+	// ===============================================================================================================
+
+	public final Kind kind;
+	protected final int hashCode;
+
+	/**
+	 * Create a new piecewise expression of the given kind.
+	 *
+	 * @param kind
+	 * 		the kind of expression; must be non-{@code null}
+	 * @param subexpressions
+	 * 		the operands; exactly {@link Kind#arity} non-{@code null} expressions
+	 * @throws java.lang.NullPointerException
+	 * 		if {@code kind} or any operand is {@code null}
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if the number of operands does not match the kind
+	 */
+	public RealExprPiecewise(final Kind kind, final RealExpression... subexpressions) {
+		super(RealExprPiecewise.class, Arrays.asList(checkOperands(kind, subexpressions)));
+		this.kind = kind;
+		this.hashCode = HASHCODE_PRIME_OFFSET + 31 * kind.ordinal() + super.hashCode;
+	}
+
+	private static RealExpression[] checkOperands(final Kind kind, final RealExpression[] subexpressions) {
+		if (subexpressions.length != kind.arity) {
+			throw new IllegalArgumentException(
+					kind.name + " takes " + kind.arity + " operands, not " + subexpressions.length);
+		}
+		for (final RealExpression subexpression : subexpressions) {
+			Objects.requireNonNull(subexpression);
+		}
+		return subexpressions.clone();
+	}
+
+	/**
+	 * Evaluate this expression for the given operand values (only the first {@link Kind#arity} values are used).
+	 */
+	public double apply(final double first, final double second, final double third) {
+		return this.kind.apply(first, second, third);
+	}
+
+	/**
+	 * Compute the index of the operand that the (sub-)gradient of this expression passes through for the given
+	 * operand values; cf. {@link Kind#activeOperand(double, double, double)}.
+	 */
+	public int activeOperand(final double first, final double second, final double third) {
+		return this.kind.activeOperand(first, second, third);
+	}
+
+	@Override
+	public boolean equals(final Object o) {
+		return this == o || (o instanceof RealExprPiecewise && ((RealExprPiecewise) o).hashCode == this.hashCode);
+	}
+
+	@Override
+	public int hashCode() {
+		return this.hashCode;
+	}
+
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName() + "{" + this.kind.name + "," + this.subexpressions + "}";
+	}
+
+	@Override
+	public <ExprResultType, StateType> ExprResultType accept(
+			final VisitorRealExpression<?, ExprResultType, StateType> visitor, final StateType state) {
+		return visitor.visit(this, state);
+	}
+}
@@ -0,0 +1,124 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real;
+
+import nevik.autodiff.expr.real.visitor.VisitorRealExpression;
+
+import java.util.Objects;
+
+import static nevik.autodiff.expr.real.RealConstant.reCons;
+
+/**
+ * Power expression {@code base^exponent}, with arbitrary sub-expressions as base and exponent.
+ * <p/>
+ * Integral exponents are evaluated by repeated squaring (cf. {@link #power(double, double)}), so that e.g. {@code x^8}
+ * takes three multiplications and a single node, instead of a multiplication node with eight factors.
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealExprPower extends RealExpressionBinary {
+	// ===============================================================================================================
+	// ====  Static fields and methods  ==============================================================================
+	// ===============================================================================================================
+	private static final int HASHCODE_PRIME_OFFSET = 58243;
+
+	/**
+	 * Largest absolute value of integral exponents that are evaluated by repeated squaring.
+	 */
+	private static final double MAX_SQUARING_EXPONENT = 1 << 30;
+
+	/**
+	 * Create a new expression raising {@code base} to the power of {@code exponent}.
+	 *
+	 * @throws java.lang.NullPointerException
+	 * 		if either argument is {@code null}
+	 */
+	public static RealExprPower rePow(final RealExpression base, final RealExpression exponent) {
+		return new RealExprPower(base, exponent);
+	}
+
+	/**
+	 * Create a new expression raising {@code base} to the given constant power.
+	 *
+	 * @throws java.lang.NullPointerException
+	 * 		if {@code base} is {@code null}
+	 */
+	public static RealExprPower rePow(final RealExpression base, final double exponent) {
+		return new RealExprPower(base, reCons(exponent));
+	}
+
+	/**
+	 * Compute {@code base^exponent}. Integral exponents (of moderate size) are evaluated by repeated squaring, all
+	 * others with {@link Math#pow(double, double)}.
+	 */
+	public static double power(final double base, final double exponent) {
+		if (exponent != Math.rint(exponent) || Math.abs(exponent) > MAX_SQUARING_EXPONENT) {
+			return Math.pow(base, exponent);
+		}
+		long n = (long) Math.abs(exponent);
+		double result = 1, square = base;
+		while (n != 0) {
+			if ((n & 1) != 0) {
+				result *= square;
+			}
+			square *= square;
+			n >>>= 1;
+		}
+		return exponent < 0 ? 1 / result : result;
+	}
+
+	// ===============================================================================================================
+	// ====  Instance fields and methods  ============================================================================
+	// ===============================================================================================================
+
+	protected final int hashCode;
+
+	/**
+	 * Create a new expression raising {@code base} to the power of {@code exponent}.
+	 *
+	 * @throws java.lang.NullPointerException
+	 * 		if either argument is {@code null}
+	 */
+	public RealExprPower(final RealExpression base, final RealExpression exponent) {
+		super(RealExprPower.class, Objects.requireNonNull(base), Objects.requireNonNull(exponent));
+		this.hashCode = HASHCODE_PRIME_OFFSET + super.hashCode;
+	}
+
+	public RealExpression getBase() {
+		return this.subexpressions.get(0);
+	}
+
+	public RealExpression getExponent() {
+		return this.subexpressions.get(1);
+	}
+
+	@Override
+	public boolean equals(final Object o) {
+		return this == o || (o instanceof RealExprPower && ((RealExprPower) o).hashCode == this.hashCode);
+	}
+
+	@Override
+	public int hashCode() {
+		return this.hashCode;
+	}
+
+	@Override
+	public <ExprResultType, StateType> ExprResultType accept(
+			final VisitorRealExpression<?, ExprResultType, StateType> visitor, final StateType state) {
+		return visitor.visit(this, state);
+	}
+}
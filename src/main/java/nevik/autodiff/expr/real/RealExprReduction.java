@@ -0,0 +1,214 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real;
+
+import nevik.autodiff.expr.real.visitor.VisitorRealExpression;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Reduction of a template expression over the rows of a dataset, i.e. the sum, product, or mean of the {@link #body}
+ * evaluated once per row.
+ * <p/>
+ * The body is an ordinary expression over two kinds of variables: <em>row variables</em>, which are bound to the
+ * columns of the dataset (one {@code double[]} per row variable) and take the values of the respective row in each
+ * term of the reduction, and free variables (e.g. model parameters), which are the same for all rows. The row
+ * variables are bound by this expression, so {@link #getVariables()} contains only the free variables of the body.
+ * <p/>
+ * A reduction over {@code n} rows thus represents an n-ary sum (or product) of copies of the body without
+ * materializing them: its size is independent of the size of the dataset, and no constants are created for the
+ * values in the dataset. The columns are not copied and must not be modified after creating the reduction.
+ * <p/>
+ * Two reductions are equal if they are of the same {@link Kind}, have equal bodies, use the same row variables, and
+ * their columns contain the same values in the first {@link #rowCount} rows (i.e. columns are compared by content, so
+ * that equal reductions over separately loaded copies of a dataset are recognized).
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealExprReduction extends RealExpressionUnary {
+	// ===============================================================================================================
+	// ====  Static fields and methods  ==============================================================================
+	// ===============================================================================================================
+	private static final int HASHCODE_PRIME_OFFSET = 62683;
+
+	/**
+	 * Kinds of reductions, i.e. how the values of the body for all rows are combined.
+	 */
+	public enum Kind {
+		/**
+		 * Sum of the values of all rows; zero for an empty dataset.
+		 */
+		SUM,
+		/**
+		 * Product of the values of all rows; one for an empty dataset.
+		 */
+		PRODUCT,
+		/**
+		 * Arithmetic mean of the values of all rows; {@code NaN} for an empty dataset.
+		 */
+		MEAN
+	}
+
+	/**
+	 * Create a new expression summing the given body over all rows of the given dataset.
+	 *
+	 * @param body
+	 * 		template expression that is evaluated for each row; must be non-{@code null}
+	 * @param columns
+	 * 		one column of values per row variable; must be non-{@code null} and each column must contain at least {@code
+	 * 		rowCount} values
+	 * @param rowCount
+	 * 		number of rows of the dataset; must be non-negative
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code rowCount} is negative or any column contains less than {@code rowCount} values
+	 */
+	public static RealExprReduction reSum(final RealExpression body, final Map<RealVariable, double[]> columns,
+			final int rowCount) {
+		return new RealExprReduction(Kind.SUM, body, columns, rowCount);
+	}
+
+	/**
+	 * Create a new expression multiplying the values of the given body for all rows of the given dataset; cf. {@link
+	 * #reSum(RealExpression, Map, int)}.
+	 */
+	public static RealExprReduction reProduct(final RealExpression body, final Map<RealVariable, double[]> columns,
+			final int rowCount) {
+		return new RealExprReduction(Kind.PRODUCT, body, columns, rowCount);
+	}
+
+	private static int computeHashCode(final double[] column, final int rowCount) {
+		int hashCode = 1;
+		for (int row = 0; row < rowCount; row++) {
+			hashCode = 31 * hashCode + Double.hashCode(column[row]);
+		}
+		return hashCode;
+	}
+
+	/**
+	 * Create a new expression averaging the values of the given body over all rows of the given dataset; cf. {@link
+	 * #reSum(RealExpression, Map, int)}.
+	 */
+	public static RealExprReduction reMean(final RealExpression body, final Map<RealVariable, double[]> columns,
+			final int rowCount) {
+		return new RealExprReduction(Kind.MEAN, body, columns, rowCount);
+	}
+
+	// ===============================================================================================================
+	// ====  Instance fields and methods  ============================================================================
+	// ===============================================================================================================
+
+	public final Kind kind;
+	/**
+	 * Template expression that is evaluated for each row (same as the only element of {@link #subexpressions}).
+	 */
+	public final RealExpression body;
+	/**
+	 * Unmodifiable map from the row variables to their columns, in the order given on creation.
+	 */
+	public final Map<RealVariable, double[]> columns;
+	public final int rowCount;
+	protected final Set<RealVariable> freeVariables;
+	protected final int hashCode;
+
+	/**
+	 * Create a new reduction of the given body over all rows of the given dataset.
+	 *
+	 * @param kind
+	 * 		how to combine the values of all rows; must be non-{@code null}
+	 * @param body
+	 * 		template expression that is evaluated for each row; must be non-{@code null}
+	 * @param columns
+	 * 		one column of values per row variable; must be non-{@code null} and each column must contain at least {@code
+	 * 		rowCount} values. The map is copied, but the columns are not.
+	 * @param rowCount
+	 * 		number of rows of the dataset; must be non-negative
+	 * @throws java.lang.NullPointerException
+	 * 		if any argument or column is {@code null}
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code rowCount} is negative or any column contains less than {@code rowCount} values
+	 */
+	public RealExprReduction(final Kind kind, final RealExpression body, final Map<RealVariable, double[]> columns,
+			final int rowCount) {
+		super(RealExprReduction.class, Objects.requireNonNull(body));
+		if (rowCount < 0) {
+			throw new IllegalArgumentException("Row count may not be negative");
+		}
+		final LinkedHashMap<RealVariable, double[]> columnsCopy = new LinkedHashMap<>();
+		int columnsHashCode = 0;
+		for (final Entry<RealVariable, double[]> entry : columns.entrySet()) {
+			final double[] column = Objects.requireNonNull(entry.getValue());
+			if (column.length < rowCount) {
+				throw new IllegalArgumentException("Column of variable " + entry.getKey() + " contains less than "
+						+ rowCount + " values");
+			}
+			columnsCopy.put(Objects.requireNonNull(entry.getKey()), column);
+			// independent of the order of the columns, like Map.hashCode()
+			columnsHashCode += entry.getKey().hashCode() ^ computeHashCode(column, rowCount);
+		}
+		this.kind = Objects.requireNonNull(kind);
+		this.body = body;
+		this.columns = Collections.unmodifiableMap(columnsCopy);
+		this.rowCount = rowCount;
+		final HashSet<RealVariable> freeVariables = new HashSet<>(body.getVariables());
+		freeVariables.removeAll(columnsCopy.keySet());
+		this.freeVariables = Collections.unmodifiableSet(freeVariables);
+		this.hashCode = HASHCODE_PRIME_OFFSET + 31 * (31 * (31 * kind.ordinal() + columnsHashCode) + rowCount)
+				+ super.hashCode;
+	}
+
+	/**
+	 * Create a new reduction of the same kind over the same dataset, with the given body.
+	 */
+	public RealExprReduction withBody(final RealExpression body) {
+		return new RealExprReduction(this.kind, body, this.columns, this.rowCount);
+	}
+
+	/**
+	 * Get the free variables of this reduction, i.e. the variables of its body except for the row variables.
+	 */
+	@Override
+	public Set<RealVariable> getVariables() {
+		return this.freeVariables;
+	}
+
+	@Override
+	public boolean equals(final Object o) {
+		return this == o || (o instanceof RealExprReduction && ((RealExprReduction) o).hashCode == this.hashCode);
+	}
+
+	@Override
+	public int hashCode() {
+		return this.hashCode;
+	}
+
+	@Override
+	public String toString() {
+		return this.getClass().getSimpleName() + "{" + this.kind + "," + this.rowCount + " rows," + this.body + "}";
+	}
+
+	@Override
+	public <ExprResultType, StateType> ExprResultType accept(
+			final VisitorRealExpression<?, ExprResultType, StateType> visitor, final StateType state) {
+		return visitor.visit(this, state);
+	}
+}
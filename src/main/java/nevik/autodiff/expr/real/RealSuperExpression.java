@@ -15,6 +15,9 @@
 
 package nevik.autodiff.expr.real;
 
+import nevik.autodiff.util.PersistentList;
+import nevik.autodiff.util.PersistentMultiset;
+
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -78,6 +81,40 @@ public abstract class RealSuperExpression extends RealExpression {
 		}));
 	}
 
+	/**
+	 * Get the used types of {@code original} as a multiset that counts, for each type, the number of sub-expressions
+	 * using it (plus one for {@code newClazz}), so that types can be removed again along with a sub-expression.
+	 */
+	@SuppressWarnings("unchecked")
+	private static PersistentMultiset<Class<? extends RealExpression>> persistentUsedTypes(
+			final Class<? extends RealExpression> newClazz, final RealSuperExpression original) {
+		if (original.usedTypes instanceof PersistentMultiset) {
+			return (PersistentMultiset<Class<? extends RealExpression>>) original.usedTypes;
+		}
+		PersistentMultiset<Class<? extends RealExpression>> usedTypes = PersistentMultiset.<Class<? extends
+				RealExpression>>empty().plus(newClazz);
+		for (final RealExpression subexpression : original.subexpressions) {
+			usedTypes = usedTypes.plusAll(subexpression.usedTypes);
+		}
+		return usedTypes;
+	}
+
+	/**
+	 * Get the variables of {@code original} as a multiset that counts, for each variable, the number of
+	 * sub-expressions depending on it, so that variables can be removed again along with a sub-expression.
+	 */
+	@SuppressWarnings("unchecked")
+	private static PersistentMultiset<RealVariable> persistentVariables(final RealSuperExpression original) {
+		if (original.variables instanceof PersistentMultiset) {
+			return (PersistentMultiset<RealVariable>) original.variables;
+		}
+		PersistentMultiset<RealVariable> variables = PersistentMultiset.empty();
+		for (final RealExpression subexpression : original.subexpressions) {
+			variables = variables.plusAll(subexpression.getVariables());
+		}
+		return variables;
+	}
+
 	private static int computeHashCode(final List<RealExpression> subexpressions) {
 		return HASHCODE_PRIME_OFFSET + subexpressions.hashCode();
 	}
@@ -110,6 +147,64 @@ public abstract class RealSuperExpression extends RealExpression {
 		this.hashCode = computeHashCode(this.subexpressions);
 	}
 
+	/**
+	 * Create a new super-expression whose sub-expressions are those of {@code original} with {@code changed} either
+	 * inserted or removed, as given by {@code subexpressions} (usually obtained from {@link
+	 * #subexpressionsWith(RealExpression)} or {@link #subexpressionsWithout(RealExpression)}). Used types, variables,
+	 * and the hash code are derived incrementally from those of {@code original}, so this takes {@code O(log n)} time
+	 * once {@code original} itself was created this way (and {@code O(n)} otherwise).
+	 *
+	 * @param original
+	 * 		the super-expression from which the new one is derived
+	 * @param subexpressions
+	 * 		the sub-expressions of the new super-expression
+	 * @param changed
+	 * 		the sub-expression that was inserted into or removed from the sub-expressions of {@code original}
+	 * @param inserted
+	 * 		whether {@code changed} was inserted ({@code true}) or removed ({@code false})
+	 */
+	protected RealSuperExpression(final Class<? extends RealExpression> newClazz, final RealSuperExpression original,
+			final PersistentList<RealExpression> subexpressions, final RealExpression changed, final boolean inserted) {
+		super(inserted ? persistentUsedTypes(newClazz, original).plusAll(changed.usedTypes) :
+				persistentUsedTypes(newClazz, original).minusAll(changed.usedTypes));
+		this.subexpressions = subexpressions;
+		this.variables = inserted ? persistentVariables(original).plusAll(changed.getVariables()) :
+				persistentVariables(original).minusAll(changed.getVariables());
+		this.hashCode = computeHashCode(this.subexpressions);
+	}
+
+	/**
+	 * Get the sub-expressions of this super-expression with {@code subexpression} inserted at the position where
+	 * sorting according to {@link RealExpression#COMPARATOR} would put it (i.e. after all sub-expressions that compare
+	 * equal to it). The sub-expressions of this super-expression must be sorted.
+	 */
+	protected final PersistentList<RealExpression> subexpressionsWith(final RealExpression subexpression) {
+		final PersistentList<RealExpression> subexpressions = PersistentList.of(this.subexpressions);
+		return subexpressions.insert(subexpressions.upperBound(subexpression, RealExpression.COMPARATOR),
+				subexpression);
+	}
+
+	/**
+	 * Get the sub-expressions of this super-expression with one occurrence of {@code subexpression} removed. The
+	 * sub-expressions of this super-expression must be sorted.
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code subexpression} is not a sub-expression of this super-expression, or if it is the only one
+	 */
+	protected final PersistentList<RealExpression> subexpressionsWithout(final RealExpression subexpression) {
+		final PersistentList<RealExpression> subexpressions = PersistentList.of(this.subexpressions);
+		for (int i = subexpressions.lowerBound(subexpression, RealExpression.COMPARATOR); i < subexpressions.size() &&
+				RealExpression.COMPARATOR.compare(subexpressions.get(i), subexpression) == 0; i++) {
+			if (subexpressions.get(i).equals(subexpression)) {
+				if (subexpressions.size() == 1) {
+					throw new IllegalArgumentException("Sub-expression list may not be empty");
+				}
+				return subexpressions.without(i);
+			}
+		}
+		throw new IllegalArgumentException("Not a sub-expression: " + subexpression);
+	}
+
 	@Override
 	public Set<RealVariable> getVariables() {
 		return this.variables;
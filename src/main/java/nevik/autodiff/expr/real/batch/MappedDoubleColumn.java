@@ -0,0 +1,156 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.batch;
+
+import nevik.autodiff.util.Buffers;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Column of {@code double} values stored in a memory-mapped file as consecutive little-endian IEEE 754 values, without
+ * any header. A column may be larger than both the heap and the 2 GiB limit of a single mapping: the file is mapped
+ * in segments of {@link #SEGMENT_ROWS} values each.
+ * <p/>
+ * Values are transferred in blocks between the mapping and ordinary {@code double[]} buffers, with {@link #get(long,
+ * double[], int, int)} and {@link #put(long, double[], int, int)}. Instances are not thread-safe.
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public class MappedDoubleColumn {
+	/**
+	 * Number of values per mapped segment (1 GiB).
+	 */
+	public static final int SEGMENT_ROWS = 1 << 27;
+
+	/**
+	 * Map the given file of little-endian doubles for reading.
+	 *
+	 * @param path
+	 * 		the file to map; its size must be a multiple of 8 bytes
+	 * @return a read-only column backed by the mapped file
+	 *
+	 * @throws java.io.IOException
+	 * 		if the file cannot be mapped or its size is not a multiple of 8 bytes
+	 */
+	public static MappedDoubleColumn open(final Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() % Double.BYTES != 0) {
+				throw new IOException("File size is not a multiple of " + Double.BYTES + " bytes: " + path);
+			}
+			// the mappings stay valid after the channel is closed
+			return new MappedDoubleColumn(channel, MapMode.READ_ONLY, channel.size() / Double.BYTES);
+		}
+	}
+
+	/**
+	 * Create (or truncate) the given file with room for the given number of values, and map it for writing.
+	 *
+	 * @param path
+	 * 		the file to create
+	 * @param rowCount
+	 * 		number of values in the column; must not be negative
+	 * @return a writable column backed by the mapped file, initially containing zeros
+	 *
+	 * @throws java.io.IOException
+	 * 		if the file cannot be created or mapped
+	 */
+	public static MappedDoubleColumn create(final Path path, final long rowCount) throws IOException {
+		if (rowCount < 0) {
+			throw new IllegalArgumentException("Row count may not be negative");
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			return new MappedDoubleColumn(channel, MapMode.READ_WRITE, rowCount);
+		}
+	}
+
+	public final long rowCount;
+	private final MappedByteBuffer[] mappings;
+	private final DoubleBuffer[] segments;
+
+	private MappedDoubleColumn(final FileChannel channel, final MapMode mode, final long rowCount)
+			throws IOException {
+		this.rowCount = rowCount;
+		final int segmentCount = (int) ((rowCount + SEGMENT_ROWS - 1) / SEGMENT_ROWS);
+		this.mappings = new MappedByteBuffer[segmentCount];
+		this.segments = new DoubleBuffer[segmentCount];
+		for (int s = 0; s < segmentCount; s++) {
+			final long firstRow = (long) s * SEGMENT_ROWS;
+			final long rows = Math.min(SEGMENT_ROWS, rowCount - firstRow);
+			this.mappings[s] = channel.map(mode, firstRow * Double.BYTES, rows * Double.BYTES);
+			this.segments[s] = this.mappings[s].order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+		}
+	}
+
+	/**
+	 * Copy {@code count} values, starting at row {@code row} of this column, into {@code target[offset:offset+count]}.
+	 */
+	public void get(final long row, final double[] target, final int offset, final int count) {
+		this.checkRange(row, count);
+		int done = 0;
+		while (done < count) {
+			final long current = row + done;
+			final DoubleBuffer segment = this.segments[(int) (current / SEGMENT_ROWS)];
+			final int position = (int) (current % SEGMENT_ROWS);
+			final int n = Math.min(count - done, segment.limit() - position);
+			Buffers.position(segment, position).get(target, offset + done, n);
+			done += n;
+		}
+	}
+
+	/**
+	 * Copy {@code source[offset:offset+count]} into this column, starting at row {@code row}.
+	 *
+	 * @throws java.nio.ReadOnlyBufferException
+	 * 		if this column was {@linkplain #open(Path) opened} read-only
+	 */
+	public void put(final long row, final double[] source, final int offset, final int count) {
+		this.checkRange(row, count);
+		int done = 0;
+		while (done < count) {
+			final long current = row + done;
+			final DoubleBuffer segment = this.segments[(int) (current / SEGMENT_ROWS)];
+			final int position = (int) (current % SEGMENT_ROWS);
+			final int n = Math.min(count - done, segment.limit() - position);
+			Buffers.position(segment, position).put(source, offset + done, n);
+			done += n;
+		}
+	}
+
+	/**
+	 * Write all changes made to this column back to the file.
+	 */
+	public void force() {
+		for (final MappedByteBuffer mapping : this.mappings) {
+			mapping.force();
+		}
+	}
+
+	private void checkRange(final long row, final int count) {
+		if (row < 0 || count < 0 || row + count > this.rowCount) {
+			throw new IndexOutOfBoundsException(
+					"Rows " + row + " to " + (row + count) + " out of range for column of " + this.rowCount + " rows");
+		}
+	}
+}
@@ -0,0 +1,160 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.batch;
+
+import nevik.autodiff.expr.real.RealAssignment;
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import nevik.autodiff.expr.real.visitor.VisitorRealExpressionBatchEvaluator;
+import nevik.autodiff.expr.real.visitor.VisitorRealExpressionBatchEvaluator.BatchEvaluationParams;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Evaluates an expression over a dataset stored column-wise in {@link MappedDoubleColumn}s, one column per per-row
+ * variable, and writes the results into another mapped column (or passes them to a consumer).
+ * <p/>
+ * The dataset is processed block by block: the values of one block of rows are copied from the mapped columns into
+ * reusable {@code double[]} buffers of {@link #blockSize} values each, evaluated with a {@link
+ * VisitorRealExpressionBatchEvaluator}, and the results are copied into the output. The working set is thus bounded
+ * by the block size, independent of the size of the dataset, and no objects are created per row.
+ * <p/>
+ * Instances are not thread-safe.
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealExpressionColumnarEvaluator {
+	/**
+	 * Default number of rows per block; small enough for the buffers of a typical expression to fit into the cache.
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+	public final RealExpression expression;
+	public final int blockSize;
+	/**
+	 * Number of rows of the dataset, i.e. of all input columns.
+	 */
+	public final long rowCount;
+
+	private final RealAssignment batchValues;
+	private final Map<RealVariable, MappedDoubleColumn> inputColumns;
+	private final Map<RealVariable, double[]> rowValues;
+	private final VisitorRealExpressionBatchEvaluator batchEvaluator;
+
+	/**
+	 * Create a new columnar evaluator with the {@link #DEFAULT_BLOCK_SIZE}.
+	 *
+	 * @see #RealExpressionColumnarEvaluator(RealExpression, Map, RealAssignment, int)
+	 */
+	public RealExpressionColumnarEvaluator(final RealExpression expression,
+			final Map<RealVariable, MappedDoubleColumn> columns, final RealAssignment batchValues) {
+		this(expression, columns, batchValues, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Create a new columnar evaluator.
+	 *
+	 * @param expression
+	 * 		the expression to evaluate; must be non-{@code null}
+	 * @param columns
+	 * 		one column per per-row variable; must be non-{@code null}, non-empty, and all columns must have the same
+	 * 		number of rows
+	 * @param batchValues
+	 * 		values of the per-batch variables, i.e. variables that are constant across the whole dataset; must be
+	 * 		non-{@code null}
+	 * @param blockSize
+	 * 		number of rows per block; must be positive
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code columns} is empty or its columns differ in length, or if {@code blockSize} is not positive
+	 */
+	public RealExpressionColumnarEvaluator(final RealExpression expression,
+			final Map<RealVariable, MappedDoubleColumn> columns, final RealAssignment batchValues,
+			final int blockSize) {
+		if (blockSize <= 0) {
+			throw new IllegalArgumentException("Block size must be positive");
+		}
+		if (columns.isEmpty()) {
+			throw new IllegalArgumentException("At least one column is required");
+		}
+		long rowCount = -1;
+		for (final Entry<RealVariable, MappedDoubleColumn> entry : columns.entrySet()) {
+			if (rowCount >= 0 && entry.getValue().rowCount != rowCount) {
+				throw new IllegalArgumentException("Column of variable " + entry.getKey() + " has " +
+						entry.getValue().rowCount + " rows, but other columns have " + rowCount);
+			}
+			rowCount = entry.getValue().rowCount;
+		}
+		this.expression = Objects.requireNonNull(expression);
+		this.blockSize = blockSize;
+		this.rowCount = rowCount;
+		this.batchValues = Objects.requireNonNull(batchValues);
+		this.inputColumns = new HashMap<>(columns);
+		this.rowValues = new HashMap<>();
+		for (final RealVariable variable : columns.keySet()) {
+			this.rowValues.put(variable, new double[blockSize]);
+		}
+		this.batchEvaluator = new VisitorRealExpressionBatchEvaluator(expression, null);
+	}
+
+	/**
+	 * Evaluate the expression for all rows of the dataset and write the results into the given column.
+	 *
+	 * @param output
+	 * 		column to write the results to; must be writable and have exactly {@link #rowCount} rows
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code output} does not have {@link #rowCount} rows
+	 */
+	public void evaluate(final MappedDoubleColumn output) {
+		if (output.rowCount != this.rowCount) {
+			throw new IllegalArgumentException(
+					"Output column has " + output.rowCount + " rows, but the dataset has " + this.rowCount);
+		}
+		for (long row = 0; row < this.rowCount; row += this.blockSize) {
+			final int count = (int) Math.min(this.blockSize, this.rowCount - row);
+			output.put(row, this.evaluateBlock(row, count), 0, count);
+		}
+	}
+
+	/**
+	 * Evaluate the expression for all rows of the dataset and pass the results to the given consumer, in the order of
+	 * the rows.
+	 *
+	 * @param sink
+	 * 		consumer of the results; must be non-{@code null}
+	 */
+	public void evaluate(final DoubleConsumer sink) {
+		Objects.requireNonNull(sink);
+		for (long row = 0; row < this.rowCount; row += this.blockSize) {
+			final int count = (int) Math.min(this.blockSize, this.rowCount - row);
+			final double[] results = this.evaluateBlock(row, count);
+			for (int i = 0; i < count; i++) {
+				sink.accept(results[i]);
+			}
+		}
+	}
+
+	private double[] evaluateBlock(final long firstRow, final int count) {
+		for (final Entry<RealVariable, MappedDoubleColumn> entry : this.inputColumns.entrySet()) {
+			entry.getValue().get(firstRow, this.rowValues.get(entry.getKey()), 0, count);
+		}
+		return this.batchEvaluator.evaluate(new BatchEvaluationParams(this.rowValues, this.batchValues, count));
+	}
+}
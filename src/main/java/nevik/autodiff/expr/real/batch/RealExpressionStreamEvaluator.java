@@ -0,0 +1,253 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.batch;
+
+import nevik.autodiff.expr.real.RealAssignment;
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import nevik.autodiff.expr.real.visitor.VisitorRealExpressionBatchEvaluator;
+import nevik.autodiff.expr.real.visitor.VisitorRealExpressionBatchEvaluator.BatchEvaluationParams;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleConsumer;
+import java.util.stream.DoubleStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Evaluates an expression over an unbounded stream of rows.
+ * <p/>
+ * Each row is a {@code double[]} containing the values of the per-row variables, in the order given by {@link
+ * #rowVariables}. Rows are grouped into micro-batches of at most {@link #batchSize} rows, each of which is evaluated
+ * with a {@link VisitorRealExpressionBatchEvaluator}. A micro-batch is also evaluated (flushed) before it is full once
+ * {@link #maxLatencyNanos} have passed since its first row was received. The column buffers that receive the rows are
+ * allocated once and reused; evaluating a micro-batch allocates its result array and the intermediate arrays of the
+ * batch evaluator anew, which become garbage once the batch is done. Memory usage is thus bounded by the batch size,
+ * independent of the length of the stream.
+ * <p/>
+ * Rows are only pulled from the source when the consumer of the results asks for more, which provides backpressure for
+ * pull-based sources ({@link Iterator}, {@link Spliterator}). For push-based producers, {@link
+ * #evaluate(BlockingQueue, DoubleConsumer)} consumes a (bounded) {@link BlockingQueue}, which blocks the producer
+ * whenever evaluation falls behind.
+ * <p/>
+ * Instances are not thread-safe and must only be used for one stream at a time.
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealExpressionStreamEvaluator {
+	/**
+	 * Marker row that signals the end of the stream to {@link #evaluate(BlockingQueue, DoubleConsumer)}. It is
+	 * compared by identity.
+	 */
+	public static final double[] END_OF_STREAM = new double[0];
+
+	public final RealExpression expression;
+	/**
+	 * Unmodifiable list of the per-row variables, in the order in which their values occur in each row.
+	 */
+	public final List<RealVariable> rowVariables;
+	public final int batchSize;
+	public final long maxLatencyNanos;
+
+	private final RealAssignment batchValues;
+	/**
+	 * Column buffers, one per row variable, each with room for {@link #batchSize} values.
+	 */
+	private final double[][] columns;
+	private final Map<RealVariable, double[]> rowValues;
+	private final VisitorRealExpressionBatchEvaluator batchEvaluator;
+
+	/**
+	 * Create a new stream evaluator.
+	 *
+	 * @param expression
+	 * 		the expression to evaluate; must be non-{@code null}
+	 * @param rowVariables
+	 * 		the per-row variables, in the order in which their values occur in each row; must be non-{@code null} and
+	 * 		must not contain duplicates. The list is copied.
+	 * @param batchValues
+	 * 		values of the per-batch variables, i.e. variables that are constant across the whole stream; must be
+	 * 		non-{@code null}
+	 * @param batchSize
+	 * 		maximum number of rows per micro-batch; must be positive
+	 * @param maxLatency
+	 * 		maximum time a row may wait for its micro-batch to fill up before the batch is evaluated anyway; must not be
+	 * 		negative. With a latency of zero, rows are never waited for: {@link #evaluate(Iterator)} then evaluates
+	 * 		each row as a micro-batch of its own, and {@link #evaluate(BlockingQueue, DoubleConsumer)} batches only the
+	 * 		rows that are already in the queue.
+	 * @param unit
+	 * 		time unit of {@code maxLatency}
+	 * @throws java.lang.NullPointerException
+	 * 		if any argument or row variable is {@code null}
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code rowVariables} contains duplicates, {@code batchSize} is not positive or {@code maxLatency} is
+	 * 		negative
+	 */
+	public RealExpressionStreamEvaluator(final RealExpression expression, final List<RealVariable> rowVariables,
+			final RealAssignment batchValues, final int batchSize, final long maxLatency, final TimeUnit unit) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("Batch size must be positive");
+		}
+		if (maxLatency < 0) {
+			throw new IllegalArgumentException("Maximum latency may not be negative");
+		}
+		final List<RealVariable> rowVariablesCopy = new ArrayList<>(rowVariables);
+		final Set<RealVariable> distinct = new HashSet<>();
+		for (final RealVariable variable : rowVariablesCopy) {
+			if (!distinct.add(Objects.requireNonNull(variable))) {
+				throw new IllegalArgumentException("Duplicate row variable " + variable);
+			}
+		}
+		this.expression = Objects.requireNonNull(expression);
+		this.rowVariables = Collections.unmodifiableList(rowVariablesCopy);
+		this.batchValues = Objects.requireNonNull(batchValues);
+		this.batchSize = batchSize;
+		this.maxLatencyNanos = unit.toNanos(maxLatency);
+		this.columns = new double[rowVariablesCopy.size()][batchSize];
+		this.rowValues = new HashMap<>();
+		for (int i = 0; i < this.columns.length; i++) {
+			this.rowValues.put(rowVariablesCopy.get(i), this.columns[i]);
+		}
+		this.batchEvaluator = new VisitorRealExpressionBatchEvaluator(expression, null);
+	}
+
+	/**
+	 * Lazily evaluate the expression for each row of the given source. Rows are pulled from {@code rows} one
+	 * micro-batch at a time, and only once all results of the previous micro-batch have been consumed.
+	 *
+	 * @param rows
+	 * 		source of rows; must be non-{@code null}
+	 * @return an iterator over the results, one per row, in the order of the rows
+	 */
+	public PrimitiveIterator.OfDouble evaluate(final Iterator<double[]> rows) {
+		Objects.requireNonNull(rows);
+		return new PrimitiveIterator.OfDouble() {
+			private double[] results = new double[0];
+			private int position;
+
+			@Override
+			public boolean hasNext() {
+				if (this.position < this.results.length) {
+					return true;
+				}
+				if (!rows.hasNext()) {
+					return false;
+				}
+				final long batchStart = System.nanoTime();
+				int rowCount = 0;
+				do {
+					RealExpressionStreamEvaluator.this.store(rows.next(), rowCount++);
+				} while (rowCount < RealExpressionStreamEvaluator.this.batchSize
+						&& System.nanoTime() - batchStart < RealExpressionStreamEvaluator.this.maxLatencyNanos
+						&& rows.hasNext());
+				this.results = RealExpressionStreamEvaluator.this.evaluateBatch(rowCount);
+				this.position = 0;
+				return true;
+			}
+
+			@Override
+			public double nextDouble() {
+				if (!this.hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return this.results[this.position++];
+			}
+		};
+	}
+
+	/**
+	 * Lazily evaluate the expression for each row of the given source; cf. {@link #evaluate(Iterator)}.
+	 *
+	 * @param rows
+	 * 		source of rows; must be non-{@code null}
+	 * @return a sequential stream of the results, one per row, in the order of the rows
+	 */
+	public DoubleStream evaluate(final Spliterator<double[]> rows) {
+		return StreamSupport.doubleStream(
+				Spliterators.spliteratorUnknownSize(this.evaluate(Spliterators.iterator(rows)),
+						Spliterator.ORDERED | Spliterator.NONNULL), /*parallel=*/false);
+	}
+
+	/**
+	 * Evaluate the expression for each row taken from the given queue, until the {@link #END_OF_STREAM} marker is
+	 * taken. Results are passed to {@code sink} in the order of the rows, one micro-batch at a time.
+	 *
+	 * @param rows
+	 * 		queue to take rows from; must be non-{@code null}
+	 * @param sink
+	 * 		consumer of the results; must be non-{@code null}
+	 * @throws java.lang.InterruptedException
+	 * 		if the current thread is interrupted while waiting for rows; rows that have already been taken from the
+	 * 		queue but not yet evaluated are lost
+	 */
+	public void evaluate(final BlockingQueue<double[]> rows, final DoubleConsumer sink) throws InterruptedException {
+		Objects.requireNonNull(sink);
+		boolean endOfStream = false;
+		while (!endOfStream) {
+			double[] row = rows.take();
+			if (row == END_OF_STREAM) {
+				break;
+			}
+			final long deadline = System.nanoTime() + this.maxLatencyNanos;
+			int rowCount = 0;
+			while (true) {
+				this.store(row, rowCount++);
+				if (rowCount == this.batchSize) {
+					break;
+				}
+				row = rows.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+				if (row == null) {
+					break; // latency limit reached, flush partial batch
+				} else if (row == END_OF_STREAM) {
+					endOfStream = true;
+					break;
+				}
+			}
+			final double[] results = this.evaluateBatch(rowCount);
+			for (final double result : results) {
+				sink.accept(result);
+			}
+		}
+	}
+
+	private void store(final double[] row, final int rowIndex) {
+		if (row.length != this.columns.length) {
+			throw new IllegalArgumentException(
+					"Row has " + row.length + " values, but there are " + this.columns.length + " row variables");
+		}
+		for (int i = 0; i < row.length; i++) {
+			this.columns[i][rowIndex] = row[i];
+		}
+	}
+
+	private double[] evaluateBatch(final int rowCount) {
+		return this.batchEvaluator.evaluate(new BatchEvaluationParams(this.rowValues, this.batchValues, rowCount));
+	}
+}
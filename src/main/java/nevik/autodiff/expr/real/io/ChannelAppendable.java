@@ -0,0 +1,102 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.io;
+
+import nevik.autodiff.util.Buffers;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+
+/**
+ * {@link Appendable} that encodes characters as ASCII into a reusable {@link ByteBuffer} and writes the buffer to a
+ * {@link WritableByteChannel} whenever it is full and on {@link #flush()}. Characters outside of the ASCII range are
+ * written as {@code '?'}.
+ * <p/>
+ * In contrast to a {@link java.io.PrintStream}, appending neither synchronizes nor creates any objects.
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public class ChannelAppendable implements Appendable, Flushable {
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer;
+
+	/**
+	 * Create a new appendable writing to the given channel.
+	 *
+	 * @param channel
+	 * 		target channel; must be non-{@code null}
+	 * @param buffer
+	 * 		buffer to encode into; must be non-{@code null} and have a capacity of at least one byte. Its contents are
+	 * 		discarded.
+	 */
+	public ChannelAppendable(final WritableByteChannel channel, final ByteBuffer buffer) {
+		if (buffer.capacity() == 0) {
+			throw new IllegalArgumentException("Buffer capacity must be positive");
+		}
+		this.channel = Objects.requireNonNull(channel);
+		this.buffer = buffer;
+		Buffers.clear(this.buffer);
+	}
+
+	@Override
+	public ChannelAppendable append(final CharSequence csq) throws IOException {
+		return this.append(csq, 0, csq.length());
+	}
+
+	@Override
+	public ChannelAppendable append(final CharSequence csq, final int start, final int end) throws IOException {
+		for (int i = start; i < end; i++) {
+			if (!this.buffer.hasRemaining()) {
+				this.drain();
+			}
+			final char c = csq.charAt(i);
+			this.buffer.put((c < 0x80) ? (byte) c : (byte) '?');
+		}
+		return this;
+	}
+
+	@Override
+	public ChannelAppendable append(final char c) throws IOException {
+		if (!this.buffer.hasRemaining()) {
+			this.drain();
+		}
+		this.buffer.put((c < 0x80) ? (byte) c : (byte) '?');
+		return this;
+	}
+
+	/**
+	 * Write all buffered bytes to the channel.
+	 *
+	 * @throws java.io.IOException
+	 * 		if writing to the channel fails
+	 */
+	@Override
+	public void flush() throws IOException {
+		this.drain();
+	}
+
+	private void drain() throws IOException {
+		Buffers.flip(this.buffer);
+		while (this.buffer.hasRemaining()) {
+			this.channel.write(this.buffer);
+		}
+		Buffers.clear(this.buffer);
+	}
+}
@@ -0,0 +1,647 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.io;
+
+import nevik.autodiff.expr.real.RealExprFunction;
+import nevik.autodiff.expr.real.RealExprFunction.Function;
+import nevik.autodiff.expr.real.RealExprPiecewise;
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+
+import static nevik.autodiff.expr.real.RealConstant.reCons;
+import static nevik.autodiff.expr.real.RealExprAddition.reAddUsrtd;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMultUsrtd;
+import static nevik.autodiff.expr.real.RealExprNegation.reNeg;
+import static nevik.autodiff.expr.real.RealExprPower.rePow;
+import static nevik.autodiff.expr.real.RealExprReciprocal.reRecip;
+
+/**
+ * Hand-written recursive-descent parser for the infix format written by {@link
+ * nevik.autodiff.expr.real.visitor.VisitorRealExpressionPrintingInfix}, e.g. {@code ((2.0 * x) + -y + (1/z))}.
+ * <p/>
+ * The grammar is slightly more general than the printer's output: besides the n-ary {@code +} and {@code *} operators,
+ * unary {@code -} and reciprocals written as {@code (1/u)}, it accepts binary {@code -} (parsed as addition of the
+ * negation) and {@code /} (multiplication with the reciprocal), and arbitrary whitespace between tokens. Operands of
+ * one parenthesized chain of {@code +} or {@code *} become the sub-expressions of a single n-ary node, in the order in
+ * which they are written, so that the output of the printer is parsed into an expression that is equal to the printed
+ * one, with two exceptions: a negation of a non-negative constant ({@code -2.0}) is parsed as a negative constant, and
+ * a sum or product of a single term ({@code (x)}) is parsed as that term.
+ * <p/>
+ * A name that is directly followed by {@code (} is a function call: the elementary functions of {@link Function} take
+ * one argument ({@code exp(x)}), {@code pow} takes two, separated by a comma ({@code pow(x, 2.0)}), and the piecewise
+ * {@code min}, {@code max}, {@code abs} and {@code select} take as many as given by {@link RealExprPiecewise.Kind}.
+ * These names can still be used as variables anywhere else.
+ * <p/>
+ * Numbers are parsed without creating intermediate strings (except for the rare literals with more than 15 significant
+ * digits or extreme exponents) and interned via {@link nevik.autodiff.expr.real.RealConstant#reCons(double)}.
+ * Variables are resolved by name via a name table; names not contained in the table are added to it as new {@link
+ * RealVariable}s. Names consist of letters, digits, {@code _} and {@code $} and do not start with a digit; {@code NaN}
+ * and {@code Infinity} are numbers. Byte input is interpreted as ASCII.
+ * <p/>
+ * The expression may be preceded by definitions of temporaries, as printed by the printer for shared sub-expressions:
+ * each definition {@code $n = sum} binds a name starting with {@code $} to the expression on its right-hand side, and
+ * every later occurrence of that name (in definitions or the expression) refers to this very expression object, so
+ * the sharing of the printed DAG is restored. Temporaries are not added to the name table; names starting with {@code
+ * $} that are not defined as temporaries are variables as usual.
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public final class RealExpressionInfixParser {
+	/**
+	 * Exactly representable powers of ten, used for the fast path of number parsing.
+	 */
+	private static final double[] POWERS_OF_TEN = { //
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, //
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+	/**
+	 * Largest mantissa for which conversion to {@code double} is exact.
+	 */
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+	/**
+	 * First character of the names of temporaries.
+	 */
+	private static final char TEMPORARY_START = '$';
+
+	/**
+	 * Parse an expression from the given characters.
+	 *
+	 * @param input
+	 * 		the text to parse; must contain exactly one expression (optionally surrounded by whitespace)
+	 * @param variables
+	 * 		name table used to resolve variables; must be non-{@code null} and modifiable
+	 * @return the parsed expression
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code input} is not a well-formed expression
+	 */
+	public static RealExpression parse(final CharSequence input, final Map<String, RealVariable> variables) {
+		return new RealExpressionInfixParser(Objects.requireNonNull(input), variables).parseAll();
+	}
+
+	/**
+	 * Parse an expression from the remaining bytes of the given buffer (interpreted as ASCII). The position of the
+	 * buffer is not changed.
+	 *
+	 * @param input
+	 * 		the text to parse; must contain exactly one expression (optionally surrounded by whitespace)
+	 * @param variables
+	 * 		name table used to resolve variables; must be non-{@code null} and modifiable
+	 * @return the parsed expression
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code input} is not a well-formed expression
+	 */
+	public static RealExpression parse(final ByteBuffer input, final Map<String, RealVariable> variables) {
+		return parse(new AsciiCharSequence(input), variables);
+	}
+
+	/**
+	 * Parse an expression from the given (ASCII) file, which is memory-mapped for the duration of parsing.
+	 *
+	 * @param path
+	 * 		the file to parse; must contain exactly one expression (optionally surrounded by whitespace)
+	 * @param variables
+	 * 		name table used to resolve variables; must be non-{@code null} and modifiable
+	 * @return the parsed expression
+	 *
+	 * @throws java.io.IOException
+	 * 		if the file cannot be mapped
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if the file does not contain a well-formed expression
+	 */
+	public static RealExpression parse(final Path path, final Map<String, RealVariable> variables)
+			throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("File too large to be mapped: " + path);
+			}
+			return parse(channel.map(MapMode.READ_ONLY, 0, channel.size()), variables);
+		}
+	}
+
+	private final CharSequence input;
+	private final int length;
+	private int position;
+
+	private final Map<String, RealVariable> variables;
+	/**
+	 * Open-addressing hash table mirroring {@link #variables}, which allows looking up names directly from the input
+	 * without creating a {@code String} for each occurrence. Keys are hashed with the algorithm of {@link
+	 * String#hashCode()}.
+	 */
+	private String[] names;
+	private RealVariable[] nameValues;
+	private int nameCount;
+	/**
+	 * Expressions of the temporaries defined so far, by name; {@code null} until the first definition.
+	 */
+	private Map<String, RealExpression> temporaries;
+
+	private RealExpressionInfixParser(final CharSequence input, final Map<String, RealVariable> variables) {
+		this.input = input;
+		this.length = input.length();
+		this.variables = Objects.requireNonNull(variables);
+		int capacity = 16;
+		while (capacity < variables.size() * 2) {
+			capacity <<= 1;
+		}
+		this.names = new String[capacity];
+		this.nameValues = new RealVariable[capacity];
+		for (final Entry<String, RealVariable> entry : variables.entrySet()) {
+			if (entry.getKey() != null) {
+				this.putName(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	// ===============================================================================================================
+	// ====  Grammar  ================================================================================================
+	// ===============================================================================================================
+
+	/**
+	 * input := (temporary '=' sum)* sum
+	 */
+	private RealExpression parseAll() {
+		while (this.peek() == TEMPORARY_START) {
+			final int start = this.position;
+			final String name = this.scanName();
+			if (this.peek() != '=') {
+				this.position = start;
+				break;
+			}
+			this.position++;
+			if (this.temporaries == null) {
+				this.temporaries = new HashMap<>();
+			}
+			this.temporaries.put(name, this.parseSum());
+		}
+		final RealExpression expression = this.parseSum();
+		this.skipWhitespace();
+		if (this.position < this.length) {
+			throw this.error("Unexpected '" + this.input.charAt(this.position) + "'");
+		}
+		return expression;
+	}
+
+	/**
+	 * sum := product (('+' | '-') product)*
+	 */
+	private RealExpression parseSum() {
+		final RealExpression first = this.parseProduct();
+		if (this.peek() != '+' && this.peek() != '-') {
+			return first;
+		}
+		final ArrayList<RealExpression> summands = new ArrayList<>();
+		summands.add(first);
+		while (true) {
+			final char operator = this.peek();
+			if (operator == '+') {
+				this.position++;
+				summands.add(this.parseProduct());
+			} else if (operator == '-') {
+				this.position++;
+				summands.add(reNeg(this.parseProduct()));
+			} else {
+				return reAddUsrtd(summands);
+			}
+		}
+	}
+
+	/**
+	 * product := unary (('*' | '/') unary)*
+	 * <p/>
+	 * A leading literal {@code 1} that is directly followed by {@code /} is dropped, i.e. {@code 1/u} is the
+	 * reciprocal of {@code u} (rather than the product of {@code 1} and that reciprocal).
+	 */
+	private RealExpression parseProduct() {
+		final int start = this.skipWhitespace();
+		RealExpression first = this.parseUnary();
+		final boolean literalOne = this.position - start == 1 && this.input.charAt(start) == '1';
+		if (literalOne && this.peek() == '/') {
+			this.position++;
+			first = reRecip(this.parseUnary());
+		}
+		if (this.peek() != '*' && this.peek() != '/') {
+			return first;
+		}
+		final ArrayList<RealExpression> factors = new ArrayList<>();
+		factors.add(first);
+		while (true) {
+			final char operator = this.peek();
+			if (operator == '*') {
+				this.position++;
+				factors.add(this.parseUnary());
+			} else if (operator == '/') {
+				this.position++;
+				factors.add(reRecip(this.parseUnary()));
+			} else {
+				return reMultUsrtd(factors);
+			}
+		}
+	}
+
+	/**
+	 * unary := '-' unary | primary
+	 * <p/>
+	 * A {@code -} that is directly followed by a number is part of that number.
+	 */
+	private RealExpression parseUnary() {
+		if (this.peek() == '-') {
+			this.position++;
+			if (this.position < this.length && isNumberStart(this.input.charAt(this.position))) {
+				return reCons(-this.parseNumber());
+			}
+			return reNeg(this.parseUnary());
+		}
+		return this.parsePrimary();
+	}
+
+	/**
+	 * primary := number | call | name | '(' sum ')'
+	 */
+	private RealExpression parsePrimary() {
+		final char c = this.peek();
+		if (c == '(') {
+			this.position++;
+			final RealExpression expression = this.parseSum();
+			if (this.peek() != ')') {
+				throw this.error("Expected ')'");
+			}
+			this.position++;
+			return expression;
+		} else if (isNumberStart(c)) {
+			return reCons(this.parseNumber());
+		} else if (isNameStart(c)) {
+			if (c == TEMPORARY_START && this.temporaries != null) {
+				final int start = this.position;
+				final RealExpression temporary = this.temporaries.get(this.scanName());
+				if (temporary != null) {
+					return temporary;
+				}
+				this.position = start;
+			}
+			final RealExpression call = this.parseCall();
+			return call != null ? call : this.parseName();
+		} else if (c == 0) {
+			throw this.error("Unexpected end of input");
+		} else {
+			throw this.error("Unexpected '" + c + "'");
+		}
+	}
+
+	/**
+	 * call := function '(' sum ')' | 'pow' '(' sum ',' sum ')' | piecewise '(' sum (',' sum)* ')'
+	 * <p/>
+	 * Returns {@code null} (without consuming any input) if the upcoming name is not followed by {@code (} or is not
+	 * the name of a function.
+	 */
+	private RealExpression parseCall() {
+		final int start = this.position;
+		int end = start;
+		while (end < this.length && isNamePart(this.input.charAt(end))) {
+			end++;
+		}
+		this.position = end;
+		if (this.peek() != '(') {
+			this.position = start;
+			return null;
+		}
+		final Function function = this.functionNamed(start, end);
+		final RealExprPiecewise.Kind piecewise = function == null ? this.piecewiseNamed(start, end) : null;
+		final boolean power = function == null && piecewise == null && this.nameEquals(start, end, "pow");
+		if (function == null && piecewise == null && !power) {
+			this.position = start;
+			return null;
+		}
+		final int arity = power ? 2 : piecewise != null ? piecewise.arity : 1;
+		final RealExpression[] arguments = new RealExpression[arity];
+		this.position++;
+		for (int i = 0; i < arity; i++) {
+			if (i > 0) {
+				if (this.peek() != ',') {
+					throw this.error("Expected ','");
+				}
+				this.position++;
+			}
+			arguments[i] = this.parseSum();
+		}
+		if (this.peek() != ')') {
+			throw this.error("Expected ')'");
+		}
+		this.position++;
+		return power ? rePow(arguments[0], arguments[1]) : piecewise != null ?
+				new RealExprPiecewise(piecewise, arguments) : new RealExprFunction(function, arguments[0]);
+	}
+
+	// ===============================================================================================================
+	// ====  Tokens  =================================================================================================
+	// ===============================================================================================================
+
+	/**
+	 * Skip whitespace and return the next character without consuming it, or {@code 0} at the end of the input.
+	 */
+	private char peek() {
+		this.skipWhitespace();
+		return (this.position < this.length) ? this.input.charAt(this.position) : 0;
+	}
+
+	private int skipWhitespace() {
+		while (this.position < this.length && Character.isWhitespace(this.input.charAt(this.position))) {
+			this.position++;
+		}
+		return this.position;
+	}
+
+	private boolean startsWith(final String literal) {
+		if (this.position + literal.length() > this.length) {
+			return false;
+		}
+		for (int i = 0; i < literal.length(); i++) {
+			if (this.input.charAt(this.position + i) != literal.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean isNumberStart(final char c) {
+		return (c >= '0' && c <= '9') || c == '.' || (c == 'I' && this.startsWith("Infinity"))
+				|| (c == 'N' && this.startsWith("NaN"));
+	}
+
+	private boolean nameEquals(final int start, final int end, final String name) {
+		if (end - start != name.length()) {
+			return false;
+		}
+		for (int i = 0; i < name.length(); i++) {
+			if (this.input.charAt(start + i) != name.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the function whose name is the input between {@code start} and {@code end}, or {@code null}
+	 */
+	private Function functionNamed(final int start, final int end) {
+		for (final Function function : Function.values()) {
+			if (this.nameEquals(start, end, function.name)) {
+				return function;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the kind of piecewise expression whose name is the input between {@code start} and {@code end}, or
+	 * {@code null}
+	 */
+	private RealExprPiecewise.Kind piecewiseNamed(final int start, final int end) {
+		for (final RealExprPiecewise.Kind kind : RealExprPiecewise.Kind.values()) {
+			if (this.nameEquals(start, end, kind.name)) {
+				return kind;
+			}
+		}
+		return null;
+	}
+
+	private static boolean isNameStart(final char c) {
+		return Character.isLetter(c) || c == '_' || c == '$';
+	}
+
+	private static boolean isNamePart(final char c) {
+		return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+	}
+
+	/**
+	 * Parse an unsigned decimal number (as written by {@link Double#toString(double)}, or in plain decimal notation).
+	 */
+	private double parseNumber() {
+		if (this.startsWith("Infinity")) {
+			this.position += 8;
+			return Double.POSITIVE_INFINITY;
+		} else if (this.startsWith("NaN")) {
+			this.position += 3;
+			return Double.NaN;
+		}
+		final int start = this.position;
+		long mantissa = 0;
+		int digits = 0; // significant digits in mantissa
+		int exponent = 0;
+		boolean anyDigit = false;
+		boolean inFraction = false;
+		while (this.position < this.length) {
+			final char c = this.input.charAt(this.position);
+			if (c >= '0' && c <= '9') {
+				anyDigit = true;
+				if (digits < 18) {
+					mantissa = mantissa * 10 + (c - '0');
+					if (mantissa != 0) {
+						digits++;
+					}
+					if (inFraction) {
+						exponent--;
+					}
+				} else {
+					digits++;
+					if (!inFraction) {
+						exponent++;
+					}
+				}
+			} else if (c == '.' && !inFraction) {
+				inFraction = true;
+			} else {
+				break;
+			}
+			this.position++;
+		}
+		if (!anyDigit) {
+			throw this.error("Malformed number");
+		}
+		if (this.position < this.length && (this.input.charAt(this.position) == 'E'
+				|| this.input.charAt(this.position) == 'e')) {
+			this.position++;
+			boolean negative = false;
+			if (this.position < this.length && (this.input.charAt(this.position) == '-'
+					|| this.input.charAt(this.position) == '+')) {
+				negative = this.input.charAt(this.position) == '-';
+				this.position++;
+			}
+			int explicitExponent = 0;
+			boolean anyExponentDigit = false;
+			while (this.position < this.length && this.input.charAt(this.position) >= '0'
+					&& this.input.charAt(this.position) <= '9') {
+				anyExponentDigit = true;
+				if (explicitExponent < 100000) {
+					explicitExponent = explicitExponent * 10 + (this.input.charAt(this.position) - '0');
+				}
+				this.position++;
+			}
+			if (!anyExponentDigit) {
+				throw this.error("Malformed number exponent");
+			}
+			exponent += negative ? -explicitExponent : explicitExponent;
+		}
+
+		if (digits <= 15 && mantissa < MAX_EXACT_MANTISSA) {
+			// fast path: both mantissa and power of ten are exact, so a single rounding step gives the correct result
+			if (exponent == 0) {
+				return mantissa;
+			} else if (exponent > 0 && exponent < POWERS_OF_TEN.length) {
+				return mantissa * POWERS_OF_TEN[exponent];
+			} else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+				return mantissa / POWERS_OF_TEN[-exponent];
+			}
+		}
+		return Double.parseDouble(this.input.subSequence(start, this.position).toString());
+	}
+
+	/**
+	 * Consume the upcoming name and return it as a string.
+	 */
+	private String scanName() {
+		final int start = this.position;
+		while (this.position < this.length && isNamePart(this.input.charAt(this.position))) {
+			this.position++;
+		}
+		return this.input.subSequence(start, this.position).toString();
+	}
+
+	private RealVariable parseName() {
+		final int start = this.position;
+		int hash = 0;
+		while (this.position < this.length && isNamePart(this.input.charAt(this.position))) {
+			hash = 31 * hash + this.input.charAt(this.position);
+			this.position++;
+		}
+		final int nameLength = this.position - start;
+		final int mask = this.names.length - 1;
+		for (int slot = spread(hash) & mask; this.names[slot] != null; slot = (slot + 1) & mask) {
+			if (this.regionEquals(this.names[slot], start, nameLength)) {
+				return this.nameValues[slot];
+			}
+		}
+		final String name = this.input.subSequence(start, this.position).toString();
+		final RealVariable variable = new RealVariable(name);
+		this.variables.put(name, variable);
+		this.putName(name, variable);
+		return variable;
+	}
+
+	private boolean regionEquals(final String name, final int start, final int nameLength) {
+		if (name.length() != nameLength) {
+			return false;
+		}
+		for (int i = 0; i < nameLength; i++) {
+			if (name.charAt(i) != this.input.charAt(start + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int spread(final int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	private void putName(final String name, final RealVariable variable) {
+		if (2 * (this.nameCount + 1) > this.names.length) {
+			final String[] oldNames = this.names;
+			final RealVariable[] oldValues = this.nameValues;
+			this.names = new String[oldNames.length * 2];
+			this.nameValues = new RealVariable[oldNames.length * 2];
+			this.nameCount = 0;
+			for (int i = 0; i < oldNames.length; i++) {
+				if (oldNames[i] != null) {
+					this.putName(oldNames[i], oldValues[i]);
+				}
+			}
+		}
+		final int mask = this.names.length - 1;
+		int slot = spread(name.hashCode()) & mask;
+		while (this.names[slot] != null) {
+			if (this.names[slot].equals(name)) {
+				this.nameValues[slot] = variable;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		this.names[slot] = name;
+		this.nameValues[slot] = variable;
+		this.nameCount++;
+	}
+
+	private IllegalArgumentException error(final String message) {
+		return new IllegalArgumentException(message + " at position " + this.position);
+	}
+
+	/**
+	 * Read-only view of the remaining bytes of a {@link ByteBuffer} as ASCII characters.
+	 */
+	private static final class AsciiCharSequence implements CharSequence {
+		private final ByteBuffer buffer;
+		private final int offset;
+		private final int length;
+
+		private AsciiCharSequence(final ByteBuffer buffer) {
+			this(buffer, buffer.position(), buffer.remaining());
+		}
+
+		private AsciiCharSequence(final ByteBuffer buffer, final int offset, final int length) {
+			this.buffer = buffer;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public int length() {
+			return this.length;
+		}
+
+		@Override
+		public char charAt(final int index) {
+			return (char) (this.buffer.get(this.offset + index) & 0xFF);
+		}
+
+		@Override
+		public CharSequence subSequence(final int start, final int end) {
+			return new AsciiCharSequence(this.buffer, this.offset + start, end - start);
+		}
+
+		@Override
+		public String toString() {
+			final char[] chars = new char[this.length];
+			for (int i = 0; i < this.length; i++) {
+				chars[i] = this.charAt(i);
+			}
+			return new String(chars);
+		}
+	}
+}
@@ -0,0 +1,620 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.poly;
+
+import nevik.autodiff.expr.real.RealAssignment;
+import nevik.autodiff.expr.real.RealConstant;
+import nevik.autodiff.expr.real.RealExprAddition;
+import nevik.autodiff.expr.real.RealExprLinear;
+import nevik.autodiff.expr.real.RealExprMultiplication;
+import nevik.autodiff.expr.real.RealExprNegation;
+import nevik.autodiff.expr.real.RealExprPower;
+import nevik.autodiff.expr.real.RealExprReciprocal;
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import nevik.autodiff.expr.real.visitor.AbstractVisitorRealExpression;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static nevik.autodiff.expr.real.RealConstant.ZERO;
+import static nevik.autodiff.expr.real.RealConstant.reCons;
+import static nevik.autodiff.expr.real.RealExprAddition.reAdd;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMult;
+import static nevik.autodiff.expr.real.RealExprPower.rePow;
+
+/**
+ * Sparse multivariate polynomial in canonical form: a sum of terms {@code c * x_1^e_1 * ... * x_n^e_n} over a fixed
+ * array of variables, stored as a {@code double[]} of coefficients and a flat {@code int[]} of exponent vectors (one
+ * row of {@code n} exponents per term). Terms are sorted by their exponent vectors in descending lexicographic order,
+ * every exponent vector occurs at most once, and no coefficient is zero; the zero polynomial has no terms.
+ * <p/>
+ * Polynomials are created from expressions built of constants, variables, additions, multiplications, negations,
+ * linear forms, reciprocals of constants and powers with constant non-negative integral exponents (cf. {@link
+ * #of(RealExpression)}); all products are expanded, so {@code x*x*x} becomes the single term {@code x^3}.
+ * <p/>
+ * Evaluation uses a recursive multivariate Horner scheme: the polynomial is written as a polynomial in one variable
+ * whose coefficients are polynomials in the remaining variables, with variables ordered by the number of terms they
+ * occur in, so that the most frequent variable is factored out first. Gaps between consecutive exponents are bridged
+ * by {@link RealExprPower#power(double, double)} (i.e. repeated squaring). The scheme is built once, on first use.
+ * Differentiation is exact and operates directly on the exponent vectors.
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public final class RealPolynomial {
+	private static final Set<Class<? extends RealExpression>> SUPPORTED_TYPES = //
+			Collections.unmodifiableSet(new HashSet<>(Arrays.asList( //
+					RealConstant.class, //
+					RealVariable.class, //
+					RealExprAddition.class, //
+					RealExprMultiplication.class, //
+					RealExprNegation.class, //
+					RealExprReciprocal.class, //
+					RealExprPower.class, //
+					RealExprLinear.class)));
+
+	/**
+	 * Convert the given expression into a polynomial over the variables of the expression.
+	 *
+	 * @param expression
+	 * 		the expression to convert; must be non-{@code null}
+	 * @return the expanded polynomial
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code expression} is not a polynomial, e.g. because it contains a reciprocal of a non-constant
+	 * 		expression, a power with a non-constant or non-integral exponent, or types of expressions that cannot be
+	 * 		converted
+	 */
+	public static RealPolynomial of(final RealExpression expression) {
+		final RealVariable[] variables = expression.getVariables().toArray(new RealVariable[0]);
+		return new Converter(Objects.requireNonNull(expression), variables).evaluate();
+	}
+
+	private static RealPolynomial constant(final RealVariable[] variables, final double value) {
+		return value == 0 ? new RealPolynomial(variables, new int[0], new double[0]) :
+				new RealPolynomial(variables, new int[variables.length], new double[]{value});
+	}
+
+	private static RealPolynomial variable(final RealVariable[] variables, final int index) {
+		final int[] exponents = new int[variables.length];
+		exponents[index] = 1;
+		return new RealPolynomial(variables, exponents, new double[]{1});
+	}
+
+	/**
+	 * Bring the given terms (which may be unsorted, contain zero coefficients and repeated exponent vectors) into
+	 * canonical form.
+	 */
+	private static RealPolynomial canonical(final RealVariable[] variables, final int[] exponents,
+			final double[] coefficients, final int termCount) {
+		final int n = variables.length;
+		final Integer[] order = new Integer[termCount];
+		for (int t = 0; t < termCount; t++) {
+			order[t] = t;
+		}
+		Arrays.sort(order, (a, b) -> -compareExponents(exponents, a * n, exponents, b * n, n));
+		final int[] newExponents = new int[termCount * n];
+		final double[] newCoefficients = new double[termCount];
+		int count = 0;
+		for (int i = 0; i < termCount; ) {
+			final int first = order[i];
+			double coefficient = 0;
+			// sum up the coefficients of all terms with the same exponent vector
+			for (; i < termCount && compareExponents(exponents, first * n, exponents, order[i] * n, n) == 0; i++) {
+				coefficient += coefficients[order[i]];
+			}
+			if (coefficient != 0) {
+				System.arraycopy(exponents, first * n, newExponents, count * n, n);
+				newCoefficients[count++] = coefficient;
+			}
+		}
+		return new RealPolynomial(variables, Arrays.copyOf(newExponents, count * n),
+				Arrays.copyOf(newCoefficients, count));
+	}
+
+	private static int compareExponents(final int[] a, final int aOffset, final int[] b, final int bOffset,
+			final int n) {
+		for (int v = 0; v < n; v++) {
+			if (a[aOffset + v] != b[bOffset + v]) {
+				return Integer.compare(a[aOffset + v], b[bOffset + v]);
+			}
+		}
+		return 0;
+	}
+
+	// ===============================================================================================================
+	// ====  Instance fields and methods  ============================================================================
+	// ===============================================================================================================
+
+	private final RealVariable[] variables;
+	private final int[] exponents;
+	private final double[] coefficients;
+	/**
+	 * Horner scheme for evaluation; built on first use (racy, but idempotent).
+	 */
+	private HornerNode horner;
+
+	private RealPolynomial(final RealVariable[] variables, final int[] exponents, final double[] coefficients) {
+		this.variables = variables;
+		this.exponents = exponents;
+		this.coefficients = coefficients;
+	}
+
+	/**
+	 * @return a copy of the array of variables of this polynomial; exponent vectors and value arrays use this order
+	 */
+	public RealVariable[] getVariables() {
+		return this.variables.clone();
+	}
+
+	public int getTermCount() {
+		return this.coefficients.length;
+	}
+
+	public double getCoefficient(final int term) {
+		return this.coefficients[term];
+	}
+
+	/**
+	 * @return the exponent of the {@code variable}-th variable in the given term
+	 */
+	public int getExponent(final int term, final int variable) {
+		if (variable < 0 || variable >= this.variables.length) {
+			throw new IndexOutOfBoundsException("Variable " + variable + " does not exist");
+		}
+		return this.exponents[term * this.variables.length + variable];
+	}
+
+	/**
+	 * @return the total degree of this polynomial, or {@code -1} for the zero polynomial
+	 */
+	public int getDegree() {
+		final int n = this.variables.length;
+		int degree = -1;
+		for (int t = 0; t < this.coefficients.length; t++) {
+			int termDegree = 0;
+			for (int v = 0; v < n; v++) {
+				termDegree += this.exponents[t * n + v];
+			}
+			degree = Math.max(degree, termDegree);
+		}
+		return degree;
+	}
+
+	/**
+	 * Compute the exact partial derivative of this polynomial w.r.t. the given variable, over the same variables.
+	 *
+	 * @param variable
+	 * 		the variable w.r.t. which to differentiate; must be non-{@code null}
+	 */
+	public RealPolynomial derivative(final RealVariable variable) {
+		final int index = Arrays.asList(this.variables).indexOf(Objects.requireNonNull(variable));
+		final int n = this.variables.length;
+		final int[] newExponents = new int[this.exponents.length];
+		final double[] newCoefficients = new double[this.coefficients.length];
+		int count = 0;
+		if (index >= 0) {
+			for (int t = 0; t < this.coefficients.length; t++) {
+				final int exponent = this.exponents[t * n + index];
+				if (exponent > 0) {
+					// d(c * x^e) = c*e * x^(e-1); the order of the remaining terms is preserved
+					System.arraycopy(this.exponents, t * n, newExponents, count * n, n);
+					newExponents[count * n + index] = exponent - 1;
+					newCoefficients[count++] = this.coefficients[t] * exponent;
+				}
+			}
+		}
+		return new RealPolynomial(this.variables, Arrays.copyOf(newExponents, count * n),
+				Arrays.copyOf(newCoefficients, count));
+	}
+
+	/**
+	 * Evaluate this polynomial with its Horner scheme.
+	 *
+	 * @param values
+	 * 		the value of each variable, in the order of {@link #getVariables()}
+	 */
+	public double evaluate(final double[] values) {
+		if (values.length < this.variables.length) {
+			throw new IllegalArgumentException("Expected " + this.variables.length + " values, got " + values.length);
+		}
+		return this.horner().evaluate(values);
+	}
+
+	/**
+	 * Evaluate this polynomial with its Horner scheme.
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code assignment} does not contain a value for a variable of this polynomial
+	 */
+	public double evaluate(final RealAssignment assignment) {
+		final double[] values = new double[this.variables.length];
+		for (int v = 0; v < values.length; v++) {
+			final Double value = assignment.get(this.variables[v]);
+			if (value == null) {
+				throw new IllegalArgumentException("No value assigned to variable " + this.variables[v]);
+			}
+			values[v] = value;
+		}
+		return this.horner().evaluate(values);
+	}
+
+	/**
+	 * Build an expression that evaluates this polynomial in its Horner scheme.
+	 */
+	public RealExpression toExpression() {
+		return this.horner().toExpression(this.variables);
+	}
+
+	private HornerNode horner() {
+		HornerNode horner = this.horner;
+		if (horner == null) {
+			final int n = this.variables.length;
+			// factor out the variables that occur in the most terms first
+			final int[] occurrences = new int[n];
+			for (int t = 0; t < this.coefficients.length; t++) {
+				for (int v = 0; v < n; v++) {
+					if (this.exponents[t * n + v] != 0) {
+						occurrences[v]++;
+					}
+				}
+			}
+			final Integer[] order = new Integer[n];
+			for (int v = 0; v < n; v++) {
+				order[v] = v;
+			}
+			Arrays.sort(order, (a, b) -> Integer.compare(occurrences[b], occurrences[a]));
+			final int[] terms = new int[this.coefficients.length];
+			for (int t = 0; t < terms.length; t++) {
+				terms[t] = t;
+			}
+			horner = this.buildHorner(terms, terms.length, order, 0);
+			this.horner = horner;
+		}
+		return horner;
+	}
+
+	/**
+	 * Build the Horner scheme of the given subset of terms, factoring out the variables {@code order[level]}, {@code
+	 * order[level+1]}, ... (all variables before {@code level} have been factored out already).
+	 */
+	private HornerNode buildHorner(final int[] terms, final int termCount, final Integer[] order, int level) {
+		final int n = this.variables.length;
+		if (termCount == 0) {
+			return new HornerNode(0);
+		}
+		// skip variables that do not occur in any of the terms
+		for (; level < n; level++) {
+			final int variable = order[level];
+			boolean occurs = false;
+			for (int i = 0; i < termCount && !occurs; i++) {
+				occurs = this.exponents[terms[i] * n + variable] != 0;
+			}
+			if (occurs) {
+				break;
+			}
+		}
+		if (level == n) {
+			// only the constant term is left (canonical form has at most one)
+			return new HornerNode(this.coefficients[terms[0]]);
+		}
+		final int variable = order[level];
+		// group terms by the exponent of the variable, in descending order of exponents
+		final Integer[] sorted = new Integer[termCount];
+		for (int i = 0; i < termCount; i++) {
+			sorted[i] = terms[i];
+		}
+		Arrays.sort(sorted, (a, b) -> Integer.compare(this.exponents[b * n + variable],
+				this.exponents[a * n + variable]));
+		final List<Integer> powers = new ArrayList<>();
+		final List<HornerNode> coefficients = new ArrayList<>();
+		final int[] group = new int[termCount];
+		for (int i = 0; i < termCount; ) {
+			final int power = this.exponents[sorted[i] * n + variable];
+			int groupSize = 0;
+			for (; i < termCount && this.exponents[sorted[i] * n + variable] == power; i++) {
+				group[groupSize++] = sorted[i];
+			}
+			powers.add(power);
+			coefficients.add(this.buildHorner(Arrays.copyOf(group, groupSize), groupSize, order, level + 1));
+		}
+		final int[] powerArray = new int[powers.size()];
+		for (int i = 0; i < powerArray.length; i++) {
+			powerArray[i] = powers.get(i);
+		}
+		return new HornerNode(variable, powerArray, coefficients.toArray(new HornerNode[0]));
+	}
+
+	@Override
+	public boolean equals(final Object o) {
+		if (this == o) {
+			return true;
+		} else if (!(o instanceof RealPolynomial)) {
+			return false;
+		}
+		final RealPolynomial other = (RealPolynomial) o;
+		return Arrays.equals(this.variables, other.variables) && Arrays.equals(this.exponents, other.exponents) &&
+				Arrays.equals(this.coefficients, other.coefficients);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * (31 * Arrays.hashCode(this.variables) + Arrays.hashCode(this.exponents)) +
+				Arrays.hashCode(this.coefficients);
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder(this.getClass().getSimpleName()).append('{');
+		final int n = this.variables.length;
+		for (int t = 0; t < this.coefficients.length; t++) {
+			sb.append(t == 0 ? "" : " + ").append(this.coefficients[t]);
+			for (int v = 0; v < n; v++) {
+				if (this.exponents[t * n + v] != 0) {
+					sb.append('*').append(this.variables[v].name).append('^').append(this.exponents[t * n + v]);
+				}
+			}
+		}
+		return sb.append('}').toString();
+	}
+
+	// ===============================================================================================================
+	// ====  Arithmetic (on polynomials over the same variables)  ====================================================
+	// ===============================================================================================================
+
+	/**
+	 * @return the sum of the given polynomials, all of which must be over the given variables
+	 */
+	private static RealPolynomial sum(final RealVariable[] variables, final List<RealPolynomial> summands) {
+		int termCount = 0;
+		for (final RealPolynomial summand : summands) {
+			termCount += summand.coefficients.length;
+		}
+		final int[] exponents = new int[termCount * variables.length];
+		final double[] coefficients = new double[termCount];
+		int t = 0;
+		for (final RealPolynomial summand : summands) {
+			System.arraycopy(summand.exponents, 0, exponents, t * variables.length, summand.exponents.length);
+			System.arraycopy(summand.coefficients, 0, coefficients, t, summand.coefficients.length);
+			t += summand.coefficients.length;
+		}
+		return canonical(variables, exponents, coefficients, termCount);
+	}
+
+	private RealPolynomial times(final RealPolynomial other) {
+		final int n = this.variables.length;
+		final int termCount = this.coefficients.length * other.coefficients.length;
+		final int[] exponents = new int[termCount * n];
+		final double[] coefficients = new double[termCount];
+		int t = 0;
+		for (int a = 0; a < this.coefficients.length; a++) {
+			for (int b = 0; b < other.coefficients.length; b++, t++) {
+				for (int v = 0; v < n; v++) {
+					exponents[t * n + v] = this.exponents[a * n + v] + other.exponents[b * n + v];
+				}
+				coefficients[t] = this.coefficients[a] * other.coefficients[b];
+			}
+		}
+		return canonical(this.variables, exponents, coefficients, termCount);
+	}
+
+	private RealPolynomial scaled(final double factor) {
+		if (factor == 0) {
+			return constant(this.variables, 0);
+		}
+		final double[] coefficients = this.coefficients.clone();
+		for (int t = 0; t < coefficients.length; t++) {
+			coefficients[t] *= factor;
+		}
+		return new RealPolynomial(this.variables, this.exponents, coefficients);
+	}
+
+	private RealPolynomial power(long exponent) {
+		RealPolynomial result = constant(this.variables, 1), square = this;
+		while (exponent != 0) {
+			if ((exponent & 1) != 0) {
+				result = result.times(square);
+			}
+			exponent >>>= 1;
+			if (exponent != 0) {
+				square = square.times(square);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return whether this polynomial is constant (including the zero polynomial)
+	 */
+	private boolean isConstant() {
+		for (final int exponent : this.exponents) {
+			if (exponent != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private double constantValue() {
+		return this.coefficients.length == 0 ? 0 : this.coefficients[0];
+	}
+
+	/**
+	 * Node of a Horner scheme: either a constant (if {@code variable < 0}), or the polynomial {@code sum_i
+	 * coefficients[i] * x^powers[i]} in the variable {@code x}, with powers in descending order.
+	 */
+	private static final class HornerNode {
+		private final double constant;
+		private final int variable;
+		private final int[] powers;
+		private final HornerNode[] coefficients;
+
+		HornerNode(final double constant) {
+			this.constant = constant;
+			this.variable = -1;
+			this.powers = null;
+			this.coefficients = null;
+		}
+
+		HornerNode(final int variable, final int[] powers, final HornerNode[] coefficients) {
+			this.constant = 0;
+			this.variable = variable;
+			this.powers = powers;
+			this.coefficients = coefficients;
+		}
+
+		double evaluate(final double[] values) {
+			if (this.variable < 0) {
+				return this.constant;
+			}
+			final double x = values[this.variable];
+			double result = this.coefficients[0].evaluate(values);
+			for (int i = 1; i < this.powers.length; i++) {
+				result = result * power(x, this.powers[i - 1] - this.powers[i]) + this.coefficients[i].evaluate(values);
+			}
+			final int lowest = this.powers[this.powers.length - 1];
+			return lowest == 0 ? result : result * power(x, lowest);
+		}
+
+		private static double power(final double x, final int exponent) {
+			return exponent == 1 ? x : RealExprPower.power(x, exponent);
+		}
+
+		RealExpression toExpression(final RealVariable[] variables) {
+			if (this.variable < 0) {
+				return this.constant == 0 ? ZERO : reCons(this.constant);
+			}
+			final RealVariable x = variables[this.variable];
+			RealExpression result = this.coefficients[0].toExpression(variables);
+			for (int i = 1; i < this.powers.length; i++) {
+				result = reAdd(scale(result, x, this.powers[i - 1] - this.powers[i]),
+						this.coefficients[i].toExpression(variables));
+			}
+			final int lowest = this.powers[this.powers.length - 1];
+			return lowest == 0 ? result : scale(result, x, lowest);
+		}
+
+		private static RealExpression scale(final RealExpression expression, final RealVariable x, final int exponent) {
+			final RealExpression power = exponent == 1 ? x : rePow(x, exponent);
+			return expression instanceof RealConstant && ((RealConstant) expression).value == 1 ? power :
+					reMult(expression, power);
+		}
+	}
+
+	/**
+	 * Visitor that converts an expression into a polynomial, converting each distinct node (by identity) only once.
+	 */
+	private static final class Converter extends AbstractVisitorRealExpression<Void, RealPolynomial, RealPolynomial,
+			Void> {
+		private final RealVariable[] variables;
+		private final Map<RealVariable, Integer> variableIndices = new IdentityHashMap<>();
+		private final Map<RealExpression, RealPolynomial> converted = new IdentityHashMap<>();
+
+		Converter(final RealExpression rootExpression, final RealVariable[] variables) {
+			super(SUPPORTED_TYPES, rootExpression, null);
+			this.variables = variables;
+			for (int v = 0; v < variables.length; v++) {
+				this.variableIndices.put(variables[v], v);
+			}
+		}
+
+		@Override
+		protected RealPolynomial doEvaluation() {
+			return this.convert(this.rootExpression);
+		}
+
+		private RealPolynomial convert(final RealExpression expression) {
+			RealPolynomial polynomial = this.converted.get(expression);
+			if (polynomial == null) {
+				polynomial = expression.accept(this, null);
+				this.converted.put(expression, polynomial);
+			}
+			return polynomial;
+		}
+
+		@Override
+		public RealPolynomial visit(final RealConstant realConstant, final Void state) {
+			return constant(this.variables, realConstant.value);
+		}
+
+		@Override
+		public RealPolynomial visit(final RealVariable realVariable, final Void state) {
+			return variable(this.variables, this.variableIndices.get(realVariable));
+		}
+
+		@Override
+		public RealPolynomial visit(final RealExprAddition realExprAddition, final Void state) {
+			final List<RealPolynomial> summands = new ArrayList<>(realExprAddition.subexpressions.size());
+			for (final RealExpression subexpression : realExprAddition.subexpressions) {
+				summands.add(this.convert(subexpression));
+			}
+			return sum(this.variables, summands);
+		}
+
+		@Override
+		public RealPolynomial visit(final RealExprMultiplication realExprMultiplication, final Void state) {
+			RealPolynomial product = constant(this.variables, 1);
+			for (final RealExpression subexpression : realExprMultiplication.subexpressions) {
+				product = product.times(this.convert(subexpression));
+			}
+			return product;
+		}
+
+		@Override
+		public RealPolynomial visit(final RealExprNegation realExprNegation, final Void state) {
+			return this.convert(realExprNegation.subexpressions.get(0)).scaled(-1);
+		}
+
+		@Override
+		public RealPolynomial visit(final RealExprReciprocal realExprReciprocal, final Void state) {
+			final RealPolynomial subexpression = this.convert(realExprReciprocal.subexpressions.get(0));
+			if (!subexpression.isConstant()) {
+				throw new IllegalArgumentException("Reciprocal of a non-constant expression is not a polynomial");
+			}
+			return constant(this.variables, 1 / subexpression.constantValue());
+		}
+
+		@Override
+		public RealPolynomial visit(final RealExprPower realExprPower, final Void state) {
+			final RealPolynomial exponent = this.convert(realExprPower.getExponent());
+			final double value = exponent.constantValue();
+			if (!exponent.isConstant() || value < 0 || value != Math.rint(value) || value > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Power with exponent " + realExprPower.getExponent()
+						+ " is not a polynomial; exponents must be constant non-negative integers");
+			}
+			return this.convert(realExprPower.getBase()).power((long) value);
+		}
+
+		@Override
+		public RealPolynomial visit(final RealExprLinear realExprLinear, final Void state) {
+			final List<RealPolynomial> summands = new ArrayList<>(realExprLinear.getTermCount() + 1);
+			summands.add(constant(this.variables, realExprLinear.constant));
+			for (int i = 0, n = realExprLinear.getTermCount(); i < n; i++) {
+				summands.add(this.convert(realExprLinear.subexpressions.get(i)).scaled(
+						realExprLinear.getCoefficient(i)));
+			}
+			return sum(this.variables, summands);
+		}
+	}
+}
@@ -0,0 +1,305 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.table;
+
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import nevik.autodiff.util.Buffers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.HEADER_SIZE;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.MAGIC;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.MIN_VERSION;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.NODE_SIZE;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_ADDITION;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_CONSTANT;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_FUNCTION;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_MULTIPLICATION;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_NEGATION;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_PIECEWISE;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_POWER;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_RECIPROCAL;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_VARIABLE;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.VERSION;
+import static nevik.autodiff.expr.real.table.RealNodeTables.FUNCTIONS;
+import static nevik.autodiff.expr.real.table.RealNodeTables.PIECEWISE_KINDS;
+
+/**
+ * Read-only {@link RealNodeTable} backed by a memory-mapped file in the format written by {@link RealNodeTableWriter}.
+ * <p/>
+ * Opening a file maps it, decodes the header and the variable names, and checks every node once (valid opcode,
+ * operand indices in range and in post-order), so that corrupt files are rejected up front rather than silently
+ * producing wrong values later. Constants, children and nodes are read directly from the mapping whenever they are
+ * accessed. Evaluation and differentiation work directly on the mapped
+ * table (cf. {@link RealNodeTables}), and expression objects are only built for the nodes that are explicitly requested
+ * via {@link #getExpression(int, RealVariable[])}. Since a single mapping is limited to 2 GiB, so are the files.
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public class MappedRealNodeTable implements RealNodeTable {
+	/**
+	 * Map the given file and open it as a node table.
+	 *
+	 * @param path
+	 * 		the file to map
+	 * @return a node table backed by the mapped file
+	 *
+	 * @throws java.io.IOException
+	 * 		if the file cannot be mapped or is not in the expected format
+	 */
+	public static MappedRealNodeTable open(final Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Node table file too large to be mapped: " + path);
+			}
+			// the mapping stays valid after the channel is closed
+			return new MappedRealNodeTable(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	private final ByteBuffer buffer;
+	private final int variableCount;
+	private final int constantCount;
+	private final int childCount;
+	private final int nodeCount;
+	private final int rootIndex;
+	private final String[] variableNames;
+	private final Map<String, Integer> variableIndices;
+	private final int constantsPosition;
+	private final int childrenPosition;
+	private final int nodesPosition;
+
+	/**
+	 * Open the node table contained in the given buffer (from its position 0 on).
+	 *
+	 * @param buffer
+	 * 		buffer containing a node table; must not be modified while this object is in use
+	 * @throws java.io.IOException
+	 * 		if the buffer does not contain a node table in the expected format
+	 */
+	public MappedRealNodeTable(final ByteBuffer buffer) throws IOException {
+		this.buffer = buffer.duplicate();
+		try {
+			if (this.buffer.getInt(0) != MAGIC) {
+				throw new IOException("Not an expression node table (wrong magic number)");
+			}
+			final int version = this.buffer.getInt(4);
+			if (version < MIN_VERSION || version > VERSION) {
+				throw new IOException("Unsupported node table version " + version);
+			}
+			this.variableCount = this.buffer.getInt(8);
+			this.constantCount = this.buffer.getInt(12);
+			this.childCount = this.buffer.getInt(16);
+			this.nodeCount = this.buffer.getInt(20);
+			this.rootIndex = this.buffer.getInt(24);
+			if (this.variableCount < 0 || this.constantCount < 0 || this.childCount < 0 || this.nodeCount <= 0
+					|| this.rootIndex < 0 || this.rootIndex >= this.nodeCount) {
+				throw new IOException("Corrupt node table header");
+			}
+			// every variable takes at least the length of its name
+			if ((long) this.variableCount * Integer.BYTES > this.buffer.limit() - HEADER_SIZE) {
+				throw new IOException("Node table is truncated");
+			}
+
+			this.variableNames = new String[this.variableCount];
+			this.variableIndices = new HashMap<>();
+			int position = HEADER_SIZE;
+			for (int i = 0; i < this.variableCount; i++) {
+				final int length = this.buffer.getInt(position);
+				position += Integer.BYTES;
+				if (length >= 0) {
+					if (length > this.buffer.limit() - position) {
+						throw new IOException("Corrupt node table");
+					}
+					final byte[] encoded = new byte[length];
+					final ByteBuffer name = this.buffer.duplicate();
+					Buffers.position(name, position).get(encoded);
+					this.variableNames[i] = new String(encoded, StandardCharsets.UTF_8);
+					if (this.variableIndices.putIfAbsent(this.variableNames[i], i) != null) {
+						throw new IOException("Duplicate variable name \"" + this.variableNames[i] + "\"");
+					}
+					position += length;
+				}
+			}
+			final long childrenPosition = position + (long) this.constantCount * Double.BYTES;
+			final long nodesPosition = childrenPosition + (long) this.childCount * Integer.BYTES;
+			if (nodesPosition + (long) this.nodeCount * NODE_SIZE > this.buffer.limit()) {
+				throw new IOException("Node table is truncated");
+			}
+			this.constantsPosition = position;
+			this.childrenPosition = (int) childrenPosition;
+			this.nodesPosition = (int) nodesPosition;
+			this.checkNodes();
+		} catch (final IndexOutOfBoundsException | IllegalArgumentException e) {
+			throw new IOException("Corrupt node table", e);
+		}
+	}
+
+	/**
+	 * Check that every node has a known opcode and that its operands are in range, and (for sub-expressions) come
+	 * before the node itself, like {@link RealNodeTableReader} does while reading.
+	 */
+	private void checkNodes() throws IOException {
+		for (int node = 0; node < this.nodeCount; node++) {
+			final int opcode = this.getOpcode(node);
+			final int arg0 = this.getArg0(node);
+			switch (opcode) {
+				case OP_CONSTANT:
+					checkIndex(node, "constant", arg0, this.constantCount);
+					break;
+				case OP_VARIABLE:
+					checkIndex(node, "variable", arg0, this.variableCount);
+					break;
+				case OP_ADDITION:
+				case OP_MULTIPLICATION:
+					this.checkChildren(node, arg0, this.getArg1(node));
+					break;
+				case OP_NEGATION:
+				case OP_RECIPROCAL:
+					checkIndex(node, "node", arg0, node);
+					break;
+				case OP_FUNCTION:
+					checkIndex(node, "node", arg0, node);
+					checkIndex(node, "function", this.getArg1(node), FUNCTIONS.length);
+					break;
+				case OP_POWER:
+					checkIndex(node, "node", arg0, node);
+					checkIndex(node, "node", this.getArg1(node), node);
+					break;
+				case OP_PIECEWISE: {
+					final int kind = this.getArg1(node);
+					checkIndex(node, "piecewise kind", kind, PIECEWISE_KINDS.length);
+					this.checkChildren(node, arg0, PIECEWISE_KINDS[kind].arity);
+					break;
+				}
+				default:
+					throw new IOException("Unknown opcode " + opcode + " of node " + node);
+			}
+		}
+	}
+
+	private void checkChildren(final int node, final int offset, final int count) throws IOException {
+		if (offset < 0 || count <= 0 || count > this.childCount - offset) {
+			throw new IOException("Node " + node + " has invalid operand range " + offset + " + " + count);
+		}
+		for (int i = offset; i < offset + count; i++) {
+			checkIndex(node, "node", this.getChild(i), node);
+		}
+	}
+
+	private static void checkIndex(final int node, final String kind, final int index, final int limit)
+			throws IOException {
+		if (index < 0 || index >= limit) {
+			throw new IOException(
+					"Node " + node + " refers to " + kind + " " + index + " (out of range or not in post-order)");
+		}
+	}
+
+	@Override
+	public int getNodeCount() {
+		return this.nodeCount;
+	}
+
+	@Override
+	public int getRootIndex() {
+		return this.rootIndex;
+	}
+
+	@Override
+	public int getOpcode(final int node) {
+		return this.buffer.getInt(this.nodesPosition + node * NODE_SIZE);
+	}
+
+	@Override
+	public int getArg0(final int node) {
+		return this.buffer.getInt(this.nodesPosition + node * NODE_SIZE + Integer.BYTES);
+	}
+
+	@Override
+	public int getArg1(final int node) {
+		return this.buffer.getInt(this.nodesPosition + node * NODE_SIZE + 2 * Integer.BYTES);
+	}
+
+	@Override
+	public int getChild(final int offset) {
+		return this.buffer.getInt(this.childrenPosition + offset * Integer.BYTES);
+	}
+
+	@Override
+	public int getConstantCount() {
+		return this.constantCount;
+	}
+
+	@Override
+	public double getConstant(final int index) {
+		return this.buffer.getDouble(this.constantsPosition + index * Double.BYTES);
+	}
+
+	@Override
+	public int getVariableCount() {
+		return this.variableCount;
+	}
+
+	@Override
+	public String getVariableName(final int index) {
+		return this.variableNames[index];
+	}
+
+	/**
+	 * Get the variable table index of the variable with the given name.
+	 *
+	 * @param name
+	 * 		the name of the variable
+	 * @return the index of the variable, or {@code -1} if there is no variable with this name
+	 */
+	public int getVariableIndex(final String name) {
+		return this.variableIndices.getOrDefault(name, -1);
+	}
+
+	/**
+	 * Evaluate the root node; cf. {@link RealNodeTables#evaluate(RealNodeTable, double[], double[])}.
+	 */
+	public double evaluate(final double[] variableValues) {
+		return RealNodeTables.evaluate(this, variableValues, null);
+	}
+
+	/**
+	 * Evaluate the root node and compute its gradient; cf. {@link RealNodeTables#gradient(RealNodeTable, double[],
+	 * double[], double[], double[])}.
+	 */
+	public double gradient(final double[] variableValues, final double[] gradient) {
+		return RealNodeTables.gradient(this, variableValues, gradient, null, null);
+	}
+
+	/**
+	 * Build the expression object for the given node; cf. {@link RealNodeTables#toExpression(RealNodeTable, int,
+	 * RealVariable[])}.
+	 */
+	public RealExpression getExpression(final int node, final RealVariable[] variables) {
+		return RealNodeTables.toExpression(this, node, variables);
+	}
+}
@@ -0,0 +1,421 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.table;
+
+import nevik.autodiff.expr.real.RealConstant;
+import nevik.autodiff.expr.real.RealExprAddition;
+import nevik.autodiff.expr.real.RealExprFunction;
+import nevik.autodiff.expr.real.RealExprLinear;
+import nevik.autodiff.expr.real.RealExprMultiplication;
+import nevik.autodiff.expr.real.RealExprNegation;
+import nevik.autodiff.expr.real.RealExprPiecewise;
+import nevik.autodiff.expr.real.RealExprPower;
+import nevik.autodiff.expr.real.RealExprReciprocal;
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealSuperExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import nevik.autodiff.expr.real.visitor.AbstractVisitorRealExpression;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_ADDITION;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_CONSTANT;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_FUNCTION;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_MULTIPLICATION;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_NEGATION;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_PIECEWISE;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_POWER;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_RECIPROCAL;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_VARIABLE;
+
+/**
+ * Compact, growable storage for expression DAGs in struct-of-arrays form: each node occupies one entry in each of
+ * three parallel {@code int} arrays (opcode and two arguments, cf. {@link RealNodeTableFormat}), and the
+ * sub-expressions of n-ary nodes occupy one {@code int} each in a shared child array. Constant values are kept in a
+ * {@code double} constant pool, and variables are referred to by their index into the variable table. A node thus
+ * takes 12 bytes plus 4 bytes per sub-expression, instead of a full object with its own lists and sets.
+ * <p/>
+ * Expressions are added with {@link #add(RealExpression)}, which stores each distinct node (by identity) of the added
+ * expression once. An arena can hold any number of expressions; its {@linkplain #getRootIndex() root} is the root of
+ * the most recently added one. Variables are shared across all expressions in an arena. Nodes are accessed through
+ * lightweight {@link RealNodeHandle}s, via the {@link RealNodeTable} interface, or converted back to expression
+ * objects on demand. For very large tables, {@link #toOffHeap()} creates a copy that lives in a direct {@link
+ * ByteBuffer} outside of the Java heap.
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealExpressionArena implements RealNodeTable {
+	private static final Set<Class<? extends RealExpression>> SUPPORTED_TYPES = //
+			Collections.unmodifiableSet(new HashSet<>(Arrays.asList( //
+					RealConstant.class, //
+					RealVariable.class, //
+					RealExprAddition.class, //
+					RealExprMultiplication.class, //
+					RealExprNegation.class, //
+					RealExprReciprocal.class, //
+					RealExprFunction.class, //
+					RealExprPower.class, //
+					RealExprPiecewise.class, //
+					RealExprLinear.class)));
+
+	/**
+	 * Create a new arena containing the given expression.
+	 */
+	public static RealExpressionArena of(final RealExpression expression) {
+		final RealExpressionArena arena = new RealExpressionArena();
+		arena.add(expression);
+		return arena;
+	}
+
+	private int[] opcodes;
+	private int[] args0;
+	private int[] args1;
+	private int nodeCount;
+	private int[] children = new int[16];
+	private int childCount;
+	private double[] constants = new double[16];
+	private int constantCount;
+	private final Map<Long, Integer> constantIndices = new HashMap<>();
+	private RealVariable[] variables = new RealVariable[16];
+	private int variableCount;
+	private final Map<RealVariable, Integer> variableIndices = new IdentityHashMap<>();
+	private int rootIndex = -1;
+
+	public RealExpressionArena() {
+		this(64);
+	}
+
+	/**
+	 * Create a new, empty arena with room for the given number of nodes.
+	 *
+	 * @param initialNodeCapacity
+	 * 		number of nodes that can be added before the node arrays have to grow; must be positive
+	 */
+	public RealExpressionArena(final int initialNodeCapacity) {
+		if (initialNodeCapacity <= 0) {
+			throw new IllegalArgumentException("Initial node capacity must be positive");
+		}
+		this.opcodes = new int[initialNodeCapacity];
+		this.args0 = new int[initialNodeCapacity];
+		this.args1 = new int[initialNodeCapacity];
+	}
+
+	/**
+	 * Add the given expression to this arena, storing each of its distinct nodes once. The added expression becomes
+	 * the new {@linkplain #getRootIndex() root} of this arena.
+	 *
+	 * @param expression
+	 * 		the expression to add; must be non-{@code null}
+	 * @return a handle of the node representing {@code expression}
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code expression} contains types of expressions that cannot be stored in an arena
+	 */
+	public RealNodeHandle add(final RealExpression expression) {
+		this.rootIndex = new Linearizer(Objects.requireNonNull(expression)).evaluate();
+		return new RealNodeHandle(this, this.rootIndex);
+	}
+
+	/**
+	 * Get a handle of the given node.
+	 */
+	public RealNodeHandle getHandle(final int node) {
+		if (node < 0 || node >= this.nodeCount) {
+			throw new IndexOutOfBoundsException("Node " + node + " does not exist");
+		}
+		return new RealNodeHandle(this, node);
+	}
+
+	/**
+	 * Build the expression object for the given node; cf. {@link RealNodeTables#toExpression(RealNodeTable, int,
+	 * RealVariable[])}. The result contains the same {@link RealVariable} instances that were added to this arena.
+	 */
+	public RealExpression toExpression(final int node) {
+		return RealNodeTables.toExpression(this, node, this.variables);
+	}
+
+	public RealVariable getVariable(final int index) {
+		if (index >= this.variableCount) {
+			throw new IndexOutOfBoundsException("Variable " + index + " does not exist");
+		}
+		return this.variables[index];
+	}
+
+	/**
+	 * Get the variable table index of the given variable.
+	 *
+	 * @return the index of {@code variable}, or {@code -1} if it does not occur in this arena
+	 */
+	public int getVariableIndex(final RealVariable variable) {
+		return this.variableIndices.getOrDefault(variable, -1);
+	}
+
+	/**
+	 * Shrink all internal arrays to the size that is actually used.
+	 */
+	public void trimToSize() {
+		this.opcodes = Arrays.copyOf(this.opcodes, Math.max(this.nodeCount, 1));
+		this.args0 = Arrays.copyOf(this.args0, Math.max(this.nodeCount, 1));
+		this.args1 = Arrays.copyOf(this.args1, Math.max(this.nodeCount, 1));
+		this.children = Arrays.copyOf(this.children, this.childCount);
+		this.constants = Arrays.copyOf(this.constants, this.constantCount);
+		this.variables = Arrays.copyOf(this.variables, this.variableCount);
+	}
+
+	/**
+	 * Create a read-only copy of this arena that is stored in a direct (off-heap) {@link ByteBuffer}, in the format
+	 * described in {@link RealNodeTableFormat}. Variables are identified by the indices of this arena, and their names
+	 * are taken from {@link RealVariable#name}.
+	 *
+	 * @return an off-heap node table with the same content as this arena
+	 *
+	 * @throws java.lang.IllegalStateException
+	 * 		if this arena is empty, since node tables have at least one node (the root)
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if two distinct variables of this arena have the same name
+	 */
+	public MappedRealNodeTable toOffHeap() {
+		if (this.nodeCount == 0) {
+			throw new IllegalStateException("Cannot copy an empty arena off-heap");
+		}
+		try {
+			return new MappedRealNodeTable(RealNodeTableWriter.toByteBuffer(this, /*direct=*/true));
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e); // cannot happen, the buffer was just written in the correct format
+		}
+	}
+
+	// ===============================================================================================================
+	// ====  RealNodeTable  ==========================================================================================
+	// ===============================================================================================================
+
+	@Override
+	public int getNodeCount() {
+		return this.nodeCount;
+	}
+
+	/**
+	 * @return the index of the root of the most recently added expression, or {@code -1} if this arena is empty
+	 */
+	@Override
+	public int getRootIndex() {
+		return this.rootIndex;
+	}
+
+	@Override
+	public int getOpcode(final int node) {
+		return this.opcodes[node];
+	}
+
+	@Override
+	public int getArg0(final int node) {
+		return this.args0[node];
+	}
+
+	@Override
+	public int getArg1(final int node) {
+		return this.args1[node];
+	}
+
+	@Override
+	public int getChild(final int offset) {
+		return this.children[offset];
+	}
+
+	@Override
+	public int getConstantCount() {
+		return this.constantCount;
+	}
+
+	@Override
+	public double getConstant(final int index) {
+		return this.constants[index];
+	}
+
+	@Override
+	public int getVariableCount() {
+		return this.variableCount;
+	}
+
+	@Override
+	public String getVariableName(final int index) {
+		return this.getVariable(index).name;
+	}
+
+	// ===============================================================================================================
+	// ====  Building  ===============================================================================================
+	// ===============================================================================================================
+
+	private int addNode(final int opcode, final int arg0, final int arg1) {
+		if (this.nodeCount == this.opcodes.length) {
+			final int newLength = this.nodeCount + (this.nodeCount >> 1) + 1;
+			this.opcodes = Arrays.copyOf(this.opcodes, newLength);
+			this.args0 = Arrays.copyOf(this.args0, newLength);
+			this.args1 = Arrays.copyOf(this.args1, newLength);
+		}
+		this.opcodes[this.nodeCount] = opcode;
+		this.args0[this.nodeCount] = arg0;
+		this.args1[this.nodeCount] = arg1;
+		return this.nodeCount++;
+	}
+
+	private int addConstant(final double value) {
+		final Long key = Double.doubleToLongBits(value);
+		Integer index = this.constantIndices.get(key);
+		if (index == null) {
+			if (this.constantCount == this.constants.length) {
+				this.constants = Arrays.copyOf(this.constants, this.constantCount * 2 + 1);
+			}
+			index = this.constantCount;
+			this.constants[this.constantCount++] = value;
+			this.constantIndices.put(key, index);
+		}
+		return index;
+	}
+
+	private int addVariable(final RealVariable variable) {
+		Integer index = this.variableIndices.get(variable);
+		if (index == null) {
+			if (this.variableCount == this.variables.length) {
+				this.variables = Arrays.copyOf(this.variables, this.variableCount * 2 + 1);
+			}
+			index = this.variableCount;
+			this.variables[this.variableCount++] = variable;
+			this.variableIndices.put(variable, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Visitor that appends the nodes of one expression in post-order, visiting each distinct node (by identity) only
+	 * once. The result of visiting a node is its node index.
+	 */
+	private final class Linearizer extends AbstractVisitorRealExpression<Void, Integer, Integer, Void> {
+		private final Map<RealExpression, Integer> nodeIndices = new IdentityHashMap<>();
+
+		private Linearizer(final RealExpression rootExpression) {
+			super(SUPPORTED_TYPES, rootExpression, null);
+		}
+
+		@Override
+		protected Integer doEvaluation() {
+			return this.index(this.rootExpression);
+		}
+
+		private int index(final RealExpression expression) {
+			final Integer index = this.nodeIndices.get(expression);
+			if (index != null) {
+				return index;
+			}
+			final int newIndex = expression.accept(this, null);
+			this.nodeIndices.put(expression, newIndex);
+			return newIndex;
+		}
+
+		private int addNaryNode(final int opcode, final RealSuperExpression expression) {
+			return addNode(opcode, this.addChildren(expression), expression.subexpressions.size());
+		}
+
+		/**
+		 * Index the sub-expressions of the given expression and append them to the child array.
+		 *
+		 * @return the offset of the sub-expressions in the child array
+		 */
+		private int addChildren(final RealSuperExpression expression) {
+			final RealExpressionArena arena = RealExpressionArena.this;
+			final List<RealExpression> subexpressions = expression.subexpressions;
+			final int size = subexpressions.size();
+			final int[] childIndices = new int[size];
+			for (int i = 0; i < size; i++) {
+				childIndices[i] = this.index(subexpressions.get(i));
+			}
+			// children are appended only after all sub-expressions have been indexed, since these append their own
+			if (arena.childCount + size > arena.children.length) {
+				arena.children = Arrays.copyOf(arena.children,
+						Math.max(arena.children.length + (arena.children.length >> 1), arena.childCount + size));
+			}
+			final int offset = arena.childCount;
+			System.arraycopy(childIndices, 0, arena.children, offset, size);
+			arena.childCount += size;
+			return offset;
+		}
+
+		@Override
+		public Integer visit(final RealConstant realConstant, final Void state) {
+			return addNode(OP_CONSTANT, addConstant(realConstant.value), 0);
+		}
+
+		@Override
+		public Integer visit(final RealVariable realVariable, final Void state) {
+			return addNode(OP_VARIABLE, addVariable(realVariable), 0);
+		}
+
+		@Override
+		public Integer visit(final RealExprAddition realExprAddition, final Void state) {
+			return this.addNaryNode(OP_ADDITION, realExprAddition);
+		}
+
+		@Override
+		public Integer visit(final RealExprMultiplication realExprMultiplication, final Void state) {
+			return this.addNaryNode(OP_MULTIPLICATION, realExprMultiplication);
+		}
+
+		@Override
+		public Integer visit(final RealExprNegation realExprNegation, final Void state) {
+			return addNode(OP_NEGATION, this.index(realExprNegation.subexpressions.get(0)), 0);
+		}
+
+		@Override
+		public Integer visit(final RealExprReciprocal realExprReciprocal, final Void state) {
+			return addNode(OP_RECIPROCAL, this.index(realExprReciprocal.subexpressions.get(0)), 0);
+		}
+
+		@Override
+		public Integer visit(final RealExprFunction realExprFunction, final Void state) {
+			return addNode(OP_FUNCTION, this.index(realExprFunction.subexpressions.get(0)),
+					realExprFunction.function.ordinal());
+		}
+
+		@Override
+		public Integer visit(final RealExprPower realExprPower, final Void state) {
+			final int base = this.index(realExprPower.getBase());
+			return addNode(OP_POWER, base, this.index(realExprPower.getExponent()));
+		}
+
+		@Override
+		public Integer visit(final RealExprPiecewise realExprPiecewise, final Void state) {
+			return addNode(OP_PIECEWISE, this.addChildren(realExprPiecewise), realExprPiecewise.kind.ordinal());
+		}
+
+		@Override
+		public Integer visit(final RealExprLinear realExprLinear, final Void state) {
+			// node tables have no linear forms; store the equivalent sum of scaled terms
+			return this.index(realExprLinear.toAddition());
+		}
+	}
+}
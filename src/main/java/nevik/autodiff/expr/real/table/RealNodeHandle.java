@@ -0,0 +1,148 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.table;
+
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import nevik.autodiff.expr.real.visitor.VisitorRealExpression;
+
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_ADDITION;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_CONSTANT;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_MULTIPLICATION;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_PIECEWISE;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_POWER;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_VARIABLE;
+
+/**
+ * Lightweight reference to a node of a {@link RealExpressionArena}. Handles can be used to navigate the stored DAG
+ * without building expression objects; {@link #toExpression()} and {@link #accept(VisitorRealExpression, Object)}
+ * build the expression object of the referenced sub-DAG when it is needed for use with expression visitors.
+ * <p/>
+ * Two handles are equal if they refer to the same node of the same arena.
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public final class RealNodeHandle {
+	public final RealExpressionArena arena;
+	public final int node;
+
+	RealNodeHandle(final RealExpressionArena arena, final int node) {
+		this.arena = arena;
+		this.node = node;
+	}
+
+	/**
+	 * @return the opcode of the referenced node, one of the {@code OP_*} constants in {@link RealNodeTableFormat}
+	 */
+	public int getOpcode() {
+		return this.arena.getOpcode(this.node);
+	}
+
+	public int getSubexpressionCount() {
+		switch (this.getOpcode()) {
+			case OP_CONSTANT:
+			case OP_VARIABLE:
+				return 0;
+			case OP_ADDITION:
+			case OP_MULTIPLICATION:
+				return this.arena.getArg1(this.node);
+			case OP_POWER:
+				return 2;
+			case OP_PIECEWISE:
+				return RealNodeTables.PIECEWISE_KINDS[this.arena.getArg1(this.node)].arity;
+			default:
+				return 1;
+		}
+	}
+
+	public RealNodeHandle getSubexpression(final int index) {
+		if (index < 0 || index >= this.getSubexpressionCount()) {
+			throw new IndexOutOfBoundsException("Sub-expression " + index + " does not exist");
+		}
+		final int child;
+		switch (this.getOpcode()) {
+			case OP_ADDITION:
+			case OP_MULTIPLICATION:
+			case OP_PIECEWISE:
+				child = this.arena.getChild(this.arena.getArg0(this.node) + index);
+				break;
+			case OP_POWER:
+				child = index == 0 ? this.arena.getArg0(this.node) : this.arena.getArg1(this.node);
+				break;
+			default:
+				child = this.arena.getArg0(this.node);
+		}
+		return new RealNodeHandle(this.arena, child);
+	}
+
+	/**
+	 * @return the value of the referenced constant node
+	 *
+	 * @throws java.lang.IllegalStateException
+	 * 		if the referenced node is not a constant
+	 */
+	public double getConstantValue() {
+		if (this.getOpcode() != OP_CONSTANT) {
+			throw new IllegalStateException("Node " + this.node + " is not a constant");
+		}
+		return this.arena.getConstant(this.arena.getArg0(this.node));
+	}
+
+	/**
+	 * @return the referenced variable
+	 *
+	 * @throws java.lang.IllegalStateException
+	 * 		if the referenced node is not a variable
+	 */
+	public RealVariable getVariable() {
+		if (this.getOpcode() != OP_VARIABLE) {
+			throw new IllegalStateException("Node " + this.node + " is not a variable");
+		}
+		return this.arena.getVariable(this.arena.getArg0(this.node));
+	}
+
+	/**
+	 * Build the expression object of the referenced sub-DAG.
+	 */
+	public RealExpression toExpression() {
+		return this.arena.toExpression(this.node);
+	}
+
+	/**
+	 * Let the given visitor visit the expression object of the referenced sub-DAG.
+	 */
+	public <ExprResultType, StateType> ExprResultType accept(
+			final VisitorRealExpression<?, ExprResultType, StateType> visitor, final StateType state) {
+		return this.toExpression().accept(visitor, state);
+	}
+
+	@Override
+	public boolean equals(final Object o) {
+		return this == o || (o instanceof RealNodeHandle && ((RealNodeHandle) o).arena == this.arena
+				&& ((RealNodeHandle) o).node == this.node);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * System.identityHashCode(this.arena) + this.node;
+	}
+
+	@Override
+	public String toString() {
+		return "RealNodeHandle{" + this.node + "}";
+	}
+}
@@ -0,0 +1,58 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.table;
+
+/**
+ * Read-only view of an expression DAG stored as a node table, i.e. a post-order sequence of nodes in which every node
+ * refers to its sub-expressions by their (smaller) node index. Cf. {@link RealNodeTableFormat} for the meaning of
+ * opcodes and node arguments.
+ * <p/>
+ * Algorithms that work directly on node tables (evaluation, differentiation, conversion back to expression objects)
+ * can be found in {@link RealNodeTables}.
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public interface RealNodeTable {
+	int getNodeCount();
+
+	int getRootIndex();
+
+	/**
+	 * @return the opcode of the given node, one of the {@code OP_*} constants in {@link RealNodeTableFormat}
+	 */
+	int getOpcode(int node);
+
+	int getArg0(int node);
+
+	int getArg1(int node);
+
+	/**
+	 * @return the node index stored at the given position of the child table
+	 */
+	int getChild(int offset);
+
+	int getConstantCount();
+
+	double getConstant(int index);
+
+	int getVariableCount();
+
+	/**
+	 * @return the name of the variable with the given index into the variable table (may be {@code null})
+	 */
+	String getVariableName(int index);
+}
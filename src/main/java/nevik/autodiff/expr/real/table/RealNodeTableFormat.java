@@ -0,0 +1,106 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.table;
+
+/**
+ * Constants describing the binary node-table format for {@link nevik.autodiff.expr.real.RealExpression} DAGs, as
+ * written by {@link RealNodeTableWriter} and read by {@link RealNodeTableReader}.
+ * <p/>
+ * An expression is stored as a table of nodes in post-order, i.e. each node is stored after all of its sub-expressions,
+ * and each distinct node (by identity) is stored exactly once, so that shared sub-expressions are not duplicated. All
+ * values are stored in big-endian byte order; the sections of a file are, in this order:
+ * <ol>
+ * <li>header: {@link #MAGIC}, {@link #VERSION}, variable count, constant count, child count, node count and index of
+ * the root node (one {@code int} each)</li>
+ * <li>variable table: for each variable, the length of its UTF-8 encoded name in bytes ({@code int}, {@code -1} if the
+ * name is {@code null}), followed by the encoded name; the names of distinct variables are distinct</li>
+ * <li>constant pool: the value of each distinct constant ({@code double})</li>
+ * <li>child table: node indices of the sub-expressions of all n-ary and piecewise nodes ({@code int})</li>
+ * <li>node table: for each node, its opcode and two arguments ({@code int} each), see {@code OP_*} constants</li>
+ * </ol>
+ * Version 2 added the opcodes {@link #OP_FUNCTION}, {@link #OP_POWER} and {@link #OP_PIECEWISE}; files of version 1
+ * use a subset of version 2 and are still read.
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public final class RealNodeTableFormat {
+	/**
+	 * Magic number at the start of each file (ASCII {@code "ADNT"}).
+	 */
+	public static final int MAGIC = 0x41444E54;
+	public static final int VERSION = 2;
+	/**
+	 * Oldest version that can still be read.
+	 */
+	public static final int MIN_VERSION = 1;
+
+	/**
+	 * Size of the header in bytes.
+	 */
+	public static final int HEADER_SIZE = 7 * Integer.BYTES;
+	/**
+	 * Size of a node table entry in bytes.
+	 */
+	public static final int NODE_SIZE = 3 * Integer.BYTES;
+
+	/**
+	 * Opcode of {@link nevik.autodiff.expr.real.RealConstant} nodes; first argument: index into the constant pool.
+	 */
+	public static final int OP_CONSTANT = 0;
+	/**
+	 * Opcode of {@link nevik.autodiff.expr.real.RealVariable} nodes; first argument: index into the variable table.
+	 */
+	public static final int OP_VARIABLE = 1;
+	/**
+	 * Opcode of {@link nevik.autodiff.expr.real.RealExprAddition} nodes; first argument: offset into the child table,
+	 * second argument: number of children.
+	 */
+	public static final int OP_ADDITION = 2;
+	/**
+	 * Opcode of {@link nevik.autodiff.expr.real.RealExprMultiplication} nodes; first argument: offset into the child
+	 * table, second argument: number of children.
+	 */
+	public static final int OP_MULTIPLICATION = 3;
+	/**
+	 * Opcode of {@link nevik.autodiff.expr.real.RealExprNegation} nodes; first argument: node index of the
+	 * sub-expression.
+	 */
+	public static final int OP_NEGATION = 4;
+	/**
+	 * Opcode of {@link nevik.autodiff.expr.real.RealExprReciprocal} nodes; first argument: node index of the
+	 * sub-expression.
+	 */
+	public static final int OP_RECIPROCAL = 5;
+	/**
+	 * Opcode of {@link nevik.autodiff.expr.real.RealExprFunction} nodes; first argument: node index of the
+	 * sub-expression, second argument: ordinal of the {@link nevik.autodiff.expr.real.RealExprFunction.Function}.
+	 */
+	public static final int OP_FUNCTION = 6;
+	/**
+	 * Opcode of {@link nevik.autodiff.expr.real.RealExprPower} nodes; first argument: node index of the base, second
+	 * argument: node index of the exponent.
+	 */
+	public static final int OP_POWER = 7;
+	/**
+	 * Opcode of {@link nevik.autodiff.expr.real.RealExprPiecewise} nodes; first argument: offset into the child table,
+	 * second argument: ordinal of the {@link nevik.autodiff.expr.real.RealExprPiecewise.Kind}, whose {@link
+	 * nevik.autodiff.expr.real.RealExprPiecewise.Kind#arity arity} is the number of children.
+	 */
+	public static final int OP_PIECEWISE = 8;
+
+	private RealNodeTableFormat() {}
+}
@@ -0,0 +1,251 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.table;
+
+import nevik.autodiff.expr.real.RealExprPiecewise;
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static nevik.autodiff.expr.real.RealConstant.reCons;
+import static nevik.autodiff.expr.real.RealExprAddition.reAddUsrtd;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMultUsrtd;
+import static nevik.autodiff.expr.real.RealExprFunction.reFunc;
+import static nevik.autodiff.expr.real.RealExprNegation.reNeg;
+import static nevik.autodiff.expr.real.RealExprPower.rePow;
+import static nevik.autodiff.expr.real.RealExprReciprocal.reRecip;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.MAGIC;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.MIN_VERSION;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_ADDITION;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_CONSTANT;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_FUNCTION;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_MULTIPLICATION;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_NEGATION;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_PIECEWISE;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_POWER;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_RECIPROCAL;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_VARIABLE;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.VERSION;
+import static nevik.autodiff.expr.real.table.RealNodeTables.FUNCTIONS;
+import static nevik.autodiff.expr.real.table.RealNodeTables.PIECEWISE_KINDS;
+
+/**
+ * Reads {@link RealExpression} DAGs from the binary node-table format described in {@link RealNodeTableFormat}.
+ * Shared nodes are restored as shared instances, and the sub-expressions of n-ary nodes are restored in their stored
+ * order (without re-sorting), so the result is equal to the expression that was written.
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public final class RealNodeTableReader {
+	/**
+	 * Maximum number of entries (or bytes of a name) that are allocated before they are actually read. The counts in
+	 * the header are not trusted beyond this, so a corrupt or truncated file fails with an {@link IOException} when
+	 * its data runs out, rather than with an {@link OutOfMemoryError} up front.
+	 */
+	private static final int MAX_PREALLOCATION = 1 << 16;
+
+	/**
+	 * Read an expression from the given stream, creating a new {@link RealVariable} for each stored variable.
+	 *
+	 * @param input
+	 * 		stream to read from; is not closed by this method
+	 * @return the expression that was read
+	 *
+	 * @throws java.io.IOException
+	 * 		if reading from {@code input} fails or the data is not in the expected format
+	 */
+	public static RealExpression read(final InputStream input) throws IOException {
+		return read(input, new HashMap<>());
+	}
+
+	/**
+	 * Read an expression from the given stream, resolving variables by their stored name. If {@code variables} does
+	 * not contain a variable for a name, a new {@link RealVariable} is created and added to {@code variables}, so after
+	 * this method returns, {@code variables} contains all named variables of the expression. Variables that were stored
+	 * without a name are always created anew and are not added to {@code variables}.
+	 *
+	 * @param input
+	 * 		stream to read from; is not closed by this method
+	 * @param variables
+	 * 		name table used to resolve variables; must be non-{@code null} and modifiable
+	 * @return the expression that was read
+	 *
+	 * @throws java.io.IOException
+	 * 		if reading from {@code input} fails or the data is not in the expected format
+	 */
+	public static RealExpression read(final InputStream input, final Map<String, RealVariable> variables)
+			throws IOException {
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(input, 1 << 16));
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not an expression node table (wrong magic number)");
+		}
+		final int version = in.readInt();
+		if (version < MIN_VERSION || version > VERSION) {
+			throw new IOException("Unsupported node table version " + version);
+		}
+		final int variableCount = in.readInt();
+		final int constantCount = in.readInt();
+		final int childCount = in.readInt();
+		final int nodeCount = in.readInt();
+		final int rootIndex = in.readInt();
+		if (variableCount < 0 || constantCount < 0 || childCount < 0 || nodeCount <= 0 || rootIndex < 0
+				|| rootIndex >= nodeCount) {
+			throw new IOException("Corrupt node table header");
+		}
+
+		RealVariable[] variableTable = new RealVariable[Math.min(variableCount, MAX_PREALLOCATION)];
+		final Set<String> names = new HashSet<>();
+		byte[] nameBuffer = new byte[64];
+		for (int i = 0; i < variableCount; i++) {
+			if (i == variableTable.length) {
+				variableTable = Arrays.copyOf(variableTable, grownLength(i, variableCount));
+			}
+			final int length = in.readInt();
+			if (length < 0) {
+				variableTable[i] = new RealVariable();
+			} else {
+				nameBuffer = readName(in, length, nameBuffer);
+				final String name = new String(nameBuffer, 0, length, StandardCharsets.UTF_8);
+				if (!names.add(name)) {
+					throw new IOException("Duplicate variable name \"" + name + "\"");
+				}
+				variableTable[i] = variables.computeIfAbsent(name, RealVariable::new);
+			}
+		}
+		double[] constantPool = new double[Math.min(constantCount, MAX_PREALLOCATION)];
+		for (int i = 0; i < constantCount; i++) {
+			if (i == constantPool.length) {
+				constantPool = Arrays.copyOf(constantPool, grownLength(i, constantCount));
+			}
+			constantPool[i] = in.readDouble();
+		}
+		int[] children = new int[Math.min(childCount, MAX_PREALLOCATION)];
+		for (int i = 0; i < childCount; i++) {
+			if (i == children.length) {
+				children = Arrays.copyOf(children, grownLength(i, childCount));
+			}
+			children[i] = in.readInt();
+		}
+
+		RealExpression[] nodes = new RealExpression[Math.min(nodeCount, MAX_PREALLOCATION)];
+		for (int i = 0; i < nodeCount; i++) {
+			if (i == nodes.length) {
+				nodes = Arrays.copyOf(nodes, grownLength(i, nodeCount));
+			}
+			final int opcode = in.readInt();
+			final int arg0 = in.readInt();
+			final int arg1 = in.readInt();
+			try {
+				switch (opcode) {
+					case OP_CONSTANT:
+						nodes[i] = reCons(constantPool[arg0]);
+						break;
+					case OP_VARIABLE:
+						nodes[i] = variableTable[arg0];
+						break;
+					case OP_ADDITION:
+						nodes[i] = reAddUsrtd(childNodes(nodes, i, children, arg0, arg1));
+						break;
+					case OP_MULTIPLICATION:
+						nodes[i] = reMultUsrtd(childNodes(nodes, i, children, arg0, arg1));
+						break;
+					case OP_NEGATION:
+						nodes[i] = reNeg(childNode(nodes, i, arg0));
+						break;
+					case OP_RECIPROCAL:
+						nodes[i] = reRecip(childNode(nodes, i, arg0));
+						break;
+					case OP_FUNCTION:
+						nodes[i] = reFunc(FUNCTIONS[arg1], childNode(nodes, i, arg0));
+						break;
+					case OP_POWER:
+						nodes[i] = rePow(childNode(nodes, i, arg0), childNode(nodes, i, arg1));
+						break;
+					case OP_PIECEWISE: {
+						final RealExprPiecewise.Kind kind = PIECEWISE_KINDS[arg1];
+						nodes[i] = new RealExprPiecewise(kind, childNodes(nodes, i, children, arg0, kind.arity));
+						break;
+					}
+					default:
+						throw new IOException("Unknown opcode " + opcode + " of node " + i);
+				}
+			} catch (final IndexOutOfBoundsException | IllegalArgumentException e) {
+				throw new IOException("Corrupt node " + i, e);
+			}
+		}
+		return nodes[rootIndex];
+	}
+
+	/**
+	 * Get the length to which an array of the given length, which is to hold {@code count} entries eventually, is
+	 * grown.
+	 */
+	private static int grownLength(final int length, final int count) {
+		return (int) Math.min(count, 2L * length);
+	}
+
+	/**
+	 * Read a name of the given length into the given buffer, or into a larger one if it does not fit. The buffer is
+	 * grown as the name is read, so that a corrupt length cannot cause a huge allocation.
+	 *
+	 * @return the buffer holding the name in its first {@code length} bytes
+	 */
+	private static byte[] readName(final DataInputStream in, final int length, byte[] buffer) throws IOException {
+		int read = 0;
+		while (read < length) {
+			if (read == buffer.length) {
+				buffer = Arrays.copyOf(buffer, grownLength(read, length));
+			}
+			final int chunk = Math.min(length, buffer.length) - read;
+			in.readFully(buffer, read, chunk);
+			read += chunk;
+		}
+		return buffer;
+	}
+
+	private static RealExpression childNode(final RealExpression[] nodes, final int parentIndex, final int childIndex)
+			throws IOException {
+		if (childIndex >= parentIndex) {
+			throw new IOException("Node " + parentIndex + " refers to node " + childIndex + " (not in post-order)");
+		}
+		return nodes[childIndex];
+	}
+
+	private static RealExpression[] childNodes(final RealExpression[] nodes, final int parentIndex,
+			final int[] children, final int offset, final int count) throws IOException {
+		if (offset < 0 || count < 0 || count > children.length - offset) {
+			throw new IOException("Node " + parentIndex + " has invalid operand range " + offset + " + " + count);
+		}
+		final RealExpression[] result = new RealExpression[count];
+		for (int i = 0; i < count; i++) {
+			result[i] = childNode(nodes, parentIndex, children[offset + i]);
+		}
+		return result;
+	}
+
+	private RealNodeTableReader() {}
+}
@@ -0,0 +1,236 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.table;
+
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import nevik.autodiff.util.Buffers;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.HEADER_SIZE;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.MAGIC;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.NODE_SIZE;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.VERSION;
+
+/**
+ * Writes {@link RealExpression} DAGs and {@link RealNodeTable}s in the binary node-table format described in {@link
+ * RealNodeTableFormat}.
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public final class RealNodeTableWriter {
+	/**
+	 * Write the given expression to the given stream. Variables are stored with their {@link RealVariable#name}.
+	 *
+	 * @param rootExpression
+	 * 		the expression to write; must be non-{@code null}
+	 * @param output
+	 * 		stream to write to; is not closed by this method
+	 * @throws java.io.IOException
+	 * 		if writing to {@code output} fails
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if two distinct variables of the expression have the same name
+	 */
+	public static void write(final RealExpression rootExpression, final OutputStream output) throws IOException {
+		write(rootExpression, null, output);
+	}
+
+	/**
+	 * Write the given expression to the given stream.
+	 *
+	 * @param rootExpression
+	 * 		the expression to write; must be non-{@code null}
+	 * @param varNames
+	 * 		names under which variables are stored; may be {@code null}, in which case (and for variables that are not
+	 * 		contained in this map) the {@link RealVariable#name} is stored
+	 * @param output
+	 * 		stream to write to; is not closed by this method
+	 * @throws java.io.IOException
+	 * 		if writing to {@code output} fails
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if two distinct variables of the expression are stored under the same name, since they could not be told
+	 * 		apart when the expression is read
+	 */
+	public static void write(final RealExpression rootExpression, final Map<RealVariable, String> varNames,
+			final OutputStream output) throws IOException {
+		final RealExpressionArena arena = RealExpressionArena.of(Objects.requireNonNull(rootExpression));
+		final String[] names = new String[arena.getVariableCount()];
+		for (int i = 0; i < names.length; i++) {
+			final RealVariable variable = arena.getVariable(i);
+			names[i] = (varNames != null && varNames.containsKey(variable)) ? varNames.get(variable) : variable.name;
+		}
+		write(arena, names, output);
+	}
+
+	/**
+	 * Write the given node table to the given stream.
+	 *
+	 * @param table
+	 * 		the node table to write; must be non-{@code null} and non-empty
+	 * @param output
+	 * 		stream to write to; is not closed by this method
+	 * @throws java.io.IOException
+	 * 		if writing to {@code output} fails
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if two variable table entries have the same name
+	 */
+	public static void write(final RealNodeTable table, final OutputStream output) throws IOException {
+		write(table, variableNames(table), output);
+	}
+
+	/**
+	 * Write the given node table into a new {@link ByteBuffer}.
+	 *
+	 * @param table
+	 * 		the node table to write; must be non-{@code null} and non-empty
+	 * @param direct
+	 * 		whether to allocate a direct (off-heap) buffer
+	 * @return a buffer containing the node table, positioned at its start
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if the node table is too large to fit into a single buffer, or if two variable table entries have the same
+	 * 		name
+	 */
+	public static ByteBuffer toByteBuffer(final RealNodeTable table, final boolean direct) {
+		final String[] names = variableNames(table);
+		final byte[][] encodedNames = new byte[names.length][];
+		long size = HEADER_SIZE + (long) table.getConstantCount() * Double.BYTES
+				+ (long) childCount(table) * Integer.BYTES + (long) table.getNodeCount() * NODE_SIZE;
+		for (int i = 0; i < names.length; i++) {
+			encodedNames[i] = (names[i] == null) ? null : names[i].getBytes(StandardCharsets.UTF_8);
+			size += Integer.BYTES + ((encodedNames[i] == null) ? 0 : encodedNames[i].length);
+		}
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Node table too large for a single buffer");
+		}
+		final ByteBuffer buffer = direct ? ByteBuffer.allocateDirect((int) size) : ByteBuffer.allocate((int) size);
+		final int childCount = childCount(table);
+		buffer.putInt(MAGIC).putInt(VERSION).putInt(names.length).putInt(table.getConstantCount()).putInt(childCount)
+				.putInt(table.getNodeCount()).putInt(table.getRootIndex());
+		for (final byte[] encoded : encodedNames) {
+			if (encoded == null) {
+				buffer.putInt(-1);
+			} else {
+				buffer.putInt(encoded.length).put(encoded);
+			}
+		}
+		for (int i = 0, n = table.getConstantCount(); i < n; i++) {
+			buffer.putDouble(table.getConstant(i));
+		}
+		for (int i = 0; i < childCount; i++) {
+			buffer.putInt(table.getChild(i));
+		}
+		for (int i = 0, n = table.getNodeCount(); i < n; i++) {
+			buffer.putInt(table.getOpcode(i)).putInt(table.getArg0(i)).putInt(table.getArg1(i));
+		}
+		return Buffers.flip(buffer);
+	}
+
+	private static void write(final RealNodeTable table, final String[] names, final OutputStream output)
+			throws IOException {
+		if (table.getNodeCount() == 0) {
+			throw new IllegalArgumentException("Cannot write an empty node table");
+		}
+		checkDistinctNames(names);
+		final int childCount = childCount(table);
+		final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output, 1 << 16));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(names.length);
+		out.writeInt(table.getConstantCount());
+		out.writeInt(childCount);
+		out.writeInt(table.getNodeCount());
+		out.writeInt(table.getRootIndex());
+		for (final String name : names) {
+			if (name == null) {
+				out.writeInt(-1);
+			} else {
+				final byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(encoded.length);
+				out.write(encoded);
+			}
+		}
+		for (int i = 0, n = table.getConstantCount(); i < n; i++) {
+			out.writeDouble(table.getConstant(i));
+		}
+		for (int i = 0; i < childCount; i++) {
+			out.writeInt(table.getChild(i));
+		}
+		for (int i = 0, n = table.getNodeCount(); i < n; i++) {
+			out.writeInt(table.getOpcode(i));
+			out.writeInt(table.getArg0(i));
+			out.writeInt(table.getArg1(i));
+		}
+		out.flush();
+	}
+
+	private static String[] variableNames(final RealNodeTable table) {
+		final String[] names = new String[table.getVariableCount()];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = table.getVariableName(i);
+		}
+		return checkDistinctNames(names);
+	}
+
+	/**
+	 * Ensure that no two variables share a name (unnamed variables are always distinct).
+	 *
+	 * @return {@code names}
+	 */
+	private static String[] checkDistinctNames(final String[] names) {
+		final Map<String, Integer> indices = new HashMap<>();
+		for (int i = 0; i < names.length; i++) {
+			if (names[i] != null) {
+				final Integer previous = indices.putIfAbsent(names[i], i);
+				if (previous != null) {
+					throw new IllegalArgumentException(
+							"Variables " + previous + " and " + i + " are both named \"" + names[i] + "\"");
+				}
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * Determine the size of the child table, i.e. one past the largest child offset used by any n-ary or piecewise
+	 * node.
+	 */
+	private static int childCount(final RealNodeTable table) {
+		int childCount = 0;
+		for (int i = 0, n = table.getNodeCount(); i < n; i++) {
+			final int opcode = table.getOpcode(i);
+			if (opcode == RealNodeTableFormat.OP_ADDITION || opcode == RealNodeTableFormat.OP_MULTIPLICATION) {
+				childCount = Math.max(childCount, table.getArg0(i) + table.getArg1(i));
+			} else if (opcode == RealNodeTableFormat.OP_PIECEWISE) {
+				final int arity = RealNodeTables.PIECEWISE_KINDS[table.getArg1(i)].arity;
+				childCount = Math.max(childCount, table.getArg0(i) + arity);
+			}
+		}
+		return childCount;
+	}
+
+	private RealNodeTableWriter() {}
+}
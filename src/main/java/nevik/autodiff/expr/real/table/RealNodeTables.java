@@ -0,0 +1,376 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.table;
+
+import nevik.autodiff.expr.real.RealExprFunction.Function;
+import nevik.autodiff.expr.real.RealExprPiecewise;
+import nevik.autodiff.expr.real.RealExprPower;
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static nevik.autodiff.expr.real.RealConstant.reCons;
+import static nevik.autodiff.expr.real.RealExprAddition.reAddUsrtd;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMultUsrtd;
+import static nevik.autodiff.expr.real.RealExprFunction.reFunc;
+import static nevik.autodiff.expr.real.RealExprNegation.reNeg;
+import static nevik.autodiff.expr.real.RealExprPower.rePow;
+import static nevik.autodiff.expr.real.RealExprReciprocal.reRecip;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_ADDITION;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_CONSTANT;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_FUNCTION;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_MULTIPLICATION;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_NEGATION;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_PIECEWISE;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_POWER;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_RECIPROCAL;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_VARIABLE;
+
+/**
+ * Static algorithms on {@link RealNodeTable}s. Since node tables are in post-order, evaluation is a single forward
+ * sweep over the nodes and reverse-mode differentiation is a single backward sweep, without any recursion.
+ * <p/>
+ * Variable values and gradients are passed as {@code double} arrays indexed by the variable table index. Methods that
+ * need scratch space accept it as optional arrays, so that repeated calls can run without allocation (apart from a
+ * small buffer for the factors of the widest product in the reverse sweep).
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public final class RealNodeTables {
+	/**
+	 * Functions of {@link RealNodeTableFormat#OP_FUNCTION} nodes, indexed by the second argument of the node.
+	 */
+	static final Function[] FUNCTIONS = Function.values();
+	/**
+	 * Kinds of {@link RealNodeTableFormat#OP_PIECEWISE} nodes, indexed by the second argument of the node.
+	 */
+	static final RealExprPiecewise.Kind[] PIECEWISE_KINDS = RealExprPiecewise.Kind.values();
+
+	/**
+	 * Evaluate the root node of the given table.
+	 *
+	 * @param table
+	 * 		the node table
+	 * @param variableValues
+	 * 		values of the variables, indexed by variable table index
+	 * @param nodeValues
+	 * 		scratch array that receives the values of all nodes up to the root; must have at least {@link
+	 * 		RealNodeTable#getNodeCount()} entries, or be {@code null} to allocate a new array
+	 * @return the value of the root node
+	 */
+	public static double evaluate(final RealNodeTable table, final double[] variableValues, double[] nodeValues) {
+		if (nodeValues == null) {
+			nodeValues = new double[table.getNodeCount()];
+		}
+		final int root = table.getRootIndex();
+		forwardSweep(table, variableValues, nodeValues, root);
+		return nodeValues[root];
+	}
+
+	/**
+	 * Evaluate the root node of the given table and compute its gradient with respect to all variables by reverse-mode
+	 * differentiation.
+	 *
+	 * @param table
+	 * 		the node table
+	 * @param variableValues
+	 * 		values of the variables, indexed by variable table index
+	 * @param gradient
+	 * 		array that receives the partial derivatives, indexed by variable table index; must have at least {@link
+	 * 		RealNodeTable#getVariableCount()} entries
+	 * @param nodeValues
+	 * 		scratch array for node values, cf. {@link #evaluate(RealNodeTable, double[], double[])}; may be {@code null}
+	 * @param adjoints
+	 * 		scratch array for node adjoints; must have at least {@link RealNodeTable#getNodeCount()} entries, or be
+	 * 		{@code null} to allocate a new array
+	 * @return the value of the root node
+	 */
+	public static double gradient(final RealNodeTable table, final double[] variableValues, final double[] gradient,
+			double[] nodeValues, double[] adjoints) {
+		final int nodeCount = table.getNodeCount();
+		if (nodeValues == null) {
+			nodeValues = new double[nodeCount];
+		}
+		if (adjoints == null) {
+			adjoints = new double[nodeCount];
+		}
+		final int root = table.getRootIndex();
+		forwardSweep(table, variableValues, nodeValues, root);
+		Arrays.fill(adjoints, 0, root + 1, 0.0);
+		Arrays.fill(gradient, 0, table.getVariableCount(), 0.0);
+		adjoints[root] = 1;
+		reverseSweep(table, nodeValues, adjoints, gradient, root);
+		return nodeValues[root];
+	}
+
+	/**
+	 * Compute the values of nodes {@code 0} to {@code lastNode} (inclusive).
+	 */
+	static void forwardSweep(final RealNodeTable table, final double[] variableValues, final double[] nodeValues,
+			final int lastNode) {
+		for (int node = 0; node <= lastNode; node++) {
+			final int arg0 = table.getArg0(node);
+			switch (table.getOpcode(node)) {
+				case OP_CONSTANT:
+					nodeValues[node] = table.getConstant(arg0);
+					break;
+				case OP_VARIABLE:
+					nodeValues[node] = variableValues[arg0];
+					break;
+				case OP_ADDITION: {
+					double sum = 0;
+					for (int offset = arg0, end = arg0 + table.getArg1(node); offset < end; offset++) {
+						sum += nodeValues[table.getChild(offset)];
+					}
+					nodeValues[node] = sum;
+					break;
+				}
+				case OP_MULTIPLICATION: {
+					double product = 1;
+					for (int offset = arg0, end = arg0 + table.getArg1(node); offset < end; offset++) {
+						product *= nodeValues[table.getChild(offset)];
+					}
+					nodeValues[node] = product;
+					break;
+				}
+				case OP_NEGATION:
+					nodeValues[node] = -nodeValues[arg0];
+					break;
+				case OP_RECIPROCAL:
+					nodeValues[node] = 1.0 / nodeValues[arg0];
+					break;
+				case OP_FUNCTION:
+					nodeValues[node] = FUNCTIONS[table.getArg1(node)].apply(nodeValues[arg0]);
+					break;
+				case OP_POWER:
+					nodeValues[node] = RealExprPower.power(nodeValues[arg0], nodeValues[table.getArg1(node)]);
+					break;
+				case OP_PIECEWISE: {
+					final RealExprPiecewise.Kind kind = PIECEWISE_KINDS[table.getArg1(node)];
+					nodeValues[node] = kind.apply(operandValue(table, nodeValues, kind, arg0, 0),
+							operandValue(table, nodeValues, kind, arg0, 1),
+							operandValue(table, nodeValues, kind, arg0, 2));
+					break;
+				}
+				default:
+					throw new IllegalStateException("Unknown opcode " + table.getOpcode(node) + " of node " + node);
+			}
+		}
+	}
+
+	/**
+	 * Propagate the adjoints of nodes {@code lastNode} down to {@code 0} to their sub-expressions, and accumulate the
+	 * adjoints of variable nodes into {@code gradient}.
+	 */
+	static void reverseSweep(final RealNodeTable table, final double[] nodeValues, final double[] adjoints,
+			final double[] gradient, final int lastNode) {
+		// grown to the largest number of factors of any product
+		double[] suffixProducts = new double[16];
+		for (int node = lastNode; node >= 0; node--) {
+			final double adjoint = adjoints[node];
+			if (adjoint == 0) {
+				continue;
+			}
+			final int arg0 = table.getArg0(node);
+			switch (table.getOpcode(node)) {
+				case OP_CONSTANT:
+					break;
+				case OP_VARIABLE:
+					gradient[arg0] += adjoint;
+					break;
+				case OP_ADDITION:
+					for (int offset = arg0, end = arg0 + table.getArg1(node); offset < end; offset++) {
+						adjoints[table.getChild(offset)] += adjoint;
+					}
+					break;
+				case OP_MULTIPLICATION: {
+					// d(product)/d(factor k) is the product of all other factors, computed as the product of the
+					// factors before k times the product of those after k, without dividing by factor k (which fails
+					// for zero factors, and where the product of all factors overflows or underflows)
+					final int count = table.getArg1(node);
+					if (suffixProducts.length <= count) {
+						suffixProducts = new double[Math.max(count + 1, 2 * suffixProducts.length)];
+					}
+					suffixProducts[count] = 1;
+					for (int i = count - 1; i >= 0; i--) {
+						suffixProducts[i] = suffixProducts[i + 1] * nodeValues[table.getChild(arg0 + i)];
+					}
+					double prefixProduct = 1;
+					for (int i = 0; i < count; i++) {
+						final int child = table.getChild(arg0 + i);
+						adjoints[child] += adjoint * (prefixProduct * suffixProducts[i + 1]);
+						prefixProduct *= nodeValues[child];
+					}
+					break;
+				}
+				case OP_NEGATION:
+					adjoints[arg0] -= adjoint;
+					break;
+				case OP_RECIPROCAL:
+					// d(1/u)/du = -1/u^2
+					adjoints[arg0] -= adjoint * nodeValues[node] * nodeValues[node];
+					break;
+				case OP_FUNCTION:
+					adjoints[arg0] += adjoint * FUNCTIONS[table.getArg1(node)].derivative(nodeValues[arg0]);
+					break;
+				case OP_POWER: {
+					// like VisitorRealExpressionGradient: where a factor of the following derivatives is zero, so is
+					// the derivative (instead of NaN from 0 * infinity), and constant operands are skipped
+					final int exponent = table.getArg1(node);
+					final double baseValue = nodeValues[arg0], exponentValue = nodeValues[exponent];
+					if (table.getOpcode(arg0) != OP_CONSTANT && exponentValue != 0) {
+						// d(f^g)/df = g * f^(g-1)
+						adjoints[arg0] += adjoint * exponentValue * RealExprPower.power(baseValue, exponentValue - 1);
+					}
+					if (table.getOpcode(exponent) != OP_CONSTANT && nodeValues[node] != 0) {
+						// d(f^g)/dg = f^g * log(f)
+						adjoints[exponent] += adjoint * nodeValues[node] * Math.log(baseValue);
+					}
+					break;
+				}
+				case OP_PIECEWISE: {
+					// the (sub-)gradient passes through the active operand only
+					final RealExprPiecewise.Kind kind = PIECEWISE_KINDS[table.getArg1(node)];
+					final double first = operandValue(table, nodeValues, kind, arg0, 0);
+					final int active = kind.activeOperand(first, operandValue(table, nodeValues, kind, arg0, 1),
+							operandValue(table, nodeValues, kind, arg0, 2));
+					if (active >= 0) {
+						adjoints[table.getChild(arg0 + active)] +=
+								kind == RealExprPiecewise.Kind.ABS ? adjoint * Math.signum(first) : adjoint;
+					}
+					break;
+				}
+				default:
+					throw new IllegalStateException("Unknown opcode " + table.getOpcode(node) + " of node " + node);
+			}
+		}
+	}
+
+	/**
+	 * Get the value of the given operand of a piecewise node whose children start at the given offset, or {@code 0}
+	 * if the kind has fewer operands.
+	 */
+	private static double operandValue(final RealNodeTable table, final double[] nodeValues,
+			final RealExprPiecewise.Kind kind, final int offset, final int operand) {
+		return operand < kind.arity ? nodeValues[table.getChild(offset + operand)] : 0;
+	}
+
+	/**
+	 * Resolve the variables of the given table by name. If {@code variables} does not contain a variable for a name, a
+	 * new {@link RealVariable} is created and added to it; unnamed variables are always created anew.
+	 *
+	 * @param table
+	 * 		the node table
+	 * @param variables
+	 * 		name table used to resolve variables; must be non-{@code null} and modifiable
+	 * @return an array with one variable per variable table entry
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if two variable table entries have the same name, since they would be merged into one variable
+	 */
+	public static RealVariable[] resolveVariables(final RealNodeTable table,
+			final Map<String, RealVariable> variables) {
+		final RealVariable[] result = new RealVariable[table.getVariableCount()];
+		final Set<String> names = new HashSet<>();
+		for (int i = 0; i < result.length; i++) {
+			final String name = table.getVariableName(i);
+			if (name != null && !names.add(name)) {
+				throw new IllegalArgumentException("Duplicate variable name \"" + name + "\"");
+			}
+			result[i] = (name == null) ? new RealVariable() : variables.computeIfAbsent(name, RealVariable::new);
+		}
+		return result;
+	}
+
+	/**
+	 * Build the expression object for the sub-DAG rooted at the given node. Nodes that are shared within this sub-DAG
+	 * are built only once. The sub-expressions of n-ary nodes keep their stored order.
+	 *
+	 * @param table
+	 * 		the node table
+	 * @param node
+	 * 		index of the node to build
+	 * @param variables
+	 * 		one variable per variable table entry, cf. {@link #resolveVariables(RealNodeTable, Map)}
+	 * @return the expression represented by {@code node}
+	 */
+	public static RealExpression toExpression(final RealNodeTable table, final int node,
+			final RealVariable[] variables) {
+		return toExpression(table, node, variables, new HashMap<>());
+	}
+
+	private static RealExpression toExpression(final RealNodeTable table, final int node,
+			final RealVariable[] variables, final Map<Integer, RealExpression> built) {
+		RealExpression expression = built.get(node);
+		if (expression != null) {
+			return expression;
+		}
+		final int arg0 = table.getArg0(node);
+		switch (table.getOpcode(node)) {
+			case OP_CONSTANT:
+				expression = reCons(table.getConstant(arg0));
+				break;
+			case OP_VARIABLE:
+				expression = variables[arg0];
+				break;
+			case OP_ADDITION:
+				expression = reAddUsrtd(toExpressions(table, arg0, table.getArg1(node), variables, built));
+				break;
+			case OP_MULTIPLICATION:
+				expression = reMultUsrtd(toExpressions(table, arg0, table.getArg1(node), variables, built));
+				break;
+			case OP_NEGATION:
+				expression = reNeg(toExpression(table, arg0, variables, built));
+				break;
+			case OP_RECIPROCAL:
+				expression = reRecip(toExpression(table, arg0, variables, built));
+				break;
+			case OP_FUNCTION:
+				expression = reFunc(FUNCTIONS[table.getArg1(node)], toExpression(table, arg0, variables, built));
+				break;
+			case OP_POWER:
+				expression = rePow(toExpression(table, arg0, variables, built),
+						toExpression(table, table.getArg1(node), variables, built));
+				break;
+			case OP_PIECEWISE: {
+				final RealExprPiecewise.Kind kind = PIECEWISE_KINDS[table.getArg1(node)];
+				expression = new RealExprPiecewise(kind, toExpressions(table, arg0, kind.arity, variables, built));
+				break;
+			}
+			default:
+				throw new IllegalStateException("Unknown opcode " + table.getOpcode(node) + " of node " + node);
+		}
+		built.put(node, expression);
+		return expression;
+	}
+
+	private static RealExpression[] toExpressions(final RealNodeTable table, final int offset, final int count,
+			final RealVariable[] variables, final Map<Integer, RealExpression> built) {
+		final RealExpression[] result = new RealExpression[count];
+		for (int i = 0; i < count; i++) {
+			result[i] = toExpression(table, table.getChild(offset + i), variables, built);
+		}
+		return result;
+	}
+
+	private RealNodeTables() {}
+}
@@ -0,0 +1,225 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.tape;
+
+import nevik.autodiff.expr.real.RealExpression;
+
+import java.util.Arrays;
+
+import static nevik.autodiff.expr.real.tape.RealRegisterSweeps.ceilDiv;
+
+/**
+ * Computes gradients of a scalar objective recorded on a {@link RealExpressionTape} in reverse mode with checkpointing,
+ * so that the memory used for the values and adjoints of the nodes is bounded by a given budget instead of growing
+ * with the size of the tape.
+ * <p/>
+ * Values and adjoints are kept in registers that are shared by nodes whose values are not needed at the same time (cf.
+ * {@link RealRegisterSweeps}). The tape is split into segments of equal length. The forward sweep stores the contents
+ * of all registers at the start of every {@code stride}-th segment (a checkpoint), and the reverse sweep then
+ * processes the segments from last to first, each time recomputing the values of one segment from the closest
+ * preceding checkpoint. The segment length and the stride are chosen from the budget: if all checkpoints fit, each
+ * segment is recomputed only once, so a gradient costs about two forward sweeps and one reverse sweep; smaller budgets
+ * store fewer checkpoints and recompute more (cf. {@link #getEvaluationCount()}). {@link RealSpillingGradient} stores
+ * the segments in files instead.
+ * <p/>
+ * The results are bitwise identical to those of {@link RealExpressionHessian#gradient(double[], double[])}.
+ * <p/>
+ * The budget covers all buffers for values and adjoints; the tape itself and the register of each node (one {@code
+ * int} per node) are not included. All buffers are allocated once per instance. Instances are not thread-safe.
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealCheckpointedGradient {
+	public final RealExpressionTape tape;
+
+	private final RealRegisterSweeps sweeps;
+	private final int segmentLength;
+	private final int segmentCount;
+	/**
+	 * Number of segments per checkpoint.
+	 */
+	private final int stride;
+	private final long evaluationCount;
+
+	/**
+	 * The register contents at the start of every {@link #stride}-th segment.
+	 */
+	private final double[] checkpoints;
+	private final double[] segmentValues;
+
+	/**
+	 * Create a new engine for the given objective, recording it on a new tape.
+	 *
+	 * @param budget
+	 * 		the number of bytes that may be used for values and adjoints
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code objective} contains types of expressions that cannot be recorded, or if the budget is too small
+	 */
+	public RealCheckpointedGradient(final RealExpression objective, final long budget) {
+		this(RealExpressionTape.record(objective), budget);
+	}
+
+	/**
+	 * Create a new engine for the objective recorded on the given tape.
+	 *
+	 * @param budget
+	 * 		the number of bytes that may be used for values and adjoints
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code tape} has more than one output, or if the budget is too small for even a single checkpoint
+	 */
+	public RealCheckpointedGradient(final RealExpressionTape tape, final long budget) {
+		this.tape = tape;
+		this.sweeps = new RealRegisterSweeps(tape);
+		final int n = this.sweeps.nodeCount, r = this.sweeps.registerCount;
+		final long fixed = this.sweeps.getValueCount();
+		final long available = budget / Double.BYTES - fixed;
+		if (available < r + 1) {
+			throw new IllegalArgumentException("Budget of " + budget + " bytes is too small for a single checkpoint; " +
+					"at least " + (fixed + r + 1) * Double.BYTES + " bytes are needed");
+		}
+		int segmentLength = 0, stride = 0;
+		if (available >= (long) n + r) {
+			// everything fits into a single segment
+			segmentLength = n;
+			stride = 1;
+		} else {
+			for (int s = 1; segmentLength == 0; s++) {
+				// the memory L + ceil(ceil(n / L) / s) * r for segment length L is smallest around sqrt(n * r / s)
+				final long optimum = Math.max(1, Math.min(n, (long) Math.sqrt((double) n * r / s)));
+				for (long length = Math.max(1, optimum - 2); length <= Math.min(n, optimum + 2); length++) {
+					if (length + checkpointCount(n, length, s) * r <= available) {
+						segmentLength = (int) length;
+						stride = s;
+						break;
+					}
+				}
+				if (segmentLength == 0 && checkpointCount(n, optimum, s) == 1) {
+					// more recomputation cannot save any more checkpoints, so use the largest possible segments
+					segmentLength = (int) Math.min(n, available - r);
+					stride = (int) ceilDiv(n, segmentLength);
+				}
+			}
+			// spend the rest of the budget on longer segments, which need fewer recomputations per checkpoint
+			final long checkpointCount = checkpointCount(n, segmentLength, stride);
+			segmentLength = (int) Math.min(n, available - checkpointCount * r);
+			stride = (int) ceilDiv(ceilDiv(n, segmentLength), checkpointCount);
+		}
+		this.segmentLength = segmentLength;
+		this.segmentCount = (int) ceilDiv(n, segmentLength);
+		this.stride = stride;
+		this.evaluationCount = this.countEvaluations();
+		this.checkpoints = new double[(int) checkpointCount(n, segmentLength, stride) * r];
+		this.segmentValues = new double[segmentLength];
+	}
+
+	private static long checkpointCount(final int nodeCount, final long segmentLength, final int stride) {
+		return ceilDiv(ceilDiv(nodeCount, segmentLength), stride);
+	}
+
+	private long countEvaluations() {
+		// the initial forward sweep also computes the values of the last segment
+		long count = this.sweeps.nodeCount;
+		for (int segment = this.segmentCount - 2; segment >= 0; segment--) {
+			final int checkpointStart = segment / this.stride * this.stride * this.segmentLength;
+			count += (long) (segment + 1) * this.segmentLength - checkpointStart;
+		}
+		return count;
+	}
+
+	/**
+	 * @return the number of nodes per segment
+	 */
+	public int getSegmentLength() {
+		return this.segmentLength;
+	}
+
+	/**
+	 * @return the number of stored checkpoints
+	 */
+	public int getCheckpointCount() {
+		return this.checkpoints.length / this.sweeps.registerCount;
+	}
+
+	/**
+	 * @return the number of registers, i.e. the number of values stored per checkpoint
+	 */
+	public int getRegisterCount() {
+		return this.sweeps.registerCount;
+	}
+
+	/**
+	 * @return the number of bytes used for values and adjoints, which is at most the budget
+	 */
+	public long getMemoryUsage() {
+		return (long) Double.BYTES *
+				(this.sweeps.getValueCount() + this.checkpoints.length + this.segmentValues.length);
+	}
+
+	/**
+	 * @return the number of node evaluations per gradient, including recomputations; a full tape needs one evaluation
+	 * per node
+	 */
+	public long getEvaluationCount() {
+		return this.evaluationCount;
+	}
+
+	/**
+	 * Compute the value and the gradient of the objective at the given point.
+	 *
+	 * @param point
+	 * 		the value of each variable of the tape
+	 * @param gradient
+	 * 		receives the gradient; must have one entry per variable
+	 * @return the value of the objective
+	 */
+	public double gradient(final double[] point, final double[] gradient) {
+		this.tape.checkPoint(point, "Point");
+		this.tape.checkPoint(gradient, "Gradient");
+		final RealRegisterSweeps sweeps = this.sweeps;
+		final double[] work = sweeps.work, entry = sweeps.entry;
+		final int r = sweeps.registerCount, length = this.segmentLength, last = this.segmentCount - 1;
+		Arrays.fill(work, 0);
+		for (int segment = 0; segment < last; segment++) {
+			if (segment % this.stride == 0) {
+				System.arraycopy(work, 0, this.checkpoints, segment / this.stride * r, r);
+			}
+			sweeps.forward(segment * length, (segment + 1) * length, point, null);
+		}
+		if (last % this.stride == 0) {
+			System.arraycopy(work, 0, this.checkpoints, last / this.stride * r, r);
+		}
+		// the values of the last segment are kept, so its reverse sweep needs no recomputation
+		final int lastStart = last * length;
+		System.arraycopy(work, 0, entry, 0, r);
+		sweeps.forward(lastStart, sweeps.nodeCount, point, this.segmentValues);
+		final double value = this.segmentValues[sweeps.nodeCount - 1 - lastStart];
+
+		Arrays.fill(gradient, 0);
+		sweeps.seed();
+		sweeps.reverse(lastStart, sweeps.nodeCount, this.segmentValues, gradient);
+		for (int segment = last - 1; segment >= 0; segment--) {
+			final int checkpoint = segment / this.stride;
+			final int start = segment * length;
+			System.arraycopy(this.checkpoints, checkpoint * r, work, 0, r);
+			sweeps.forward(checkpoint * this.stride * length, start, point, null);
+			System.arraycopy(work, 0, entry, 0, r);
+			sweeps.forward(start, start + length, point, this.segmentValues);
+			sweeps.reverse(start, start + length, this.segmentValues, gradient);
+		}
+		return value;
+	}
+}
@@ -0,0 +1,389 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.tape;
+
+import nevik.autodiff.expr.real.RealExprFunction.Function;
+import nevik.autodiff.expr.real.RealExprPiecewise;
+import nevik.autodiff.expr.real.RealExprPower;
+import nevik.autodiff.expr.real.RealExpression;
+
+import java.util.Arrays;
+
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_ADDITION;
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_CONSTANT;
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_FUNCTION;
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_MULTIPLICATION;
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_NEGATION;
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_POWER;
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_RECIPROCAL;
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_VARIABLE;
+
+/**
+ * Computes gradients, Hessian-vector products and dense Hessians of a scalar objective recorded on a {@link
+ * RealExpressionTape}, in forward-over-reverse mode: a forward sweep computes the values of all nodes and their
+ * directional derivatives (tangents) along a vector {@code v}, and a reverse sweep computes the adjoints of all nodes
+ * together with their tangents. The tangents of the adjoints of the variables then form the product {@code H*v} of
+ * the Hessian {@code H} with {@code v}, so a Hessian-vector product costs about as much as two gradient evaluations.
+ * A dense Hessian is built column by column from the products with the unit vectors, reusing the values of one
+ * forward sweep.
+ * <p/>
+ * Non-differentiable nodes are treated as in {@link nevik.autodiff.expr.real.visitor.VisitorRealExpressionGradient}:
+ * the (sub-)gradient of piecewise nodes passes through their active operand only.
+ * <p/>
+ * All buffers are allocated once per instance, so repeated calls (e.g. in the inner loop of a Newton-CG method) do not
+ * allocate. Instances are not thread-safe; use one instance per thread, all sharing the same (immutable) tape.
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealExpressionHessian {
+	public final RealExpressionTape tape;
+
+	private final double[] values;
+	private final double[] tangents;
+	private final double[] adjoints;
+	private final double[] adjointTangents;
+	/**
+	 * Products (and their tangents) of the trailing operands of a multiplication, used to compute the product of all
+	 * but one operand without dividing by it.
+	 */
+	private final double[] suffixProducts;
+	private final double[] suffixTangents;
+	private final double[] unitVector;
+
+	/**
+	 * Create a new engine for the given objective, recording it on a new tape.
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code objective} contains types of expressions that cannot be recorded
+	 */
+	public RealExpressionHessian(final RealExpression objective) {
+		this(RealExpressionTape.record(objective));
+	}
+
+	/**
+	 * Create a new engine for the objective recorded on the given tape.
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code tape} has more than one output
+	 */
+	public RealExpressionHessian(final RealExpressionTape tape) {
+		if (tape.getOutputCount() != 1) {
+			throw new IllegalArgumentException("Objective tape must have exactly one output");
+		}
+		this.tape = tape;
+		final int nodeCount = tape.getNodeCount();
+		this.values = new double[nodeCount];
+		this.tangents = new double[nodeCount];
+		this.adjoints = new double[nodeCount];
+		this.adjointTangents = new double[nodeCount];
+		this.suffixProducts = new double[tape.getMaxChildCount() + 1];
+		this.suffixTangents = new double[tape.getMaxChildCount() + 1];
+		this.unitVector = new double[tape.getVariableCount()];
+	}
+
+	/**
+	 * Compute the value and the gradient of the objective at the given point.
+	 *
+	 * @param point
+	 * 		the value of each variable of the tape
+	 * @param gradient
+	 * 		receives the gradient; must have one entry per variable
+	 * @return the value of the objective
+	 */
+	public double gradient(final double[] point, final double[] gradient) {
+		this.tape.checkPoint(gradient, "Gradient");
+		final double value = this.tape.evaluate(point, this.values);
+		this.reverse(false, gradient, null);
+		return value;
+	}
+
+	/**
+	 * Compute the value of the objective and the product of its Hessian with the given vector at the given point.
+	 *
+	 * @param point
+	 * 		the value of each variable of the tape
+	 * @param vector
+	 * 		the vector to multiply with; must have one entry per variable
+	 * @param gradient
+	 * 		receives the gradient; must have one entry per variable, or be {@code null} if the gradient is not needed
+	 * @param product
+	 * 		receives the Hessian-vector product; must have one entry per variable
+	 * @return the value of the objective
+	 */
+	public double hessianVectorProduct(final double[] point, final double[] vector, final double[] gradient,
+			final double[] product) {
+		this.tape.checkPoint(vector, "Vector");
+		this.tape.checkPoint(product, "Product");
+		if (gradient != null) {
+			this.tape.checkPoint(gradient, "Gradient");
+		}
+		final double value = this.evaluateAt(point);
+		this.productAtPoint(vector, gradient, product);
+		return value;
+	}
+
+	/**
+	 * Compute the values of all nodes at the given point, for subsequent calls of {@link #productAtPoint(double[],
+	 * double[], double[])}.
+	 *
+	 * @return the value of the objective
+	 */
+	double evaluateAt(final double[] point) {
+		return this.tape.evaluate(point, this.values);
+	}
+
+	/**
+	 * Compute the product of the Hessian with the given vector at the point of the last call of {@link
+	 * #evaluateAt(double[])}.
+	 */
+	void productAtPoint(final double[] vector, final double[] gradient, final double[] product) {
+		this.tape.evaluateTangents(vector, this.values, this.tangents);
+		this.reverse(true, gradient, product);
+	}
+
+	/**
+	 * Compute the value of the objective and its dense Hessian at the given point. The result is exactly symmetric.
+	 *
+	 * @param point
+	 * 		the value of each variable of the tape
+	 * @param gradient
+	 * 		receives the gradient; must have one entry per variable, or be {@code null} if the gradient is not needed
+	 * @param hessian
+	 * 		receives the Hessian in row-major order, i.e. the second derivative with respect to variables {@code i} and
+	 * 		{@code j} at index {@code i * n + j}, where {@code n} is the number of variables; must have {@code n * n}
+	 * 		entries
+	 * @return the value of the objective
+	 */
+	public double hessian(final double[] point, final double[] gradient, final double[] hessian) {
+		final int n = this.tape.getVariableCount();
+		if (hessian.length != n * n) {
+			throw new IllegalArgumentException("Hessian has " + hessian.length + " entries instead of " + n * n);
+		}
+		if (gradient != null) {
+			this.tape.checkPoint(gradient, "Gradient");
+		}
+		final double value = this.evaluateAt(point);
+		final double[] row = this.unitVector;
+		for (int i = 0; i < n; i++) {
+			// the values are the same for all directions, so only tangents and adjoints are recomputed
+			row[i] = 1;
+			this.tape.evaluateTangents(row, this.values, this.tangents);
+			row[i] = 0;
+			this.reverse(true, i == 0 ? gradient : null, row);
+			// H*e_i is the i-th column of H, which is the i-th row of the symmetric H
+			System.arraycopy(row, 0, hessian, i * n, n);
+			Arrays.fill(row, 0);
+		}
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < i; j++) {
+				// remove rounding asymmetries
+				final double mean = 0.5 * (hessian[i * n + j] + hessian[j * n + i]);
+				hessian[i * n + j] = mean;
+				hessian[j * n + i] = mean;
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Compute the adjoint of each node (reverse sweep), given the values of all nodes, and optionally the tangents of
+	 * the adjoints, given the tangents of all nodes.
+	 *
+	 * @param secondOrder
+	 * 		whether to compute the tangents of the adjoints as well
+	 * @param gradient
+	 * 		receives the adjoints of the variables; may be {@code null}
+	 * @param product
+	 * 		receives the tangents of the adjoints of the variables; may be {@code null}
+	 */
+	private void reverse(final boolean secondOrder, final double[] gradient, final double[] product) {
+		final RealExpressionTape tape = this.tape;
+		final double[] values = this.values, tangents = this.tangents;
+		final double[] adjoints = this.adjoints, adjointTangents = this.adjointTangents;
+		final int root = tape.getRootIndex();
+		Arrays.fill(adjoints, 0);
+		adjoints[root] = 1;
+		if (secondOrder) {
+			Arrays.fill(adjointTangents, 0);
+		}
+		if (gradient != null) {
+			Arrays.fill(gradient, 0);
+		}
+		if (product != null) {
+			Arrays.fill(product, 0);
+		}
+
+		for (int node = root; node >= 0; node--) {
+			if (!tape.isActive(node)) {
+				// nothing below an inactive node depends on any variable
+				continue;
+			}
+			final double adjoint = adjoints[node];
+			final double adjointTangent = secondOrder ? adjointTangents[node] : 0;
+			final int childCount = tape.getChildCount(node);
+			final int first = childCount > 0 ? tape.getChild(node, 0) : -1;
+			switch (tape.getOpcode(node)) {
+				case OP_CONSTANT:
+					break;
+				case OP_VARIABLE:
+					if (gradient != null) {
+						gradient[tape.getVariableIndexOf(node)] += adjoint;
+					}
+					if (product != null) {
+						product[tape.getVariableIndexOf(node)] += adjointTangent;
+					}
+					break;
+				case OP_ADDITION:
+					for (int i = 0; i < childCount; i++) {
+						final int child = tape.getChild(node, i);
+						adjoints[child] += adjoint;
+						adjointTangents[child] += adjointTangent;
+					}
+					break;
+				case OP_MULTIPLICATION:
+					this.reverseMultiplication(node, secondOrder);
+					break;
+				case OP_NEGATION:
+					adjoints[first] -= adjoint;
+					adjointTangents[first] -= adjointTangent;
+					break;
+				case OP_RECIPROCAL: {
+					// d(1/u)/du = -1/u^2 = -w^2, and d^2(1/u)/du^2 = 2/u^3 = 2*w^3
+					final double value = values[node];
+					this.propagateUnary(first, secondOrder, adjoint, adjointTangent, -value * value,
+							2 * value * value * value);
+					break;
+				}
+				case OP_FUNCTION: {
+					final Function function = tape.getFunction(node);
+					this.propagateUnary(first, secondOrder, adjoint, adjointTangent, function.derivative(values[first]),
+							secondOrder ? function.secondDerivative(values[first]) : 0);
+					break;
+				}
+				case OP_POWER:
+					this.reversePower(node, secondOrder, adjoint, adjointTangent);
+					break;
+				default: {
+					final int active = tape.activeOperand(node, values);
+					if (active >= 0) {
+						final double sign = tape.piecewiseSign(node, values);
+						final int child = tape.getChild(node, active);
+						adjoints[child] += sign * adjoint;
+						adjointTangents[child] += sign * adjointTangent;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Propagate the adjoint of a node {@code w = f(u)} and its tangent to the operand {@code u}.
+	 *
+	 * @param derivative
+	 * 		{@code f'(u)}
+	 * @param secondDerivative
+	 * 		{@code f''(u)}
+	 */
+	private void propagateUnary(final int operand, final boolean secondOrder, final double adjoint,
+			final double adjointTangent, final double derivative, final double secondDerivative) {
+		this.adjoints[operand] += adjoint * derivative;
+		if (secondOrder) {
+			this.adjointTangents[operand] +=
+					adjointTangent * derivative + adjoint * secondDerivative * this.tangents[operand];
+		}
+	}
+
+	private void reverseMultiplication(final int node, final boolean secondOrder) {
+		final RealExpressionTape tape = this.tape;
+		final double[] values = this.values, tangents = this.tangents;
+		final double[] suffixProducts = this.suffixProducts, suffixTangents = this.suffixTangents;
+		final double adjoint = this.adjoints[node];
+		final double adjointTangent = secondOrder ? this.adjointTangents[node] : 0;
+		final int childCount = tape.getChildCount(node);
+
+		// the partial derivative with respect to operand i is the product of all other operands; it is computed as the
+		// product of the leading operands times the product of the trailing operands, so no division is needed
+		suffixProducts[childCount] = 1;
+		suffixTangents[childCount] = 0;
+		for (int i = childCount - 1; i >= 0; i--) {
+			final int child = tape.getChild(node, i);
+			suffixProducts[i] = suffixProducts[i + 1] * values[child];
+			if (secondOrder) {
+				suffixTangents[i] = suffixTangents[i + 1] * values[child] + suffixProducts[i + 1] * tangents[child];
+			}
+		}
+		double prefixProduct = 1, prefixTangent = 0;
+		for (int i = 0; i < childCount; i++) {
+			final int child = tape.getChild(node, i);
+			final double partial = prefixProduct * suffixProducts[i + 1];
+			this.adjoints[child] += adjoint * partial;
+			if (secondOrder) {
+				final double partialTangent =
+						prefixTangent * suffixProducts[i + 1] + prefixProduct * suffixTangents[i + 1];
+				this.adjointTangents[child] += adjointTangent * partial + adjoint * partialTangent;
+				prefixTangent = prefixTangent * values[child] + prefixProduct * tangents[child];
+			}
+			prefixProduct *= values[child];
+		}
+	}
+
+	private void reversePower(final int node, final boolean secondOrder, final double adjoint,
+			final double adjointTangent) {
+		final RealExpressionTape tape = this.tape;
+		final double[] values = this.values, tangents = this.tangents;
+		final int base = tape.getChild(node, 0), exponent = tape.getChild(node, 1);
+		final boolean baseActive = tape.isActive(base), exponentActive = tape.isActive(exponent);
+		final double baseValue = values[base], exponentValue = values[exponent];
+		// terms involving log(f) are only computed for variable exponents, since they may be NaN for negative bases
+		final double logBase = exponentActive ? Math.log(baseValue) : 0;
+		// d(f^g)/df = g * f^(g-1), and d(f^g)/dg = f^g * log(f); like all terms below, these are zero where one of their
+		// factors is zero, instead of NaN from 0 * infinity at f = 0
+		final double baseDerivative = baseActive ? tape.powerBaseDerivative(node, values) : 0;
+		final double exponentDerivative =
+				exponentActive ? RealExpressionTape.powerExponentDerivative(values[node], baseValue) : 0;
+		this.adjoints[base] += adjoint * baseDerivative;
+		this.adjoints[exponent] += adjoint * exponentDerivative;
+		if (!secondOrder) {
+			return;
+		}
+		// d^2(f^g)/(df dg) = f^(g-1) * (1 + g * log(f)) = f^(g-1) + g * f^(g-1) * log(f)
+		final double mixedDerivative = baseActive && exponentActive ?
+				mixedPowerDerivative(baseValue, exponentValue, logBase) : 0;
+		if (baseActive) {
+			// d^2(f^g)/df^2 = g * (g-1) * f^(g-2)
+			final double factor = exponentValue * (exponentValue - 1);
+			final double baseSecondDerivative =
+					factor == 0 ? 0 : factor * RealExprPower.power(baseValue, exponentValue - 2);
+			this.adjointTangents[base] += adjointTangent * baseDerivative +
+					adjoint * (baseSecondDerivative * tangents[base] +
+							(exponentActive ? mixedDerivative * tangents[exponent] : 0));
+		}
+		if (exponentActive) {
+			// d^2(f^g)/dg^2 = f^g * log(f)^2
+			final double exponentSecondDerivative = exponentDerivative == 0 ? 0 : exponentDerivative * logBase;
+			this.adjointTangents[exponent] += adjointTangent * exponentDerivative +
+					adjoint * (exponentSecondDerivative * tangents[exponent] +
+							(baseActive ? mixedDerivative * tangents[base] : 0));
+		}
+	}
+
+	private static double mixedPowerDerivative(final double baseValue, final double exponentValue,
+			final double logBase) {
+		final double power = RealExprPower.power(baseValue, exponentValue - 1);
+		return exponentValue == 0 || power == 0 ? power : power + exponentValue * power * logBase;
+	}
+}
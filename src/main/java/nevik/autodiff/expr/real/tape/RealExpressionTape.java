@@ -0,0 +1,813 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.tape;
+
+import nevik.autodiff.expr.real.RealAssignment;
+import nevik.autodiff.expr.real.RealConstant;
+import nevik.autodiff.expr.real.RealExprAddition;
+import nevik.autodiff.expr.real.RealExprFunction;
+import nevik.autodiff.expr.real.RealExprFunction.Function;
+import nevik.autodiff.expr.real.RealExprLinear;
+import nevik.autodiff.expr.real.RealExprMultiplication;
+import nevik.autodiff.expr.real.RealExprNegation;
+import nevik.autodiff.expr.real.RealExprPiecewise;
+import nevik.autodiff.expr.real.RealExprPower;
+import nevik.autodiff.expr.real.RealExprReciprocal;
+import nevik.autodiff.expr.real.RealExprReduction;
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealSuperExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import nevik.autodiff.expr.real.visitor.AbstractVisitorRealExpression;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionEvaluator.evaluateExpression;
+
+/**
+ * Straight-line program ("tape") recorded from an expression DAG, as the basis for derivative computations that sweep
+ * over all nodes of an expression many times. Each distinct node (by identity) of the recorded expression becomes one
+ * entry of the tape; the entries are in topological order (every node comes after all of its operands). Operands are
+ * stored in a compressed child array, so that the operands of node {@code k} are
+ * {@link #getChild(int, int) getChild(k, 0)}, ..., {@code getChild(k, getChildCount(k) - 1)}.
+ * <p/>
+ * Variables are numbered in order of their first occurrence, unless an explicit order is given (cf. {@link
+ * #record(RealExpression, List)}); points at which the tape is evaluated are given as {@code double[]} arrays with one
+ * value per variable (cf. {@link #toPoint(RealAssignment)}). Note that the sub-expressions of sums and products are
+ * ordered by hash code, and variables use identity hash codes, so the order of first occurrence (and with it the node
+ * order) can differ between runs of the same program. Linear forms are recorded as the equivalent sum of scaled
+ * terms.
+ * <p/>
+ * There is no operation for {@link RealExprReduction reductions}: a reduction stands for one copy of its body per row
+ * of its dataset, which a straight-line program could only represent by unrolling all rows, i.e. by materializing the
+ * very summands that reductions avoid. Expressions containing reductions can therefore only be recorded w.r.t. a
+ * subset of the variables that the reductions do not depend on (cf. below); derivatives w.r.t. the free variables of
+ * a reduction are computed by {@link nevik.autodiff.expr.real.visitor.VisitorRealExpressionGradient} instead.
+ * <p/>
+ * A tape can also be recorded w.r.t. a subset of the variables only (cf. {@link #record(List, List, RealAssignment)}):
+ * all other variables are treated as parameters with fixed values, and every sub-expression that does not depend on
+ * the subset is recorded as a single constant node holding its value. Such a tape only contains the part of the
+ * expression that depends on the subset, and its points and gradients only have one entry per variable of the subset.
+ * <p/>
+ * Tapes are immutable and may be shared between threads; all buffers for sweeps over a tape are owned by the engines
+ * that perform them.
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public final class RealExpressionTape {
+	// ===============================================================================================================
+	// ====  Static fields and methods  ==============================================================================
+	// ===============================================================================================================
+	public static final int OP_CONSTANT = 0;
+	public static final int OP_VARIABLE = 1;
+	public static final int OP_ADDITION = 2;
+	public static final int OP_MULTIPLICATION = 3;
+	public static final int OP_NEGATION = 4;
+	public static final int OP_RECIPROCAL = 5;
+	/**
+	 * Elementary function of one operand; cf. {@link #getFunction(int)}.
+	 */
+	public static final int OP_FUNCTION = 6;
+	/**
+	 * Power with the base as first and the exponent as second operand.
+	 */
+	public static final int OP_POWER = 7;
+	/**
+	 * Piecewise-defined node; cf. {@link #getPiecewiseKind(int)}.
+	 */
+	public static final int OP_PIECEWISE = 8;
+
+	private static final Set<Class<? extends RealExpression>> SUPPORTED_TYPES = //
+			Collections.unmodifiableSet(new HashSet<>(Arrays.asList( //
+					RealConstant.class, //
+					RealVariable.class, //
+					RealExprAddition.class, //
+					RealExprMultiplication.class, //
+					RealExprNegation.class, //
+					RealExprReciprocal.class, //
+					RealExprFunction.class, //
+					RealExprPower.class, //
+					RealExprPiecewise.class, //
+					RealExprLinear.class)));
+
+	/**
+	 * Types of expressions that may occur in expressions recorded w.r.t. a subset of the variables; reductions are
+	 * allowed in sub-expressions that do not depend on the subset, since these are recorded as constants.
+	 */
+	private static final Set<Class<? extends RealExpression>> RESTRICTED_SUPPORTED_TYPES;
+
+	static {
+		final Set<Class<? extends RealExpression>> types = new HashSet<>(SUPPORTED_TYPES);
+		types.add(RealExprReduction.class);
+		RESTRICTED_SUPPORTED_TYPES = Collections.unmodifiableSet(types);
+	}
+
+	private static final Function[] FUNCTIONS = Function.values();
+	private static final RealExprPiecewise.Kind[] PIECEWISE_KINDS = RealExprPiecewise.Kind.values();
+
+	/**
+	 * Record the given expression, which becomes the only output of the tape.
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code expression} contains types of expressions that cannot be recorded
+	 */
+	public static RealExpressionTape record(final RealExpression expression) {
+		return record(Collections.singletonList(Objects.requireNonNull(expression)));
+	}
+
+	/**
+	 * Record the given expressions on one tape, as its outputs in the given order. Nodes that are shared between the
+	 * expressions (by identity) are recorded only once.
+	 *
+	 * @param expressions
+	 * 		the expressions to record; must be non-{@code null} and non-empty
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code expressions} is empty, or contains types of expressions that cannot be recorded
+	 */
+	public static RealExpressionTape record(final List<? extends RealExpression> expressions) {
+		if (expressions.isEmpty()) {
+			throw new IllegalArgumentException("Cannot record a tape without outputs");
+		}
+		final RealExpressionTape tape = new RealExpressionTape();
+		final Map<RealExpression, Integer> nodeIndices = new IdentityHashMap<>();
+		tape.outputs = new int[expressions.size()];
+		for (int i = 0; i < tape.outputs.length; i++) {
+			tape.outputs[i] = new Recorder(tape, Objects.requireNonNull(expressions.get(i)), nodeIndices, false, null,
+					null).evaluate();
+		}
+		tape.trimToSize();
+		return tape;
+	}
+
+	/**
+	 * Record the given expression, numbering the variables in the given order.
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code variables} contains duplicates or does not contain all variables of {@code expression}, or if
+	 * 		{@code expression} contains types of expressions that cannot be recorded
+	 * @see #record(List, List)
+	 */
+	public static RealExpressionTape record(final RealExpression expression, final List<RealVariable> variables) {
+		return record(Collections.singletonList(Objects.requireNonNull(expression)), variables);
+	}
+
+	/**
+	 * Record the given expressions on one tape, as its outputs in the given order, numbering the variables in the
+	 * given order, so that {@link #indexOf(RealVariable) indexOf(variables.get(i))} is {@code i}. Use this where the
+	 * variable order must not depend on hash codes, e.g. for reproducible results.
+	 *
+	 * @param expressions
+	 * 		the expressions to record; must be non-{@code null} and non-empty
+	 * @param variables
+	 * 		the variables of the tape; must be non-{@code null} and contain all variables of {@code expressions}, and
+	 * 		may contain further variables
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code expressions} is empty, if {@code variables} contains duplicates or does not contain all variables
+	 * 		of {@code expressions}, or if {@code expressions} contain types of expressions that cannot be recorded
+	 */
+	public static RealExpressionTape record(final List<? extends RealExpression> expressions,
+			final List<RealVariable> variables) {
+		return record(expressions, variables, null, null);
+	}
+
+	/**
+	 * Record the given expression w.r.t. the given variables only, which becomes the only output of the tape.
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code variables} contains duplicates, if {@code parameters} contains no value for some other variable
+	 * 		of {@code expression}, or if {@code expression} contains types of expressions that cannot be recorded
+	 * @see #record(List, List, RealAssignment)
+	 */
+	public static RealExpressionTape record(final RealExpression expression, final List<RealVariable> variables,
+			final RealAssignment parameters) {
+		return record(Collections.singletonList(Objects.requireNonNull(expression)), variables, parameters);
+	}
+
+	/**
+	 * Record the given expressions on one tape w.r.t. the given variables only, as its outputs in the given order.
+	 * All other variables are parameters whose values are taken from {@code parameters}; sub-expressions that do not
+	 * depend on any of {@code variables} are evaluated once and recorded as constant nodes, so their nodes are not
+	 * on the tape at all. Reductions may occur in such sub-expressions only.
+	 * <p/>
+	 * The variables of the tape are exactly {@code variables}, in the given order (so {@link #indexOf(RealVariable)
+	 * indexOf(variables.get(i))} is {@code i}), whether or not the expressions depend on them.
+	 *
+	 * @param expressions
+	 * 		the expressions to record; must be non-{@code null} and non-empty
+	 * @param variables
+	 * 		the variables w.r.t. which to record the expressions; must be non-{@code null}
+	 * @param parameters
+	 * 		the values of all other variables of {@code expressions}; must be non-{@code null}
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code expressions} is empty, if {@code variables} contains duplicates, if {@code parameters} contains
+	 * 		no value for some other variable of {@code expressions}, or if {@code expressions} contain types of
+	 * 		expressions that cannot be recorded
+	 */
+	public static RealExpressionTape record(final List<? extends RealExpression> expressions,
+			final List<RealVariable> variables, final RealAssignment parameters) {
+		return record(expressions, variables, new HashSet<>(variables), Objects.requireNonNull(parameters));
+	}
+
+	/**
+	 * Record the given expressions with the given variables, as above. Unless {@code restriction} is {@code null},
+	 * sub-expressions that do not depend on any of its variables are recorded as constants.
+	 */
+	private static RealExpressionTape record(final List<? extends RealExpression> expressions,
+			final List<RealVariable> variables, final Set<RealVariable> restriction, final RealAssignment parameters) {
+		if (expressions.isEmpty()) {
+			throw new IllegalArgumentException("Cannot record a tape without outputs");
+		}
+		final RealExpressionTape tape = new RealExpressionTape();
+		for (final RealVariable variable : variables) {
+			if (tape.variableIndices.containsKey(Objects.requireNonNull(variable))) {
+				throw new IllegalArgumentException("Duplicate variable " + variable);
+			}
+			tape.addVariable(variable);
+		}
+		final Map<RealExpression, Integer> nodeIndices = new IdentityHashMap<>();
+		tape.outputs = new int[expressions.size()];
+		for (int i = 0; i < tape.outputs.length; i++) {
+			tape.outputs[i] = new Recorder(tape, Objects.requireNonNull(expressions.get(i)), nodeIndices, true,
+					restriction, parameters).evaluate();
+		}
+		tape.trimToSize();
+		return tape;
+	}
+
+	// ===============================================================================================================
+	// ====  Instance fields and methods  ============================================================================
+	// ===============================================================================================================
+	private int[] opcodes = new int[64];
+	/**
+	 * Per node, an opcode-specific argument: the variable index, the function ordinal, or the piecewise kind ordinal.
+	 */
+	private int[] arguments = new int[64];
+	/**
+	 * Offsets of the operands of each node in {@link #children}; the operands of node {@code k} are at offsets {@code
+	 * childOffsets[k]} (inclusive) to {@code childOffsets[k + 1]} (exclusive).
+	 */
+	private int[] childOffsets = new int[65];
+	private int[] children = new int[64];
+	/**
+	 * Per node, the value of constant nodes.
+	 */
+	private double[] constants = new double[64];
+	/**
+	 * Per node, whether its value depends on any variable.
+	 */
+	private boolean[] active = new boolean[64];
+	private int nodeCount;
+	private int maxChildCount;
+	private int[] outputs;
+	private RealVariable[] variables = new RealVariable[16];
+	private int variableCount;
+	private final Map<RealVariable, Integer> variableIndices = new IdentityHashMap<>();
+
+	private RealExpressionTape() {}
+
+	public int getNodeCount() {
+		return this.nodeCount;
+	}
+
+	/**
+	 * @return the index of the first output node, which is the root of the recorded expression for single-output
+	 * tapes
+	 */
+	public int getRootIndex() {
+		return this.outputs[0];
+	}
+
+	public int getOutputCount() {
+		return this.outputs.length;
+	}
+
+	/**
+	 * Get the node index of the {@code i}-th output, i.e. of the root of the {@code i}-th recorded expression.
+	 */
+	public int getOutput(final int i) {
+		return this.outputs[i];
+	}
+
+	public int getOpcode(final int node) {
+		return this.opcodes[node];
+	}
+
+	public int getChildCount(final int node) {
+		return this.childOffsets[node + 1] - this.childOffsets[node];
+	}
+
+	/**
+	 * Get the node index of the {@code i}-th operand of the given node.
+	 */
+	public int getChild(final int node, final int i) {
+		return this.children[this.childOffsets[node] + i];
+	}
+
+	/**
+	 * @return the number of bytes of heap taken by the node arrays of this tape, i.e. 21 bytes per node (opcode,
+	 * argument, child offset, constant and activity) plus 4 bytes per operand; object headers and the variable table
+	 * are not included
+	 */
+	public long getMemoryUsage() {
+		return (long) this.opcodes.length * Integer.BYTES + (long) this.arguments.length * Integer.BYTES
+				+ (long) this.childOffsets.length * Integer.BYTES + (long) this.children.length * Integer.BYTES
+				+ (long) this.constants.length * Double.BYTES + this.active.length;
+	}
+
+	/**
+	 * @return the maximum number of operands of any node
+	 */
+	public int getMaxChildCount() {
+		return this.maxChildCount;
+	}
+
+	/**
+	 * @return whether the value of the given node depends on any variable
+	 */
+	public boolean isActive(final int node) {
+		return this.active[node];
+	}
+
+	/**
+	 * Get the value of the given {@link #OP_CONSTANT} node.
+	 */
+	public double getConstantValue(final int node) {
+		return this.constants[node];
+	}
+
+	/**
+	 * Get the variable index of the given {@link #OP_VARIABLE} node.
+	 */
+	public int getVariableIndexOf(final int node) {
+		return this.arguments[node];
+	}
+
+	/**
+	 * Get the function of the given {@link #OP_FUNCTION} node.
+	 */
+	public Function getFunction(final int node) {
+		return FUNCTIONS[this.arguments[node]];
+	}
+
+	/**
+	 * Get the kind of the given {@link #OP_PIECEWISE} node.
+	 */
+	public RealExprPiecewise.Kind getPiecewiseKind(final int node) {
+		return PIECEWISE_KINDS[this.arguments[node]];
+	}
+
+	public int getVariableCount() {
+		return this.variableCount;
+	}
+
+	public RealVariable getVariable(final int index) {
+		if (index < 0 || index >= this.variableCount) {
+			throw new IndexOutOfBoundsException("Variable " + index + " does not exist");
+		}
+		return this.variables[index];
+	}
+
+	/**
+	 * Get the index of the given variable.
+	 *
+	 * @return the index of {@code variable}, or {@code -1} if it does not occur on this tape
+	 */
+	public int indexOf(final RealVariable variable) {
+		return this.variableIndices.getOrDefault(variable, -1);
+	}
+
+	/**
+	 * Convert the given assignment into a point, i.e. an array holding the value of each variable at its index.
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code assignment} contains no value for some variable of this tape
+	 */
+	public double[] toPoint(final RealAssignment assignment) {
+		final double[] point = new double[this.variableCount];
+		for (int i = 0; i < this.variableCount; i++) {
+			final Double value = assignment.get(this.variables[i]);
+			if (value == null) {
+				throw new IllegalArgumentException("No value given for variable " + this.variables[i]);
+			}
+			point[i] = value;
+		}
+		return point;
+	}
+
+	/**
+	 * Check that the given array has one entry per variable.
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if it has not
+	 */
+	void checkPoint(final double[] point, final String name) {
+		if (point.length != this.variableCount) {
+			throw new IllegalArgumentException(name + " has " + point.length
+					+ " entries instead of one per variable (" + this.variableCount + ")");
+		}
+	}
+
+	/**
+	 * Compute the values of all nodes at the given point (forward sweep).
+	 *
+	 * @param point
+	 * 		the value of each variable
+	 * @param values
+	 * 		receives the value of each node; must have at least {@link #getNodeCount()} entries
+	 * @return the value of the {@linkplain #getRootIndex() root} node
+	 */
+	public double evaluate(final double[] point, final double[] values) {
+		this.checkPoint(point, "Point");
+		for (int node = 0; node < this.nodeCount; node++) {
+			values[node] = this.evaluateNode(node, point, values);
+		}
+		return values[this.outputs[0]];
+	}
+
+	/**
+	 * Compute the directional derivatives (tangents) of all nodes along the given vector (forward sweep in forward
+	 * mode), given the values of all nodes. Non-differentiable nodes are treated as in {@link
+	 * nevik.autodiff.expr.real.visitor.VisitorRealExpressionGradient}: the (sub-)derivative of piecewise nodes passes
+	 * through their active operand only.
+	 *
+	 * @param vector
+	 * 		the direction, with one entry per variable
+	 * @param values
+	 * 		the values of all nodes, as computed by {@link #evaluate(double[], double[])}
+	 * @param tangents
+	 * 		receives the tangent of each node; must have at least {@link #getNodeCount()} entries
+	 */
+	public void evaluateTangents(final double[] vector, final double[] values, final double[] tangents) {
+		this.checkPoint(vector, "Vector");
+		for (int node = 0; node < this.nodeCount; node++) {
+			tangents[node] = this.active[node] ? this.tangentOfNode(node, vector, values, tangents) : 0;
+		}
+	}
+
+	private double tangentOfNode(final int node, final double[] vector, final double[] values,
+			final double[] tangents) {
+		final int from = this.childOffsets[node], to = this.childOffsets[node + 1];
+		final int first = to > from ? this.children[from] : -1;
+		switch (this.opcodes[node]) {
+			case OP_VARIABLE:
+				return vector[this.arguments[node]];
+			case OP_ADDITION: {
+				double tangent = 0;
+				for (int c = from; c < to; c++) {
+					tangent += tangents[this.children[c]];
+				}
+				return tangent;
+			}
+			case OP_MULTIPLICATION: {
+				// product rule, accumulated along with the product of the leading operands
+				double product = 1, tangent = 0;
+				for (int c = from; c < to; c++) {
+					final int child = this.children[c];
+					tangent = tangent * values[child] + product * tangents[child];
+					product *= values[child];
+				}
+				return tangent;
+			}
+			case OP_NEGATION:
+				return -tangents[first];
+			case OP_RECIPROCAL:
+				return -values[node] * values[node] * tangents[first];
+			case OP_FUNCTION:
+				return FUNCTIONS[this.arguments[node]].derivative(values[first]) * tangents[first];
+			case OP_POWER: {
+				final int exponent = this.children[from + 1];
+				double tangent = 0;
+				if (this.active[first]) {
+					tangent += this.powerBaseDerivative(node, values) * tangents[first];
+				}
+				if (this.active[exponent]) {
+					tangent += powerExponentDerivative(values[node], values[first]) * tangents[exponent];
+				}
+				return tangent;
+			}
+			case OP_PIECEWISE: {
+				final int active = this.activeOperand(node, values);
+				return active < 0 ? 0 : this.piecewiseSign(node, values) * tangents[this.children[from + active]];
+			}
+			default:
+				return 0;
+		}
+	}
+
+	/**
+	 * Get the derivative {@code g * f^(g-1)} of the given {@link #OP_POWER} node {@code f^g} with respect to its base.
+	 */
+	double powerBaseDerivative(final int node, final double[] values) {
+		final int from = this.childOffsets[node];
+		return powerBaseDerivative(values[this.children[from]], values[this.children[from + 1]]);
+	}
+
+	/**
+	 * Get the derivative {@code g * f^(g-1)} of {@code f^g} with respect to its base, which is zero where {@code g} is
+	 * (instead of NaN from 0 * infinity at {@code f = 0}), as in {@link
+	 * nevik.autodiff.expr.real.visitor.VisitorRealExpressionGradient}.
+	 */
+	static double powerBaseDerivative(final double baseValue, final double exponentValue) {
+		return exponentValue == 0 ? 0 : exponentValue * RealExprPower.power(baseValue, exponentValue - 1);
+	}
+
+	/**
+	 * Get the derivative {@code f^g * log(f)} of {@code f^g} with respect to its exponent, given the value of {@code
+	 * f^g}; it is zero where {@code f^g} is (instead of NaN from 0 * -infinity at {@code f = 0}).
+	 */
+	static double powerExponentDerivative(final double powerValue, final double baseValue) {
+		return powerValue == 0 ? 0 : powerValue * Math.log(baseValue);
+	}
+
+	/**
+	 * Get the index of the operand of the given {@link #OP_PIECEWISE} node that derivatives pass through, or {@code -1}
+	 * if they vanish.
+	 */
+	int activeOperand(final int node, final double[] values) {
+		final int from = this.childOffsets[node];
+		final RealExprPiecewise.Kind kind = PIECEWISE_KINDS[this.arguments[node]];
+		// the second operand of select does not decide which operand is active
+		final double second = kind == RealExprPiecewise.Kind.MIN || kind == RealExprPiecewise.Kind.MAX ?
+				values[this.children[from + 1]] : 0;
+		return kind.activeOperand(values[this.children[from]], second, 0);
+	}
+
+	/**
+	 * Get the factor with which derivatives pass through the active operand of the given {@link #OP_PIECEWISE} node,
+	 * i.e. the sign of the operand for {@code abs}, and {@code 1} otherwise.
+	 */
+	double piecewiseSign(final int node, final double[] values) {
+		return this.arguments[node] == RealExprPiecewise.Kind.ABS.ordinal() ?
+				Math.signum(values[this.children[this.childOffsets[node]]]) : 1;
+	}
+
+	/**
+	 * Compute the value of the given node from the values of its operands.
+	 */
+	public double evaluateNode(final int node, final double[] point, final double[] values) {
+		final int from = this.childOffsets[node], to = this.childOffsets[node + 1];
+		switch (this.opcodes[node]) {
+			case OP_CONSTANT:
+				return this.constants[node];
+			case OP_VARIABLE:
+				return point[this.arguments[node]];
+			case OP_ADDITION: {
+				double sum = 0;
+				for (int c = from; c < to; c++) {
+					sum += values[this.children[c]];
+				}
+				return sum;
+			}
+			case OP_MULTIPLICATION: {
+				double product = 1;
+				for (int c = from; c < to; c++) {
+					product *= values[this.children[c]];
+				}
+				return product;
+			}
+			case OP_NEGATION:
+				return -values[this.children[from]];
+			case OP_RECIPROCAL:
+				return 1 / values[this.children[from]];
+			case OP_FUNCTION:
+				return FUNCTIONS[this.arguments[node]].apply(values[this.children[from]]);
+			case OP_POWER:
+				return RealExprPower.power(values[this.children[from]], values[this.children[from + 1]]);
+			default:
+				return PIECEWISE_KINDS[this.arguments[node]].apply(values[this.children[from]],
+						to - from > 1 ? values[this.children[from + 1]] : 0,
+						to - from > 2 ? values[this.children[from + 2]] : 0);
+		}
+	}
+
+	/**
+	 * Compute the value of the given node from the values of its operands, given in operand order rather than by node
+	 * index. This performs exactly the same operations as {@link #evaluateNode(int, double[], double[])}, for engines
+	 * that do not keep one value per node.
+	 */
+	double evaluateOperation(final int node, final double[] point, final double[] operands) {
+		final int count = this.childOffsets[node + 1] - this.childOffsets[node];
+		switch (this.opcodes[node]) {
+			case OP_CONSTANT:
+				return this.constants[node];
+			case OP_VARIABLE:
+				return point[this.arguments[node]];
+			case OP_ADDITION: {
+				double sum = 0;
+				for (int i = 0; i < count; i++) {
+					sum += operands[i];
+				}
+				return sum;
+			}
+			case OP_MULTIPLICATION: {
+				double product = 1;
+				for (int i = 0; i < count; i++) {
+					product *= operands[i];
+				}
+				return product;
+			}
+			case OP_NEGATION:
+				return -operands[0];
+			case OP_RECIPROCAL:
+				return 1 / operands[0];
+			case OP_FUNCTION:
+				return FUNCTIONS[this.arguments[node]].apply(operands[0]);
+			case OP_POWER:
+				return RealExprPower.power(operands[0], operands[1]);
+			default:
+				return PIECEWISE_KINDS[this.arguments[node]].apply(operands[0], count > 1 ? operands[1] : 0,
+						count > 2 ? operands[2] : 0);
+		}
+	}
+
+	private int addNode(final int opcode, final int argument, final double constant, final int[] operands,
+			final int operandCount) {
+		if (this.nodeCount == this.opcodes.length) {
+			final int newLength = this.nodeCount + (this.nodeCount >> 1) + 1;
+			this.opcodes = Arrays.copyOf(this.opcodes, newLength);
+			this.arguments = Arrays.copyOf(this.arguments, newLength);
+			this.childOffsets = Arrays.copyOf(this.childOffsets, newLength + 1);
+			this.constants = Arrays.copyOf(this.constants, newLength);
+			this.active = Arrays.copyOf(this.active, newLength);
+		}
+		final int offset = this.childOffsets[this.nodeCount];
+		if (offset + operandCount > this.children.length) {
+			this.children = Arrays.copyOf(this.children,
+					Math.max(this.children.length + (this.children.length >> 1), offset + operandCount));
+		}
+		boolean active = opcode == OP_VARIABLE;
+		for (int i = 0; i < operandCount; i++) {
+			this.children[offset + i] = operands[i];
+			active |= this.active[operands[i]];
+		}
+		this.opcodes[this.nodeCount] = opcode;
+		this.arguments[this.nodeCount] = argument;
+		this.constants[this.nodeCount] = constant;
+		this.active[this.nodeCount] = active;
+		this.childOffsets[this.nodeCount + 1] = offset + operandCount;
+		this.maxChildCount = Math.max(this.maxChildCount, operandCount);
+		return this.nodeCount++;
+	}
+
+	private int addVariable(final RealVariable variable) {
+		if (this.variableCount == this.variables.length) {
+			this.variables = Arrays.copyOf(this.variables, this.variableCount * 2 + 1);
+		}
+		this.variables[this.variableCount] = variable;
+		this.variableIndices.put(variable, this.variableCount);
+		return this.variableCount++;
+	}
+
+	private void trimToSize() {
+		this.opcodes = Arrays.copyOf(this.opcodes, this.nodeCount);
+		this.arguments = Arrays.copyOf(this.arguments, this.nodeCount);
+		this.childOffsets = Arrays.copyOf(this.childOffsets, this.nodeCount + 1);
+		this.children = Arrays.copyOf(this.children, this.childOffsets[this.nodeCount]);
+		this.constants = Arrays.copyOf(this.constants, this.nodeCount);
+		this.active = Arrays.copyOf(this.active, this.nodeCount);
+		this.variables = Arrays.copyOf(this.variables, this.variableCount);
+	}
+
+	/**
+	 * Visitor that appends the nodes of an expression to a tape in post-order, visiting each distinct node (by
+	 * identity) only once, including nodes recorded for earlier expressions on the same tape. The result of visiting
+	 * a node is its node index.
+	 * <p/>
+	 * If {@link #variables} is set, sub-expressions that do not depend on any of them are not visited; instead, their
+	 * value at {@link #parameters} is recorded as a constant.
+	 */
+	private static final class Recorder extends AbstractVisitorRealExpression<Void, Integer, Integer, Void> {
+		private final RealExpressionTape tape;
+		private final Map<RealExpression, Integer> nodeIndices;
+		/**
+		 * Whether the variables of the tape are given up front, rather than added on their first occurrence.
+		 */
+		private final boolean fixedVariables;
+		private final Set<RealVariable> variables;
+		private final RealAssignment parameters;
+
+		private Recorder(final RealExpressionTape tape, final RealExpression rootExpression,
+				final Map<RealExpression, Integer> nodeIndices, final boolean fixedVariables,
+				final Set<RealVariable> variables, final RealAssignment parameters) {
+			super(variables == null ? SUPPORTED_TYPES : RESTRICTED_SUPPORTED_TYPES, rootExpression, null);
+			this.tape = tape;
+			this.nodeIndices = nodeIndices;
+			this.fixedVariables = fixedVariables;
+			this.variables = variables;
+			this.parameters = parameters;
+		}
+
+		@Override
+		protected Integer doEvaluation() {
+			return this.index(this.rootExpression);
+		}
+
+		private int index(final RealExpression expression) {
+			final Integer index = this.nodeIndices.get(expression);
+			if (index != null) {
+				return index;
+			}
+			final boolean pruned =
+					this.variables != null && Collections.disjoint(expression.getVariables(), this.variables);
+			final int newIndex = pruned ?
+					this.tape.addNode(OP_CONSTANT, 0, evaluateExpression(expression, this.parameters), null, 0) :
+					expression.accept(this, null);
+			this.nodeIndices.put(expression, newIndex);
+			return newIndex;
+		}
+
+		private int addNode(final int opcode, final int argument, final RealSuperExpression expression) {
+			final List<RealExpression> subexpressions = expression.subexpressions;
+			final int[] operands = new int[subexpressions.size()];
+			for (int i = 0; i < operands.length; i++) {
+				operands[i] = this.index(subexpressions.get(i));
+			}
+			return this.tape.addNode(opcode, argument, 0, operands, operands.length);
+		}
+
+		@Override
+		public Integer visit(final RealConstant realConstant, final Void state) {
+			return this.tape.addNode(OP_CONSTANT, 0, realConstant.value, null, 0);
+		}
+
+		@Override
+		public Integer visit(final RealVariable realVariable, final Void state) {
+			Integer index = this.tape.variableIndices.get(realVariable);
+			if (index == null) {
+				if (this.fixedVariables) {
+					throw new IllegalArgumentException(
+							"Variable " + realVariable + " is not among the given variables");
+				}
+				index = this.tape.addVariable(realVariable);
+			}
+			return this.tape.addNode(OP_VARIABLE, index, 0, null, 0);
+		}
+
+		@Override
+		public Integer visit(final RealExprAddition realExprAddition, final Void state) {
+			return this.addNode(OP_ADDITION, 0, realExprAddition);
+		}
+
+		@Override
+		public Integer visit(final RealExprMultiplication realExprMultiplication, final Void state) {
+			return this.addNode(OP_MULTIPLICATION, 0, realExprMultiplication);
+		}
+
+		@Override
+		public Integer visit(final RealExprNegation realExprNegation, final Void state) {
+			return this.addNode(OP_NEGATION, 0, realExprNegation);
+		}
+
+		@Override
+		public Integer visit(final RealExprReciprocal realExprReciprocal, final Void state) {
+			return this.addNode(OP_RECIPROCAL, 0, realExprReciprocal);
+		}
+
+		@Override
+		public Integer visit(final RealExprFunction realExprFunction, final Void state) {
+			return this.addNode(OP_FUNCTION, realExprFunction.function.ordinal(), realExprFunction);
+		}
+
+		@Override
+		public Integer visit(final RealExprPower realExprPower, final Void state) {
+			return this.addNode(OP_POWER, 0, realExprPower);
+		}
+
+		@Override
+		public Integer visit(final RealExprPiecewise realExprPiecewise, final Void state) {
+			return this.addNode(OP_PIECEWISE, realExprPiecewise.kind.ordinal(), realExprPiecewise);
+		}
+
+		@Override
+		public Integer visit(final RealExprReduction realExprReduction, final Void state) {
+			throw new IllegalArgumentException("Cannot record a reduction that depends on the recorded variables; "
+					+ "use VisitorRealExpressionGradient for its derivatives");
+		}
+
+		@Override
+		public Integer visit(final RealExprLinear realExprLinear, final Void state) {
+			// tapes have no linear forms; record the equivalent sum of scaled terms
+			return this.index(realExprLinear.toAddition());
+		}
+	}
+}
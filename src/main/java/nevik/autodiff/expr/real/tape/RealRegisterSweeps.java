@@ -0,0 +1,265 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.tape;
+
+import nevik.autodiff.expr.real.RealExprPiecewise;
+import nevik.autodiff.expr.real.RealExprPower;
+
+import java.util.Arrays;
+
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_ADDITION;
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_CONSTANT;
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_FUNCTION;
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_MULTIPLICATION;
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_NEGATION;
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_POWER;
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_RECIPROCAL;
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_VARIABLE;
+
+/**
+ * Segment-wise forward and reverse sweeps over the tape of a scalar objective, for gradient engines that do not keep
+ * the values of all nodes in memory at once ({@link RealCheckpointedGradient}, {@link RealSpillingGradient}).
+ * <p/>
+ * Each node is assigned a register that holds its value from its evaluation up to its last use by another node, and
+ * its adjoint during the same interval of the reverse sweep; the number of registers is the largest number of values
+ * that are alive at the same time, which for expression trees is typically tiny compared to the number of nodes. The
+ * reverse sweep over a segment of the tape needs the values of the nodes of the segment, and the contents of the
+ * registers at the start of the segment ({@link #entry}) for the operands evaluated before it.
+ * <p/>
+ * The values are computed with exactly the same operations as by {@link RealExpressionTape#evaluate(double[],
+ * double[])}, and the adjoints are accumulated with the same operations in the same order as by {@link
+ * RealExpressionHessian#gradient(double[], double[])}, so the results are identical to those of a full tape.
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+final class RealRegisterSweeps {
+	final RealExpressionTape tape;
+	/**
+	 * Number of nodes that contribute to the objective, i.e. up to and including the root.
+	 */
+	final int nodeCount;
+	final int[] registers;
+	final int registerCount;
+
+	final double[] work;
+	/**
+	 * The register contents at the start of the segment that is processed by the reverse sweep.
+	 */
+	final double[] entry;
+	final double[] adjoints;
+	private final double[] operands;
+	private final double[] suffixProducts;
+
+	/**
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code tape} has more than one output
+	 */
+	RealRegisterSweeps(final RealExpressionTape tape) {
+		if (tape.getOutputCount() != 1) {
+			throw new IllegalArgumentException("Objective tape must have exactly one output");
+		}
+		this.tape = tape;
+		this.nodeCount = tape.getRootIndex() + 1;
+		this.registers = new int[this.nodeCount];
+		this.registerCount = allocateRegisters(tape, this.nodeCount, this.registers);
+		this.work = new double[this.registerCount];
+		this.entry = new double[this.registerCount];
+		this.adjoints = new double[this.registerCount];
+		this.operands = new double[tape.getMaxChildCount()];
+		this.suffixProducts = new double[tape.getMaxChildCount() + 1];
+	}
+
+	/**
+	 * Assign a register to each node, such that no two nodes share a register while both their values are needed. The
+	 * value of a node is needed from its evaluation up to its last use by another node; the register of an operand
+	 * may be reused by the node that uses it last.
+	 *
+	 * @return the number of registers
+	 */
+	private static int allocateRegisters(final RealExpressionTape tape, final int nodeCount, final int[] registers) {
+		final int[] lastUses = new int[nodeCount];
+		for (int node = 0; node < nodeCount; node++) {
+			lastUses[node] = node;
+			for (int i = 0; i < tape.getChildCount(node); i++) {
+				lastUses[tape.getChild(node, i)] = node;
+			}
+		}
+		int[] free = new int[16];
+		int freeCount = 0, registerCount = 0;
+		for (int node = 0; node < nodeCount; node++) {
+			for (int i = 0; i < tape.getChildCount(node); i++) {
+				final int child = tape.getChild(node, i);
+				if (lastUses[child] == node) {
+					// release the register only once if the operand is used repeatedly
+					lastUses[child] = -1;
+					if (freeCount == free.length) {
+						free = Arrays.copyOf(free, freeCount * 2);
+					}
+					free[freeCount++] = registers[child];
+				}
+			}
+			registers[node] = freeCount > 0 ? free[--freeCount] : registerCount++;
+		}
+		return registerCount;
+	}
+
+	static long ceilDiv(final long dividend, final long divisor) {
+		return (dividend + divisor - 1) / divisor;
+	}
+
+	/**
+	 * @return the number of values in the buffers of this instance
+	 */
+	long getValueCount() {
+		return this.work.length + this.entry.length + this.adjoints.length + this.operands.length +
+				this.suffixProducts.length;
+	}
+
+	/**
+	 * Prepare the reverse sweep: clear all adjoints and seed the adjoint of the root.
+	 */
+	void seed() {
+		Arrays.fill(this.adjoints, 0);
+		this.adjoints[this.registers[this.nodeCount - 1]] = 1;
+	}
+
+	/**
+	 * Evaluate the nodes {@code from .. to - 1} into their registers, and optionally into the given buffer.
+	 *
+	 * @param segmentValues
+	 * 		receives the value of node {@code from + i} at index {@code i}; may be {@code null}
+	 */
+	void forward(final int from, final int to, final double[] point, final double[] segmentValues) {
+		final RealExpressionTape tape = this.tape;
+		final int[] registers = this.registers;
+		final double[] work = this.work, operands = this.operands;
+		for (int node = from; node < to; node++) {
+			final int childCount = tape.getChildCount(node);
+			for (int i = 0; i < childCount; i++) {
+				operands[i] = work[registers[tape.getChild(node, i)]];
+			}
+			final double value = tape.evaluateOperation(node, point, operands);
+			work[registers[node]] = value;
+			if (segmentValues != null) {
+				segmentValues[node - from] = value;
+			}
+		}
+	}
+
+	/**
+	 * Propagate the adjoints of the nodes {@code from .. to - 1} to their operands (reverse sweep of one segment),
+	 * given the values of the segment and the values of earlier nodes in {@link #entry}.
+	 *
+	 * @param segmentValues
+	 * 		the value of node {@code from + i} at index {@code i}
+	 * @param gradient
+	 * 		accumulates the adjoints of the variables
+	 */
+	void reverse(final int from, final int to, final double[] segmentValues, final double[] gradient) {
+		final RealExpressionTape tape = this.tape;
+		final int[] registers = this.registers;
+		final double[] adjoints = this.adjoints, operands = this.operands;
+		for (int node = to - 1; node >= from; node--) {
+			final int register = registers[node];
+			final double adjoint = adjoints[register];
+			// the register now belongs to the operand that was evaluated before this node, if any
+			adjoints[register] = 0;
+			if (!tape.isActive(node)) {
+				// nothing below an inactive node depends on any variable
+				continue;
+			}
+			final int childCount = tape.getChildCount(node);
+			for (int i = 0; i < childCount; i++) {
+				final int child = tape.getChild(node, i);
+				operands[i] = child >= from ? segmentValues[child - from] : this.entry[registers[child]];
+			}
+			switch (tape.getOpcode(node)) {
+				case OP_CONSTANT:
+					break;
+				case OP_VARIABLE:
+					gradient[tape.getVariableIndexOf(node)] += adjoint;
+					break;
+				case OP_ADDITION:
+					for (int i = 0; i < childCount; i++) {
+						adjoints[registers[tape.getChild(node, i)]] += adjoint;
+					}
+					break;
+				case OP_MULTIPLICATION:
+					this.reverseMultiplication(node, adjoint, childCount);
+					break;
+				case OP_NEGATION:
+					adjoints[registers[tape.getChild(node, 0)]] -= adjoint;
+					break;
+				case OP_RECIPROCAL: {
+					// d(1/u)/du = -1/u^2 = -w^2
+					final double value = segmentValues[node - from];
+					adjoints[registers[tape.getChild(node, 0)]] += adjoint * (-value * value);
+					break;
+				}
+				case OP_FUNCTION:
+					adjoints[registers[tape.getChild(node, 0)]] +=
+							adjoint * tape.getFunction(node).derivative(operands[0]);
+					break;
+				case OP_POWER:
+					this.reversePower(node, adjoint, segmentValues[node - from]);
+					break;
+				default: {
+					final RealExprPiecewise.Kind kind = tape.getPiecewiseKind(node);
+					// the second operand of select does not decide which operand is active
+					final double second = kind == RealExprPiecewise.Kind.MIN || kind == RealExprPiecewise.Kind.MAX ?
+							operands[1] : 0;
+					final int active = kind.activeOperand(operands[0], second, 0);
+					if (active >= 0) {
+						final double sign = kind == RealExprPiecewise.Kind.ABS ? Math.signum(operands[0]) : 1;
+						adjoints[registers[tape.getChild(node, active)]] += sign * adjoint;
+					}
+				}
+			}
+		}
+	}
+
+	private void reverseMultiplication(final int node, final double adjoint, final int childCount) {
+		final double[] operands = this.operands, suffixProducts = this.suffixProducts;
+		// the partial derivative with respect to operand i is the product of all other operands, computed without
+		// division as in RealExpressionHessian
+		suffixProducts[childCount] = 1;
+		for (int i = childCount - 1; i >= 0; i--) {
+			suffixProducts[i] = suffixProducts[i + 1] * operands[i];
+		}
+		double prefixProduct = 1;
+		for (int i = 0; i < childCount; i++) {
+			final double partial = prefixProduct * suffixProducts[i + 1];
+			this.adjoints[this.registers[this.tape.getChild(node, i)]] += adjoint * partial;
+			prefixProduct *= operands[i];
+		}
+	}
+
+	private void reversePower(final int node, final double adjoint, final double value) {
+		final RealExpressionTape tape = this.tape;
+		final int base = tape.getChild(node, 0), exponent = tape.getChild(node, 1);
+		final boolean baseActive = tape.isActive(base), exponentActive = tape.isActive(exponent);
+		final double baseValue = this.operands[0], exponentValue = this.operands[1];
+		// d(f^g)/df = g * f^(g-1), and d(f^g)/dg = f^g * log(f), the latter only computed for variable exponents, since
+		// it may be NaN for negative bases
+		final double baseDerivative =
+				baseActive ? RealExpressionTape.powerBaseDerivative(baseValue, exponentValue) : 0;
+		final double exponentDerivative =
+				exponentActive ? RealExpressionTape.powerExponentDerivative(value, baseValue) : 0;
+		this.adjoints[this.registers[base]] += adjoint * baseDerivative;
+		this.adjoints[this.registers[exponent]] += adjoint * exponentDerivative;
+	}
+}
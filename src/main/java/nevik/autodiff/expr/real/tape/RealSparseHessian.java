@@ -0,0 +1,187 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.tape;
+
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+
+import java.util.List;
+
+/**
+ * Computes sparse Hessians of a scalar objective from a few Hessian-vector products. The sparsity pattern of the
+ * Hessian is detected from the nonlinear interactions of the variables on the tape ({@link
+ * RealSparsityPattern#hessianPattern(RealExpressionTape)}), and the variables are star-colored ({@link
+ * RealSparsityPattern#starColoring()}). One forward-over-reverse sweep per color (cf. {@link RealExpressionHessian})
+ * along the sum of the unit vectors of all variables of that color yields a compressed Hessian, from which each entry
+ * {@code H[i][j]} is recovered directly: as the product entry of row {@code i} for the color of {@code j} if {@code j}
+ * is the only neighbor of {@code i} with that color, and as the product entry of row {@code j} for the color of
+ * {@code i} otherwise (which the star coloring guarantees to be unique).
+ * <p/>
+ * The Hessian has one row and column per variable of the tape; its values are returned in CSR entry order of {@link
+ * #pattern}, which for the symmetric Hessian coincides with CSC order. The greedy star coloring depends on the order of
+ * the variables; give them explicitly (cf. {@link #RealSparseHessian(RealExpression, List)}) for an order that does not
+ * depend on hash codes.
+ * <p/>
+ * All buffers are allocated once per instance. Instances are not thread-safe.
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealSparseHessian {
+	public final RealExpressionTape tape;
+	public final RealSparsityPattern pattern;
+
+	private final RealExpressionHessian engine;
+	private final int[] colors;
+	private final int colorCount;
+	private final int[] colorOffsets;
+	private final int[] variablesByColor;
+	/**
+	 * For each CSR entry, its index in {@link #compressed}.
+	 */
+	private final int[] sources;
+	/**
+	 * Compressed Hessian: the product of the Hessian with the seed vector of color {@code c} in row {@code i} is at
+	 * index {@code i * colorCount + c}.
+	 */
+	private final double[] compressed;
+	private final double[] seed;
+	private final double[] product;
+
+	/**
+	 * Create a new engine for the given objective, recording it on a new tape.
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code objective} contains types of expressions that cannot be recorded
+	 */
+	public RealSparseHessian(final RealExpression objective) {
+		this(RealExpressionTape.record(objective));
+	}
+
+	/**
+	 * Create a new engine for the given objective, recording it on a new tape with the given variables in the given
+	 * order.
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code objective} contains types of expressions that cannot be recorded, or if {@code variables} contains
+	 * 		duplicates or does not contain all variables of {@code objective}
+	 * @see RealExpressionTape#record(RealExpression, List)
+	 */
+	public RealSparseHessian(final RealExpression objective, final List<RealVariable> variables) {
+		this(RealExpressionTape.record(objective, variables));
+	}
+
+	/**
+	 * Create a new engine for the objective recorded on the given tape.
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code tape} has more than one output
+	 */
+	public RealSparseHessian(final RealExpressionTape tape) {
+		this.tape = tape;
+		this.engine = new RealExpressionHessian(tape);
+		this.pattern = RealSparsityPattern.hessianPattern(tape);
+		this.colors = this.pattern.starColoring();
+		final int n = tape.getVariableCount();
+		int colorCount = 0;
+		for (final int color : this.colors) {
+			colorCount = Math.max(colorCount, color + 1);
+		}
+		// without any entries, no sweeps are needed at all (all variables still have color 0)
+		this.colorCount = this.pattern.getNonZeroCount() == 0 ? 0 : colorCount;
+		this.colorOffsets = new int[colorCount + 1];
+		this.variablesByColor = new int[n];
+		RealSparseJacobian.groupByColor(this.colors, n, this.colorOffsets, this.variablesByColor);
+
+		// count the neighbors of each color per row, to find out which entries can be recovered from their own row
+		this.sources = new int[this.pattern.getNonZeroCount()];
+		final int[] colorCounts = new int[colorCount];
+		for (int i = 0; i < n; i++) {
+			for (int k = this.pattern.rowOffsets[i]; k < this.pattern.rowOffsets[i + 1]; k++) {
+				colorCounts[this.colors[this.pattern.columnIndices[k]]]++;
+			}
+			for (int k = this.pattern.rowOffsets[i]; k < this.pattern.rowOffsets[i + 1]; k++) {
+				final int j = this.pattern.columnIndices[k];
+				// adjacent variables never share a color, so the diagonal entry is never counted for j != i
+				final boolean unique = i == j || colorCounts[this.colors[j]] == 1;
+				this.sources[k] = unique ? i * colorCount + this.colors[j] : j * colorCount + this.colors[i];
+			}
+			for (int k = this.pattern.rowOffsets[i]; k < this.pattern.rowOffsets[i + 1]; k++) {
+				colorCounts[this.colors[this.pattern.columnIndices[k]]] = 0;
+			}
+		}
+		this.compressed = new double[n * colorCount];
+		this.seed = new double[n];
+		this.product = new double[n];
+	}
+
+	/**
+	 * @return the number of colors, i.e. of Hessian-vector products per Hessian
+	 */
+	public int getColorCount() {
+		return this.colorCount;
+	}
+
+	/**
+	 * @return the color of each variable
+	 */
+	public int[] getColors() {
+		return this.colors.clone();
+	}
+
+	/**
+	 * Compute the value, the gradient and the Hessian of the objective at the given point.
+	 *
+	 * @param point
+	 * 		the value of each variable of the tape
+	 * @param gradient
+	 * 		receives the gradient; must have one entry per variable, or be {@code null} if the gradient is not needed
+	 * @param hessian
+	 * 		receives the entries of the Hessian in CSR order of {@link #pattern}
+	 * @return the value of the objective
+	 */
+	public double evaluate(final double[] point, final double[] gradient, final double[] hessian) {
+		if (hessian.length != this.pattern.getNonZeroCount()) {
+			throw new IllegalArgumentException("Hessian must have one entry per non-zero (" +
+					this.pattern.getNonZeroCount() + ")");
+		}
+		if (gradient != null) {
+			this.tape.checkPoint(gradient, "Gradient");
+		}
+		final double value = this.engine.evaluateAt(point);
+		if (this.colorCount == 0 && gradient != null) {
+			// no second derivatives at all, but the gradient is still needed
+			this.engine.productAtPoint(this.seed, gradient, this.product);
+		}
+		final int n = this.tape.getVariableCount();
+		for (int c = 0; c < this.colorCount; c++) {
+			for (int p = this.colorOffsets[c]; p < this.colorOffsets[c + 1]; p++) {
+				this.seed[this.variablesByColor[p]] = 1;
+			}
+			this.engine.productAtPoint(this.seed, c == 0 ? gradient : null, this.product);
+			for (int p = this.colorOffsets[c]; p < this.colorOffsets[c + 1]; p++) {
+				this.seed[this.variablesByColor[p]] = 0;
+			}
+			for (int i = 0; i < n; i++) {
+				this.compressed[i * this.colorCount + c] = this.product[i];
+			}
+		}
+		for (int k = 0; k < hessian.length; k++) {
+			hessian[k] = this.compressed[this.sources[k]];
+		}
+		return value;
+	}
+}
@@ -0,0 +1,201 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.tape;
+
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Computes sparse Jacobians of a system of expressions (e.g. the constraints of an optimization problem) in
+ * compressed forward mode. The sparsity pattern of the Jacobian is detected from the variable dependencies of the
+ * expressions, and its columns are partitioned into groups of structurally orthogonal columns ({@link
+ * RealSparsityPattern#columnColoring()}). One forward sweep over the tape per group, along the sum of the unit vectors
+ * of its columns, then yields all entries of these columns at once. For typical sparse systems, the number of groups
+ * is small and independent of the number of variables, so computing the Jacobian costs time proportional to the size
+ * of the tape rather than to the size of the dense Jacobian.
+ * <p/>
+ * The Jacobian has one row per expression (in the given order) and one column per variable of the tape (cf. {@link
+ * RealExpressionTape#getVariable(int)}); its values are returned in CSR entry order of {@link #pattern} (cf. {@link
+ * RealSparsityPattern#toCsc(double[], double[])} for CSC order). The greedy coloring, and thus the number of sweeps,
+ * depends on the order of the columns; give the variables explicitly (cf. {@link #RealSparseJacobian(List, List)}) for
+ * an order that does not depend on hash codes.
+ * <p/>
+ * All buffers are allocated once per instance. Instances are not thread-safe.
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealSparseJacobian {
+	public final RealExpressionTape tape;
+	public final RealSparsityPattern pattern;
+
+	private final int[] colors;
+	private final int colorCount;
+	/**
+	 * Columns grouped by color: the columns of color {@code c} are {@code columnsByColor[colorOffsets[c] ..
+	 * colorOffsets[c + 1] - 1]}.
+	 */
+	private final int[] colorOffsets;
+	private final int[] columnsByColor;
+	/**
+	 * CSR entries grouped by the color of their column, analogous to {@link #columnsByColor}.
+	 */
+	private final int[] entryColorOffsets;
+	private final int[] entriesByColor;
+	/**
+	 * Output node of the row of each CSR entry.
+	 */
+	private final int[] entryOutputs;
+
+	private final double[] values;
+	private final double[] tangents;
+	private final double[] seed;
+
+	/**
+	 * Create a new engine for the given expressions, recording them on a new tape.
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code functions} is empty, or contains types of expressions that cannot be recorded
+	 */
+	public RealSparseJacobian(final List<? extends RealExpression> functions) {
+		this(RealExpressionTape.record(functions));
+	}
+
+	/**
+	 * Create a new engine for the given expressions, recording them on a new tape with the given variables as the
+	 * columns of the Jacobian, in the given order.
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code functions} is empty or contains types of expressions that cannot be recorded, or if {@code
+	 * 		variables} contains duplicates or does not contain all variables of {@code functions}
+	 * @see RealExpressionTape#record(List, List)
+	 */
+	public RealSparseJacobian(final List<? extends RealExpression> functions, final List<RealVariable> variables) {
+		this(RealExpressionTape.record(functions, variables));
+	}
+
+	/**
+	 * Create a new engine for the outputs of the given tape.
+	 */
+	public RealSparseJacobian(final RealExpressionTape tape) {
+		this.tape = tape;
+		this.pattern = RealSparsityPattern.jacobianPattern(tape);
+		this.colors = this.pattern.columnColoring();
+		final int n = tape.getVariableCount();
+		int colorCount = 0;
+		for (final int color : this.colors) {
+			colorCount = Math.max(colorCount, color + 1);
+		}
+		// without any entries, no sweeps are needed at all (all variables still have color 0)
+		this.colorCount = this.pattern.getNonZeroCount() == 0 ? 0 : colorCount;
+
+		this.colorOffsets = new int[colorCount + 1];
+		this.columnsByColor = new int[n];
+		groupByColor(this.colors, n, this.colorOffsets, this.columnsByColor);
+
+		final int nonZeroCount = this.pattern.getNonZeroCount();
+		final int[] entryColors = new int[nonZeroCount];
+		this.entryOutputs = new int[nonZeroCount];
+		for (int i = 0; i < this.pattern.rowCount; i++) {
+			for (int k = this.pattern.rowOffsets[i]; k < this.pattern.rowOffsets[i + 1]; k++) {
+				entryColors[k] = this.colors[this.pattern.columnIndices[k]];
+				this.entryOutputs[k] = tape.getOutput(i);
+			}
+		}
+		this.entryColorOffsets = new int[colorCount + 1];
+		this.entriesByColor = new int[nonZeroCount];
+		groupByColor(entryColors, nonZeroCount, this.entryColorOffsets, this.entriesByColor);
+
+		this.values = new double[tape.getNodeCount()];
+		this.tangents = new double[tape.getNodeCount()];
+		this.seed = new double[n];
+	}
+
+	/**
+	 * Sort the given items by color (counting sort).
+	 */
+	static void groupByColor(final int[] colors, final int count, final int[] colorOffsets, final int[] itemsByColor) {
+		for (int i = 0; i < count; i++) {
+			colorOffsets[colors[i] + 1]++;
+		}
+		for (int c = 0; c + 1 < colorOffsets.length; c++) {
+			colorOffsets[c + 1] += colorOffsets[c];
+		}
+		final int[] next = Arrays.copyOf(colorOffsets, colorOffsets.length - 1);
+		for (int i = 0; i < count; i++) {
+			itemsByColor[next[colors[i]]++] = i;
+		}
+	}
+
+	/**
+	 * @return the number of column groups, i.e. of forward sweeps per Jacobian
+	 */
+	public int getColorCount() {
+		return this.colorCount;
+	}
+
+	/**
+	 * @return the color (group) of each column
+	 */
+	public int[] getColors() {
+		return this.colors.clone();
+	}
+
+	/**
+	 * Compute the values and the Jacobian of all expressions at the given point.
+	 *
+	 * @param point
+	 * 		the value of each variable of the tape
+	 * @param functionValues
+	 * 		receives the value of each expression; must have one entry per expression, or be {@code null} if the values
+	 * 		are not needed
+	 * @param jacobian
+	 * 		receives the entries of the Jacobian in CSR order of {@link #pattern}
+	 */
+	public void evaluate(final double[] point, final double[] functionValues, final double[] jacobian) {
+		if (jacobian.length != this.pattern.getNonZeroCount()) {
+			throw new IllegalArgumentException("Jacobian must have one entry per non-zero (" +
+					this.pattern.getNonZeroCount() + ")");
+		}
+		if (functionValues != null && functionValues.length != this.tape.getOutputCount()) {
+			throw new IllegalArgumentException("Function values must have one entry per expression (" +
+					this.tape.getOutputCount() + ")");
+		}
+		this.tape.evaluate(point, this.values);
+		if (functionValues != null) {
+			for (int i = 0; i < functionValues.length; i++) {
+				functionValues[i] = this.values[this.tape.getOutput(i)];
+			}
+		}
+		for (int c = 0; c < this.colorCount; c++) {
+			for (int p = this.colorOffsets[c]; p < this.colorOffsets[c + 1]; p++) {
+				this.seed[this.columnsByColor[p]] = 1;
+			}
+			this.tape.evaluateTangents(this.seed, this.values, this.tangents);
+			for (int p = this.colorOffsets[c]; p < this.colorOffsets[c + 1]; p++) {
+				this.seed[this.columnsByColor[p]] = 0;
+			}
+			// the columns of one color do not share rows, so each output's tangent is the entry of its only column
+			for (int p = this.entryColorOffsets[c]; p < this.entryColorOffsets[c + 1]; p++) {
+				final int entry = this.entriesByColor[p];
+				jacobian[entry] = this.tangents[this.entryOutputs[entry]];
+			}
+		}
+	}
+}
@@ -0,0 +1,474 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.tape;
+
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_FUNCTION;
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_MULTIPLICATION;
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_POWER;
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_RECIPROCAL;
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_VARIABLE;
+
+/**
+ * Immutable sparsity pattern of a {@code rowCount x columnCount} matrix, i.e. the positions of its (structural)
+ * non-zero entries, stored in compressed sparse row (CSR) form: the entries of row {@code i} are those with indices
+ * {@code rowOffsets[i]} (inclusive) to {@code rowOffsets[i + 1]} (exclusive), in ascending column order, and {@code
+ * columnIndices[k]} is the column of entry {@code k}. The same pattern is also available in compressed sparse column
+ * (CSC) form, with entries in column-major order. Values of sparse matrices with this pattern are stored as {@code
+ * double[]} arrays in CSR entry order, and can be converted to CSC entry order with {@link #toCsc(double[],
+ * double[])}.
+ * <p/>
+ * Patterns are detected from the variable dependencies of expressions ({@link #jacobianPattern(RealExpressionTape)},
+ * {@link #hessianPattern(RealExpressionTape)}), and provide the colorings with which sparse derivative matrices are
+ * computed in a few compressed sweeps ({@link #columnColoring()}, {@link #starColoring()}).
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public final class RealSparsityPattern {
+	// ===============================================================================================================
+	// ====  Static fields and methods  ==============================================================================
+	// ===============================================================================================================
+	private static final int[] NO_VARIABLES = new int[0];
+
+	/**
+	 * Detect the sparsity pattern of the Jacobian of the outputs of the given tape, with one row per output and one
+	 * column per variable of the tape. Output {@code i} depends on variable {@code j} if the variable occurs in the
+	 * expression recorded as output {@code i} (cf. {@link RealExpression#getVariables()}).
+	 */
+	public static RealSparsityPattern jacobianPattern(final RealExpressionTape tape) {
+		final int[][] dependencies = dependencies(tape);
+		final int rowCount = tape.getOutputCount();
+		final int[] rowOffsets = new int[rowCount + 1];
+		for (int i = 0; i < rowCount; i++) {
+			rowOffsets[i + 1] = rowOffsets[i] + dependencies[tape.getOutput(i)].length;
+		}
+		final int[] columnIndices = new int[rowOffsets[rowCount]];
+		for (int i = 0; i < rowCount; i++) {
+			final int[] row = dependencies[tape.getOutput(i)];
+			System.arraycopy(row, 0, columnIndices, rowOffsets[i], row.length);
+		}
+		return new RealSparsityPattern(rowCount, tape.getVariableCount(), rowOffsets, columnIndices);
+	}
+
+	/**
+	 * Detect the sparsity pattern of the Jacobian of the given expressions with respect to the given variables, using
+	 * the variable dependencies of the expressions only (cf. {@link RealExpression#getVariables()}).
+	 *
+	 * @param functions
+	 * 		the rows of the Jacobian
+	 * @param variables
+	 * 		the columns of the Jacobian; variables of the expressions that are not contained are ignored
+	 */
+	public static RealSparsityPattern jacobianPattern(final List<? extends RealExpression> functions,
+			final List<RealVariable> variables) {
+		final int[] rowOffsets = new int[functions.size() + 1];
+		final int[][] rows = new int[functions.size()][];
+		for (int i = 0; i < rows.length; i++) {
+			final RealExpression function = functions.get(i);
+			int count = 0;
+			rows[i] = new int[Math.min(function.getVariables().size(), variables.size())];
+			for (int j = 0; j < variables.size(); j++) {
+				if (function.getVariables().contains(variables.get(j))) {
+					rows[i][count++] = j;
+				}
+			}
+			rows[i] = Arrays.copyOf(rows[i], count);
+			rowOffsets[i + 1] = rowOffsets[i] + count;
+		}
+		final int[] columnIndices = new int[rowOffsets[rows.length]];
+		for (int i = 0; i < rows.length; i++) {
+			System.arraycopy(rows[i], 0, columnIndices, rowOffsets[i], rows[i].length);
+		}
+		return new RealSparsityPattern(rows.length, variables.size(), rowOffsets, columnIndices);
+	}
+
+	/**
+	 * Detect the sparsity pattern of the Hessian of the (only) output of the given tape, with one row and column per
+	 * variable of the tape. The second derivative with respect to variables {@code i} and {@code j} is a structural
+	 * non-zero if some nonlinear node of the tape depends on both variables in a nonlinear way: the operands of
+	 * reciprocals, functions and powers interact with themselves, and distinct factors of products interact with each
+	 * other. Sums, negations and piecewise nodes (whose second derivatives vanish almost everywhere) do not create
+	 * interactions.
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code tape} has more than one output
+	 */
+	public static RealSparsityPattern hessianPattern(final RealExpressionTape tape) {
+		if (tape.getOutputCount() != 1) {
+			throw new IllegalArgumentException("Objective tape must have exactly one output");
+		}
+		final int n = tape.getVariableCount();
+		final int[][] dependencies = dependencies(tape);
+		// interacting pairs (i, j), encoded as i * n + j, including both orders
+		long[] pairs = new long[16];
+		int pairCount = 0;
+		for (int node = 0; node <= tape.getRootIndex(); node++) {
+			final int opcode = tape.getOpcode(node);
+			if (!tape.isActive(node)) {
+				continue;
+			}
+			final int childCount = tape.getChildCount(node);
+			if (opcode == OP_MULTIPLICATION) {
+				for (int a = 0; a < childCount; a++) {
+					for (int b = a + 1; b < childCount; b++) {
+						final int[] first = dependencies[tape.getChild(node, a)];
+						final int[] second = dependencies[tape.getChild(node, b)];
+						if (pairCount + 2 * first.length * second.length > pairs.length) {
+							pairs = Arrays.copyOf(pairs, Math.max(pairs.length * 2, pairCount + 2 * first.length *
+									second.length));
+						}
+						for (final int i : first) {
+							for (final int j : second) {
+								pairs[pairCount++] = (long) i * n + j;
+								pairs[pairCount++] = (long) j * n + i;
+							}
+						}
+					}
+				}
+			} else if (opcode == OP_RECIPROCAL || opcode == OP_FUNCTION || opcode == OP_POWER) {
+				final int[] operands = dependencies[node];
+				if (pairCount + operands.length * operands.length > pairs.length) {
+					pairs = Arrays.copyOf(pairs,
+							Math.max(pairs.length * 2, pairCount + operands.length * operands.length));
+				}
+				for (final int i : operands) {
+					for (final int j : operands) {
+						pairs[pairCount++] = (long) i * n + j;
+					}
+				}
+			}
+		}
+		Arrays.sort(pairs, 0, pairCount);
+		final int[] rowOffsets = new int[n + 1];
+		final int[] columnIndices = new int[pairCount];
+		int nonZeroCount = 0;
+		for (int p = 0; p < pairCount; p++) {
+			if (p == 0 || pairs[p] != pairs[p - 1]) {
+				rowOffsets[(int) (pairs[p] / n) + 1]++;
+				columnIndices[nonZeroCount++] = (int) (pairs[p] % n);
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			rowOffsets[i + 1] += rowOffsets[i];
+		}
+		return new RealSparsityPattern(n, n, rowOffsets, Arrays.copyOf(columnIndices, nonZeroCount));
+	}
+
+	/**
+	 * Compute, for each node of the given tape, the sorted indices of the variables it depends on.
+	 */
+	private static int[][] dependencies(final RealExpressionTape tape) {
+		final int[][] dependencies = new int[tape.getNodeCount()][];
+		int[] buffer = new int[16];
+		for (int node = 0; node < dependencies.length; node++) {
+			if (!tape.isActive(node)) {
+				dependencies[node] = NO_VARIABLES;
+			} else if (tape.getOpcode(node) == OP_VARIABLE) {
+				dependencies[node] = new int[]{tape.getVariableIndexOf(node)};
+			} else if (tape.getChildCount(node) == 1) {
+				dependencies[node] = dependencies[tape.getChild(node, 0)];
+			} else {
+				// merge the (sorted) dependencies of all operands
+				int count = 0;
+				for (int c = 0; c < tape.getChildCount(node); c++) {
+					final int[] operand = dependencies[tape.getChild(node, c)];
+					if (count + operand.length > buffer.length) {
+						buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + operand.length));
+					}
+					System.arraycopy(operand, 0, buffer, count, operand.length);
+					count += operand.length;
+				}
+				Arrays.sort(buffer, 0, count);
+				int distinct = 0;
+				for (int k = 0; k < count; k++) {
+					if (k == 0 || buffer[k] != buffer[k - 1]) {
+						buffer[distinct++] = buffer[k];
+					}
+				}
+				dependencies[node] = Arrays.copyOf(buffer, distinct);
+			}
+		}
+		return dependencies;
+	}
+
+	// ===============================================================================================================
+	// ====  Instance fields and methods  ============================================================================
+	// ===============================================================================================================
+	public final int rowCount;
+	public final int columnCount;
+	final int[] rowOffsets;
+	final int[] columnIndices;
+	final int[] columnOffsets;
+	final int[] rowIndices;
+	/**
+	 * For each entry in CSC order, its index in CSR order.
+	 */
+	private final int[] cscEntries;
+
+	/**
+	 * Create a new sparsity pattern from its CSR form. The given arrays are copied.
+	 *
+	 * @param rowOffsets
+	 * 		offsets of the entries of each row; must have {@code rowCount + 1} non-decreasing entries, starting at
+	 * 		{@code 0}
+	 * @param columnIndices
+	 * 		column of each entry, strictly ascending within each row
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if the arrays do not describe a valid pattern
+	 */
+	public RealSparsityPattern(final int rowCount, final int columnCount, final int[] rowOffsets,
+			final int[] columnIndices) {
+		if (rowCount < 0 || columnCount < 0 || rowOffsets.length != rowCount + 1 || rowOffsets[0] != 0 ||
+				rowOffsets[rowCount] != columnIndices.length) {
+			throw new IllegalArgumentException("Invalid row offsets for " + rowCount + " rows and " +
+					columnIndices.length + " entries");
+		}
+		for (int i = 0; i < rowCount; i++) {
+			for (int k = rowOffsets[i]; k < rowOffsets[i + 1]; k++) {
+				if (columnIndices[k] < 0 || columnIndices[k] >= columnCount ||
+						(k > rowOffsets[i] && columnIndices[k] <= columnIndices[k - 1])) {
+					throw new IllegalArgumentException("Invalid or unsorted column indices in row " + i);
+				}
+			}
+		}
+		this.rowCount = rowCount;
+		this.columnCount = columnCount;
+		this.rowOffsets = rowOffsets.clone();
+		this.columnIndices = columnIndices.clone();
+
+		// transpose into CSC form by counting sort; entries of each column are thus in ascending row order
+		this.columnOffsets = new int[columnCount + 1];
+		for (final int column : columnIndices) {
+			this.columnOffsets[column + 1]++;
+		}
+		for (int j = 0; j < columnCount; j++) {
+			this.columnOffsets[j + 1] += this.columnOffsets[j];
+		}
+		this.rowIndices = new int[columnIndices.length];
+		this.cscEntries = new int[columnIndices.length];
+		final int[] next = Arrays.copyOf(this.columnOffsets, columnCount);
+		for (int i = 0; i < rowCount; i++) {
+			for (int k = rowOffsets[i]; k < rowOffsets[i + 1]; k++) {
+				final int position = next[columnIndices[k]]++;
+				this.rowIndices[position] = i;
+				this.cscEntries[position] = k;
+			}
+		}
+	}
+
+	public int getNonZeroCount() {
+		return this.columnIndices.length;
+	}
+
+	/**
+	 * @return a copy of the CSR row offsets ({@code rowCount + 1} entries)
+	 */
+	public int[] getRowOffsets() {
+		return this.rowOffsets.clone();
+	}
+
+	/**
+	 * @return a copy of the CSR column indices (one per entry)
+	 */
+	public int[] getColumnIndices() {
+		return this.columnIndices.clone();
+	}
+
+	/**
+	 * @return a copy of the CSC column offsets ({@code columnCount + 1} entries)
+	 */
+	public int[] getColumnOffsets() {
+		return this.columnOffsets.clone();
+	}
+
+	/**
+	 * @return a copy of the CSC row indices (one per entry)
+	 */
+	public int[] getRowIndices() {
+		return this.rowIndices.clone();
+	}
+
+	/**
+	 * Get the CSR index of the entry in the given row and column.
+	 *
+	 * @return the index of the entry, or {@code -1} if it is not part of this pattern
+	 */
+	public int indexOf(final int row, final int column) {
+		final int index = Arrays.binarySearch(this.columnIndices, this.rowOffsets[row], this.rowOffsets[row + 1],
+				column);
+		return index >= 0 ? index : -1;
+	}
+
+	/**
+	 * Reorder the given values of a matrix with this pattern from CSR to CSC entry order.
+	 *
+	 * @param csrValues
+	 * 		the values in CSR order
+	 * @param cscValues
+	 * 		receives the values in CSC order; may not be the same array as {@code csrValues}
+	 */
+	public void toCsc(final double[] csrValues, final double[] cscValues) {
+		if (csrValues.length != this.getNonZeroCount() || cscValues.length != this.getNonZeroCount()) {
+			throw new IllegalArgumentException(
+					"Values must have one entry per non-zero (" + this.getNonZeroCount() + ")");
+		}
+		for (int k = 0; k < cscValues.length; k++) {
+			cscValues[k] = csrValues[this.cscEntries[k]];
+		}
+	}
+
+	/**
+	 * Compute a column coloring for this pattern, i.e. a partition of the columns into groups of structurally
+	 * orthogonal columns (no two columns of a group have an entry in the same row). The columns of each group can be
+	 * recovered from the product of the matrix with the sum of their unit vectors, so a matrix with this pattern can be
+	 * computed with one forward-mode sweep per color. The coloring is computed greedily in largest-first order.
+	 *
+	 * @return the color of each column, numbered from {@code 0}
+	 */
+	public int[] columnColoring() {
+		final int[] colors = new int[this.columnCount];
+		Arrays.fill(colors, -1);
+		// forbidden[c] == j means that color c is used by a column sharing a row with column j
+		final int[] forbidden = new int[this.columnCount + 1];
+		Arrays.fill(forbidden, -1);
+		for (final int j : this.largestFirstOrder(this.columnOffsets, this.columnCount)) {
+			for (int p = this.columnOffsets[j]; p < this.columnOffsets[j + 1]; p++) {
+				final int row = this.rowIndices[p];
+				for (int k = this.rowOffsets[row]; k < this.rowOffsets[row + 1]; k++) {
+					final int other = this.columnIndices[k];
+					if (colors[other] >= 0) {
+						forbidden[colors[other]] = j;
+					}
+				}
+			}
+			colors[j] = smallestAllowedColor(forbidden, j);
+		}
+		return colors;
+	}
+
+	/**
+	 * Compute a star coloring of the adjacency graph of this (square, structurally symmetric) pattern, i.e. a coloring
+	 * of the variables such that adjacent variables have distinct colors, and every path of four variables uses at
+	 * least three colors. A symmetric matrix with this pattern can be recovered from its products with the sum of the
+	 * unit vectors of each color (cf. {@link RealSparseHessian}), which usually needs considerably fewer colors than
+	 * {@link #columnColoring()} (cf. Gebremedhin, Manne and Pothen, "What color is your Jacobian? Graph coloring for
+	 * computing derivatives", SIAM Review 47(4), 2005). The coloring is computed greedily in largest-first order: each
+	 * variable gets the smallest color that neither conflicts with a neighbor nor completes a two-colored path of four
+	 * variables.
+	 *
+	 * @return the color of each variable, numbered from {@code 0}
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if this pattern is not square
+	 */
+	public int[] starColoring() {
+		if (this.rowCount != this.columnCount) {
+			throw new IllegalArgumentException("Star coloring needs a square pattern");
+		}
+		final int n = this.rowCount;
+		final int[] colors = new int[n];
+		Arrays.fill(colors, -1);
+		// forbidden[c] == v means that color c is not allowed for v; seen[c] == v (seenTwice[c] == v) means that at
+		// least one (two) neighbors of v have color c
+		final int[] forbidden = new int[n + 1], seen = new int[n + 1], seenTwice = new int[n + 1];
+		Arrays.fill(forbidden, -1);
+		Arrays.fill(seen, -1);
+		Arrays.fill(seenTwice, -1);
+		for (final int v : this.largestFirstOrder(this.rowOffsets, n)) {
+			for (int k = this.rowOffsets[v]; k < this.rowOffsets[v + 1]; k++) {
+				final int w = this.columnIndices[k];
+				if (w != v && colors[w] >= 0) {
+					// adjacent variables need distinct colors
+					forbidden[colors[w]] = v;
+					if (seen[colors[w]] == v) {
+						seenTwice[colors[w]] = v;
+					}
+					seen[colors[w]] = v;
+				}
+			}
+			for (int k = this.rowOffsets[v]; k < this.rowOffsets[v + 1]; k++) {
+				final int w = this.columnIndices[k];
+				if (w == v || colors[w] < 0) {
+					continue;
+				}
+				for (int l = this.rowOffsets[w]; l < this.rowOffsets[w + 1]; l++) {
+					final int x = this.columnIndices[l];
+					if (x == v || x == w || colors[x] < 0) {
+						continue;
+					}
+					if (seenTwice[colors[w]] == v || this.hasNeighborOfColor(x, w, colors[w], colors)) {
+						// giving v the color of x would two-color either the path y - v - w - x, where y is another
+						// neighbor of v with the color of w, or the path v - w - x - y, where y is another neighbor
+						// of x with the color of w
+						forbidden[colors[x]] = v;
+					}
+				}
+			}
+			colors[v] = smallestAllowedColor(forbidden, v);
+		}
+		return colors;
+	}
+
+	/**
+	 * Check whether vertex {@code x} has a neighbor other than {@code excluded} with the given color.
+	 */
+	private boolean hasNeighborOfColor(final int x, final int excluded, final int color, final int[] colors) {
+		for (int k = this.rowOffsets[x]; k < this.rowOffsets[x + 1]; k++) {
+			final int y = this.columnIndices[k];
+			if (y != x && y != excluded && colors[y] == color) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int smallestAllowedColor(final int[] forbidden, final int vertex) {
+		int color = 0;
+		while (forbidden[color] == vertex) {
+			color++;
+		}
+		return color;
+	}
+
+	/**
+	 * Order the given rows or columns by descending number of entries (ties in ascending index order).
+	 */
+	private int[] largestFirstOrder(final int[] offsets, final int count) {
+		// bucket sort by degree
+		int maxDegree = 0;
+		for (int i = 0; i < count; i++) {
+			maxDegree = Math.max(maxDegree, offsets[i + 1] - offsets[i]);
+		}
+		final int[] bucketOffsets = new int[maxDegree + 2];
+		for (int i = 0; i < count; i++) {
+			bucketOffsets[maxDegree - (offsets[i + 1] - offsets[i]) + 1]++;
+		}
+		for (int d = 0; d <= maxDegree; d++) {
+			bucketOffsets[d + 1] += bucketOffsets[d];
+		}
+		final int[] order = new int[count];
+		for (int i = 0; i < count; i++) {
+			order[bucketOffsets[maxDegree - (offsets[i + 1] - offsets[i])]++] = i;
+		}
+		return order;
+	}
+}
@@ -0,0 +1,275 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.tape;
+
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.util.Buffers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static nevik.autodiff.expr.real.tape.RealRegisterSweeps.ceilDiv;
+
+/**
+ * Computes gradients of a scalar objective recorded on a {@link RealExpressionTape} in reverse mode, keeping the values
+ * of the nodes in a memory-mapped temporary file once they exceed a given heap budget. This allows differentiating
+ * objectives whose values do not fit into the heap, at the cost of file space instead of recomputation (cf. {@link
+ * RealCheckpointedGradient}).
+ * <p/>
+ * Values and adjoints are kept in registers that are shared by nodes whose values are not needed at the same time (cf.
+ * {@link RealRegisterSweeps}). The tape is split into segments of the largest length the heap budget allows. The
+ * forward sweep writes one record per segment to the file, consisting of the register contents at the start of the
+ * segment and the values of its nodes; the reverse sweep reads the records back in reverse order. Only the last segment
+ * is kept on the heap. Records are transferred with bulk operations on {@link DoubleBuffer} views of the mapped
+ * regions, so no objects are created per value, and the strictly sequential access pattern (forwards, then backwards)
+ * is served well by the page cache of the operating system. If the whole tape fits into a single segment, no file is
+ * created at all.
+ * <p/>
+ * Only the node values are spilled. The tape itself and the register assignment stay on the heap and are not counted
+ * against the heap budget: they take about 25 bytes per node plus 4 bytes per operand (cf. {@link
+ * #getTapeMemoryUsage()}), i.e. several times the 8 bytes per node that are spilled. The heap a gradient needs is thus
+ * reduced to little more than that of the tape, but the tape itself must still fit into the heap.
+ * <p/>
+ * The results are bitwise identical to those of {@link RealExpressionHessian#gradient(double[], double[])}.
+ * <p/>
+ * The file is created by the constructor and deleted by {@link #close()} at the latest (some platforms remove its
+ * directory entry right away); the mapped regions are released by the garbage collector afterwards. All buffers are
+ * allocated once per instance. Instances are not thread-safe.
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealSpillingGradient implements Closeable {
+	/**
+	 * Default size of the regions of the file that are mapped at once.
+	 */
+	static final long DEFAULT_REGION_SIZE = 1L << 28;
+	private static final String FILE_PREFIX = "autodiff-tape-";
+	private static final String FILE_SUFFIX = ".bin";
+
+	public final RealExpressionTape tape;
+
+	private final RealRegisterSweeps sweeps;
+	private final int segmentLength;
+	private final int segmentCount;
+	/**
+	 * Number of values per record: the registers followed by the values of the segment.
+	 */
+	private final int recordLength;
+	private final int recordsPerRegion;
+	private final double[] segmentValues;
+
+	/**
+	 * The channel of the file, or {@code null} if nothing is spilled.
+	 */
+	private final FileChannel channel;
+	private final DoubleBuffer[] regions;
+	private boolean closed;
+
+	/**
+	 * Create a new engine for the given objective, recording it on a new tape.
+	 *
+	 * @param heapBudget
+	 * 		the number of bytes of heap that may be used for values and adjoints, not including the tape (cf. {@link
+	 * 		#getTapeMemoryUsage()})
+	 * @param directory
+	 * 		the directory in which to create the file, or {@code null} for the default temporary-file directory
+	 * @throws java.io.IOException
+	 * 		if the file cannot be created or mapped
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code objective} contains types of expressions that cannot be recorded, or if the budget is too small
+	 */
+	public RealSpillingGradient(final RealExpression objective, final long heapBudget, final Path directory)
+			throws IOException {
+		this(RealExpressionTape.record(objective), heapBudget, directory);
+	}
+
+	/**
+	 * Create a new engine for the objective recorded on the given tape.
+	 *
+	 * @param heapBudget
+	 * 		the number of bytes of heap that may be used for values and adjoints, not including the tape (cf. {@link
+	 * 		#getTapeMemoryUsage()})
+	 * @param directory
+	 * 		the directory in which to create the file, or {@code null} for the default temporary-file directory
+	 * @throws java.io.IOException
+	 * 		if the file cannot be created or mapped
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code tape} has more than one output, or if the budget is too small for even a single register file
+	 */
+	public RealSpillingGradient(final RealExpressionTape tape, final long heapBudget, final Path directory)
+			throws IOException {
+		this(tape, heapBudget, directory, DEFAULT_REGION_SIZE);
+	}
+
+	RealSpillingGradient(final RealExpressionTape tape, final long heapBudget, final Path directory,
+			final long regionSize) throws IOException {
+		this.tape = tape;
+		this.sweeps = new RealRegisterSweeps(tape);
+		final int n = this.sweeps.nodeCount, r = this.sweeps.registerCount;
+		final long fixed = this.sweeps.getValueCount();
+		final long available = heapBudget / Double.BYTES - fixed;
+		if (available < 1) {
+			throw new IllegalArgumentException("Heap budget of " + heapBudget + " bytes is too small; at least " +
+					(fixed + 1) * Double.BYTES + " bytes are needed");
+		}
+		// a record must fit into a single mapped region
+		final long maxRecordLength = Math.min(regionSize, Integer.MAX_VALUE) / Double.BYTES;
+		this.segmentLength = (int) Math.min(n, Math.min(available, Math.max(1, maxRecordLength - r)));
+		this.segmentCount = (int) ceilDiv(n, this.segmentLength);
+		this.recordLength = r + this.segmentLength;
+		this.recordsPerRegion = (int) Math.max(1, maxRecordLength / this.recordLength);
+		this.segmentValues = new double[this.segmentLength];
+
+		final int spilledCount = this.segmentCount - 1;
+		if (spilledCount == 0) {
+			this.channel = null;
+			this.regions = new DoubleBuffer[0];
+			return;
+		}
+		final Path file = directory == null ? Files.createTempFile(FILE_PREFIX, FILE_SUFFIX) :
+				Files.createTempFile(directory, FILE_PREFIX, FILE_SUFFIX);
+		try {
+			this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+					StandardOpenOption.DELETE_ON_CLOSE);
+		} catch (final IOException e) {
+			Files.deleteIfExists(file);
+			throw e;
+		}
+		try {
+			this.regions = new DoubleBuffer[(int) ceilDiv(spilledCount, this.recordsPerRegion)];
+			final long regionBytes = (long) this.recordsPerRegion * this.recordLength * Double.BYTES;
+			for (int i = 0; i < this.regions.length; i++) {
+				final int records = Math.min(this.recordsPerRegion, spilledCount - i * this.recordsPerRegion);
+				this.regions[i] = this.channel.map(MapMode.READ_WRITE, i * regionBytes,
+						(long) records * this.recordLength * Double.BYTES).order(ByteOrder.nativeOrder())
+						.asDoubleBuffer();
+			}
+		} catch (final IOException | RuntimeException e) {
+			this.channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return the number of nodes per segment
+	 */
+	public int getSegmentLength() {
+		return this.segmentLength;
+	}
+
+	/**
+	 * @return the number of segments that are written to the file
+	 */
+	public int getSpilledSegmentCount() {
+		return this.segmentCount - 1;
+	}
+
+	/**
+	 * @return the size of the file in bytes
+	 */
+	public long getFileSize() {
+		return (long) this.getSpilledSegmentCount() * this.recordLength * Double.BYTES;
+	}
+
+	/**
+	 * @return the number of bytes of heap used for values and adjoints, which is at most the heap budget
+	 */
+	public long getMemoryUsage() {
+		return (long) Double.BYTES * (this.sweeps.getValueCount() + this.segmentValues.length);
+	}
+
+	/**
+	 * @return the number of bytes of heap taken by the tape and the register assignment, which are kept on the heap in
+	 * addition to {@link #getMemoryUsage()}
+	 */
+	public long getTapeMemoryUsage() {
+		return this.tape.getMemoryUsage() + (long) this.sweeps.registers.length * Integer.BYTES;
+	}
+
+	/**
+	 * Compute the value and the gradient of the objective at the given point.
+	 *
+	 * @param point
+	 * 		the value of each variable of the tape
+	 * @param gradient
+	 * 		receives the gradient; must have one entry per variable
+	 * @return the value of the objective
+	 *
+	 * @throws java.lang.IllegalStateException
+	 * 		if this instance has been closed
+	 */
+	public double gradient(final double[] point, final double[] gradient) {
+		if (this.closed) {
+			throw new IllegalStateException("Gradient engine has been closed");
+		}
+		this.tape.checkPoint(point, "Point");
+		this.tape.checkPoint(gradient, "Gradient");
+		final RealRegisterSweeps sweeps = this.sweeps;
+		final double[] work = sweeps.work, entry = sweeps.entry, segmentValues = this.segmentValues;
+		final int r = sweeps.registerCount, length = this.segmentLength, last = this.segmentCount - 1;
+		Arrays.fill(work, 0);
+		for (int segment = 0; segment < last; segment++) {
+			final DoubleBuffer record = this.record(segment);
+			record.put(work, 0, r);
+			sweeps.forward(segment * length, (segment + 1) * length, point, segmentValues);
+			record.put(segmentValues, 0, length);
+		}
+		final int lastStart = last * length;
+		System.arraycopy(work, 0, entry, 0, r);
+		sweeps.forward(lastStart, sweeps.nodeCount, point, segmentValues);
+		final double value = segmentValues[sweeps.nodeCount - 1 - lastStart];
+
+		Arrays.fill(gradient, 0);
+		sweeps.seed();
+		sweeps.reverse(lastStart, sweeps.nodeCount, segmentValues, gradient);
+		for (int segment = last - 1; segment >= 0; segment--) {
+			final DoubleBuffer record = this.record(segment);
+			record.get(entry, 0, r);
+			record.get(segmentValues, 0, length);
+			final int start = segment * length;
+			sweeps.reverse(start, start + length, segmentValues, gradient);
+		}
+		return value;
+	}
+
+	/**
+	 * Get the region containing the record of the given segment, positioned at the start of the record.
+	 */
+	private DoubleBuffer record(final int segment) {
+		return Buffers.position(this.regions[segment / this.recordsPerRegion],
+				segment % this.recordsPerRegion * this.recordLength);
+	}
+
+	/**
+	 * Delete the file. Further calls of {@link #gradient(double[], double[])} are not allowed.
+	 */
+	@Override
+	public void close() throws IOException {
+		this.closed = true;
+		if (this.channel != null) {
+			this.channel.close();
+		}
+	}
+}
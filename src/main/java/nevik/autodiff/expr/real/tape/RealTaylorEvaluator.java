@@ -0,0 +1,447 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.tape;
+
+import nevik.autodiff.expr.real.RealExprFunction.Function;
+import nevik.autodiff.expr.real.RealExprPiecewise;
+import nevik.autodiff.expr.real.RealExprPower;
+import nevik.autodiff.expr.real.RealExpression;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_ADDITION;
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_CONSTANT;
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_FUNCTION;
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_MULTIPLICATION;
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_NEGATION;
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_POWER;
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_RECIPROCAL;
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_VARIABLE;
+
+/**
+ * Computes higher-order directional derivatives of the outputs of a {@link RealExpressionTape} by univariate Taylor
+ * propagation: for a point {@code x} and a direction {@code v}, the truncated Taylor series {@code w(t) = w_0 + w_1 t +
+ * ... + w_d t^d} of every node along the line {@code x + t v} is computed in a single forward sweep. The {@code k}-th
+ * directional derivative of a node is then {@code k! * w_k}.
+ * <p/>
+ * The coefficients of each node are computed from those of its operands with the usual recurrences: sums are added,
+ * products are convolved, and reciprocals, powers and the elementary functions follow from the linear differential
+ * equations they satisfy (e.g. {@code w' = w u'} for {@code w = exp(u)}, or {@code u w = 1} for {@code w = 1/u}), so
+ * each node costs {@code O(d^2)} operations, instead of the exponential growth of nesting symbolic derivatives.
+ * Piecewise nodes pass on the series of their active operand, as in {@link
+ * nevik.autodiff.expr.real.visitor.VisitorRealExpressionGradient}. Powers with a constant exponent and a base series
+ * starting at zero are fully supported for non-negative integer exponents; for other positive exponents, the
+ * coefficients are zero up to the order at which the power stops being differentiable, and NaN from there on.
+ * <p/>
+ * All coefficient arrays are allocated once per instance and reused by every evaluation. Instances are not thread-safe.
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealTaylorEvaluator {
+	/**
+	 * Largest non-negative integer exponent of a base series starting at zero that is expanded by repeated
+	 * multiplication.
+	 */
+	private static final int MAX_INTEGER_EXPONENT = 1 << 20;
+
+	public final RealExpressionTape tape;
+	public final int order;
+
+	/**
+	 * The coefficients of node {@code i} are at {@code coefficients[i * (order + 1) .. i * (order + 1) + order]}.
+	 */
+	private final double[] coefficients;
+	private final double[] operands;
+	private final double[] factorials;
+	private final double[] scratch;
+	private final double[] secondScratch;
+
+	/**
+	 * Create a new evaluator for the given expression, recording it on a new tape.
+	 *
+	 * @param order
+	 * 		the highest order of derivatives to compute
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code order} is negative, or if {@code expression} contains types of expressions that cannot be recorded
+	 */
+	public RealTaylorEvaluator(final RealExpression expression, final int order) {
+		this(RealExpressionTape.record(expression), order);
+	}
+
+	/**
+	 * Create a new evaluator for the given expressions, recording them on a new tape.
+	 *
+	 * @param order
+	 * 		the highest order of derivatives to compute
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code order} is negative, or if {@code expressions} is empty or contains types of expressions that
+	 * 		cannot be recorded
+	 */
+	public RealTaylorEvaluator(final List<? extends RealExpression> expressions, final int order) {
+		this(RealExpressionTape.record(expressions), order);
+	}
+
+	/**
+	 * Create a new evaluator for the outputs of the given tape.
+	 *
+	 * @param order
+	 * 		the highest order of derivatives to compute
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code order} is negative
+	 */
+	public RealTaylorEvaluator(final RealExpressionTape tape, final int order) {
+		if (order < 0) {
+			throw new IllegalArgumentException("Order must be non-negative: " + order);
+		}
+		this.tape = tape;
+		this.order = order;
+		this.coefficients = new double[tape.getNodeCount() * (order + 1)];
+		this.operands = new double[tape.getMaxChildCount()];
+		this.factorials = new double[order + 1];
+		this.factorials[0] = 1;
+		for (int k = 1; k <= order; k++) {
+			this.factorials[k] = this.factorials[k - 1] * k;
+		}
+		this.scratch = new double[order + 1];
+		this.secondScratch = new double[order + 1];
+	}
+
+	/**
+	 * Compute the Taylor coefficients of all nodes along the line {@code point + t * direction}.
+	 *
+	 * @param point
+	 * 		the value of each variable of the tape
+	 * @param direction
+	 * 		the direction, with one entry per variable
+	 */
+	public void evaluate(final double[] point, final double[] direction) {
+		this.tape.checkPoint(point, "Point");
+		this.tape.checkPoint(direction, "Direction");
+		for (int node = 0; node < this.tape.getNodeCount(); node++) {
+			this.evaluateNode(node, point, direction);
+		}
+	}
+
+	/**
+	 * Compute the directional derivatives of the first output of the tape up to {@link #order}.
+	 *
+	 * @param point
+	 * 		the value of each variable of the tape
+	 * @param direction
+	 * 		the direction, with one entry per variable
+	 * @param derivatives
+	 * 		receives the {@code k}-th directional derivative at index {@code k}, starting with the value at index {@code
+	 * 		0}; must have {@code order + 1} entries
+	 */
+	public void derivatives(final double[] point, final double[] direction, final double[] derivatives) {
+		this.evaluate(point, direction);
+		this.getDerivatives(0, derivatives);
+	}
+
+	/**
+	 * Get the Taylor coefficient of the given output computed by the last call of {@link #evaluate(double[],
+	 * double[])}.
+	 *
+	 * @param output
+	 * 		the index of the output, cf. {@link RealExpressionTape#getOutput(int)}
+	 * @param k
+	 * 		the index of the coefficient, from {@code 0} to {@link #order}
+	 */
+	public double getCoefficient(final int output, final int k) {
+		if (k < 0 || k > this.order) {
+			throw new IllegalArgumentException("Coefficient index must be between 0 and " + this.order + ": " + k);
+		}
+		return this.coefficients[this.tape.getOutput(output) * (this.order + 1) + k];
+	}
+
+	/**
+	 * Get the directional derivatives of the given output computed by the last call of {@link
+	 * #evaluate(double[], double[])}.
+	 *
+	 * @param output
+	 * 		the index of the output, cf. {@link RealExpressionTape#getOutput(int)}
+	 * @param derivatives
+	 * 		receives the {@code k}-th directional derivative at index {@code k}; must have {@code order + 1} entries
+	 */
+	public void getDerivatives(final int output, final double[] derivatives) {
+		if (derivatives.length != this.order + 1) {
+			throw new IllegalArgumentException("Derivatives must have " + (this.order + 1) + " entries");
+		}
+		final int offset = this.tape.getOutput(output) * (this.order + 1);
+		for (int k = 0; k <= this.order; k++) {
+			derivatives[k] = this.factorials[k] * this.coefficients[offset + k];
+		}
+	}
+
+	private void evaluateNode(final int node, final double[] point, final double[] direction) {
+		final RealExpressionTape tape = this.tape;
+		final double[] c = this.coefficients;
+		final int stride = this.order + 1;
+		final int w = node * stride;
+		// inactive nodes are constant along the line, so only their values are computed
+		final int d = tape.isActive(node) ? this.order : 0;
+		final int childCount = tape.getChildCount(node);
+		final int u = childCount > 0 ? tape.getChild(node, 0) * stride : -1;
+		switch (tape.getOpcode(node)) {
+			case OP_CONSTANT:
+				c[w] = tape.getConstantValue(node);
+				break;
+			case OP_VARIABLE:
+				c[w] = point[tape.getVariableIndexOf(node)];
+				if (d > 0) {
+					c[w + 1] = direction[tape.getVariableIndexOf(node)];
+					Arrays.fill(c, w + 2, w + d + 1, 0);
+				}
+				break;
+			case OP_ADDITION:
+				for (int k = 0; k <= d; k++) {
+					double sum = 0;
+					for (int i = 0; i < childCount; i++) {
+						sum += c[tape.getChild(node, i) * stride + k];
+					}
+					c[w + k] = sum;
+				}
+				break;
+			case OP_MULTIPLICATION:
+				// start with the constant 1, and convolve with each operand in place, from the highest coefficient down
+				c[w] = 1;
+				Arrays.fill(c, w + 1, w + d + 1, 0);
+				for (int i = 0; i < childCount; i++) {
+					convolveInPlace(c, w, c, tape.getChild(node, i) * stride, d);
+				}
+				break;
+			case OP_NEGATION:
+				for (int k = 0; k <= d; k++) {
+					c[w + k] = -c[u + k];
+				}
+				break;
+			case OP_RECIPROCAL:
+				// u * w = 1
+				c[w] = 1 / c[u];
+				for (int k = 1; k <= d; k++) {
+					double sum = 0;
+					for (int j = 1; j <= k; j++) {
+						sum += c[u + j] * c[w + k - j];
+					}
+					c[w + k] = -sum / c[u];
+				}
+				break;
+			case OP_FUNCTION:
+				this.evaluateFunction(tape.getFunction(node), c, u, w, d);
+				break;
+			case OP_POWER:
+				this.evaluatePower(node, u, tape.getChild(node, 1) * stride, w, d);
+				break;
+			default:
+				this.evaluatePiecewise(node, w, d);
+		}
+		if (d < this.order) {
+			Arrays.fill(c, w + d + 1, w + stride, 0);
+		}
+	}
+
+	/**
+	 * Replace the series {@code a} by the truncated product of the series {@code a} and {@code b}.
+	 */
+	private static void convolveInPlace(final double[] a, final int aOffset, final double[] b, final int bOffset,
+			final int d) {
+		// coefficient k only depends on the coefficients 0..k of a, which are not yet overwritten
+		for (int k = d; k >= 0; k--) {
+			double sum = 0;
+			for (int j = 0; j <= k; j++) {
+				sum += a[aOffset + j] * b[bOffset + k - j];
+			}
+			a[aOffset + k] = sum;
+		}
+	}
+
+	private void evaluateFunction(final Function function, final double[] c, final int u, final int w, final int d) {
+		c[w] = function.apply(c[u]);
+		switch (function) {
+			case EXP:
+				// w' = w u'
+				for (int k = 1; k <= d; k++) {
+					double sum = 0;
+					for (int j = 1; j <= k; j++) {
+						sum += j * c[u + j] * c[w + k - j];
+					}
+					c[w + k] = sum / k;
+				}
+				break;
+			case LOG:
+				// u w' = u'
+				for (int k = 1; k <= d; k++) {
+					double sum = 0;
+					for (int j = 1; j < k; j++) {
+						sum += j * c[w + j] * c[u + k - j];
+					}
+					c[w + k] = (c[u + k] - sum / k) / c[u];
+				}
+				break;
+			case SQRT:
+				// w * w = u
+				for (int k = 1; k <= d; k++) {
+					double sum = 0;
+					for (int j = 1; j < k; j++) {
+						sum += c[w + j] * c[w + k - j];
+					}
+					c[w + k] = (c[u + k] - sum) / (2 * c[w]);
+				}
+				break;
+			case SIN:
+			case COS: {
+				// sin' = cos u', and cos' = -sin u', so both series are computed together
+				final double[] sin = function == Function.SIN ? c : this.scratch;
+				final double[] cos = function == Function.COS ? c : this.scratch;
+				final int s = function == Function.SIN ? w : 0, co = function == Function.COS ? w : 0;
+				sin[s] = Math.sin(c[u]);
+				cos[co] = Math.cos(c[u]);
+				for (int k = 1; k <= d; k++) {
+					double sinSum = 0, cosSum = 0;
+					for (int j = 1; j <= k; j++) {
+						sinSum += j * c[u + j] * cos[co + k - j];
+						cosSum += j * c[u + j] * sin[s + k - j];
+					}
+					sin[s + k] = sinSum / k;
+					cos[co + k] = -cosSum / k;
+				}
+				break;
+			}
+			case TANH: {
+				// w' = (1 - w^2) u', with the series of 1 - w^2 in scratch
+				final double[] p = this.scratch;
+				p[0] = 1 - c[w] * c[w];
+				for (int k = 1; k <= d; k++) {
+					double sum = 0;
+					for (int j = 1; j <= k; j++) {
+						sum += j * c[u + j] * p[k - j];
+					}
+					c[w + k] = sum / k;
+					double square = 0;
+					for (int j = 0; j <= k; j++) {
+						square += c[w + j] * c[w + k - j];
+					}
+					p[k] = -square;
+				}
+				break;
+			}
+			default:
+				throw new IllegalArgumentException("Unsupported function: " + function);
+		}
+	}
+
+	private void evaluatePower(final int node, final int u, final int g, final int w, final int d) {
+		final double[] c = this.coefficients;
+		final double base = c[u], exponent = c[g];
+		c[w] = RealExprPower.power(base, exponent);
+		if (d == 0) {
+			return;
+		}
+		if (this.tape.isActive(this.tape.getChild(node, 1))) {
+			// f^g = exp(g * log(f)): the series of log(f) and of g * log(f) are built in scratch, as in
+			// evaluateFunction
+			final double[] log = this.scratch, product = this.secondScratch;
+			log[0] = Math.log(base);
+			for (int k = 1; k <= d; k++) {
+				double sum = 0;
+				for (int j = 1; j < k; j++) {
+					sum += j * log[j] * c[u + k - j];
+				}
+				log[k] = (c[u + k] - sum / k) / base;
+			}
+			for (int k = 0; k <= d; k++) {
+				double sum = 0;
+				for (int j = 0; j <= k; j++) {
+					sum += c[g + j] * log[k - j];
+				}
+				product[k] = sum;
+			}
+			for (int k = 1; k <= d; k++) {
+				double sum = 0;
+				for (int j = 1; j <= k; j++) {
+					sum += j * product[j] * c[w + k - j];
+				}
+				c[w + k] = sum / k;
+			}
+		} else if (base != 0) {
+			// f w' = a f' w
+			for (int k = 1; k <= d; k++) {
+				double sum = 0;
+				for (int j = 1; j <= k; j++) {
+					sum += ((exponent + 1) * j - k) * c[u + j] * c[w + k - j];
+				}
+				c[w + k] = sum / (k * base);
+			}
+		} else if (exponent >= 0 && exponent == Math.rint(exponent) && exponent <= MAX_INTEGER_EXPONENT) {
+			// the recurrence divides by f(0) = 0, so multiply out by binary powering instead
+			final double[] square = this.scratch;
+			System.arraycopy(c, u, square, 0, d + 1);
+			c[w] = 1;
+			Arrays.fill(c, w + 1, w + d + 1, 0);
+			for (long n = (long) exponent; n != 0; n >>>= 1) {
+				if ((n & 1) != 0) {
+					convolveInPlace(c, w, square, 0, d);
+				}
+				if (n > 1) {
+					System.arraycopy(square, 0, this.secondScratch, 0, d + 1);
+					convolveInPlace(square, 0, this.secondScratch, 0, d);
+				}
+			}
+		} else if (exponent > 0) {
+			// if the first non-zero coefficient of f is that of order m, then f^a = O(t^(m a)), so all coefficients
+			// below order m a vanish; from there on, they do not exist for non-integral exponents (e.g. the second
+			// derivative of t^1.5 at 0 diverges), so only these are NaN
+			int m = 1;
+			while (m <= d && c[u + m] == 0) {
+				m++;
+			}
+			final double vanishingOrder = m * exponent;
+			for (int k = 1; k <= d; k++) {
+				c[w + k] = k < vanishingOrder ? 0 : Double.NaN;
+			}
+		} else {
+			// f^a has a pole (or no value) at zero
+			Arrays.fill(c, w + 1, w + d + 1, Double.NaN);
+		}
+	}
+
+	private void evaluatePiecewise(final int node, final int w, final int d) {
+		final RealExpressionTape tape = this.tape;
+		final double[] c = this.coefficients, operands = this.operands;
+		final int stride = this.order + 1;
+		final int childCount = tape.getChildCount(node);
+		for (int i = 0; i < childCount; i++) {
+			operands[i] = c[tape.getChild(node, i) * stride];
+		}
+		final RealExprPiecewise.Kind kind = tape.getPiecewiseKind(node);
+		c[w] = kind.apply(operands[0], childCount > 1 ? operands[1] : 0, childCount > 2 ? operands[2] : 0);
+		// the second operand of select does not decide which operand is active
+		final double second = kind == RealExprPiecewise.Kind.MIN || kind == RealExprPiecewise.Kind.MAX ?
+				operands[1] : 0;
+		final int active = kind.activeOperand(operands[0], second, 0);
+		if (active < 0) {
+			Arrays.fill(c, w + 1, w + d + 1, 0);
+			return;
+		}
+		final double sign = kind == RealExprPiecewise.Kind.ABS ? Math.signum(operands[0]) : 1;
+		final int a = tape.getChild(node, active) * stride;
+		for (int k = 1; k <= d; k++) {
+			c[w + k] = sign * c[a + k];
+		}
+	}
+}
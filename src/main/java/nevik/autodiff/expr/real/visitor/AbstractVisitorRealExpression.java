@@ -17,9 +17,14 @@ package nevik.autodiff.expr.real.visitor;
 
 import nevik.autodiff.expr.real.RealConstant;
 import nevik.autodiff.expr.real.RealExprAddition;
+import nevik.autodiff.expr.real.RealExprFunction;
+import nevik.autodiff.expr.real.RealExprLinear;
 import nevik.autodiff.expr.real.RealExprMultiplication;
 import nevik.autodiff.expr.real.RealExprNegation;
+import nevik.autodiff.expr.real.RealExprPiecewise;
+import nevik.autodiff.expr.real.RealExprPower;
 import nevik.autodiff.expr.real.RealExprReciprocal;
+import nevik.autodiff.expr.real.RealExprReduction;
 import nevik.autodiff.expr.real.RealExpression;
 import nevik.autodiff.expr.real.RealVariable;
 
@@ -122,4 +127,29 @@ public abstract class AbstractVisitorRealExpression<ParamType, ResultType, ExprR
 	public ExprResultType visit(final RealExprReciprocal realExprReciprocal, final StateType state) {
 		throw new UnsupportedOperationException();
 	}
+
+	@Override
+	public ExprResultType visit(final RealExprReduction realExprReduction, final StateType state) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public ExprResultType visit(final RealExprFunction realExprFunction, final StateType state) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public ExprResultType visit(final RealExprPower realExprPower, final StateType state) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public ExprResultType visit(final RealExprPiecewise realExprPiecewise, final StateType state) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public ExprResultType visit(final RealExprLinear realExprLinear, final StateType state) {
+		throw new UnsupportedOperationException();
+	}
 }
@@ -0,0 +1,192 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.visitor;
+
+import nevik.autodiff.expr.real.RealAssignment;
+import nevik.autodiff.expr.real.RealExprReduction;
+import nevik.autodiff.expr.real.RealExprReduction.Kind;
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionBatchEvaluator.evaluateBatch;
+
+/**
+ * Numerical evaluation of {@link RealExprReduction}s, shared by the evaluating and differentiating visitors.
+ * <p/>
+ * The rows of the dataset are processed in blocks of {@link #BLOCK_SIZE} rows: for each block, the body (or another
+ * expression over the row variables) is evaluated for all rows of the block with a {@link
+ * VisitorRealExpressionBatchEvaluator}, i.e. in tight loops over slices of the columns, with all row-invariant
+ * sub-expressions evaluated only once per block. The values are then combined according to the {@link Kind} of the
+ * reduction. The rows of each block are copied into the same reusable buffers (unless the whole dataset fits into a
+ * single block, in which case its columns are used directly), so memory use is bounded by the block size rather than
+ * the size of the dataset.
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+final class ReductionEvaluation {
+	static final int BLOCK_SIZE = 4096;
+
+	/**
+	 * Simplified derivatives of the bodies of reductions w.r.t. their free variables, computed on first use by {@link
+	 * #bodyDerivative}. The reductions are only weakly referenced, so the derivatives are dropped along with them.
+	 */
+	private static final Map<RealExprReduction, Map<RealVariable, RealExpression>> BODY_DERIVATIVES =
+			Collections.synchronizedMap(new WeakHashMap<>());
+
+	/**
+	 * Get the simplified symbolic derivative of the body of the given reduction w.r.t. the given free variable. It is
+	 * computed on first use and kept for later calls, so that repeated gradient computations do not differentiate the
+	 * body again.
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code variable} is not a free variable of {@code reduction}
+	 */
+	static RealExpression bodyDerivative(final RealExprReduction reduction, final RealVariable variable) {
+		if (!reduction.getVariables().contains(variable)) {
+			throw new IllegalArgumentException("Not a free variable of this reduction: " + variable);
+		}
+		return BODY_DERIVATIVES.computeIfAbsent(reduction, r -> new ConcurrentHashMap<>()).computeIfAbsent(variable,
+				v -> VisitorRealExpressionSimplifier.simplify(VisitorRealExpressionDerivative.derive(reduction.body, v)));
+	}
+
+	/**
+	 * Create the buffers for the values of the row variables of one block of rows of the dataset of the given
+	 * reduction, to be filled by {@link #evaluateRows}. If the dataset fits into a single block, its columns are used
+	 * directly.
+	 */
+	static Map<RealVariable, double[]> blockBuffers(final RealExprReduction reduction) {
+		final Map<RealVariable, double[]> rowValues = new HashMap<>();
+		for (final Entry<RealVariable, double[]> entry : reduction.columns.entrySet()) {
+			rowValues.put(entry.getKey(), reduction.rowCount <= BLOCK_SIZE ? entry.getValue() : new double[BLOCK_SIZE]);
+		}
+		return rowValues;
+	}
+
+	/**
+	 * Evaluate the given expressions for the rows {@code from} (inclusive) to {@code to} (exclusive) of the dataset of
+	 * the given reduction.
+	 *
+	 * @param reduction
+	 * 		the reduction providing the dataset
+	 * @param expressions
+	 * 		the expressions to evaluate, over the row variables of {@code reduction} and variables in {@code
+	 * 		outerValues}
+	 * @param outerValues
+	 * 		values of all variables other than the row variables
+	 * @param rowValues
+	 * 		buffers created by {@link #blockBuffers(RealExprReduction)}, into which the rows are copied
+	 * @return one column of values per expression, each with (at least) one entry per row
+	 */
+	static double[][] evaluateRows(final RealExprReduction reduction, final RealExpression[] expressions,
+			final RealAssignment outerValues, final Map<RealVariable, double[]> rowValues, final int from,
+			final int to) {
+		for (final Entry<RealVariable, double[]> entry : reduction.columns.entrySet()) {
+			final double[] buffer = rowValues.get(entry.getKey());
+			if (buffer != entry.getValue()) {
+				System.arraycopy(entry.getValue(), from, buffer, 0, to - from);
+			}
+		}
+		final double[][] values = new double[expressions.length][];
+		for (int i = 0; i < expressions.length; i++) {
+			values[i] = evaluateBatch(expressions[i], rowValues, outerValues, to - from);
+		}
+		return values;
+	}
+
+	/**
+	 * Compute the value of the given reduction.
+	 *
+	 * @param outerValues
+	 * 		values of the free variables of {@code reduction}
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code outerValues} does not contain a value for a free variable of {@code reduction}
+	 */
+	static double value(final RealExprReduction reduction, final RealAssignment outerValues) {
+		final RealExpression[] body = {reduction.body};
+		final Map<RealVariable, double[]> rowValues = blockBuffers(reduction);
+		double result = reduction.kind == Kind.PRODUCT ? 1 : 0;
+		for (int from = 0; from < reduction.rowCount; from += BLOCK_SIZE) {
+			final int to = Math.min(from + BLOCK_SIZE, reduction.rowCount);
+			final double[] values = evaluateRows(reduction, body, outerValues, rowValues, from, to)[0];
+			for (int row = 0, n = to - from; row < n; row++) {
+				result = reduction.kind == Kind.PRODUCT ? result * values[row] : result + values[row];
+			}
+		}
+		return reduction.kind == Kind.MEAN ? result / reduction.rowCount : result;
+	}
+
+	/**
+	 * Compute the partial derivatives of the given reduction w.r.t. a number of free variables.
+	 *
+	 * @param derivativeBodies
+	 * 		for each variable, the (symbolic) derivative of the body of {@code reduction} w.r.t. that variable
+	 * @param outerValues
+	 * 		values of the free variables of {@code reduction}
+	 * @return the partial derivatives, in the order of {@code derivativeBodies}
+	 */
+	static double[] partialDerivatives(final RealExprReduction reduction, final RealExpression[] derivativeBodies,
+			final RealAssignment outerValues) {
+		final int variableCount = derivativeBodies.length;
+		final double[] result = new double[variableCount];
+		final Map<RealVariable, double[]> rowValues = blockBuffers(reduction);
+		if (reduction.kind != Kind.PRODUCT) {
+			for (int from = 0; from < reduction.rowCount; from += BLOCK_SIZE) {
+				final int to = Math.min(from + BLOCK_SIZE, reduction.rowCount);
+				final double[][] values = evaluateRows(reduction, derivativeBodies, outerValues, rowValues, from, to);
+				for (int v = 0; v < variableCount; v++) {
+					for (int row = 0, n = to - from; row < n; row++) {
+						result[v] += values[v][row];
+					}
+				}
+			}
+			if (reduction.kind == Kind.MEAN) {
+				for (int v = 0; v < variableCount; v++) {
+					result[v] /= reduction.rowCount;
+				}
+			}
+			return result;
+		}
+
+		// d/dv prod_i f_i = sum_i (df_i/dv * prod_{j!=i} f_j), accumulated row by row with the product rule
+		// d(P * f) = dP * f + P * df, so that zero (or underflowing) factors are never divided by
+		final RealExpression[] expressions = Arrays.copyOf(derivativeBodies, variableCount + 1);
+		expressions[variableCount] = reduction.body;
+		double product = 1;
+		for (int from = 0; from < reduction.rowCount; from += BLOCK_SIZE) {
+			final int to = Math.min(from + BLOCK_SIZE, reduction.rowCount);
+			final double[][] values = evaluateRows(reduction, expressions, outerValues, rowValues, from, to);
+			final double[] bodyValues = values[variableCount];
+			for (int row = 0, n = to - from; row < n; row++) {
+				for (int v = 0; v < variableCount; v++) {
+					result[v] = result[v] * bodyValues[row] + product * values[v][row];
+				}
+				product *= bodyValues[row];
+			}
+		}
+		return result;
+	}
+
+	private ReductionEvaluation() {}
+}
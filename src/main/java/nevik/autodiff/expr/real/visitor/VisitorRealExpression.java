@@ -17,9 +17,14 @@ package nevik.autodiff.expr.real.visitor;
 
 import nevik.autodiff.expr.real.RealConstant;
 import nevik.autodiff.expr.real.RealExprAddition;
+import nevik.autodiff.expr.real.RealExprFunction;
+import nevik.autodiff.expr.real.RealExprLinear;
 import nevik.autodiff.expr.real.RealExprMultiplication;
 import nevik.autodiff.expr.real.RealExprNegation;
+import nevik.autodiff.expr.real.RealExprPiecewise;
+import nevik.autodiff.expr.real.RealExprPower;
 import nevik.autodiff.expr.real.RealExprReciprocal;
+import nevik.autodiff.expr.real.RealExprReduction;
 import nevik.autodiff.expr.real.RealExpression;
 import nevik.autodiff.expr.real.RealVariable;
 
@@ -38,4 +43,9 @@ public interface VisitorRealExpression<ResultType, ExprResultType, StateType> {
 	ExprResultType visit(RealExprMultiplication realExprMultiplication, StateType state);
 	ExprResultType visit(RealExprNegation realExprNegation, StateType state);
 	ExprResultType visit(RealExprReciprocal realExprReciprocal, StateType state);
+	ExprResultType visit(RealExprReduction realExprReduction, StateType state);
+	ExprResultType visit(RealExprFunction realExprFunction, StateType state);
+	ExprResultType visit(RealExprPower realExprPower, StateType state);
+	ExprResultType visit(RealExprPiecewise realExprPiecewise, StateType state);
+	ExprResultType visit(RealExprLinear realExprLinear, StateType state);
 }
@@ -0,0 +1,352 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.visitor;
+
+import nevik.autodiff.expr.real.RealConstant;
+import nevik.autodiff.expr.real.RealExprAddition;
+import nevik.autodiff.expr.real.RealExprFunction;
+import nevik.autodiff.expr.real.RealExprLinear;
+import nevik.autodiff.expr.real.RealExprMultiplication;
+import nevik.autodiff.expr.real.RealExprNegation;
+import nevik.autodiff.expr.real.RealExprPiecewise;
+import nevik.autodiff.expr.real.RealExprPower;
+import nevik.autodiff.expr.real.RealExprReciprocal;
+import nevik.autodiff.expr.real.RealExprReduction;
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealSuperExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import nevik.autodiff.expr.real.visitor.VisitorRealExpressionBalancer.BalancingParams;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static nevik.autodiff.expr.real.RealExprAddition.reAdd;
+import static nevik.autodiff.expr.real.RealExprAddition.reAddUsrtd;
+import static nevik.autodiff.expr.real.RealExprLinear.reLinear;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMult;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMultUsrtd;
+import static nevik.autodiff.expr.real.RealExprNegation.reNeg;
+import static nevik.autodiff.expr.real.RealExprPower.rePow;
+import static nevik.autodiff.expr.real.RealExprReciprocal.reRecip;
+
+/**
+ * Visitor that rewrites associative chains of additions and multiplications into balanced reduction trees.
+ * <p/>
+ * Each maximal chain of nested additions (or multiplications) is flattened into its list of operands, which is then
+ * reduced by a tree of additions (or multiplications) with at most {@link BalancingParams#fanOut} sub-expressions per
+ * node and logarithmic depth. Left-deep chains built incrementally (e.g. with {@link
+ * RealExprAddition#reAddUsrtd(RealExpression...)}) or by binary nesting thus become shallow trees, whose independent
+ * branches can be evaluated in parallel and whose rounding error grows logarithmically instead of linearly with the
+ * number of operands.
+ * <p/>
+ * If {@link BalancingParams#preserveOrder} is set, the operands keep their left-to-right order and every node is
+ * created without re-sorting, so the result (and its floating-point value) does not depend on the hash codes of the
+ * operands, which, for variables, differ from run to run. Otherwise, operands and nodes are sorted canonically.
+ * <p/>
+ * Shared sub-expressions are balanced only once. In particular, a chain node that is referenced more than once ends
+ * the chains it is part of and is balanced on its own, so that sharing within chains does not blow up the result.
+ * Chains are flattened iteratively, so arbitrarily deep chains can be balanced.
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public class VisitorRealExpressionBalancer
+		extends AbstractVisitorRealExpression<BalancingParams, RealExpression, RealExpression, Void> {
+	public static final class BalancingParams {
+		private final int fanOut;
+		private final boolean preserveOrder;
+
+		/**
+		 * Create a new parameter object for balancing.
+		 *
+		 * @param fanOut
+		 * 		maximum number of sub-expressions per addition or multiplication node in the result; must be at least 2
+		 * @param preserveOrder
+		 * 		whether to keep the left-to-right order of operands (instead of sorting them)
+		 * @throws java.lang.IllegalArgumentException
+		 * 		if {@code fanOut} is less than 2
+		 */
+		public BalancingParams(final int fanOut, final boolean preserveOrder) {
+			if (fanOut < 2) {
+				throw new IllegalArgumentException("Fan-out must be at least 2");
+			}
+			this.fanOut = fanOut;
+			this.preserveOrder = preserveOrder;
+		}
+	}
+
+	private static final Set<Class<? extends RealExpression>> SUPPORTED_TYPES = //
+			Collections.unmodifiableSet(new HashSet<>(Arrays.asList( //
+					RealConstant.class, //
+					RealVariable.class, //
+					RealExprAddition.class, //
+					RealExprMultiplication.class, //
+					RealExprNegation.class, //
+					RealExprReciprocal.class, //
+					RealExprReduction.class, //
+					RealExprFunction.class, //
+					RealExprPower.class, //
+					RealExprPiecewise.class, //
+					RealExprLinear.class)));
+
+	/**
+	 * Balance the given expression.
+	 *
+	 * @param rootExpression
+	 * 		the expression to balance; must be non-{@code null}
+	 * @param fanOut
+	 * 		maximum number of sub-expressions per addition or multiplication node; must be at least 2
+	 * @param preserveOrder
+	 * 		whether to keep the left-to-right order of operands
+	 * @return the balanced expression
+	 */
+	public static RealExpression balance(final RealExpression rootExpression, final int fanOut,
+			final boolean preserveOrder) {
+		return new VisitorRealExpressionBalancer(Objects.requireNonNull(rootExpression),
+				new BalancingParams(fanOut, preserveOrder)).evaluate();
+	}
+
+	/**
+	 * Already balanced sub-expressions; (re-)created for every evaluation run.
+	 */
+	private Map<RealExpression, RealExpression> balanced;
+	/**
+	 * Number of references to each sub-expression from its parents (by identity); (re-)created for every evaluation
+	 * run.
+	 */
+	private Map<RealExpression, Integer> referenceCounts;
+
+	public VisitorRealExpressionBalancer(final RealExpression rootExpression, final BalancingParams params) {
+		super(SUPPORTED_TYPES, rootExpression, params);
+	}
+
+	@Override
+	protected RealExpression doEvaluation() {
+		if (this.params == null) {
+			throw new IllegalArgumentException("Cannot balance expression without parameters (param)");
+		}
+		this.balanced = new IdentityHashMap<>();
+		this.referenceCounts = countReferences(this.rootExpression);
+		try {
+			return this.rootExpression.accept(this, null);
+		} finally {
+			this.balanced = null;
+			this.referenceCounts = null;
+		}
+	}
+
+	/**
+	 * Count the references to each sub-expression of the DAG rooted at {@code rootExpression}, iteratively and visiting
+	 * each shared sub-expression once.
+	 */
+	private static Map<RealExpression, Integer> countReferences(final RealExpression rootExpression) {
+		final Map<RealExpression, Integer> referenceCounts = new IdentityHashMap<>();
+		final ArrayDeque<RealExpression> pending = new ArrayDeque<>();
+		referenceCounts.put(rootExpression, 0);
+		pending.push(rootExpression);
+		while (!pending.isEmpty()) {
+			final RealExpression expression = pending.pop();
+			if (expression instanceof RealSuperExpression) {
+				for (final RealExpression subexpression : ((RealSuperExpression) expression).subexpressions) {
+					final Integer count = referenceCounts.get(subexpression);
+					referenceCounts.put(subexpression, (count == null) ? 1 : count + 1);
+					if (count == null) {
+						pending.push(subexpression);
+					}
+				}
+			}
+		}
+		return referenceCounts;
+	}
+
+	private RealExpression balanceSubexpression(final RealExpression subexpression) {
+		RealExpression result = this.balanced.get(subexpression);
+		if (result == null) {
+			result = subexpression.accept(this, null);
+			this.balanced.put(subexpression, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Collect the operands of the maximal chain of nodes of the given type rooted at {@code chain}, in left-to-right
+	 * order, and balance each of them. Shared chain nodes (other than {@code chain} itself) are not flattened, but
+	 * balanced once and used as a single operand.
+	 */
+	private List<RealExpression> flattenChain(final RealSuperExpression chain,
+			final Class<? extends RealSuperExpression> chainType) {
+		final List<RealExpression> operands = new ArrayList<>();
+		final ArrayDeque<RealExpression> pending = new ArrayDeque<>();
+		pending.push(chain);
+		while (!pending.isEmpty()) {
+			final RealExpression expression = pending.pop();
+			if (expression.getClass() == chainType &&
+					(expression == chain || this.referenceCounts.getOrDefault(expression, 0) <= 1)) {
+				final List<RealExpression> subexpressions = ((RealSuperExpression) expression).subexpressions;
+				for (int i = subexpressions.size() - 1; i >= 0; i--) {
+					pending.push(subexpressions.get(i));
+				}
+			} else {
+				operands.add(this.balanceSubexpression(expression));
+			}
+		}
+		if (!this.params.preserveOrder) {
+			operands.sort(RealExpression.COMPARATOR);
+		}
+		return operands;
+	}
+
+	/**
+	 * Reduce {@code operands[from:to]} with a tree of addition (or multiplication) nodes with at most {@code fanOut}
+	 * sub-expressions each, splitting the operands into contiguous groups of (almost) equal size.
+	 */
+	private RealExpression reduce(final List<RealExpression> operands, final int from, final int to,
+			final boolean addition) {
+		final int count = to - from;
+		final List<RealExpression> subexpressions;
+		if (count <= this.params.fanOut) {
+			subexpressions = operands.subList(from, to);
+		} else {
+			final int groups = this.params.fanOut;
+			subexpressions = new ArrayList<>(groups);
+			for (int g = 0; g < groups; g++) {
+				final int groupFrom = from + (int) ((long) count * g / groups);
+				final int groupTo = from + (int) ((long) count * (g + 1) / groups);
+				subexpressions.add(groupTo - groupFrom == 1 ? operands.get(groupFrom) :
+						this.reduce(operands, groupFrom, groupTo, addition));
+			}
+		}
+		if (this.params.preserveOrder) {
+			return addition ? reAddUsrtd(subexpressions) : reMultUsrtd(subexpressions);
+		} else {
+			return addition ? reAdd(subexpressions) : reMult(subexpressions);
+		}
+	}
+
+	/**
+	 * Check whether {@code chain} already is the balanced reduction of {@code operands}, i.e. a single node that
+	 * contains exactly these operands (by identity and in this order) and does not exceed the fan-out.
+	 */
+	private boolean isUnchanged(final RealSuperExpression chain, final List<RealExpression> operands) {
+		final List<RealExpression> subexpressions = chain.subexpressions;
+		if (operands.size() == 1 || operands.size() > this.params.fanOut || operands.size() != subexpressions.size()) {
+			return false;
+		}
+		for (int i = 0; i < operands.size(); i++) {
+			if (operands.get(i) != subexpressions.get(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public RealExpression visit(final RealConstant realConstant, final Void state) {
+		return realConstant;
+	}
+
+	@Override
+	public RealExpression visit(final RealVariable realVariable, final Void state) {
+		return realVariable;
+	}
+
+	@Override
+	public RealExpression visit(final RealExprAddition realExprAddition, final Void state) {
+		final List<RealExpression> operands = this.flattenChain(realExprAddition, RealExprAddition.class);
+		if (this.isUnchanged(realExprAddition, operands)) {
+			return realExprAddition;
+		}
+		return operands.size() == 1 ? operands.get(0) : this.reduce(operands, 0, operands.size(), /*addition=*/true);
+	}
+
+	@Override
+	public RealExpression visit(final RealExprMultiplication realExprMultiplication, final Void state) {
+		final List<RealExpression> operands = this.flattenChain(realExprMultiplication, RealExprMultiplication.class);
+		if (this.isUnchanged(realExprMultiplication, operands)) {
+			return realExprMultiplication;
+		}
+		return operands.size() == 1 ? operands.get(0) : this.reduce(operands, 0, operands.size(), /*addition=*/false);
+	}
+
+	@Override
+	public RealExpression visit(final RealExprNegation realExprNegation, final Void state) {
+		final RealExpression subexpression = realExprNegation.subexpressions.get(0);
+		final RealExpression balanced = this.balanceSubexpression(subexpression);
+		return balanced == subexpression ? realExprNegation : reNeg(balanced);
+	}
+
+	@Override
+	public RealExpression visit(final RealExprReciprocal realExprReciprocal, final Void state) {
+		final RealExpression subexpression = realExprReciprocal.subexpressions.get(0);
+		final RealExpression balanced = this.balanceSubexpression(subexpression);
+		return balanced == subexpression ? realExprReciprocal : reRecip(balanced);
+	}
+
+	@Override
+	public RealExpression visit(final RealExprReduction realExprReduction, final Void state) {
+		final RealExpression balanced = this.balanceSubexpression(realExprReduction.body);
+		return balanced == realExprReduction.body ? realExprReduction : realExprReduction.withBody(balanced);
+	}
+
+	@Override
+	public RealExpression visit(final RealExprFunction realExprFunction, final Void state) {
+		final RealExpression subexpression = realExprFunction.subexpressions.get(0);
+		final RealExpression balanced = this.balanceSubexpression(subexpression);
+		return balanced == subexpression ? realExprFunction : new RealExprFunction(realExprFunction.function, balanced);
+	}
+
+	@Override
+	public RealExpression visit(final RealExprPower realExprPower, final Void state) {
+		final RealExpression base = this.balanceSubexpression(realExprPower.getBase());
+		final RealExpression exponent = this.balanceSubexpression(realExprPower.getExponent());
+		return base == realExprPower.getBase() && exponent == realExprPower.getExponent() ? realExprPower :
+				rePow(base, exponent);
+	}
+
+	@Override
+	public RealExpression visit(final RealExprPiecewise realExprPiecewise, final Void state) {
+		final List<RealExpression> subexpressions = realExprPiecewise.subexpressions;
+		final RealExpression[] balanced = new RealExpression[subexpressions.size()];
+		boolean changed = false;
+		for (int i = 0; i < balanced.length; i++) {
+			balanced[i] = this.balanceSubexpression(subexpressions.get(i));
+			changed |= balanced[i] != subexpressions.get(i);
+		}
+		return changed ? new RealExprPiecewise(realExprPiecewise.kind, balanced) : realExprPiecewise;
+	}
+
+	@Override
+	public RealExpression visit(final RealExprLinear realExprLinear, final Void state) {
+		final List<RealExpression> terms = realExprLinear.subexpressions;
+		final List<RealExpression> balanced = new ArrayList<>(terms.size());
+		final double[] coefficients = new double[terms.size()];
+		boolean changed = false;
+		for (int i = 0; i < coefficients.length; i++) {
+			balanced.add(this.balanceSubexpression(terms.get(i)));
+			coefficients[i] = realExprLinear.getCoefficient(i);
+			changed |= balanced.get(i) != terms.get(i);
+		}
+		return changed ? reLinear(realExprLinear.constant, coefficients, balanced) : realExprLinear;
+	}
+}
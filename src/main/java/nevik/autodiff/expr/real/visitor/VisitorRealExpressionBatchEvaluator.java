@@ -0,0 +1,383 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.visitor;
+
+import nevik.autodiff.expr.real.RealAssignment;
+import nevik.autodiff.expr.real.RealConstant;
+import nevik.autodiff.expr.real.RealExprAddition;
+import nevik.autodiff.expr.real.RealExprFunction;
+import nevik.autodiff.expr.real.RealExprLinear;
+import nevik.autodiff.expr.real.RealExprMultiplication;
+import nevik.autodiff.expr.real.RealExprNegation;
+import nevik.autodiff.expr.real.RealExprPiecewise;
+import nevik.autodiff.expr.real.RealExprPower;
+import nevik.autodiff.expr.real.RealExprReciprocal;
+import nevik.autodiff.expr.real.RealExprReduction;
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import nevik.autodiff.expr.real.visitor.VisitorRealExpressionBatchEvaluator.BatchEvaluationParams;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Visitor that numerically evaluates an expression for a whole batch of rows at once.
+ * <p/>
+ * The variables of the expression are split into per-row variables, whose values are given as one column (i.e. one
+ * {@code double[]} with an entry per row) per variable, and per-batch variables, whose values are constant across the
+ * whole batch and are given as a {@link RealAssignment}. Every sub-expression that does not depend on any per-row
+ * variable (as determined by {@link RealExpression#getVariables()}) is evaluated only once per batch and then
+ * broadcast to all rows, so only the row-dependent part of the expression is evaluated per row.
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public class VisitorRealExpressionBatchEvaluator
+		extends AbstractVisitorRealExpression<BatchEvaluationParams, double[], double[], Void> {
+	public static final class BatchEvaluationParams {
+		private final Map<RealVariable, double[]> rowValues;
+		private final RealAssignment batchValues;
+		private final int rowCount;
+
+		/**
+		 * Create a new parameter object for batch evaluation.
+		 *
+		 * @param rowValues
+		 * 		one column of values per per-row variable; each column must contain at least {@code rowCount} values
+		 * @param batchValues
+		 * 		values of the per-batch variables, i.e. variables that are constant across the batch
+		 * @param rowCount
+		 * 		number of rows in the batch
+		 * @throws java.lang.NullPointerException
+		 * 		if {@code rowValues} or {@code batchValues} is {@code null}
+		 * @throws java.lang.IllegalArgumentException
+		 * 		if {@code rowCount} is negative or any column contains less than {@code rowCount} values
+		 */
+		public BatchEvaluationParams(final Map<RealVariable, double[]> rowValues, final RealAssignment batchValues,
+				final int rowCount) {
+			if (rowCount < 0) {
+				throw new IllegalArgumentException("Row count may not be negative");
+			}
+			for (final Entry<RealVariable, double[]> entry : rowValues.entrySet()) {
+				if (entry.getValue().length < rowCount) {
+					throw new IllegalArgumentException("Column of variable " + entry.getKey() + " contains less than "
+							+ rowCount + " values");
+				}
+			}
+			this.rowValues = rowValues;
+			this.batchValues = Objects.requireNonNull(batchValues);
+			this.rowCount = rowCount;
+		}
+	}
+
+	private static final Set<Class<? extends RealExpression>> SUPPORTED_TYPES = //
+			Collections.unmodifiableSet(new HashSet<>(Arrays.asList( //
+					RealConstant.class, //
+					RealVariable.class, //
+					RealExprAddition.class, //
+					RealExprMultiplication.class, //
+					RealExprNegation.class, //
+					RealExprReciprocal.class, //
+					RealExprReduction.class, //
+					RealExprFunction.class, //
+					RealExprPower.class, //
+					RealExprPiecewise.class, //
+					RealExprLinear.class)));
+
+	/**
+	 * Evaluate the given expression for a batch of rows.
+	 *
+	 * @param rootExpression
+	 * 		the expression to evaluate; must be non-{@code null}
+	 * @param rowValues
+	 * 		one column of values per per-row variable
+	 * @param batchValues
+	 * 		values of the per-batch variables
+	 * @param rowCount
+	 * 		number of rows in the batch
+	 * @return a new array containing the value of {@code rootExpression} for each row
+	 */
+	public static double[] evaluateBatch(final RealExpression rootExpression,
+			final Map<RealVariable, double[]> rowValues, final RealAssignment batchValues, final int rowCount) {
+		return new VisitorRealExpressionBatchEvaluator(Objects.requireNonNull(rootExpression),
+				new BatchEvaluationParams(rowValues, batchValues, rowCount)).evaluate();
+	}
+
+	/**
+	 * Evaluator for the row-invariant sub-expressions; (re-)created for every evaluation run.
+	 */
+	private VisitorRealExpressionEvaluator invariantEvaluator;
+
+	public VisitorRealExpressionBatchEvaluator(final RealExpression rootExpression,
+			final BatchEvaluationParams params) {
+		super(SUPPORTED_TYPES, rootExpression, params);
+	}
+
+	@Override
+	protected double[] doEvaluation() {
+		if (this.params == null) {
+			throw new IllegalArgumentException("Cannot evaluate expression without batch values (param)");
+		}
+		this.invariantEvaluator = new VisitorRealExpressionEvaluator(this.rootExpression, this.params.batchValues);
+		if (isRowInvariant(this.rootExpression)) {
+			final double[] result = new double[this.params.rowCount];
+			Arrays.fill(result, this.evaluateInvariant(this.rootExpression));
+			return result;
+		}
+		if (this.rootExpression instanceof RealVariable) {
+			// do not hand out the caller's column
+			return Arrays.copyOf(this.params.rowValues.get(this.rootExpression), this.params.rowCount);
+		}
+		return this.rootExpression.accept(this, null);
+	}
+
+	/**
+	 * Check whether the given expression is constant across all rows of the batch, i.e. whether it does not depend on
+	 * any per-row variable.
+	 */
+	private boolean isRowInvariant(final RealExpression expression) {
+		return Collections.disjoint(expression.getVariables(), this.params.rowValues.keySet());
+	}
+
+	private double evaluateInvariant(final RealExpression expression) {
+		return expression.accept(this.invariantEvaluator, null);
+	}
+
+	// The visit(...) methods below are only ever called for expressions that are *not* row-invariant. They return a
+	// column of values with (at least) one entry per row. Returned columns may be shared with the caller (in the case
+	// of variables) and must therefore never be modified.
+
+	@Override
+	public double[] visit(final RealConstant realConstant, final Void state) {
+		// constants are always row-invariant
+		throw new IllegalStateException();
+	}
+
+	@Override
+	public double[] visit(final RealVariable realVariable, final Void state) {
+		return this.params.rowValues.get(realVariable);
+	}
+
+	@Override
+	public double[] visit(final RealExprAddition realExprAddition, final Void state) {
+		final int rowCount = this.params.rowCount;
+		final double[] result = new double[rowCount];
+		double invariantSum = 0;
+		final List<RealExpression> subexpressions = realExprAddition.subexpressions;
+		for (int i = 0, n = subexpressions.size(); i < n; i++) {
+			final RealExpression subexpression = subexpressions.get(i);
+			if (isRowInvariant(subexpression)) {
+				invariantSum += this.evaluateInvariant(subexpression);
+			} else {
+				final double[] column = subexpression.accept(this, null);
+				for (int row = 0; row < rowCount; row++) {
+					result[row] += column[row];
+				}
+			}
+		}
+		if (invariantSum != 0) {
+			for (int row = 0; row < rowCount; row++) {
+				result[row] += invariantSum;
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public double[] visit(final RealExprMultiplication realExprMultiplication, final Void state) {
+		final int rowCount = this.params.rowCount;
+		final double[] result = new double[rowCount];
+		double invariantProduct = 1;
+		Arrays.fill(result, 1.0);
+		final List<RealExpression> subexpressions = realExprMultiplication.subexpressions;
+		for (int i = 0, n = subexpressions.size(); i < n; i++) {
+			final RealExpression subexpression = subexpressions.get(i);
+			if (isRowInvariant(subexpression)) {
+				invariantProduct *= this.evaluateInvariant(subexpression);
+			} else {
+				final double[] column = subexpression.accept(this, null);
+				for (int row = 0; row < rowCount; row++) {
+					result[row] *= column[row];
+				}
+			}
+		}
+		if (invariantProduct != 1) {
+			for (int row = 0; row < rowCount; row++) {
+				result[row] *= invariantProduct;
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public double[] visit(final RealExprNegation realExprNegation, final Void state) {
+		final int rowCount = this.params.rowCount;
+		final double[] column = realExprNegation.subexpressions.get(0).accept(this, null);
+		final double[] result = new double[rowCount];
+		for (int row = 0; row < rowCount; row++) {
+			result[row] = -column[row];
+		}
+		return result;
+	}
+
+	@Override
+	public double[] visit(final RealExprReciprocal realExprReciprocal, final Void state) {
+		final int rowCount = this.params.rowCount;
+		final double[] column = realExprReciprocal.subexpressions.get(0).accept(this, null);
+		final double[] result = new double[rowCount];
+		for (int row = 0; row < rowCount; row++) {
+			result[row] = 1.0 / column[row];
+		}
+		return result;
+	}
+
+	@Override
+	public double[] visit(final RealExprReduction realExprReduction, final Void state) {
+		// a reduction that depends on per-row variables of this batch is a nested reduction; evaluate it row by row
+		final int rowCount = this.params.rowCount;
+		final double[] result = new double[rowCount];
+		final RealAssignment rowAssignment = new RealAssignment(this.params.batchValues);
+		for (int row = 0; row < rowCount; row++) {
+			for (final Entry<RealVariable, double[]> entry : this.params.rowValues.entrySet()) {
+				rowAssignment.put(entry.getKey(), entry.getValue()[row]);
+			}
+			result[row] = ReductionEvaluation.value(realExprReduction, rowAssignment);
+		}
+		return result;
+	}
+
+	@Override
+	public double[] visit(final RealExprFunction realExprFunction, final Void state) {
+		final int rowCount = this.params.rowCount;
+		final double[] column = realExprFunction.subexpressions.get(0).accept(this, null);
+		final double[] result = new double[rowCount];
+		final RealExprFunction.Function function = realExprFunction.function;
+		for (int row = 0; row < rowCount; row++) {
+			result[row] = function.apply(column[row]);
+		}
+		return result;
+	}
+
+	@Override
+	public double[] visit(final RealExprPower realExprPower, final Void state) {
+		final int rowCount = this.params.rowCount;
+		final double[] result = new double[rowCount];
+		final RealExpression base = realExprPower.getBase(), exponent = realExprPower.getExponent();
+		if (isRowInvariant(exponent)) {
+			final double[] baseColumn = base.accept(this, null);
+			final double exponentValue = this.evaluateInvariant(exponent);
+			for (int row = 0; row < rowCount; row++) {
+				result[row] = RealExprPower.power(baseColumn[row], exponentValue);
+			}
+		} else if (isRowInvariant(base)) {
+			final double baseValue = this.evaluateInvariant(base);
+			final double[] exponentColumn = exponent.accept(this, null);
+			for (int row = 0; row < rowCount; row++) {
+				result[row] = RealExprPower.power(baseValue, exponentColumn[row]);
+			}
+		} else {
+			final double[] baseColumn = base.accept(this, null);
+			final double[] exponentColumn = exponent.accept(this, null);
+			for (int row = 0; row < rowCount; row++) {
+				result[row] = RealExprPower.power(baseColumn[row], exponentColumn[row]);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public double[] visit(final RealExprPiecewise realExprPiecewise, final Void state) {
+		// all operands are evaluated for all rows, and the rows are then combined without branches (min/max/abs are
+		// intrinsics, select is a blend), so that the loops below can be vectorized
+		final int rowCount = this.params.rowCount;
+		final List<RealExpression> subexpressions = realExprPiecewise.subexpressions;
+		final double[] first = this.operandColumn(subexpressions.get(0));
+		final double[] result = new double[rowCount];
+		switch (realExprPiecewise.kind) {
+			case MIN: {
+				final double[] second = this.operandColumn(subexpressions.get(1));
+				for (int row = 0; row < rowCount; row++) {
+					result[row] = Math.min(first[row], second[row]);
+				}
+				break;
+			}
+			case MAX: {
+				final double[] second = this.operandColumn(subexpressions.get(1));
+				for (int row = 0; row < rowCount; row++) {
+					result[row] = Math.max(first[row], second[row]);
+				}
+				break;
+			}
+			case ABS:
+				for (int row = 0; row < rowCount; row++) {
+					result[row] = Math.abs(first[row]);
+				}
+				break;
+			default: {
+				final double[] second = this.operandColumn(subexpressions.get(1));
+				final double[] third = this.operandColumn(subexpressions.get(2));
+				for (int row = 0; row < rowCount; row++) {
+					result[row] = RealExprPiecewise.select(first[row], second[row], third[row]);
+				}
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public double[] visit(final RealExprLinear realExprLinear, final Void state) {
+		final int rowCount = this.params.rowCount;
+		final double[] result = new double[rowCount];
+		double invariantSum = realExprLinear.constant;
+		final List<RealExpression> terms = realExprLinear.subexpressions;
+		for (int i = 0, n = terms.size(); i < n; i++) {
+			final RealExpression term = terms.get(i);
+			final double coefficient = realExprLinear.getCoefficient(i);
+			if (isRowInvariant(term)) {
+				invariantSum += coefficient * this.evaluateInvariant(term);
+			} else {
+				final double[] column = term.accept(this, null);
+				for (int row = 0; row < rowCount; row++) {
+					result[row] += coefficient * column[row];
+				}
+			}
+		}
+		if (invariantSum != 0) {
+			for (int row = 0; row < rowCount; row++) {
+				result[row] += invariantSum;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the column of values of the given operand, broadcasting it if it is row-invariant
+	 */
+	private double[] operandColumn(final RealExpression operand) {
+		if (isRowInvariant(operand)) {
+			final double[] column = new double[this.params.rowCount];
+			Arrays.fill(column, this.evaluateInvariant(operand));
+			return column;
+		}
+		return operand.accept(this, null);
+	}
+}
@@ -0,0 +1,298 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.visitor;
+
+import nevik.autodiff.expr.real.RealConstant;
+import nevik.autodiff.expr.real.RealExprAddition;
+import nevik.autodiff.expr.real.RealExprFunction;
+import nevik.autodiff.expr.real.RealExprLinear;
+import nevik.autodiff.expr.real.RealExprMultiplication;
+import nevik.autodiff.expr.real.RealExprNegation;
+import nevik.autodiff.expr.real.RealExprPiecewise;
+import nevik.autodiff.expr.real.RealExprPower;
+import nevik.autodiff.expr.real.RealExprReciprocal;
+import nevik.autodiff.expr.real.RealExprReduction;
+import nevik.autodiff.expr.real.RealExprReduction.Kind;
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static nevik.autodiff.expr.real.RealConstant.ONE;
+import static nevik.autodiff.expr.real.RealConstant.ZERO;
+import static nevik.autodiff.expr.real.RealConstant.reCons;
+import static nevik.autodiff.expr.real.RealExprAddition.reAdd;
+import static nevik.autodiff.expr.real.RealExprFunction.reCos;
+import static nevik.autodiff.expr.real.RealExprFunction.reLog;
+import static nevik.autodiff.expr.real.RealExprFunction.reSin;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMult;
+import static nevik.autodiff.expr.real.RealExprNegation.reNeg;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reAbs;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reSelect;
+import static nevik.autodiff.expr.real.RealExprPower.rePow;
+import static nevik.autodiff.expr.real.RealExprReciprocal.reRecip;
+
+/**
+ * Visitor that symbolically differentiates an expression w.r.t. one variable (given as the param).
+ * <p/>
+ * Sub-expressions that do not depend on the variable are not visited, and their (zero) derivative is omitted from the
+ * result. The result is not simplified otherwise; use {@link VisitorRealExpressionSimplifier} for that.
+ * <p/>
+ * Sum and mean reductions are differentiated row by row. Product reductions that depend on the variable cannot be
+ * differentiated symbolically (their numeric derivatives are computed by {@link VisitorRealExpressionGradient}).
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public class VisitorRealExpressionDerivative
+		extends AbstractVisitorRealExpression<RealVariable, RealExpression, RealExpression, Void> {
+	private static final Set<Class<? extends RealExpression>> SUPPORTED_TYPES = //
+			Collections.unmodifiableSet(new HashSet<>(Arrays.asList( //
+					RealConstant.class, //
+					RealVariable.class, //
+					RealExprAddition.class, //
+					RealExprMultiplication.class, //
+					RealExprNegation.class, //
+					RealExprReciprocal.class, //
+					RealExprReduction.class, //
+					RealExprFunction.class, //
+					RealExprPower.class, //
+					RealExprPiecewise.class, //
+					RealExprLinear.class)));
+
+	/**
+	 * Differentiate the given expression w.r.t. the given variable.
+	 *
+	 * @param rootExpression
+	 * 		the expression to differentiate; must be non-{@code null}
+	 * @param variable
+	 * 		the variable w.r.t. which to differentiate; must be non-{@code null}
+	 * @return the (unsimplified) derivative of {@code rootExpression}
+	 */
+	public static RealExpression derive(final RealExpression rootExpression, final RealVariable variable) {
+		return new VisitorRealExpressionDerivative(Objects.requireNonNull(rootExpression),
+				Objects.requireNonNull(variable)).evaluate();
+	}
+
+	/**
+	 * Differentiate the given expression w.r.t. each of the given variables. Only the sub-expressions that depend on
+	 * the respective variable are visited, so the cost depends on the parts of the expression that depend on {@code
+	 * variables} rather than on the whole expression.
+	 *
+	 * @param rootExpression
+	 * 		the expression to differentiate; must be non-{@code null}
+	 * @param variables
+	 * 		the variables w.r.t. which to differentiate; must be non-{@code null} and contain no {@code null} entries
+	 * @return a new map containing the (unsimplified) derivative of {@code rootExpression} w.r.t. each of {@code
+	 * variables}, in the iteration order of {@code variables}
+	 */
+	public static Map<RealVariable, RealExpression> derive(final RealExpression rootExpression,
+			final Collection<RealVariable> variables) {
+		final VisitorRealExpressionDerivative visitor =
+				new VisitorRealExpressionDerivative(Objects.requireNonNull(rootExpression), null);
+		final Map<RealVariable, RealExpression> derivatives = new LinkedHashMap<>();
+		for (final RealVariable variable : variables) {
+			derivatives.put(variable, visitor.evaluate(Objects.requireNonNull(variable)));
+		}
+		return derivatives;
+	}
+
+	public VisitorRealExpressionDerivative(final RealExpression rootExpression, final RealVariable params) {
+		super(SUPPORTED_TYPES, rootExpression, params);
+	}
+
+	@Override
+	protected RealExpression doEvaluation() {
+		if (this.params == null) {
+			throw new IllegalArgumentException("Cannot differentiate expression without a variable (param)");
+		}
+		return this.derivative(this.rootExpression);
+	}
+
+	private boolean dependsOnVariable(final RealExpression expression) {
+		return expression.getVariables().contains(this.params);
+	}
+
+	private RealExpression derivative(final RealExpression expression) {
+		return this.dependsOnVariable(expression) ? expression.accept(this, null) : ZERO;
+	}
+
+	@Override
+	public RealExpression visit(final RealConstant realConstant, final Void state) {
+		return ZERO;
+	}
+
+	@Override
+	public RealExpression visit(final RealVariable realVariable, final Void state) {
+		return realVariable == this.params ? ONE : ZERO;
+	}
+
+	@Override
+	public RealExpression visit(final RealExprAddition realExprAddition, final Void state) {
+		final List<RealExpression> summands = new ArrayList<>();
+		for (final RealExpression subexpression : realExprAddition.subexpressions) {
+			if (this.dependsOnVariable(subexpression)) {
+				summands.add(subexpression.accept(this, null));
+			}
+		}
+		return summands.isEmpty() ? ZERO : summands.size() == 1 ? summands.get(0) : reAdd(summands);
+	}
+
+	@Override
+	public RealExpression visit(final RealExprMultiplication realExprMultiplication, final Void state) {
+		// product rule: d(f_1 * ... * f_n) = sum_i (df_i * prod_{j!=i} f_j)
+		final List<RealExpression> factors = realExprMultiplication.subexpressions;
+		final List<RealExpression> summands = new ArrayList<>();
+		for (int i = 0, n = factors.size(); i < n; i++) {
+			if (this.dependsOnVariable(factors.get(i))) {
+				final List<RealExpression> summandFactors = new ArrayList<>(factors);
+				summandFactors.set(i, factors.get(i).accept(this, null));
+				summands.add(reMult(summandFactors));
+			}
+		}
+		return summands.isEmpty() ? ZERO : summands.size() == 1 ? summands.get(0) : reAdd(summands);
+	}
+
+	@Override
+	public RealExpression visit(final RealExprNegation realExprNegation, final Void state) {
+		return reNeg(this.derivative(realExprNegation.subexpressions.get(0)));
+	}
+
+	@Override
+	public RealExpression visit(final RealExprReciprocal realExprReciprocal, final Void state) {
+		// d(1/f) = -df / f^2
+		final RealExpression subexpression = realExprReciprocal.subexpressions.get(0);
+		return reNeg(reMult(this.derivative(subexpression), realExprReciprocal, realExprReciprocal));
+	}
+
+	@Override
+	public RealExpression visit(final RealExprReduction realExprReduction, final Void state) {
+		if (realExprReduction.kind == Kind.PRODUCT) {
+			// d(prod_i f_i) = sum_i (df_i * prod_{j!=i} f_j) is not a reduction over single rows, and rewriting it as
+			// prod_i f_i * sum_i (df_i / f_i) is NaN wherever a row's value is zero
+			throw new UnsupportedOperationException("Cannot differentiate product reductions symbolically; use "
+					+ "VisitorRealExpressionGradient for their numeric derivatives");
+		}
+		// the row variables are bound by the reduction, so the variable must be free in it if we get here
+		// d(sum_i f_i) = sum_i df_i, and likewise for the mean
+		return realExprReduction.withBody(this.derivative(realExprReduction.body));
+	}
+
+	@Override
+	public RealExpression visit(final RealExprFunction realExprFunction, final Void state) {
+		// chain rule: d(f(g)) = f'(g) * dg
+		final RealExpression subexpression = realExprFunction.subexpressions.get(0);
+		final RealExpression subDerivative = this.derivative(subexpression);
+		switch (realExprFunction.function) {
+			case EXP:
+				return reMult(realExprFunction, subDerivative);
+			case LOG:
+				return reMult(subDerivative, reRecip(subexpression));
+			case SQRT:
+				return reMult(reCons(0.5), subDerivative, reRecip(realExprFunction));
+			case SIN:
+				return reMult(reCos(subexpression), subDerivative);
+			case COS:
+				return reNeg(reMult(reSin(subexpression), subDerivative));
+			case TANH:
+				return reMult(reAdd(ONE, reNeg(reMult(realExprFunction, realExprFunction))), subDerivative);
+			default:
+				throw new UnsupportedOperationException("Unknown function " + realExprFunction.function);
+		}
+	}
+
+	@Override
+	public RealExpression visit(final RealExprPower realExprPower, final Void state) {
+		final RealExpression base = realExprPower.getBase(), exponent = realExprPower.getExponent();
+		final RealExpression baseDerivative = nonZeroOnly(exponent,
+				reMult(exponent, rePow(base, reAdd(exponent, reNeg(ONE))), this.derivative(base)));
+		if (!this.dependsOnVariable(exponent)) {
+			// d(f^c) = c * f^(c-1) * df
+			return baseDerivative;
+		}
+		// d(f^g) = g * f^(g-1) * df + f^g * log(f) * dg
+		final RealExpression exponentDerivative = nonZeroOnly(base instanceof RealConstant ? base : realExprPower,
+				reMult(realExprPower, reLog(base), this.derivative(exponent)));
+		return this.dependsOnVariable(base) ? reAdd(baseDerivative, exponentDerivative) : exponentDerivative;
+	}
+
+	/**
+	 * Restrict a term of the derivative of a power to where the given factor of it is non-zero, so that it is zero
+	 * rather than NaN (from 0 * infinity) where the base is zero.
+	 *
+	 * @return {@code term} if {@code factor} is a non-zero constant, zero if it is the constant zero, and a selection
+	 * between {@code term} and zero depending on the value of {@code factor} otherwise
+	 */
+	private static RealExpression nonZeroOnly(final RealExpression factor, final RealExpression term) {
+		if (factor instanceof RealConstant) {
+			return ((RealConstant) factor).value == 0 ? ZERO : term;
+		}
+		return reSelect(reAbs(factor), term, ZERO);
+	}
+
+	@Override
+	public RealExpression visit(final RealExprPiecewise realExprPiecewise, final Void state) {
+		// subgradient: the derivative of the active operand, i.e. of the first operand at ties of min and max, and zero
+		// for abs at zero; the condition of select does not contribute
+		final List<RealExpression> subexpressions = realExprPiecewise.subexpressions;
+		final RealExpression first = subexpressions.get(0);
+		switch (realExprPiecewise.kind) {
+			case MIN: {
+				final RealExpression second = subexpressions.get(1);
+				return reSelect(reAdd(first, reNeg(second)), this.derivative(second), this.derivative(first));
+			}
+			case MAX: {
+				final RealExpression second = subexpressions.get(1);
+				return reSelect(reAdd(second, reNeg(first)), this.derivative(second), this.derivative(first));
+			}
+			case ABS: {
+				final RealExpression subDerivative = this.derivative(first);
+				return reSelect(first, subDerivative, reSelect(reNeg(first), reNeg(subDerivative), ZERO));
+			}
+			default:
+				return reSelect(first, this.derivative(subexpressions.get(1)), this.derivative(subexpressions.get(2)));
+		}
+	}
+
+	@Override
+	public RealExpression visit(final RealExprLinear realExprLinear, final Void state) {
+		// d(c_0 + sum_i c_i*t_i) = sum_i c_i*dt_i, where the derivative of a variable term is constant
+		final List<RealExpression> terms = realExprLinear.subexpressions;
+		final List<RealExpression> summands = new ArrayList<>();
+		double constant = 0;
+		for (int i = 0, n = terms.size(); i < n; i++) {
+			final RealExpression term = terms.get(i);
+			if (term == this.params) {
+				constant += realExprLinear.getCoefficient(i);
+			} else if (this.dependsOnVariable(term)) {
+				summands.add(reMult(reCons(realExprLinear.getCoefficient(i)), term.accept(this, null)));
+			}
+		}
+		if (constant != 0 || summands.isEmpty()) {
+			summands.add(reCons(constant));
+		}
+		return summands.size() == 1 ? summands.get(0) : reAdd(summands);
+	}
+}
@@ -0,0 +1,354 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.visitor;
+
+import nevik.autodiff.expr.real.RealAssignment;
+import nevik.autodiff.expr.real.RealConstant;
+import nevik.autodiff.expr.real.RealExprAddition;
+import nevik.autodiff.expr.real.RealExprFunction;
+import nevik.autodiff.expr.real.RealExprLinear;
+import nevik.autodiff.expr.real.RealExprMultiplication;
+import nevik.autodiff.expr.real.RealExprNegation;
+import nevik.autodiff.expr.real.RealExprPiecewise;
+import nevik.autodiff.expr.real.RealExprPower;
+import nevik.autodiff.expr.real.RealExprReciprocal;
+import nevik.autodiff.expr.real.RealExprReduction;
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Visitor that numerically evaluates an expression for a given {@link RealAssignment} of its variables.
+ * <p/>
+ * If created with a {@link ForkJoinPool}, additions and multiplications with at least {@code parallelThreshold}
+ * sub-expressions are evaluated in parallel: the range of sub-expressions is split in halves until each part contains
+ * at most {@code parallelThreshold} sub-expressions, each part is evaluated sequentially, and the partial results are
+ * combined pairwise along the same fixed splitting tree. The result thus depends only on the expression and the
+ * threshold, but not on the number of threads (though it may differ from sequential evaluation in the last bits).
+ * <p/>
+ * Evaluators used by other visitors to look up the values of many sub-expressions of the same expression cache the
+ * value of every non-leaf sub-expression they evaluate, by identity, so that every node is evaluated at most once
+ * (see {@link #value(RealExpression)}).
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public class VisitorRealExpressionEvaluator
+		extends AbstractVisitorRealExpression<RealAssignment, Double, Double, Void> {
+	private static final Set<Class<? extends RealExpression>> SUPPORTED_TYPES = //
+			Collections.unmodifiableSet(new HashSet<>(Arrays.asList( //
+					RealConstant.class, //
+					RealVariable.class, //
+					RealExprAddition.class, //
+					RealExprMultiplication.class, //
+					RealExprNegation.class, //
+					RealExprReciprocal.class, //
+					RealExprReduction.class, //
+					RealExprFunction.class, //
+					RealExprPower.class, //
+					RealExprPiecewise.class, //
+					RealExprLinear.class)));
+
+	/**
+	 * Evaluate the given expression for the given assignment.
+	 *
+	 * @param rootExpression
+	 * 		the expression to evaluate; must be non-{@code null}
+	 * @param assignment
+	 * 		values of the variables; must be non-{@code null} and contain all variables of {@code rootExpression}
+	 * @return the value of {@code rootExpression}
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code assignment} does not contain a value for a variable occurring in {@code rootExpression}
+	 */
+	public static double evaluateExpression(final RealExpression rootExpression, final RealAssignment assignment) {
+		return new VisitorRealExpressionEvaluator(Objects.requireNonNull(rootExpression),
+				Objects.requireNonNull(assignment)).evaluate();
+	}
+
+	/**
+	 * Evaluate the given expression for the given assignment, evaluating wide additions and multiplications in
+	 * parallel in the given pool.
+	 *
+	 * @param rootExpression
+	 * 		the expression to evaluate; must be non-{@code null}
+	 * @param assignment
+	 * 		values of the variables; must be non-{@code null} and contain all variables of {@code rootExpression}
+	 * @param pool
+	 * 		pool in which to evaluate wide nodes; must be non-{@code null}
+	 * @param parallelThreshold
+	 * 		minimum number of sub-expressions of nodes that are evaluated in parallel, and maximum number of
+	 * 		sub-expressions evaluated sequentially in one task; must be at least 2
+	 * @return the value of {@code rootExpression}
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code assignment} does not contain a value for a variable occurring in {@code rootExpression}
+	 */
+	public static double evaluateExpression(final RealExpression rootExpression, final RealAssignment assignment,
+			final ForkJoinPool pool, final int parallelThreshold) {
+		return new VisitorRealExpressionEvaluator(Objects.requireNonNull(rootExpression),
+				Objects.requireNonNull(assignment), Objects.requireNonNull(pool), parallelThreshold).evaluate();
+	}
+
+	/**
+	 * Run the given task in the given pool, or directly if the current thread already is a worker of that pool.
+	 */
+	static <T> T invoke(final ForkJoinPool pool, final ForkJoinTask<T> task) {
+		return ForkJoinTask.getPool() == pool ? task.invoke() : pool.invoke(task);
+	}
+
+	private final ForkJoinPool pool;
+	private final int parallelThreshold;
+	/**
+	 * Values of the non-leaf sub-expressions evaluated so far, by identity; {@code null} if values are not cached. Only
+	 * used by the thread that runs the evaluation: the tasks of parallel nodes cache values in their own maps.
+	 */
+	private final Map<RealExpression, Double> values;
+
+	public VisitorRealExpressionEvaluator(final RealExpression rootExpression, final RealAssignment params) {
+		super(SUPPORTED_TYPES, rootExpression, params);
+		this.pool = null;
+		this.parallelThreshold = Integer.MAX_VALUE;
+		this.values = null;
+	}
+
+	/**
+	 * Create a new evaluator that evaluates wide additions and multiplications in parallel in the given pool.
+	 *
+	 * @param pool
+	 * 		pool in which to evaluate wide nodes; may be {@code null} for sequential evaluation
+	 * @param parallelThreshold
+	 * 		minimum number of sub-expressions of nodes that are evaluated in parallel, and maximum number of
+	 * 		sub-expressions evaluated sequentially in one task; must be at least 2
+	 */
+	public VisitorRealExpressionEvaluator(final RealExpression rootExpression, final RealAssignment params,
+			final ForkJoinPool pool, final int parallelThreshold) {
+		this(rootExpression, params, pool, parallelThreshold, null);
+	}
+
+	/**
+	 * Create a new evaluator that caches the values of the sub-expressions it evaluates. Since the cache is never
+	 * invalidated, the evaluator must only be used for a single assignment.
+	 *
+	 * @param pool
+	 * 		pool in which to evaluate wide nodes; may be {@code null} for sequential evaluation
+	 * @param parallelThreshold
+	 * 		minimum number of sub-expressions of nodes that are evaluated in parallel, and maximum number of
+	 * 		sub-expressions evaluated sequentially in one task; must be at least 2
+	 */
+	static VisitorRealExpressionEvaluator caching(final RealExpression rootExpression, final RealAssignment params,
+			final ForkJoinPool pool, final int parallelThreshold) {
+		return new VisitorRealExpressionEvaluator(rootExpression, params, pool, parallelThreshold,
+				new IdentityHashMap<>());
+	}
+
+	private VisitorRealExpressionEvaluator(final RealExpression rootExpression, final RealAssignment params,
+			final ForkJoinPool pool, final int parallelThreshold, final Map<RealExpression, Double> values) {
+		super(SUPPORTED_TYPES, rootExpression, params);
+		if (parallelThreshold < 2) {
+			throw new IllegalArgumentException("Parallel threshold must be at least 2");
+		}
+		this.pool = pool;
+		this.parallelThreshold = pool == null ? Integer.MAX_VALUE : parallelThreshold;
+		this.values = values;
+	}
+
+	/**
+	 * @return whether a node with the given number of sub-expressions is evaluated in parallel
+	 */
+	private boolean isParallel(final int subexpressionCount) {
+		return subexpressionCount >= this.parallelThreshold;
+	}
+
+	/**
+	 * Evaluate the given sub-expression of the root expression, or look up its value if it has already been evaluated
+	 * by this caching evaluator.
+	 *
+	 * @return the value of {@code expression}
+	 */
+	double value(final RealExpression expression) {
+		if (this.values == null || expression instanceof RealConstant || expression instanceof RealVariable) {
+			return expression.accept(this, null);
+		}
+		final Double cached = this.values.get(expression);
+		if (cached != null) {
+			return cached;
+		}
+		final double value = expression.accept(this, null);
+		this.values.put(expression, value);
+		return value;
+	}
+
+	/**
+	 * @return an evaluator for use by a task of a parallel node: this evaluator if values are not cached, or a new
+	 * caching evaluator with its own cache otherwise
+	 */
+	private VisitorRealExpressionEvaluator forTask() {
+		return this.values == null ? this :
+				caching(this.rootExpression, this.params, this.pool, this.parallelThreshold);
+	}
+
+	@Override
+	protected Double doEvaluation() {
+		if (this.params == null) {
+			throw new IllegalArgumentException("Cannot evaluate expression without an assignment (param)");
+		}
+		return this.rootExpression.accept(this, null);
+	}
+
+	@Override
+	public Double visit(final RealConstant realConstant, final Void state) {
+		return realConstant.value;
+	}
+
+	@Override
+	public Double visit(final RealVariable realVariable, final Void state) {
+		final Double value = this.params.get(realVariable);
+		if (value == null) {
+			throw new IllegalArgumentException("No value assigned to variable " + realVariable);
+		}
+		return value;
+	}
+
+	@Override
+	public Double visit(final RealExprAddition realExprAddition, final Void state) {
+		final List<RealExpression> subexpressions = realExprAddition.subexpressions;
+		if (this.isParallel(subexpressions.size())) {
+			return invoke(this.pool, new RangeEvaluation(subexpressions, 0, subexpressions.size(), /*sum=*/true));
+		}
+		double sum = 0;
+		for (int i = 0, n = subexpressions.size(); i < n; i++) {
+			sum += this.value(subexpressions.get(i));
+		}
+		return sum;
+	}
+
+	@Override
+	public Double visit(final RealExprMultiplication realExprMultiplication, final Void state) {
+		final List<RealExpression> subexpressions = realExprMultiplication.subexpressions;
+		if (this.isParallel(subexpressions.size())) {
+			return invoke(this.pool, new RangeEvaluation(subexpressions, 0, subexpressions.size(), /*sum=*/false));
+		}
+		double product = 1;
+		for (int i = 0, n = subexpressions.size(); i < n; i++) {
+			product *= this.value(subexpressions.get(i));
+		}
+		return product;
+	}
+
+	@Override
+	public Double visit(final RealExprNegation realExprNegation, final Void state) {
+		return -this.value(realExprNegation.subexpressions.get(0));
+	}
+
+	@Override
+	public Double visit(final RealExprReciprocal realExprReciprocal, final Void state) {
+		return 1.0 / this.value(realExprReciprocal.subexpressions.get(0));
+	}
+
+	@Override
+	public Double visit(final RealExprReduction realExprReduction, final Void state) {
+		return ReductionEvaluation.value(realExprReduction, this.params);
+	}
+
+	@Override
+	public Double visit(final RealExprFunction realExprFunction, final Void state) {
+		return realExprFunction.function.apply(this.value(realExprFunction.subexpressions.get(0)));
+	}
+
+	@Override
+	public Double visit(final RealExprPower realExprPower, final Void state) {
+		return RealExprPower.power(this.value(realExprPower.getBase()),
+				this.value(realExprPower.getExponent()));
+	}
+
+	@Override
+	public Double visit(final RealExprPiecewise realExprPiecewise, final Void state) {
+		final List<RealExpression> subexpressions = realExprPiecewise.subexpressions;
+		final double first = this.value(subexpressions.get(0));
+		switch (realExprPiecewise.kind) {
+			case ABS:
+				return Math.abs(first);
+			case SELECT:
+				// only evaluate the selected operand
+				return this.value(first > 0 ? subexpressions.get(1) : subexpressions.get(2));
+			default:
+				return realExprPiecewise.apply(first, this.value(subexpressions.get(1)), 0);
+		}
+	}
+
+	@Override
+	public Double visit(final RealExprLinear realExprLinear, final Void state) {
+		final List<RealExpression> terms = realExprLinear.subexpressions;
+		double sum = realExprLinear.constant;
+		for (int i = 0, n = terms.size(); i < n; i++) {
+			final RealExpression term = terms.get(i);
+			// look up variables directly, without dispatching through accept(...)
+			final double value = term instanceof RealVariable ? this.visit((RealVariable) term, null) :
+					this.value(term);
+			sum += realExprLinear.getCoefficient(i) * value;
+		}
+		return sum;
+	}
+
+	/**
+	 * Task that computes the sum or product of a range of sub-expressions, splitting it in halves until it is small
+	 * enough to be evaluated sequentially.
+	 */
+	private final class RangeEvaluation extends RecursiveTask<Double> {
+		private static final long serialVersionUID = 1L;
+
+		private final List<RealExpression> subexpressions;
+		private final int from, to;
+		private final boolean sum;
+
+		RangeEvaluation(final List<RealExpression> subexpressions, final int from, final int to, final boolean sum) {
+			this.subexpressions = subexpressions;
+			this.from = from;
+			this.to = to;
+			this.sum = sum;
+		}
+
+		@Override
+		protected Double compute() {
+			if (this.to - this.from <= VisitorRealExpressionEvaluator.this.parallelThreshold) {
+				final VisitorRealExpressionEvaluator evaluator = VisitorRealExpressionEvaluator.this.forTask();
+				double result = this.sum ? 0 : 1;
+				for (int i = this.from; i < this.to; i++) {
+					final double value = evaluator.value(this.subexpressions.get(i));
+					result = this.sum ? result + value : result * value;
+				}
+				return result;
+			}
+			final int mid = (this.from + this.to) >>> 1;
+			final RangeEvaluation left = new RangeEvaluation(this.subexpressions, this.from, mid, this.sum);
+			left.fork();
+			final double right = new RangeEvaluation(this.subexpressions, mid, this.to, this.sum).compute();
+			return this.sum ? left.join() + right : left.join() * right;
+		}
+	}
+}
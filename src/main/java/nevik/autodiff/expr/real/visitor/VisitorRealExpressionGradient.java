@@ -0,0 +1,613 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.visitor;
+
+import nevik.autodiff.expr.real.RealAssignment;
+import nevik.autodiff.expr.real.RealConstant;
+import nevik.autodiff.expr.real.RealExprAddition;
+import nevik.autodiff.expr.real.RealExprFunction;
+import nevik.autodiff.expr.real.RealExprLinear;
+import nevik.autodiff.expr.real.RealExprMultiplication;
+import nevik.autodiff.expr.real.RealExprNegation;
+import nevik.autodiff.expr.real.RealExprPiecewise;
+import nevik.autodiff.expr.real.RealExprPower;
+import nevik.autodiff.expr.real.RealExprReciprocal;
+import nevik.autodiff.expr.real.RealExprReduction;
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import nevik.autodiff.expr.real.visitor.VisitorRealExpressionGradient.GradientParams;
+import nevik.autodiff.expr.real.visitor.VisitorRealExpressionGradient.Seed;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionEvaluator.invoke;
+
+/**
+ * Visitor that computes the gradient of an expression, i.e. its partial derivatives w.r.t. all of its variables, at a
+ * given {@link RealAssignment} of its variables, using reverse-mode accumulation directly on the expression tree.
+ * <p/>
+ * Each node is visited with a {@link Seed}: the derivative of the root w.r.t. the node (its adjoint) and the array into
+ * which the contributions to the partial derivatives are accumulated. Where the adjoints of sub-expressions depend on
+ * their values or those of their siblings (e.g. multiplication, reciprocal), these values are computed bottom-up by a
+ * caching {@link VisitorRealExpressionEvaluator}, which evaluates each node at most once and keeps its value by
+ * identity for the nodes below. Every task of a parallel node has its own cache. As with the evaluator, shared
+ * sub-expressions are still visited once per occurrence to propagate their adjoints.
+ * <p/>
+ * If {@link GradientParams#pool} is set, the sub-expressions of additions and multiplications with at least {@link
+ * GradientParams#parallelThreshold} sub-expressions are split into ranges in the same way as for parallel
+ * evaluation: every range of at most {@code parallelThreshold} sub-expressions accumulates into its own gradient
+ * array, and these arrays are summed pairwise along the fixed splitting tree. The result therefore does not depend on
+ * the number of threads.
+ * <p/>
+ * If {@link GradientParams#variables} is set, only the partial derivatives w.r.t. these variables are computed, and
+ * sub-expressions that do not depend on any of them are not visited at all (so their values are not computed either,
+ * unless they are needed for the adjoint of a sibling).
+ *
+ * @author agent
+ * @since 2026-10-18
+ */
+public class VisitorRealExpressionGradient
+		extends AbstractVisitorRealExpression<GradientParams, Map<RealVariable, Double>, Void, Seed> {
+	public static final class GradientParams {
+		private final RealAssignment assignment;
+		private final Set<RealVariable> variables;
+		private final ForkJoinPool pool;
+		private final int parallelThreshold;
+
+		/**
+		 * Create a new parameter object for sequential gradient computation.
+		 *
+		 * @param assignment
+		 * 		values of the variables; must be non-{@code null}
+		 */
+		public GradientParams(final RealAssignment assignment) {
+			this(assignment, null, null, Integer.MAX_VALUE);
+		}
+
+		/**
+		 * Create a new parameter object for sequential gradient computation w.r.t. the given variables only.
+		 *
+		 * @param assignment
+		 * 		values of the variables; must be non-{@code null}
+		 * @param variables
+		 * 		the variables w.r.t. which to differentiate; must be non-{@code null}. Variables on which the expression
+		 * 		does not depend are allowed (their partial derivative is zero).
+		 */
+		public GradientParams(final RealAssignment assignment, final Collection<RealVariable> variables) {
+			this(assignment, Objects.requireNonNull(variables), null, Integer.MAX_VALUE);
+		}
+
+		/**
+		 * Create a new parameter object for gradient computation.
+		 *
+		 * @param assignment
+		 * 		values of the variables; must be non-{@code null}
+		 * @param pool
+		 * 		pool in which to process wide nodes; may be {@code null} for sequential computation
+		 * @param parallelThreshold
+		 * 		minimum number of sub-expressions of nodes that are processed in parallel, and maximum number of
+		 * 		sub-expressions processed sequentially in one task; must be at least 2
+		 * @throws java.lang.IllegalArgumentException
+		 * 		if {@code parallelThreshold} is less than 2
+		 */
+		public GradientParams(final RealAssignment assignment, final ForkJoinPool pool, final int parallelThreshold) {
+			this(assignment, null, pool, parallelThreshold);
+		}
+
+		/**
+		 * Create a new parameter object for gradient computation w.r.t. the given variables.
+		 *
+		 * @param assignment
+		 * 		values of the variables; must be non-{@code null}
+		 * @param variables
+		 * 		the variables w.r.t. which to differentiate; may be {@code null} for all variables of the expression
+		 * @param pool
+		 * 		pool in which to process wide nodes; may be {@code null} for sequential computation
+		 * @param parallelThreshold
+		 * 		minimum number of sub-expressions of nodes that are processed in parallel, and maximum number of
+		 * 		sub-expressions processed sequentially in one task; must be at least 2
+		 * @throws java.lang.IllegalArgumentException
+		 * 		if {@code parallelThreshold} is less than 2
+		 */
+		public GradientParams(final RealAssignment assignment, final Collection<RealVariable> variables,
+				final ForkJoinPool pool, final int parallelThreshold) {
+			if (parallelThreshold < 2) {
+				throw new IllegalArgumentException("Parallel threshold must be at least 2");
+			}
+			this.assignment = Objects.requireNonNull(assignment);
+			this.variables = variables == null ? null : Collections.unmodifiableSet(new LinkedHashSet<>(variables));
+			this.pool = pool;
+			this.parallelThreshold = parallelThreshold;
+		}
+	}
+
+	/**
+	 * State passed down the expression: the adjoint of the visited node, the array into which the partial derivatives
+	 * are accumulated, and the caching evaluator for the values of sub-expressions.
+	 */
+	public static final class Seed {
+		private final double adjoint;
+		private final double[] gradient;
+		private final VisitorRealExpressionEvaluator evaluator;
+
+		private Seed(final double adjoint, final double[] gradient, final VisitorRealExpressionEvaluator evaluator) {
+			this.adjoint = adjoint;
+			this.gradient = gradient;
+			this.evaluator = evaluator;
+		}
+
+		/**
+		 * @return a seed with the given adjoint, accumulating into the same array and using the same evaluator
+		 */
+		private Seed withAdjoint(final double adjoint) {
+			return new Seed(adjoint, this.gradient, this.evaluator);
+		}
+
+		private double value(final RealExpression expression) {
+			return this.evaluator.value(expression);
+		}
+	}
+
+	private static final Set<Class<? extends RealExpression>> SUPPORTED_TYPES = //
+			Collections.unmodifiableSet(new HashSet<>(Arrays.asList( //
+					RealConstant.class, //
+					RealVariable.class, //
+					RealExprAddition.class, //
+					RealExprMultiplication.class, //
+					RealExprNegation.class, //
+					RealExprReciprocal.class, //
+					RealExprReduction.class, //
+					RealExprFunction.class, //
+					RealExprPower.class, //
+					RealExprPiecewise.class, //
+					RealExprLinear.class)));
+
+	/**
+	 * Compute the gradient of the given expression.
+	 *
+	 * @param rootExpression
+	 * 		the expression to differentiate; must be non-{@code null}
+	 * @param assignment
+	 * 		values of the variables; must be non-{@code null} and contain all variables of {@code rootExpression}
+	 * @return a new map containing the partial derivative of {@code rootExpression} w.r.t. each of its variables
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code assignment} does not contain a value for a variable occurring in {@code rootExpression}
+	 */
+	public static Map<RealVariable, Double> gradient(final RealExpression rootExpression,
+			final RealAssignment assignment) {
+		return new VisitorRealExpressionGradient(Objects.requireNonNull(rootExpression),
+				new GradientParams(assignment)).evaluate();
+	}
+
+	/**
+	 * Compute the partial derivatives of the given expression w.r.t. the given variables only. Sub-expressions that do
+	 * not depend on any of these variables are skipped, so the cost depends on the part of the expression that does.
+	 *
+	 * @param rootExpression
+	 * 		the expression to differentiate; must be non-{@code null}
+	 * @param assignment
+	 * 		values of the variables; must be non-{@code null} and contain all variables of {@code rootExpression}
+	 * 		whose values are needed
+	 * @param variables
+	 * 		the variables w.r.t. which to differentiate; must be non-{@code null}
+	 * @return a new map containing the partial derivative of {@code rootExpression} w.r.t. each of {@code variables}
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code assignment} does not contain a value for a variable whose value is needed
+	 */
+	public static Map<RealVariable, Double> gradient(final RealExpression rootExpression,
+			final RealAssignment assignment, final Collection<RealVariable> variables) {
+		return new VisitorRealExpressionGradient(Objects.requireNonNull(rootExpression),
+				new GradientParams(assignment, variables)).evaluate();
+	}
+
+	/**
+	 * Compute the gradient of the given expression, processing wide additions and multiplications in parallel in the
+	 * given pool.
+	 *
+	 * @param rootExpression
+	 * 		the expression to differentiate; must be non-{@code null}
+	 * @param assignment
+	 * 		values of the variables; must be non-{@code null} and contain all variables of {@code rootExpression}
+	 * @param pool
+	 * 		pool in which to process wide nodes; must be non-{@code null}
+	 * @param parallelThreshold
+	 * 		minimum number of sub-expressions of nodes that are processed in parallel; must be at least 2
+	 * @return a new map containing the partial derivative of {@code rootExpression} w.r.t. each of its variables
+	 */
+	public static Map<RealVariable, Double> gradient(final RealExpression rootExpression,
+			final RealAssignment assignment, final ForkJoinPool pool, final int parallelThreshold) {
+		return new VisitorRealExpressionGradient(Objects.requireNonNull(rootExpression),
+				new GradientParams(assignment, Objects.requireNonNull(pool), parallelThreshold)).evaluate();
+	}
+
+	/**
+	 * Index of each variable in the gradient arrays; (re-)created for every evaluation run.
+	 */
+	private Map<RealVariable, Integer> variableIndices;
+
+	public VisitorRealExpressionGradient(final RealExpression rootExpression, final GradientParams params) {
+		super(SUPPORTED_TYPES, rootExpression, params);
+	}
+
+	@Override
+	protected Map<RealVariable, Double> doEvaluation() {
+		if (this.params == null) {
+			throw new IllegalArgumentException("Cannot differentiate expression without an assignment (param)");
+		}
+		final RealVariable[] variables = (this.params.variables == null ? this.rootExpression.getVariables() :
+				this.params.variables).toArray(new RealVariable[0]);
+		this.variableIndices = new HashMap<>();
+		for (int i = 0; i < variables.length; i++) {
+			this.variableIndices.put(variables[i], i);
+		}
+		try {
+			final double[] gradient = new double[variables.length];
+			this.rootExpression.accept(this, new Seed(1, gradient, this.newEvaluator()));
+			final Map<RealVariable, Double> result = new HashMap<>();
+			for (int i = 0; i < variables.length; i++) {
+				result.put(variables[i], gradient[i]);
+			}
+			return result;
+		} finally {
+			this.variableIndices = null;
+		}
+	}
+
+	/**
+	 * @return whether the given expression depends on any of the variables w.r.t. which is differentiated
+	 */
+	private boolean isRelevant(final RealExpression expression) {
+		// iterates over the (small) set of requested variables, and looks them up in the variables of the expression
+		return this.params.variables == null || !Collections.disjoint(expression.getVariables(), this.params.variables);
+	}
+
+	private boolean isParallel(final int subexpressionCount) {
+		return this.params.pool != null && subexpressionCount >= this.params.parallelThreshold;
+	}
+
+	/**
+	 * @return a new caching evaluator for the values of sub-expressions, with an empty cache
+	 */
+	private VisitorRealExpressionEvaluator newEvaluator() {
+		return VisitorRealExpressionEvaluator.caching(this.rootExpression, this.params.assignment, this.params.pool,
+				this.params.parallelThreshold);
+	}
+
+	@Override
+	public Void visit(final RealConstant realConstant, final Seed seed) {
+		return null;
+	}
+
+	@Override
+	public Void visit(final RealVariable realVariable, final Seed seed) {
+		final Integer index = this.variableIndices.get(realVariable);
+		if (index == null) {
+			return null;
+		}
+		if (!this.params.assignment.containsKey(realVariable)) {
+			throw new IllegalArgumentException("No value assigned to variable " + realVariable);
+		}
+		seed.gradient[index] += seed.adjoint;
+		return null;
+	}
+
+	@Override
+	public Void visit(final RealExprAddition realExprAddition, final Seed seed) {
+		if (!this.isRelevant(realExprAddition)) {
+			return null;
+		}
+		final List<RealExpression> subexpressions = realExprAddition.subexpressions;
+		if (this.isParallel(subexpressions.size())) {
+			final double[] partial = invoke(this.params.pool,
+					new RangeAccumulation(subexpressions, null, null, 0, subexpressions.size(), seed.adjoint));
+			addTo(seed.gradient, partial);
+		} else {
+			for (int i = 0, n = subexpressions.size(); i < n; i++) {
+				subexpressions.get(i).accept(this, seed);
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Void visit(final RealExprMultiplication realExprMultiplication, final Seed seed) {
+		if (!this.isRelevant(realExprMultiplication)) {
+			return null;
+		}
+		final List<RealExpression> subexpressions = realExprMultiplication.subexpressions;
+		final int n = subexpressions.size();
+		final double[] values = new double[n];
+		// the evaluators that computed the values, whose caches are reused below the factors
+		final VisitorRealExpressionEvaluator[] evaluators =
+				this.isParallel(n) ? new VisitorRealExpressionEvaluator[n] : null;
+		if (evaluators != null) {
+			invoke(this.params.pool, new RangeValues(subexpressions, values, evaluators, 0, n));
+		} else {
+			for (int i = 0; i < n; i++) {
+				values[i] = seed.value(subexpressions.get(i));
+			}
+		}
+		final double[] partials = otherFactorProducts(values);
+		if (evaluators != null) {
+			final double[] partial = invoke(this.params.pool,
+					new RangeAccumulation(subexpressions, partials, evaluators, 0, n, seed.adjoint));
+			addTo(seed.gradient, partial);
+		} else {
+			for (int i = 0; i < n; i++) {
+				if (partials[i] != 0) {
+					subexpressions.get(i).accept(this, seed.withAdjoint(seed.adjoint * partials[i]));
+				}
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Void visit(final RealExprNegation realExprNegation, final Seed seed) {
+		if (!this.isRelevant(realExprNegation)) {
+			return null;
+		}
+		realExprNegation.subexpressions.get(0).accept(this, seed.withAdjoint(-seed.adjoint));
+		return null;
+	}
+
+	@Override
+	public Void visit(final RealExprReciprocal realExprReciprocal, final Seed seed) {
+		if (!this.isRelevant(realExprReciprocal)) {
+			return null;
+		}
+		final RealExpression subexpression = realExprReciprocal.subexpressions.get(0);
+		final double reciprocal = 1.0 / seed.value(subexpression);
+		subexpression.accept(this, seed.withAdjoint(-seed.adjoint * reciprocal * reciprocal));
+		return null;
+	}
+
+	@Override
+	public Void visit(final RealExprReduction realExprReduction, final Seed seed) {
+		if (!this.isRelevant(realExprReduction)) {
+			return null;
+		}
+		// differentiate the body symbolically w.r.t. each requested free variable (once per reduction, cf.
+		// ReductionEvaluation.bodyDerivative), and reduce the derivatives over the dataset
+		final RealVariable[] variables = realExprReduction.getVariables().stream()
+				.filter(this.variableIndices::containsKey).toArray(RealVariable[]::new);
+		final RealExpression[] derivativeBodies = new RealExpression[variables.length];
+		for (int i = 0; i < variables.length; i++) {
+			derivativeBodies[i] = ReductionEvaluation.bodyDerivative(realExprReduction, variables[i]);
+		}
+		final double[] partials =
+				ReductionEvaluation.partialDerivatives(realExprReduction, derivativeBodies, this.params.assignment);
+		for (int i = 0; i < variables.length; i++) {
+			seed.gradient[this.variableIndices.get(variables[i])] += seed.adjoint * partials[i];
+		}
+		return null;
+	}
+
+	@Override
+	public Void visit(final RealExprFunction realExprFunction, final Seed seed) {
+		if (!this.isRelevant(realExprFunction)) {
+			return null;
+		}
+		final RealExpression subexpression = realExprFunction.subexpressions.get(0);
+		final double derivative = realExprFunction.function.derivative(seed.value(subexpression));
+		subexpression.accept(this, seed.withAdjoint(seed.adjoint * derivative));
+		return null;
+	}
+
+	@Override
+	public Void visit(final RealExprPower realExprPower, final Seed seed) {
+		if (!this.isRelevant(realExprPower)) {
+			return null;
+		}
+		final RealExpression base = realExprPower.getBase(), exponent = realExprPower.getExponent();
+		final double baseValue = seed.value(base), exponentValue = seed.value(exponent);
+		// where a factor of the following derivatives is zero, so is the derivative (instead of NaN from 0 * infinity
+		// at f = 0), and the operand is skipped like the factors of a product with a zero factor
+		if (!base.getVariables().isEmpty() && exponentValue != 0) {
+			// d(f^g)/df = g * f^(g-1)
+			final double adjoint = seed.adjoint * exponentValue * RealExprPower.power(baseValue, exponentValue - 1);
+			base.accept(this, seed.withAdjoint(adjoint));
+		}
+		if (!exponent.getVariables().isEmpty()) {
+			// d(f^g)/dg = f^g * log(f)
+			final double power = RealExprPower.power(baseValue, exponentValue);
+			if (power != 0) {
+				exponent.accept(this, seed.withAdjoint(seed.adjoint * power * Math.log(baseValue)));
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Void visit(final RealExprPiecewise realExprPiecewise, final Seed seed) {
+		if (!this.isRelevant(realExprPiecewise)) {
+			return null;
+		}
+		// the (sub-)gradient passes through the active operand only
+		final List<RealExpression> subexpressions = realExprPiecewise.subexpressions;
+		final RealExprPiecewise.Kind kind = realExprPiecewise.kind;
+		final double first = seed.value(subexpressions.get(0));
+		// the second operand of select does not decide which operand is active
+		final double second = kind == RealExprPiecewise.Kind.MIN || kind == RealExprPiecewise.Kind.MAX ?
+				seed.value(subexpressions.get(1)) : 0;
+		final int active = realExprPiecewise.activeOperand(first, second, 0);
+		if (active >= 0) {
+			final double adjoint =
+					kind == RealExprPiecewise.Kind.ABS ? seed.adjoint * Math.signum(first) : seed.adjoint;
+			subexpressions.get(active).accept(this, seed.withAdjoint(adjoint));
+		}
+		return null;
+	}
+
+	@Override
+	public Void visit(final RealExprLinear realExprLinear, final Seed seed) {
+		if (!this.isRelevant(realExprLinear)) {
+			return null;
+		}
+		// the partial derivative w.r.t. each term is its coefficient
+		final List<RealExpression> terms = realExprLinear.subexpressions;
+		for (int i = 0, n = terms.size(); i < n; i++) {
+			final RealExpression term = terms.get(i);
+			final double adjoint = seed.adjoint * realExprLinear.getCoefficient(i);
+			if (term instanceof RealVariable) {
+				this.visit((RealVariable) term, seed.withAdjoint(adjoint));
+			} else {
+				term.accept(this, seed.withAdjoint(adjoint));
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Compute the partial derivative of a product w.r.t. each of its factors, i.e. the product of all other factors,
+	 * as the product of the factors before and after it. Unlike dividing the product by the factor, this is exact for
+	 * zero factors and does not go wrong where the product of all factors overflows or underflows. The operations are
+	 * the same as in {@link nevik.autodiff.expr.real.tape.RealExpressionHessian}, so the results are identical.
+	 *
+	 * @return a new array with the partial derivative w.r.t. each factor
+	 */
+	private static double[] otherFactorProducts(final double[] values) {
+		final int n = values.length;
+		final double[] partials = new double[n];
+		// first the products of the factors after each factor, then multiplied by the products of those before it
+		double suffixProduct = 1;
+		for (int i = n - 1; i >= 0; i--) {
+			partials[i] = suffixProduct;
+			suffixProduct *= values[i];
+		}
+		double prefixProduct = 1;
+		for (int i = 0; i < n; i++) {
+			partials[i] = prefixProduct * partials[i];
+			prefixProduct *= values[i];
+		}
+		return partials;
+	}
+
+	private static void addTo(final double[] target, final double[] source) {
+		for (int i = 0; i < target.length; i++) {
+			target[i] += source[i];
+		}
+	}
+
+	/**
+	 * Task that computes the values of a range of sub-expressions, splitting it in halves until it is small enough to
+	 * be evaluated sequentially by a new caching evaluator, which is stored for each of the sub-expressions.
+	 */
+	private final class RangeValues extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final List<RealExpression> subexpressions;
+		private final double[] values;
+		private final VisitorRealExpressionEvaluator[] evaluators;
+		private final int from, to;
+
+		RangeValues(final List<RealExpression> subexpressions, final double[] values,
+				final VisitorRealExpressionEvaluator[] evaluators, final int from, final int to) {
+			this.subexpressions = subexpressions;
+			this.values = values;
+			this.evaluators = evaluators;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from <= VisitorRealExpressionGradient.this.params.parallelThreshold) {
+				final VisitorRealExpressionEvaluator evaluator = VisitorRealExpressionGradient.this.newEvaluator();
+				for (int i = this.from; i < this.to; i++) {
+					this.values[i] = evaluator.value(this.subexpressions.get(i));
+					this.evaluators[i] = evaluator;
+				}
+				return;
+			}
+			final int mid = (this.from + this.to) >>> 1;
+			invokeAll(new RangeValues(this.subexpressions, this.values, this.evaluators, this.from, mid),
+					new RangeValues(this.subexpressions, this.values, this.evaluators, mid, this.to));
+		}
+	}
+
+	/**
+	 * Task that accumulates the gradient contributions of a range of sub-expressions of an addition ({@code partials ==
+	 * null}) or multiplication into a new array, splitting the range in halves until it is small enough to be
+	 * processed sequentially, and summing the arrays of both halves. The factors of a multiplication are processed
+	 * with the evaluators that computed their values; the summands of an addition with a new evaluator per range.
+	 */
+	private final class RangeAccumulation extends RecursiveTask<double[]> {
+		private static final long serialVersionUID = 1L;
+
+		private final List<RealExpression> subexpressions;
+		/**
+		 * The partial derivatives of a product w.r.t. its factors, or {@code null} for an addition.
+		 */
+		private final double[] partials;
+		private final VisitorRealExpressionEvaluator[] evaluators;
+		private final int from, to;
+		private final double adjoint;
+
+		RangeAccumulation(final List<RealExpression> subexpressions, final double[] partials,
+				final VisitorRealExpressionEvaluator[] evaluators, final int from, final int to,
+				final double adjoint) {
+			this.subexpressions = subexpressions;
+			this.partials = partials;
+			this.evaluators = evaluators;
+			this.from = from;
+			this.to = to;
+			this.adjoint = adjoint;
+		}
+
+		@Override
+		protected double[] compute() {
+			if (this.to - this.from > VisitorRealExpressionGradient.this.params.parallelThreshold) {
+				final int mid = (this.from + this.to) >>> 1;
+				final RangeAccumulation left = new RangeAccumulation(this.subexpressions, this.partials,
+						this.evaluators, this.from, mid, this.adjoint);
+				left.fork();
+				final double[] right = new RangeAccumulation(this.subexpressions, this.partials, this.evaluators,
+						mid, this.to, this.adjoint).compute();
+				final double[] result = left.join();
+				addTo(result, right);
+				return result;
+			}
+			final double[] gradient = new double[VisitorRealExpressionGradient.this.variableIndices.size()];
+			final Seed seed = new Seed(this.adjoint, gradient,
+					this.partials == null ? VisitorRealExpressionGradient.this.newEvaluator() : null);
+			for (int i = this.from; i < this.to; i++) {
+				final RealExpression subexpression = this.subexpressions.get(i);
+				if (this.partials == null) {
+					subexpression.accept(VisitorRealExpressionGradient.this, seed);
+				} else if (this.partials[i] != 0) {
+					subexpression.accept(VisitorRealExpressionGradient.this,
+							new Seed(this.adjoint * this.partials[i], gradient, this.evaluators[i]));
+				}
+			}
+			return gradient;
+		}
+	}
+}
@@ -17,23 +17,46 @@ package nevik.autodiff.expr.real.visitor;
 
 import nevik.autodiff.expr.real.RealConstant;
 import nevik.autodiff.expr.real.RealExprAddition;
+import nevik.autodiff.expr.real.RealExprFunction;
+import nevik.autodiff.expr.real.RealExprLinear;
 import nevik.autodiff.expr.real.RealExprMultiplication;
 import nevik.autodiff.expr.real.RealExprNegation;
+import nevik.autodiff.expr.real.RealExprPiecewise;
+import nevik.autodiff.expr.real.RealExprPower;
 import nevik.autodiff.expr.real.RealExprReciprocal;
 import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealSuperExpression;
 import nevik.autodiff.expr.real.RealVariable;
 import nevik.autodiff.expr.real.visitor.VisitorRealExpressionPrintingInfix.PrintingInfixParams;
 
+import java.io.Flushable;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
 /**
+ * Visitor that prints an expression in infix notation, e.g. {@code ((2.0 * x) + -y + (1/z) + exp(pow(x, 2.0)))}.
+ * <p/>
+ * Output is collected in an internal buffer and handed to the target {@link Appendable} in large chunks, so any
+ * {@code Appendable} (a {@link PrintStream}, a {@link StringBuilder}, a {@link java.nio.CharBuffer}, or a {@link
+ * nevik.autodiff.expr.real.io.ChannelAppendable} that encodes into a reusable {@link java.nio.ByteBuffer}) can be used
+ * efficiently. After printing, the remaining buffered output is handed to the target, which is then flushed if it is
+ * {@link Flushable}.
+ * <p/>
+ * Optionally, sub-expressions that occur more than once in the expression DAG can be printed only once, as numbered
+ * temporaries: each is printed as one line {@code $n = ...} before it is first used, and referred to as {@code $n}
+ * afterwards. This keeps the output size linear in the size of the DAG rather than the size of the expanded tree.
+ * {@link nevik.autodiff.expr.real.io.RealExpressionInfixParser} reads such output back, with the temporaries shared
+ * again.
+ *
  * @author Patrick Lehner
  * @since 2015-10-04
  */
@@ -41,11 +64,28 @@ public class VisitorRealExpressionPrintingInfix
 		extends AbstractVisitorRealExpression<PrintingInfixParams, Void, Void, Void> {
 	public static final class PrintingInfixParams {
 		private final Map<RealVariable, String> varNames;
-		private final PrintStream output;
+		private final Appendable output;
+		private final boolean sharedAsTemporaries;
 
 		public PrintingInfixParams(final Map<RealVariable, String> varNames, final PrintStream output) {
+			this(varNames, (Appendable) output, /*sharedAsTemporaries=*/false);
+		}
+
+		/**
+		 * Create a new parameter object for printing.
+		 *
+		 * @param varNames
+		 * 		names of the variables; may be {@code null} if the expression does not contain variables
+		 * @param output
+		 * 		target of the output; must be non-{@code null}
+		 * @param sharedAsTemporaries
+		 * 		whether to print sub-expressions that occur more than once as numbered temporaries
+		 */
+		public PrintingInfixParams(final Map<RealVariable, String> varNames, final Appendable output,
+				final boolean sharedAsTemporaries) {
 			this.varNames = varNames;
-			this.output = output;
+			this.output = Objects.requireNonNull(output);
+			this.sharedAsTemporaries = sharedAsTemporaries;
 		}
 	}
 
@@ -56,7 +96,22 @@ public class VisitorRealExpressionPrintingInfix
 					RealExprAddition.class, //
 					RealExprMultiplication.class, //
 					RealExprReciprocal.class, //
-					RealExprNegation.class)));
+					RealExprNegation.class, //
+					RealExprFunction.class, //
+					RealExprPower.class, //
+					RealExprPiecewise.class, //
+					RealExprLinear.class)));
+
+	/**
+	 * Buffered output is handed to the target once the buffer exceeds this many characters.
+	 */
+	private static final int FLUSH_THRESHOLD = 1 << 13;
+	/**
+	 * Integral values with an absolute value below this bound are printed by a fast path; {@link
+	 * Double#toString(double)} switches to scientific notation at 10^7.
+	 */
+	private static final double MAX_FAST_INTEGRAL = 1e7;
+	private static final String TEMPORARY_PREFIX = "$";
 
 	public static void printExpression(final RealExpression rootExpression, final PrintingInfixParams params) {
 		new VisitorRealExpressionPrintingInfix(rootExpression, params).evaluate();
@@ -67,6 +122,11 @@ public class VisitorRealExpressionPrintingInfix
 		printExpression(rootExpression, new PrintingInfixParams(varNames, output));
 	}
 
+	public static void printExpression(final RealExpression rootExpression, final Map<RealVariable, String> varNames,
+			final Appendable output) {
+		printExpression(rootExpression, new PrintingInfixParams(varNames, output, /*sharedAsTemporaries=*/false));
+	}
+
 	public static void printExpression(final RealExpression rootExpression, final Map<RealVariable, String> varNames) {
 		printExpression(rootExpression, varNames, System.out);
 	}
@@ -75,6 +135,15 @@ public class VisitorRealExpressionPrintingInfix
 		printExpression(rootExpression, null, System.out);
 	}
 
+	/**
+	 * Internal output buffer; reused across evaluations of this visitor.
+	 */
+	private final StringBuilder buffer = new StringBuilder(FLUSH_THRESHOLD + 256);
+	/**
+	 * Names of the temporaries that have been printed so far (only used if temporaries are enabled).
+	 */
+	private final Map<RealExpression, String> temporaries = new IdentityHashMap<>();
+
 	public VisitorRealExpressionPrintingInfix(final RealExpression rootExpression, final PrintingInfixParams params) {
 		super(SUPPORTED_TYPES, rootExpression, params);
 	}
@@ -85,60 +154,179 @@ public class VisitorRealExpressionPrintingInfix
 			throw new IllegalArgumentException(
 					"Cannot print expression containing variables without a name map (param)");
 		}
-		this.rootExpression.accept(this, null);
+		this.buffer.setLength(0);
+		this.temporaries.clear();
+		try {
+			if (this.params.sharedAsTemporaries) {
+				final Map<RealExpression, Integer> referenceCounts = new IdentityHashMap<>();
+				countReferences(this.rootExpression, referenceCounts);
+				this.printTemporaries(this.rootExpression, referenceCounts, Collections.newSetFromMap(
+						new IdentityHashMap<>()));
+			}
+			this.rootExpression.accept(this, null);
+			this.flushBuffer();
+			if (this.params.output instanceof Flushable) {
+				((Flushable) this.params.output).flush();
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			this.temporaries.clear();
+		}
 		return null;
 	}
 
+	private static void countReferences(final RealExpression expression,
+			final Map<RealExpression, Integer> referenceCounts) {
+		final Integer count = referenceCounts.get(expression);
+		referenceCounts.put(expression, (count == null) ? 1 : count + 1);
+		if (count == null && expression instanceof RealSuperExpression) {
+			for (final RealExpression subexpression : ((RealSuperExpression) expression).subexpressions) {
+				countReferences(subexpression, referenceCounts);
+			}
+		}
+	}
+
+	/**
+	 * Print a definition line for each non-terminal sub-expression of {@code expression} (in post-order) that is
+	 * referenced more than once.
+	 */
+	private void printTemporaries(final RealExpression expression, final Map<RealExpression, Integer> referenceCounts,
+			final Set<RealExpression> visited) throws IOException {
+		if (!(expression instanceof RealSuperExpression) || !visited.add(expression)) {
+			return;
+		}
+		for (final RealExpression subexpression : ((RealSuperExpression) expression).subexpressions) {
+			this.printTemporaries(subexpression, referenceCounts, visited);
+		}
+		if (expression != this.rootExpression && referenceCounts.get(expression) > 1) {
+			final String name = TEMPORARY_PREFIX + this.temporaries.size();
+			this.buffer.append(name).append(" = ");
+			expression.accept(this, null);
+			this.buffer.append('\n');
+			this.temporaries.put(expression, name);
+			this.flushBufferIfFull();
+		}
+	}
+
+	private void print(final RealExpression expression) {
+		final String temporary = this.temporaries.isEmpty() ? null : this.temporaries.get(expression);
+		if (temporary != null) {
+			this.buffer.append(temporary);
+		} else {
+			expression.accept(this, null);
+		}
+	}
+
+	private void flushBufferIfFull() {
+		if (this.buffer.length() >= FLUSH_THRESHOLD) {
+			try {
+				this.flushBuffer();
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	private void flushBuffer() throws IOException {
+		this.params.output.append(this.buffer);
+		this.buffer.setLength(0);
+	}
+
+	private void printNary(final List<RealExpression> subexpressions, final String operator) {
+		this.buffer.append('(');
+		this.print(subexpressions.get(0));
+		for (int i = 1, n = subexpressions.size(); i < n; i++) {
+			this.buffer.append(operator);
+			this.print(subexpressions.get(i));
+		}
+		this.buffer.append(')');
+		this.flushBufferIfFull();
+	}
+
 	@Override
 	public Void visit(final RealConstant realConstant, final Void state) {
-		this.params.output.print(realConstant.value);
+		final double value = realConstant.value;
+		if (value == (long) value && Math.abs(value) < MAX_FAST_INTEGRAL
+				&& (value != 0 || 1 / value > 0)) {
+			// same output as Double.toString(value), without creating a String
+			this.buffer.append((long) value).append(".0");
+		} else {
+			this.buffer.append(value);
+		}
 		return null;
 	}
 
 	@Override
 	public Void visit(final RealVariable realVariable, final Void state) {
-		this.params.output.print(Objects.requireNonNull(this.params.varNames.get(realVariable)));
+		this.buffer.append(Objects.requireNonNull(this.params.varNames.get(realVariable)));
 		return null;
 	}
 
 	@Override
 	public Void visit(final RealExprAddition realExprAddition, final Void state) {
-		final Iterator<RealExpression> iterator = realExprAddition.subexpressions.iterator();
-		this.params.output.print("(");
-		iterator.next().accept(this, null);
-		while (iterator.hasNext()) {
-			this.params.output.print(" + ");
-			iterator.next().accept(this, null);
-		}
-		this.params.output.print(")");
+		this.printNary(realExprAddition.subexpressions, " + ");
 		return null;
 	}
 
 	@Override
 	public Void visit(final RealExprMultiplication realExprMultiplication, final Void state) {
-		final Iterator<RealExpression> iterator = realExprMultiplication.subexpressions.iterator();
-		this.params.output.print("(");
-		iterator.next().accept(this, null);
-		while (iterator.hasNext()) {
-			this.params.output.print(" * ");
-			iterator.next().accept(this, null);
-		}
-		this.params.output.print(")");
+		this.printNary(realExprMultiplication.subexpressions, " * ");
 		return null;
 	}
 
 	@Override
 	public Void visit(final RealExprNegation realExprNegation, final Void state) {
-		this.params.output.print("-");
-		realExprNegation.subexpressions.get(0).accept(this, null);
+		this.buffer.append('-');
+		this.print(realExprNegation.subexpressions.get(0));
 		return null;
 	}
 
 	@Override
 	public Void visit(final RealExprReciprocal realExprReciprocal, final Void state) {
-		this.params.output.print("(1/");
-		realExprReciprocal.subexpressions.get(0).accept(this, null);
-		this.params.output.print(")");
+		this.buffer.append("(1/");
+		this.print(realExprReciprocal.subexpressions.get(0));
+		this.buffer.append(')');
+		return null;
+	}
+
+	@Override
+	public Void visit(final RealExprFunction realExprFunction, final Void state) {
+		this.buffer.append(realExprFunction.function.name).append('(');
+		this.print(realExprFunction.subexpressions.get(0));
+		this.buffer.append(')');
+		return null;
+	}
+
+	@Override
+	public Void visit(final RealExprPower realExprPower, final Void state) {
+		this.buffer.append("pow(");
+		this.print(realExprPower.getBase());
+		this.buffer.append(", ");
+		this.print(realExprPower.getExponent());
+		this.buffer.append(')');
+		this.flushBufferIfFull();
+		return null;
+	}
+
+	@Override
+	public Void visit(final RealExprPiecewise realExprPiecewise, final Void state) {
+		this.buffer.append(realExprPiecewise.kind.name).append('(');
+		final List<RealExpression> subexpressions = realExprPiecewise.subexpressions;
+		this.print(subexpressions.get(0));
+		for (int i = 1, n = subexpressions.size(); i < n; i++) {
+			this.buffer.append(", ");
+			this.print(subexpressions.get(i));
+		}
+		this.buffer.append(')');
+		this.flushBufferIfFull();
+		return null;
+	}
+
+	@Override
+	public Void visit(final RealExprLinear realExprLinear, final Void state) {
+		// printed as the equivalent sum, which is parsed back into an addition
+		this.print(realExprLinear.toAddition());
 		return null;
 	}
 }
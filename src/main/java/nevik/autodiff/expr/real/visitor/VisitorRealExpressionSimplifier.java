@@ -15,33 +15,42 @@
 
 package nevik.autodiff.expr.real.visitor;
 
+import nevik.autodiff.expr.real.RealAssignment;
 import nevik.autodiff.expr.real.RealConstant;
 import nevik.autodiff.expr.real.RealExprAddition;
+import nevik.autodiff.expr.real.RealExprFunction;
+import nevik.autodiff.expr.real.RealExprLinear;
+import nevik.autodiff.expr.real.RealExprFunction.Function;
 import nevik.autodiff.expr.real.RealExprMultiplication;
 import nevik.autodiff.expr.real.RealExprNegation;
+import nevik.autodiff.expr.real.RealExprPiecewise;
+import nevik.autodiff.expr.real.RealExprPower;
 import nevik.autodiff.expr.real.RealExprReciprocal;
+import nevik.autodiff.expr.real.RealExprReduction;
+import nevik.autodiff.expr.real.RealExprReduction.Kind;
 import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealSuperExpression;
 import nevik.autodiff.expr.real.RealVariable;
 import nevik.autodiff.expr.real.visitor.VisitorRealExpressionSimplifier.SimplifierDiffParams;
+import nevik.autodiff.util.ObjectDoubleHashMap;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
+import static nevik.autodiff.expr.real.RealConstant.ONE;
 import static nevik.autodiff.expr.real.RealConstant.ZERO;
 import static nevik.autodiff.expr.real.RealConstant.reCons;
 import static nevik.autodiff.expr.real.RealExprAddition.reAdd;
+import static nevik.autodiff.expr.real.RealExprLinear.reLinear;
 import static nevik.autodiff.expr.real.RealExprMultiplication.reMult;
 import static nevik.autodiff.expr.real.RealExprNegation.reNeg;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reAbs;
+import static nevik.autodiff.expr.real.RealExprPower.rePow;
 import static nevik.autodiff.expr.real.RealExprReciprocal.reRecip;
 
 /**
@@ -51,7 +60,44 @@ import static nevik.autodiff.expr.real.RealExprReciprocal.reRecip;
 public class VisitorRealExpressionSimplifier
 		extends AbstractVisitorRealExpression<SimplifierDiffParams, RealExpression, RealExpression, Void> {
 	public static final class SimplifierDiffParams {
+		/**
+		 * Values for variables that are to be treated as constants during simplification (may be {@code null}).
+		 */
+		private final RealAssignment fixedValues;
+		/**
+		 * Whether to bring sums of fractions to a common denominator, so that each sum contains at most one division.
+		 */
+		private final boolean minimizeDivisions;
+
 		public SimplifierDiffParams() {
+			this(null);
+		}
+
+		/**
+		 * Create a new parameter object that makes the simplifier substitute the given (partial) assignment for the
+		 * respective variables, which causes all arithmetic that only depends on these variables to be folded into
+		 * constants.
+		 *
+		 * @param fixedValues
+		 * 		values of the variables to substitute; may be {@code null} (no substitution takes place)
+		 */
+		public SimplifierDiffParams(final RealAssignment fixedValues) {
+			this(fixedValues, /*minimizeDivisions=*/false);
+		}
+
+		/**
+		 * Create a new parameter object for simplification.
+		 *
+		 * @param fixedValues
+		 * 		values of the variables to substitute; may be {@code null} (no substitution takes place)
+		 * @param minimizeDivisions
+		 * 		whether to minimize the number of divisions (i.e. reciprocals) in the result, even at the expense of
+		 * 		additional multiplications: sums of fractions are brought to a common denominator, so {@code a/b + c/d}
+		 * 		becomes {@code (a*d + c*b) / (b*d)}
+		 */
+		public SimplifierDiffParams(final RealAssignment fixedValues, final boolean minimizeDivisions) {
+			this.fixedValues = fixedValues;
+			this.minimizeDivisions = minimizeDivisions;
 		}
 	}
 
@@ -62,12 +108,63 @@ public class VisitorRealExpressionSimplifier
 					RealExprAddition.class, //
 					RealExprMultiplication.class, //
 					RealExprNegation.class, //
-					RealExprReciprocal.class)));
+					RealExprReciprocal.class, //
+					RealExprReduction.class, //
+					RealExprFunction.class, //
+					RealExprPower.class, //
+					RealExprPiecewise.class, //
+					RealExprLinear.class)));
+
+	/**
+	 * Minimum number of variable summands for which a sum of scaled variables is represented as a {@link
+	 * RealExprLinear} instead of a {@link RealExprAddition} of {@link RealExprMultiplication}s.
+	 */
+	public static final int MIN_LINEAR_FORM_TERMS = 4;
+
+	/**
+	 * Maximum absolute value of exponents of powers that are merged with other factors of the same base.
+	 */
+	private static final int MAX_MERGED_EXPONENT = 1 << 20;
 
 	public static RealExpression simplify(final RealExpression rootExpression) {
 		return new VisitorRealExpressionSimplifier(Objects.requireNonNull(rootExpression), null).evaluate();
 	}
 
+	/**
+	 * Simplify the given expression, optionally minimizing the number of divisions in the result (cf. {@link
+	 * SimplifierDiffParams#SimplifierDiffParams(RealAssignment, boolean)}).
+	 */
+	public static RealExpression simplify(final RealExpression rootExpression, final boolean minimizeDivisions) {
+		return new VisitorRealExpressionSimplifier(Objects.requireNonNull(rootExpression),
+				new SimplifierDiffParams(null, minimizeDivisions)).evaluate();
+	}
+
+	/**
+	 * Specialize the given expression for a fixed subset of its variables (partial evaluation). Every variable that is
+	 * contained in {@code fixedValues} is replaced by its value, and the result is simplified, so that all arithmetic
+	 * depending only on the fixed variables is folded into constants. The returned residual expression depends only on
+	 * the variables of {@code rootExpression} that are not contained in {@code fixedValues}.
+	 *
+	 * @param rootExpression
+	 * 		the expression to specialize; must be non-{@code null}
+	 * @param fixedValues
+	 * 		values of the variables to fix; must be non-{@code null}
+	 * @return the simplified residual expression
+	 *
+	 * @throws java.lang.NullPointerException
+	 * 		if either argument is {@code null}
+	 */
+	public static RealExpression specialize(final RealExpression rootExpression, final RealAssignment fixedValues) {
+		return new VisitorRealExpressionSimplifier(Objects.requireNonNull(rootExpression),
+				new SimplifierDiffParams(Objects.requireNonNull(fixedValues))).evaluate();
+	}
+
+	/**
+	 * Scratch buffers for collecting summands and factors, indexed by nesting depth.
+	 */
+	private final List<Scratch> scratches = new ArrayList<>();
+	private int scratchDepth;
+
 	public VisitorRealExpressionSimplifier(final RealExpression rootExpression, final SimplifierDiffParams params) {
 		super(SUPPORTED_TYPES, rootExpression, params);
 	}
@@ -89,113 +186,222 @@ public class VisitorRealExpressionSimplifier
 
 	@Override
 	public RealExpression visit(final RealVariable realVariable, final Void state) {
+		if (this.params != null && this.params.fixedValues != null) {
+			// substitute fixed variables by their value
+			final Double value = this.params.fixedValues.get(realVariable);
+			if (value != null) {
+				return reCons(value);
+			}
+		}
 		// variable cannot be simplified further
 		return realVariable;
 	}
 
 	@Override
 	public RealExpression visit(final RealExprAddition realExprAddition, final Void state) {
-		final int subexprCount = realExprAddition.subexpressions.size();
-		final List<RealExpression> simplifiedSummands =
-				realExprAddition.subexpressions.stream().map(expr -> expr.accept(this, null)).flatMap(
-						expr -> (expr instanceof RealExprAddition) ?
-								((RealExprAddition) expr).subexpressions.stream() :
-								Stream.of(expr)).collect(Collectors.toList());
-
+		final List<RealExpression> subexpressions = realExprAddition.subexpressions;
+		final int subexprCount = subexpressions.size();
 		if (subexprCount == 1) {
 			// if there's only one summand, we can't simplify further at this level
-			return simplifiedSummands.get(0);
+			return subexpressions.get(0).accept(this, null);
 		}
 
-		final ArrayList<RealExpression> newSummands = new ArrayList<>(subexprCount);
-		final Map<RealExpression, Integer> subexprCounts = new HashMap<>();
-		double constantVal = 0;
+		final Scratch scratch = this.acquireScratch(0);
+		try {
+			boolean unchanged = true;
+			for (int i = 0; i < subexprCount; i++) {
+				final RealExpression subexpression = subexpressions.get(i);
+				final RealExpression summand = subexpression.accept(this, null);
+				if (summand instanceof RealExprAddition) {
+					// flatten nested additions
+					for (final RealExpression nestedSummand : ((RealExprAddition) summand).subexpressions) {
+						collectSummand(scratch, nestedSummand);
+					}
+					unchanged = false;
+				} else {
+					collectSummand(scratch, summand);
+					unchanged &= summand == subexpression;
+				}
+			}
+			return this.sumOf(scratch, realExprAddition, unchanged);
+		} finally {
+			this.releaseScratch();
+		}
+	}
 
-		for (RealExpression subexpression : simplifiedSummands) {
-			int sign = 1;
-			if (subexpression instanceof RealExprNegation) {
-				subexpression = ((RealExprNegation) subexpression).subexpressions.get(0);
-				sign = -1;
+	/**
+	 * Build the sum of the summands collected in the given scratch buffer. If the result would consist of exactly the
+	 * sub-expressions of {@code original} (i.e. the simplification did not change anything), {@code original} itself is
+	 * returned.
+	 *
+	 * @param unchanged
+	 * 		whether the collected summands are exactly the sub-expressions of {@code original}
+	 */
+	private RealExpression sumOf(final Scratch scratch, final RealExprAddition original, final boolean unchanged) {
+		final ObjectDoubleHashMap<RealExpression> coefficients = scratch.terms;
+		final double constantVal = scratch.constant;
+
+		if (isLinearForm(coefficients)) {
+			final List<RealExpression> terms = scratch.result;
+			int termCount = 0;
+			for (int i = 0; i < coefficients.size(); i++) {
+				termCount += coefficients.getValue(i) != 0 ? 1 : 0;
 			}
-			if (subexpression instanceof RealConstant) {
-				// collect up all constants
-				constantVal += sign * ((RealConstant) subexpression).value;
-			} else {
-				subexprCounts.put(subexpression, subexprCounts.getOrDefault(subexpression, 0) + sign);
+			final double[] linearCoefficients = new double[termCount];
+			for (int i = 0; i < coefficients.size(); i++) {
+				if (coefficients.getValue(i) != 0) {
+					linearCoefficients[terms.size()] = coefficients.getValue(i);
+					terms.add(coefficients.getKey(i));
+				}
 			}
+			return reLinear(constantVal, linearCoefficients, terms);
 		}
 
-		if (constantVal != 0 || subexprCounts.isEmpty()) {
-			newSummands.add(reCons(constantVal));
-		}
-		for (final Entry<RealExpression, Integer> entry : subexprCounts.entrySet()) {
-			final Integer factor = entry.getValue();
+		final List<RealExpression> newSummands = scratch.result;
+		boolean reused = unchanged;
+		for (int i = 0; i < coefficients.size(); i++) {
+			final double factor = coefficients.getValue(i);
 			if (factor != 0) {
-				if (factor == 1) {
-					newSummands.add(entry.getKey());
-				} else if (factor == -1) {
-					newSummands.add(reNeg(entry.getKey()));
+				final RealExpression source = scratch.sources[i];
+				if (source != null && scratch.contributions[i] == 1) {
+					// the summand is a single, unmodified summand
+					newSummands.add(source);
 				} else {
-					newSummands.add(reMult(reCons(factor), entry.getKey()));
+					final RealExpression term = coefficients.getKey(i);
+					if (factor == 1) {
+						newSummands.add(term);
+					} else if (factor == -1) {
+						newSummands.add(reNeg(term));
+					} else if (term instanceof RealExprMultiplication) {
+						// merge the coefficient into the product, as simplifying c*(x*y) would
+						newSummands.add(((RealExprMultiplication) term).withFactor(reCons(factor)));
+					} else {
+						newSummands.add(reMult(reCons(factor), term));
+					}
+					reused = false;
 				}
 			}
 		}
+		if (constantVal != 0 || newSummands.isEmpty()) {
+			if (scratch.constantCount == 1 && scratch.constantSource != null &&
+					scratch.constantSource.value == constantVal) {
+				newSummands.add(scratch.constantSource);
+			} else {
+				newSummands.add(reCons(constantVal));
+				reused = false;
+			}
+		}
+
+		if (this.params != null && this.params.minimizeDivisions && newSummands.size() > 1) {
+			final RealExpression fraction = this.toCommonDenominator(newSummands);
+			if (fraction != null) {
+				return fraction;
+			}
+		}
 
-		if (newSummands.isEmpty()) {
+		if (reused && newSummands.size() == original.subexpressions.size()) {
+			return original;
+		} else if (newSummands.isEmpty()) {
 			return ZERO;
 		} else if (newSummands.size() == 1) {
 			return newSummands.get(0);
 		} else {
-			return reAdd(newSummands); // reAdd sorts the summands
+			return reAdd(newSummands); // reAdd sorts (a copy of) the summands
 		}
 	}
 
-	@Override
-	public RealExpression visit(final RealExprMultiplication realExprMultiplication, final Void state) {
-		final int subexprCount = realExprMultiplication.subexpressions.size();
-		final List<RealExpression> simplifiedFactors =
-				realExprMultiplication.subexpressions.stream().map(expr -> expr.accept(this, null)).flatMap(
-						expr -> (expr instanceof RealExprMultiplication) ?
-								((RealExprMultiplication) expr).subexpressions.stream() :
-								Stream.of(expr)).collect(Collectors.toList());
-
-		if (subexprCount == 1) {
-			// if there's only one summand, we can't simplify further at this level
-			return simplifiedFactors.get(0);
+	/**
+	 * Add the given (simplified) summand to the sum collected in the given scratch buffer: constants are summed up,
+	 * and the coefficients of like summands {@code x}, {@code -x} and {@code c*x} (with a constant {@code c}) are
+	 * summed up per term {@code x}.
+	 */
+	private static void collectSummand(final Scratch scratch, final RealExpression summand) {
+		RealExpression term = summand;
+		double sign = 1;
+		if (term instanceof RealExprNegation) {
+			term = ((RealExprNegation) term).subexpressions.get(0);
+			sign = -1;
 		}
-
-		final ArrayList<RealExpression> newFactors = new ArrayList<>(subexprCount);
-		double constantVal = 1;
-
-		for (final RealExpression subexpression : simplifiedFactors) {
-			if (subexpression instanceof RealConstant) {
-				// collect up all constants
-				constantVal *= ((RealConstant) subexpression).value;
+		if (term instanceof RealConstant) {
+			// collect up all constants
+			scratch.constant += sign * ((RealConstant) term).value;
+			scratch.constantCount++;
+			scratch.constantSource = term == summand ? (RealConstant) term : null;
+		} else if (term instanceof RealExprLinear) {
+			// merge the terms of linear forms
+			final RealExprLinear linear = (RealExprLinear) term;
+			scratch.constant += sign * linear.constant;
+			scratch.constantCount++;
+			scratch.constantSource = null;
+			for (int i = 0, n = linear.getTermCount(); i < n; i++) {
+				scratch.add(linear.subexpressions.get(i), sign * linear.getCoefficient(i), null);
+			}
+		} else if (isScaledTerm(term)) {
+			// collect up the coefficients of like summands (c*x, with a constant c)
+			final List<RealExpression> factors = ((RealExprMultiplication) term).subexpressions;
+			final int constantIndex = factors.get(0) instanceof RealConstant ? 0 : 1;
+			final double coefficient = ((RealConstant) factors.get(constantIndex)).value;
+			// only c*x itself (with c != 1, -1) is in the form in which the summand would be rebuilt
+			scratch.add(factors.get(1 - constantIndex), sign * coefficient,
+					term == summand && Math.abs(coefficient) != 1 ? summand : null);
+		} else {
+			final RealConstant constant =
+					term instanceof RealExprMultiplication ? constantFactor((RealExprMultiplication) term) : null;
+			if (constant != null) {
+				// collect up the coefficients of like products (c*x*y*..., with a constant c)
+				scratch.add(((RealExprMultiplication) term).withoutFactor(constant), sign * constant.value,
+						term == summand && Math.abs(constant.value) != 1 ? summand : null);
 			} else {
-				newFactors.add(subexpression);
+				scratch.add(term, sign, summand);
 			}
 		}
+	}
 
-		if (constantVal == 0) {
-			return ZERO;
+	/**
+	 * Get the only constant factor of the given (simplified) product of more than two factors, or {@code null} if
+	 * there is none.
+	 */
+	private static RealConstant constantFactor(final RealExprMultiplication product) {
+		if (product.subexpressions.size() <= 2) {
+			return null;
 		}
-
-		if (constantVal != 1 || newFactors.isEmpty()) {
-			newFactors.add(reCons(constantVal));
+		RealConstant constant = null;
+		for (final RealExpression factor : product.subexpressions) {
+			if (factor instanceof RealConstant) {
+				if (constant != null) {
+					return null;
+				}
+				constant = (RealConstant) factor;
+			}
 		}
+		return constant;
+	}
 
-		if (newFactors.isEmpty()) {
-			return ZERO;
-		} else if (newFactors.size() == 1) {
-			return newFactors.get(0);
-		} else {
-			return reMult(newFactors); // reMult sorts the factors
+	@Override
+	public RealExpression visit(final RealExprMultiplication realExprMultiplication, final Void state) {
+		final List<RealExpression> subexpressions = realExprMultiplication.subexpressions;
+		if (subexpressions.size() == 1) {
+			// if there's only one factor, we can't simplify further at this level
+			return subexpressions.get(0).accept(this, null);
+		}
+		final Scratch scratch = this.acquireScratch(1);
+		try {
+			boolean unchanged = true;
+			for (final RealExpression subexpression : subexpressions) {
+				final RealExpression factor = subexpression.accept(this, null);
+				collectFactor(scratch, factor, 1, factor);
+				unchanged &= factor == subexpression;
+			}
+			return productOf(scratch, realExprMultiplication, unchanged);
+		} finally {
+			this.releaseScratch();
 		}
 	}
 
 	@Override
 	public RealExpression visit(final RealExprNegation realExprNegation, final Void state) {
-		final RealExpression simplifiedSubexpr = realExprNegation.subexpressions.get(0).accept(this, null);
+		final RealExpression subexpression = realExprNegation.subexpressions.get(0);
+		final RealExpression simplifiedSubexpr = subexpression.accept(this, null);
 		if (simplifiedSubexpr instanceof RealExprNegation) {
 			// merge together double-negation
 			return ((RealExprNegation) simplifiedSubexpr).subexpressions.get(0);
@@ -203,21 +409,491 @@ public class VisitorRealExpressionSimplifier
 			// negate constant value
 			return reCons(-((RealConstant) simplifiedSubexpr).value);
 		} else {
-			return reNeg(simplifiedSubexpr);
+			return simplifiedSubexpr == subexpression ? realExprNegation : reNeg(simplifiedSubexpr);
 		}
 	}
 
 	@Override
 	public RealExpression visit(final RealExprReciprocal realExprReciprocal, final Void state) {
-		final RealExpression simplifiedSubexpr = realExprReciprocal.subexpressions.get(0).accept(this, null);
+		final RealExpression subexpression = realExprReciprocal.subexpressions.get(0);
+		final RealExpression simplifiedSubexpr = subexpression.accept(this, null);
 		if (simplifiedSubexpr instanceof RealExprReciprocal) {
 			// merge together double-reciprocal
 			return ((RealExprReciprocal) simplifiedSubexpr).subexpressions.get(0);
 		} else if (simplifiedSubexpr instanceof RealConstant) {
 			// compute reciprocal of constant value
 			return reCons(1.0 / ((RealConstant) simplifiedSubexpr).value);
+		} else if (simplifiedSubexpr instanceof RealExprMultiplication || simplifiedSubexpr instanceof RealExprNegation
+				|| simplifiedSubexpr instanceof RealExprPower) {
+			// pull constants and signs out of the reciprocal, and cancel factors with negative exponents
+			final Scratch scratch = this.acquireScratch(1);
+			try {
+				collectFactor(scratch, simplifiedSubexpr, -1, null);
+				return productOf(scratch, null, false);
+			} finally {
+				this.releaseScratch();
+			}
+		} else {
+			return simplifiedSubexpr == subexpression ? realExprReciprocal : reRecip(simplifiedSubexpr);
+		}
+	}
+
+	@Override
+	public RealExpression visit(final RealExprReduction realExprReduction, final Void state) {
+		final Set<RealVariable> rowVariables = realExprReduction.columns.keySet();
+		VisitorRealExpressionSimplifier bodySimplifier = this;
+		if (this.params != null && this.params.fixedValues != null &&
+				!Collections.disjoint(this.params.fixedValues.keySet(), rowVariables)) {
+			// row variables are bound by the reduction and must not be substituted
+			final RealAssignment fixedValues = new RealAssignment(this.params.fixedValues);
+			fixedValues.keySet().removeAll(rowVariables);
+			bodySimplifier = new VisitorRealExpressionSimplifier(realExprReduction.body,
+					new SimplifierDiffParams(fixedValues, this.params.minimizeDivisions));
+		}
+		final RealExpression simplifiedBody = realExprReduction.body.accept(bodySimplifier, null);
+
+		if (realExprReduction.rowCount == 0) {
+			// empty reductions are constant
+			switch (realExprReduction.kind) {
+				case SUM:
+					return ZERO;
+				case PRODUCT:
+					return ONE;
+				default:
+					return reCons(Double.NaN);
+			}
+		}
+
+		if (realExprReduction.kind != Kind.PRODUCT) {
+			if (Collections.disjoint(simplifiedBody.getVariables(), rowVariables)) {
+				// the body is the same for all rows
+				return realExprReduction.kind == Kind.SUM ?
+						reMult(reCons(realExprReduction.rowCount), simplifiedBody).accept(this, null) :
+						simplifiedBody;
+			}
+			if (simplifiedBody instanceof RealExprAddition || simplifiedBody instanceof RealExprMultiplication) {
+				// pull row-invariant summands or factors out of the reduction
+				final List<RealExpression> invariant = new ArrayList<>();
+				final List<RealExpression> variant = new ArrayList<>();
+				for (final RealExpression subexpression : ((RealSuperExpression) simplifiedBody).subexpressions) {
+					(Collections.disjoint(subexpression.getVariables(), rowVariables) ? invariant : variant).add(
+							subexpression);
+				}
+				if (!invariant.isEmpty()) {
+					final boolean addition = simplifiedBody instanceof RealExprAddition;
+					final RealExprReduction variantReduction = realExprReduction.withBody(variant.size() == 1 ?
+							variant.get(0) :
+							addition ? reAdd(variant) : reMult(variant));
+					if (addition) {
+						// sum_i (a + f_i) = n*a + sum_i f_i, and mean_i (a + f_i) = a + mean_i f_i
+						final RealExpression invariantSum = invariant.size() == 1 ? invariant.get(0) : reAdd(invariant);
+						return reAdd(realExprReduction.kind == Kind.SUM ?
+								reMult(reCons(realExprReduction.rowCount), invariantSum) :
+								invariantSum, variantReduction).accept(this, null);
+					}
+					// sum_i (a * f_i) = a * sum_i f_i, and likewise for the mean
+					invariant.add(variantReduction);
+					return reMult(invariant).accept(this, null);
+				}
+			}
+		}
+		return simplifiedBody == realExprReduction.body ? realExprReduction :
+				realExprReduction.withBody(simplifiedBody);
+	}
+
+	@Override
+	public RealExpression visit(final RealExprFunction realExprFunction, final Void state) {
+		final RealExpression simplifiedSubexpr = realExprFunction.subexpressions.get(0).accept(this, null);
+		final Function function = realExprFunction.function;
+		if (simplifiedSubexpr instanceof RealConstant) {
+			// compute function of constant value
+			return reCons(function.apply(((RealConstant) simplifiedSubexpr).value));
+		}
+		if (simplifiedSubexpr instanceof RealExprFunction) {
+			final RealExprFunction inner = (RealExprFunction) simplifiedSubexpr;
+			if ((function == Function.EXP && inner.function == Function.LOG) ||
+					(function == Function.LOG && inner.function == Function.EXP)) {
+				// exp(log(x)) = x (for x > 0) and log(exp(x)) = x
+				return inner.subexpressions.get(0);
+			}
+		}
+		return simplifiedSubexpr == realExprFunction.subexpressions.get(0) ? realExprFunction :
+				new RealExprFunction(function, simplifiedSubexpr);
+	}
+
+	@Override
+	public RealExpression visit(final RealExprPower realExprPower, final Void state) {
+		RealExpression simplifiedBase = realExprPower.getBase().accept(this, null);
+		RealExpression simplifiedExponent = realExprPower.getExponent().accept(this, null);
+		if (simplifiedBase instanceof RealExprPower && simplifiedExponent instanceof RealConstant) {
+			final RealExprPower inner = (RealExprPower) simplifiedBase;
+			if (inner.getExponent() instanceof RealConstant && isInteger(((RealConstant) simplifiedExponent).value) &&
+					isInteger(((RealConstant) inner.getExponent()).value)) {
+				// (x^a)^b = x^(a*b) for integers a, b
+				simplifiedBase = inner.getBase();
+				simplifiedExponent = reCons(((RealConstant) inner.getExponent()).value *
+						((RealConstant) simplifiedExponent).value);
+			}
+		}
+		if (simplifiedExponent instanceof RealConstant) {
+			final double exponent = ((RealConstant) simplifiedExponent).value;
+			if (simplifiedBase instanceof RealConstant) {
+				// compute power of constant values
+				return reCons(RealExprPower.power(((RealConstant) simplifiedBase).value, exponent));
+			}
+			if (exponent == 0) {
+				return ONE;
+			} else if (exponent == 1) {
+				return simplifiedBase;
+			} else if (exponent == -1) {
+				return reRecip(simplifiedBase);
+			}
+		}
+		if (simplifiedBase instanceof RealConstant && ((RealConstant) simplifiedBase).value == 1) {
+			return ONE;
+		}
+		return simplifiedBase == realExprPower.getBase() && simplifiedExponent == realExprPower.getExponent() ?
+				realExprPower : rePow(simplifiedBase, simplifiedExponent);
+	}
+
+	@Override
+	public RealExpression visit(final RealExprPiecewise realExprPiecewise, final Void state) {
+		final List<RealExpression> subexpressions = realExprPiecewise.subexpressions;
+		final RealExpression[] simplified = new RealExpression[subexpressions.size()];
+		boolean changed = false, allConstant = true;
+		for (int i = 0; i < simplified.length; i++) {
+			simplified[i] = subexpressions.get(i).accept(this, null);
+			changed |= simplified[i] != subexpressions.get(i);
+			allConstant &= simplified[i] instanceof RealConstant;
+		}
+		if (allConstant) {
+			// compute value of constant operands
+			return reCons(realExprPiecewise.apply(((RealConstant) simplified[0]).value,
+					simplified.length > 1 ? ((RealConstant) simplified[1]).value : 0,
+					simplified.length > 2 ? ((RealConstant) simplified[2]).value : 0));
+		}
+		switch (realExprPiecewise.kind) {
+			case MIN:
+			case MAX:
+				if (simplified[0].equals(simplified[1])) {
+					// min(x, x) = max(x, x) = x
+					return simplified[0];
+				}
+				break;
+			case ABS:
+				if (simplified[0] instanceof RealExprNegation) {
+					// abs(-x) = abs(x)
+					return reAbs(((RealExprNegation) simplified[0]).subexpressions.get(0)).accept(this, null);
+				} else if (simplified[0] instanceof RealExprPiecewise &&
+						((RealExprPiecewise) simplified[0]).kind == RealExprPiecewise.Kind.ABS) {
+					// abs(abs(x)) = abs(x)
+					return simplified[0];
+				}
+				break;
+			default:
+				if (simplified[0] instanceof RealConstant) {
+					// select with constant condition
+					return ((RealConstant) simplified[0]).value > 0 ? simplified[1] : simplified[2];
+				} else if (simplified[1].equals(simplified[2])) {
+					// both operands are the same
+					return simplified[1];
+				}
+		}
+		return changed ? new RealExprPiecewise(realExprPiecewise.kind, simplified) : realExprPiecewise;
+	}
+
+	/**
+	 * Bring the given (simplified) summands to a common denominator, i.e. rewrite {@code sum_i n_i/d_i} as {@code
+	 * (sum_i n_i * prod_{j!=i} d_j) / prod_j d_j}, where equal denominators are only counted once.
+	 *
+	 * @return the combined fraction, or {@code null} if less than two summands contain a division
+	 */
+	private RealExpression toCommonDenominator(final List<RealExpression> summands) {
+		final RealExpression[] numerators = new RealExpression[summands.size()];
+		final int[] denominatorIndices = new int[summands.size()];
+		final List<RealExpression> denominators = new ArrayList<>();
+		int fractionCount = 0;
+		for (int i = 0; i < numerators.length; i++) {
+			RealExpression summand = summands.get(i);
+			boolean negated = false;
+			if (summand instanceof RealExprNegation) {
+				summand = ((RealExprNegation) summand).subexpressions.get(0);
+				negated = true;
+			}
+			RealExpression denominator = null;
+			if (summand instanceof RealExprReciprocal) {
+				denominator = ((RealExprReciprocal) summand).subexpressions.get(0);
+				summand = ONE;
+			} else if (summand instanceof RealExprMultiplication) {
+				// simplified products contain at most one reciprocal
+				final List<RealExpression> factors = new ArrayList<>(((RealExprMultiplication) summand).subexpressions);
+				for (int f = 0; f < factors.size(); f++) {
+					if (factors.get(f) instanceof RealExprReciprocal) {
+						denominator = ((RealExprReciprocal) factors.remove(f)).subexpressions.get(0);
+						summand = factors.size() == 1 ? factors.get(0) : reMult(factors);
+						break;
+					}
+				}
+			}
+			numerators[i] = negated ? reNeg(summand) : summand;
+			if (denominator == null) {
+				denominatorIndices[i] = -1;
+			} else {
+				fractionCount++;
+				final int index = denominators.indexOf(denominator);
+				denominatorIndices[i] = index >= 0 ? index : denominators.size();
+				if (index < 0) {
+					denominators.add(denominator);
+				}
+			}
+		}
+		if (fractionCount < 2) {
+			return null;
+		}
+		final List<RealExpression> newNumerators = new ArrayList<>(numerators.length);
+		for (int i = 0; i < numerators.length; i++) {
+			final List<RealExpression> factors = new ArrayList<>(denominators.size());
+			factors.add(numerators[i]);
+			for (int d = 0; d < denominators.size(); d++) {
+				if (d != denominatorIndices[i]) {
+					factors.add(denominators.get(d));
+				}
+			}
+			newNumerators.add(factors.size() == 1 ? factors.get(0) : reMult(factors));
+		}
+		final RealExpression denominator = denominators.size() == 1 ? denominators.get(0) : reMult(denominators);
+		return reMult(reAdd(newNumerators), reRecip(denominator)).accept(this, null);
+	}
+
+	/**
+	 * Check whether the given expression is a product {@code c*x} of two factors, exactly one of which is constant.
+	 */
+	private static boolean isScaledTerm(final RealExpression expression) {
+		if (!(expression instanceof RealExprMultiplication)) {
+			return false;
+		}
+		final List<RealExpression> factors = ((RealExprMultiplication) expression).subexpressions;
+		return factors.size() == 2 &&
+				(factors.get(0) instanceof RealConstant) != (factors.get(1) instanceof RealConstant);
+	}
+
+	/**
+	 * Check whether a sum with the given (non-constant) summands and their coefficients should be represented as a
+	 * {@link RealExprLinear}, i.e. whether it has at least {@link #MIN_LINEAR_FORM_TERMS} summands with a non-zero
+	 * coefficient, all of which are variables.
+	 */
+	private static boolean isLinearForm(final ObjectDoubleHashMap<RealExpression> coefficients) {
+		int termCount = 0;
+		for (int i = 0; i < coefficients.size(); i++) {
+			if (coefficients.getValue(i) != 0) {
+				if (!(coefficients.getKey(i) instanceof RealVariable)) {
+					return false;
+				}
+				termCount++;
+			}
+		}
+		return termCount >= MIN_LINEAR_FORM_TERMS;
+	}
+
+	private static boolean isInteger(final double value) {
+		return value == Math.rint(value) && !Double.isInfinite(value);
+	}
+
+	@Override
+	public RealExpression visit(final RealExprLinear realExprLinear, final Void state) {
+		final List<RealExpression> terms = realExprLinear.subexpressions;
+		final List<RealExpression> simplifiedTerms = new ArrayList<>(terms.size());
+		final double[] coefficients = new double[terms.size()];
+		boolean changed = false;
+		for (int i = 0; i < coefficients.length; i++) {
+			simplifiedTerms.add(terms.get(i).accept(this, null));
+			coefficients[i] = realExprLinear.getCoefficient(i);
+			changed |= simplifiedTerms.get(i) != terms.get(i);
+		}
+		if (!changed) {
+			return realExprLinear;
+		}
+		// re-collect the sum, since terms may have become constants or like terms
+		return reLinear(realExprLinear.constant, coefficients, simplifiedTerms).toAddition().accept(this, null);
+	}
+
+	/**
+	 * Add the given (simplified) factor, raised to the given power, to the product collected in the given scratch
+	 * buffer, in analogy to the counting of summands in additions: constants are multiplied up, the signs of negations
+	 * are pulled out, and the exponents of all other factors are summed up per base, where a reciprocal counts as
+	 * exponent {@code -1} and a power with a constant integral exponent as that exponent. Thus {@code x*x} becomes
+	 * {@code x^2}, and {@code x*(1/x)} cancels.
+	 *
+	 * @param source
+	 * 		the expression that {@code factor^exponent} stems from and that may be reused as is if nothing else
+	 * 		contributes to the same base, or {@code null}
+	 */
+	private static void collectFactor(final Scratch scratch, final RealExpression factor, final int exponent,
+			final RealExpression source) {
+		if (factor instanceof RealConstant) {
+			scratch.constant *= RealExprPower.power(((RealConstant) factor).value, exponent);
+			scratch.constantCount++;
+			scratch.constantSource = source == factor ? (RealConstant) factor : null;
+		} else if (factor instanceof RealExprNegation) {
+			if ((exponent & 1) != 0) {
+				scratch.constant = -scratch.constant;
+			}
+			final RealExpression subexpression = ((RealExprNegation) factor).subexpressions.get(0);
+			collectFactor(scratch, subexpression, exponent, exponent == 1 ? subexpression : null);
+		} else if (factor instanceof RealExprReciprocal) {
+			collectFactor(scratch, ((RealExprReciprocal) factor).subexpressions.get(0), -exponent,
+					exponent == 1 ? factor : null);
+		} else if (factor instanceof RealExprMultiplication) {
+			for (final RealExpression subexpression : ((RealExprMultiplication) factor).subexpressions) {
+				collectFactor(scratch, subexpression, exponent, exponent == 1 ? subexpression : null);
+			}
+		} else if (factor instanceof RealExprPower && isMergeableExponent(((RealExprPower) factor).getExponent(),
+				exponent)) {
+			final int power = (int) ((RealConstant) ((RealExprPower) factor).getExponent()).value;
+			collectFactor(scratch, ((RealExprPower) factor).getBase(), power * exponent, source);
 		} else {
-			return reRecip(simplifiedSubexpr);
+			scratch.add(factor, exponent, source);
+		}
+	}
+
+	private static boolean isMergeableExponent(final RealExpression power, final int exponent) {
+		return power instanceof RealConstant && isInteger(((RealConstant) power).value) &&
+				Math.abs(((RealConstant) power).value * exponent) <= MAX_MERGED_EXPONENT;
+	}
+
+	/**
+	 * Build the product of the factors collected in the given scratch buffer. All factors with negative exponents are
+	 * merged into a single reciprocal of their product, so every product contains at most one division. If the result
+	 * would consist of exactly the sub-expressions of {@code original} (i.e. the simplification did not change
+	 * anything), {@code original} itself is returned.
+	 *
+	 * @param original
+	 * 		the simplified multiplication, or {@code null}
+	 * @param unchanged
+	 * 		whether the collected factors are exactly the sub-expressions of {@code original}
+	 */
+	private static RealExpression productOf(final Scratch scratch, final RealExprMultiplication original,
+			final boolean unchanged) {
+		if (scratch.constant == 0) {
+			return ZERO;
+		}
+		final ObjectDoubleHashMap<RealExpression> exponents = scratch.terms;
+		final List<RealExpression> numerator = scratch.result;
+		boolean reused = unchanged;
+		int denominatorCount = 0, lastDenominator = -1;
+		for (int i = 0; i < exponents.size(); i++) {
+			final double exponent = exponents.getValue(i);
+			if (exponent > 0) {
+				final RealExpression source = scratch.sources[i];
+				if (source != null && scratch.contributions[i] == 1 && !(source instanceof RealExprReciprocal)) {
+					// the factor is a single, unmodified factor
+					numerator.add(source);
+				} else {
+					numerator.add(exponent == 1 ? exponents.getKey(i) : rePow(exponents.getKey(i), exponent));
+					reused = false;
+				}
+			} else if (exponent < 0) {
+				denominatorCount++;
+				lastDenominator = i;
+			}
+		}
+		if (denominatorCount == 1 && scratch.contributions[lastDenominator] == 1 &&
+				scratch.sources[lastDenominator] instanceof RealExprReciprocal) {
+			// the denominator is a single, unmodified reciprocal
+			numerator.add(scratch.sources[lastDenominator]);
+		} else if (denominatorCount > 0) {
+			final List<RealExpression> denominator = scratch.denominators;
+			for (int i = 0; i < exponents.size(); i++) {
+				final double exponent = exponents.getValue(i);
+				if (exponent < 0) {
+					denominator.add(exponent == -1 ? exponents.getKey(i) : rePow(exponents.getKey(i), -exponent));
+				}
+			}
+			numerator.add(reRecip(denominator.size() == 1 ? denominator.get(0) : reMult(denominator)));
+			reused = false;
+		}
+		if (scratch.constant != 1 || numerator.isEmpty()) {
+			if (scratch.constantCount == 1 && scratch.constantSource != null &&
+					scratch.constantSource.value == scratch.constant) {
+				numerator.add(scratch.constantSource);
+			} else {
+				numerator.add(reCons(scratch.constant));
+				reused = false;
+			}
+		}
+		if (reused && original != null && numerator.size() == original.subexpressions.size()) {
+			return original;
+		}
+		return numerator.size() == 1 ? numerator.get(0) : reMult(numerator); // reMult sorts (a copy of) the factors
+	}
+
+	private Scratch acquireScratch(final double neutralConstant) {
+		if (this.scratchDepth == this.scratches.size()) {
+			this.scratches.add(new Scratch());
+		}
+		final Scratch scratch = this.scratches.get(this.scratchDepth++);
+		scratch.clear(neutralConstant);
+		return scratch;
+	}
+
+	private void releaseScratch() {
+		this.scratches.get(--this.scratchDepth).clear(0);
+	}
+
+	/**
+	 * Reusable buffers for collecting the summands of an addition or the factors of a multiplication. Since additions
+	 * and multiplications are nested, there is one scratch buffer per nesting level (cf. {@link
+	 * #acquireScratch(double)}); buffers are cleared, but not released, after each use, so that simplifying an
+	 * expression allocates hardly anything besides the nodes of the result.
+	 */
+	private static final class Scratch {
+		/**
+		 * Coefficient (for additions) or exponent (for multiplications) per collected term.
+		 */
+		final ObjectDoubleHashMap<RealExpression> terms = new ObjectDoubleHashMap<>();
+		/**
+		 * Per term, the expression it was collected from, or {@code null} if it cannot be reused as is.
+		 */
+		RealExpression[] sources = new RealExpression[16];
+		/**
+		 * Per term, the number of summands or factors that contributed to it.
+		 */
+		int[] contributions = new int[16];
+		/**
+		 * Sum (for additions) or product (for multiplications) of all constants.
+		 */
+		double constant;
+		/**
+		 * Number of constants that contributed to {@link #constant}, and the last of them if it can be reused as is.
+		 */
+		int constantCount;
+		RealConstant constantSource;
+		final ArrayList<RealExpression> result = new ArrayList<>();
+		final ArrayList<RealExpression> denominators = new ArrayList<>();
+
+		void add(final RealExpression term, final double value, final RealExpression source) {
+			final int size = this.terms.size();
+			final int index = this.terms.add(term, value);
+			if (index == size) {
+				if (index == this.sources.length) {
+					this.sources = Arrays.copyOf(this.sources, index * 2);
+					this.contributions = Arrays.copyOf(this.contributions, index * 2);
+				}
+				this.sources[index] = source;
+				this.contributions[index] = 1;
+			} else {
+				this.contributions[index]++;
+			}
+		}
+
+		void clear(final double neutralConstant) {
+			Arrays.fill(this.sources, 0, this.terms.size(), null);
+			this.terms.clear();
+			this.result.clear();
+			this.denominators.clear();
+			this.constant = neutralConstant;
+			this.constantCount = 0;
+			this.constantSource = null;
 		}
 	}
 }
@@ -0,0 +1,63 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.util;
+
+import java.nio.Buffer;
+
+/**
+ * Positioning operations on {@link Buffer}s that can be called on any subclass without breaking on Java 8.
+ * <p/>
+ * Since Java 9, {@code ByteBuffer}, {@code DoubleBuffer} etc. override {@code position(int)}, {@code flip()} and
+ * {@code clear()} covariantly. Code compiled against a newer class library for a Java 8 target therefore links these
+ * calls to the overrides, which do not exist on Java 8 ({@link NoSuchMethodError}). The methods of this class call
+ * them on a receiver whose static type is {@link Buffer}, which links them to the methods that exist on all versions.
+ *
+ * @author agent
+ * @since 2026-10-19
+ */
+public final class Buffers {
+	/**
+	 * Set the position of the given buffer.
+	 *
+	 * @return {@code buffer}
+	 */
+	public static <B extends Buffer> B position(final B buffer, final int position) {
+		buffer.position(position);
+		return buffer;
+	}
+
+	/**
+	 * Flip the given buffer, i.e. set its limit to its position and its position to zero.
+	 *
+	 * @return {@code buffer}
+	 */
+	public static <B extends Buffer> B flip(final B buffer) {
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Clear the given buffer, i.e. set its position to zero and its limit to its capacity.
+	 *
+	 * @return {@code buffer}
+	 */
+	public static <B extends Buffer> B clear(final B buffer) {
+		buffer.clear();
+		return buffer;
+	}
+
+	private Buffers() {}
+}
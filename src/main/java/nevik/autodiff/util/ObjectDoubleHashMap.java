@@ -0,0 +1,182 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.util;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Mutable hash map from objects to primitive {@code double} values, intended as a reusable scratch buffer in hot
+ * loops: values are stored unboxed, the table uses open addressing with linear probing (so no entry objects are
+ * created), and {@link #clear()} keeps all allocated storage for the next use.
+ * <p/>
+ * Entries are numbered densely in insertion order, starting at {@code 0}; entry {@code i} can be accessed by {@link
+ * #getKey(int)} and {@link #getValue(int)}, and iterating over the indices {@code 0 .. size()-1} visits the entries in
+ * insertion order. Entries cannot be removed individually.
+ * <p/>
+ * {@code null} keys are not permitted. This class is not thread-safe.
+ *
+ * @param <K>
+ * 		the type of keys in this map
+ * @author agent
+ * @since 2026-10-18
+ */
+public final class ObjectDoubleHashMap<K> {
+	// ===============================================================================================================
+	// ====  Static fields and methods  ==============================================================================
+	// ===============================================================================================================
+	private static final int DEFAULT_CAPACITY = 8;
+
+	/**
+	 * Spread the bits of the given hash code, so that hash codes differing only in their upper bits do not collide in
+	 * small tables.
+	 */
+	private static int spread(final int hashCode) {
+		final int h = hashCode * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	// ===============================================================================================================
+	// ====  Instance fields and methods  ============================================================================
+	// ===============================================================================================================
+	/**
+	 * Open-addressing table of entry indices plus one; {@code 0} marks a free slot. Its length is a power of two.
+	 */
+	private int[] table;
+	private Object[] keys;
+	private double[] values;
+	private int size;
+
+	public ObjectDoubleHashMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Create a new, empty map that can hold {@code expectedSize} entries without growing.
+	 */
+	public ObjectDoubleHashMap(final int expectedSize) {
+		if (expectedSize < 0) {
+			throw new IllegalArgumentException("Expected size must be non-negative");
+		}
+		final int capacity = Math.max(DEFAULT_CAPACITY, expectedSize);
+		this.table = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+		this.keys = new Object[capacity];
+		this.values = new double[capacity];
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Get the index of the entry for the given key, or {@code -1} if there is none.
+	 */
+	public int indexOf(final Object key) {
+		final int mask = this.table.length - 1;
+		for (int slot = spread(key.hashCode()) & mask; this.table[slot] != 0; slot = (slot + 1) & mask) {
+			final int index = this.table[slot] - 1;
+			if (this.keys[index].equals(key)) {
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Add {@code delta} to the value associated with the given key, creating a new entry with value {@code delta} if
+	 * there is none.
+	 *
+	 * @return the index of the (possibly new) entry for {@code key}
+	 */
+	public int add(final K key, final double delta) {
+		Objects.requireNonNull(key);
+		final int mask = this.table.length - 1;
+		int slot = spread(key.hashCode()) & mask;
+		for (; this.table[slot] != 0; slot = (slot + 1) & mask) {
+			final int index = this.table[slot] - 1;
+			if (this.keys[index].equals(key)) {
+				this.values[index] += delta;
+				return index;
+			}
+		}
+		final int index = this.size++;
+		if (index == this.keys.length) {
+			this.keys = Arrays.copyOf(this.keys, index * 2);
+			this.values = Arrays.copyOf(this.values, index * 2);
+		}
+		this.keys[index] = key;
+		this.values[index] = delta;
+		if (this.size * 2 > this.table.length) {
+			this.rehash(this.table.length * 2);
+		} else {
+			this.table[slot] = index + 1;
+		}
+		return index;
+	}
+
+	@SuppressWarnings("unchecked")
+	public K getKey(final int index) {
+		if (index < 0 || index >= this.size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + this.size);
+		}
+		return (K) this.keys[index];
+	}
+
+	public double getValue(final int index) {
+		if (index < 0 || index >= this.size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + this.size);
+		}
+		return this.values[index];
+	}
+
+	/**
+	 * Remove all entries from this map. The allocated storage is kept, so refilling the map up to its previous size
+	 * does not allocate.
+	 */
+	public void clear() {
+		if (this.size * 8 < this.table.length) {
+			// clear only the occupied slots
+			final int mask = this.table.length - 1;
+			for (int index = 0; index < this.size; index++) {
+				int slot = spread(this.keys[index].hashCode()) & mask;
+				while (this.table[slot] != index + 1) {
+					slot = (slot + 1) & mask;
+				}
+				this.table[slot] = 0;
+			}
+		} else {
+			Arrays.fill(this.table, 0);
+		}
+		Arrays.fill(this.keys, 0, this.size, null);
+		this.size = 0;
+	}
+
+	private void rehash(final int tableLength) {
+		this.table = new int[tableLength];
+		final int mask = tableLength - 1;
+		for (int index = 0; index < this.size; index++) {
+			int slot = spread(this.keys[index].hashCode()) & mask;
+			while (this.table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			this.table[slot] = index + 1;
+		}
+	}
+}
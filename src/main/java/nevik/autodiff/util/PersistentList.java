@@ -0,0 +1,298 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.util;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Immutable, persistent list backed by a balanced (AVL) tree. Inserting or removing an element creates a new list in
+ * {@code O(log n)} time that shares all but {@code O(log n)} of its tree nodes with the original list; the original
+ * list remains unchanged. Positional access is {@code O(log n)}, iteration is amortized {@code O(1)} per element.
+ * <p/>
+ * The {@linkplain #hashCode() hash code} is maintained incrementally in each tree node and is identical to the one
+ * defined by {@link List#hashCode()}, so instances are interchangeable with other lists w.r.t. hashing and equality.
+ * <p/>
+ * {@code null} elements are not permitted.
+ *
+ * @param <E>
+ * 		the type of elements in this list
+ * @author agent
+ * @since 2026-10-18
+ */
+public final class PersistentList<E> extends AbstractList<E> implements Immutable, CachedHashCode {
+	// ===============================================================================================================
+	// ====  Static fields and methods  ==============================================================================
+	// ===============================================================================================================
+	private static final PersistentList<?> EMPTY = new PersistentList<>(null);
+
+	@SuppressWarnings("unchecked")
+	public static <E> PersistentList<E> empty() {
+		return (PersistentList<E>) EMPTY;
+	}
+
+	/**
+	 * Create a persistent list containing the elements of the given list, in the same order. Runs in {@code O(n)}.
+	 *
+	 * @throws java.lang.NullPointerException
+	 * 		if {@code elements} is or contains {@code null}
+	 */
+	@SuppressWarnings("unchecked")
+	public static <E> PersistentList<E> of(final List<? extends E> elements) {
+		if (elements instanceof PersistentList) {
+			return (PersistentList<E>) elements;
+		}
+		final Object[] array = elements.toArray();
+		for (final Object element : array) {
+			Objects.requireNonNull(element);
+		}
+		return new PersistentList<>(build(array, 0, array.length));
+	}
+
+	private static <E> Node<E> build(final Object[] elements, final int from, final int to) {
+		if (from >= to) {
+			return null;
+		}
+		final int mid = (from + to) >>> 1;
+		@SuppressWarnings("unchecked") final E value = (E) elements[mid];
+		return new Node<>(build(elements, from, mid), value, build(elements, mid + 1, to));
+	}
+
+	private static int size(final Node<?> node) {
+		return node == null ? 0 : node.size;
+	}
+
+	private static int height(final Node<?> node) {
+		return node == null ? 0 : node.height;
+	}
+
+	private static <E> Node<E> insert(final Node<E> node, final int index, final E value) {
+		if (node == null) {
+			return new Node<>(null, value, null);
+		}
+		final int leftSize = size(node.left);
+		if (index <= leftSize) {
+			return balance(insert(node.left, index, value), node.value, node.right);
+		} else {
+			return balance(node.left, node.value, insert(node.right, index - leftSize - 1, value));
+		}
+	}
+
+	private static <E> Node<E> remove(final Node<E> node, final int index) {
+		final int leftSize = size(node.left);
+		if (index < leftSize) {
+			return balance(remove(node.left, index), node.value, node.right);
+		} else if (index > leftSize) {
+			return balance(node.left, node.value, remove(node.right, index - leftSize - 1));
+		} else if (node.left == null) {
+			return node.right;
+		} else if (node.right == null) {
+			return node.left;
+		} else {
+			Node<E> successor = node.right;
+			while (successor.left != null) {
+				successor = successor.left;
+			}
+			return balance(node.left, successor.value, remove(node.right, 0));
+		}
+	}
+
+	private static <E> Node<E> balance(final Node<E> left, final E value, final Node<E> right) {
+		final int leftHeight = height(left), rightHeight = height(right);
+		if (leftHeight > rightHeight + 1) {
+			if (height(left.left) >= height(left.right)) {
+				return new Node<>(left.left, left.value, new Node<>(left.right, value, right));
+			} else {
+				final Node<E> pivot = left.right;
+				return new Node<>(new Node<>(left.left, left.value, pivot.left), pivot.value,
+						new Node<>(pivot.right, value, right));
+			}
+		} else if (rightHeight > leftHeight + 1) {
+			if (height(right.right) >= height(right.left)) {
+				return new Node<>(new Node<>(left, value, right.left), right.value, right.right);
+			} else {
+				final Node<E> pivot = right.left;
+				return new Node<>(new Node<>(left, value, pivot.left), pivot.value,
+						new Node<>(pivot.right, right.value, right.right));
+			}
+		}
+		return new Node<>(left, value, right);
+	}
+
+	// ===============================================================================================================
+	// ====  Instance fields and methods  ============================================================================
+	// ===============================================================================================================
+
+	private final Node<E> root;
+
+	private PersistentList(final Node<E> root) {
+		this.root = root;
+	}
+
+	@Override
+	public E get(final int index) {
+		if (index < 0 || index >= this.size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size());
+		}
+		Node<E> node = this.root;
+		int i = index;
+		while (true) {
+			final int leftSize = size(node.left);
+			if (i < leftSize) {
+				node = node.left;
+			} else if (i > leftSize) {
+				i -= leftSize + 1;
+				node = node.right;
+			} else {
+				return node.value;
+			}
+		}
+	}
+
+	@Override
+	public int size() {
+		return size(this.root);
+	}
+
+	/**
+	 * Create a new list that contains the given element at the given index, in addition to all elements of this list.
+	 *
+	 * @param index
+	 * 		index at which to insert the new element; {@code 0 <= index <= size()}
+	 * @param element
+	 * 		element to insert; must be non-{@code null}
+	 * @return the new list
+	 */
+	public PersistentList<E> insert(final int index, final E element) {
+		if (index < 0 || index > this.size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size());
+		}
+		return new PersistentList<>(insert(this.root, index, Objects.requireNonNull(element)));
+	}
+
+	/**
+	 * Create a new list that contains all elements of this list except the one at the given index.
+	 *
+	 * @param index
+	 * 		index of the element to leave out; {@code 0 <= index < size()}
+	 * @return the new list
+	 */
+	public PersistentList<E> without(final int index) {
+		if (index < 0 || index >= this.size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size());
+		}
+		return new PersistentList<>(remove(this.root, index));
+	}
+
+	/**
+	 * Find the first index at which the given key could be inserted into this list without violating the order
+	 * defined by {@code comparator}, i.e. the index of the first element that is not less than {@code key}. This list
+	 * must be sorted according to {@code comparator}.
+	 */
+	public int lowerBound(final E key, final Comparator<? super E> comparator) {
+		return this.bound(key, comparator, /*upper=*/false);
+	}
+
+	/**
+	 * Find the last index at which the given key could be inserted into this list without violating the order defined
+	 * by {@code comparator}, i.e. the index of the first element that is greater than {@code key}. This list must be
+	 * sorted according to {@code comparator}.
+	 */
+	public int upperBound(final E key, final Comparator<? super E> comparator) {
+		return this.bound(key, comparator, /*upper=*/true);
+	}
+
+	private int bound(final E key, final Comparator<? super E> comparator, final boolean upper) {
+		Node<E> node = this.root;
+		int index = 0;
+		while (node != null) {
+			final int cmp = comparator.compare(key, node.value);
+			if (cmp < 0 || (cmp == 0 && !upper)) {
+				node = node.left;
+			} else {
+				index += size(node.left) + 1;
+				node = node.right;
+			}
+		}
+		return index;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new Iterator<E>() {
+			private final ArrayDeque<Node<E>> path = new ArrayDeque<>();
+
+			{
+				this.descendLeft(PersistentList.this.root);
+			}
+
+			private void descendLeft(Node<E> node) {
+				while (node != null) {
+					this.path.push(node);
+					node = node.left;
+				}
+			}
+
+			@Override
+			public boolean hasNext() {
+				return !this.path.isEmpty();
+			}
+
+			@Override
+			public E next() {
+				if (this.path.isEmpty()) {
+					throw new NoSuchElementException();
+				}
+				final Node<E> node = this.path.pop();
+				this.descendLeft(node.right);
+				return node.value;
+			}
+		};
+	}
+
+	@Override
+	public int hashCode() {
+		return this.root == null ? 1 : this.root.power + this.root.hash;
+	}
+
+	/**
+	 * Tree node. Besides the size and height of its subtree, each node caches {@code 31^size} and the polynomial
+	 * {@code sum(e_i.hashCode() * 31^(size-1-i))} over the elements of its subtree, from which the list hash code
+	 * follows as {@code 31^size + polynomial}.
+	 */
+	private static final class Node<E> {
+		final Node<E> left, right;
+		final E value;
+		final int size, height, power, hash;
+
+		Node(final Node<E> left, final E value, final Node<E> right) {
+			this.left = left;
+			this.value = value;
+			this.right = right;
+			this.size = size(left) + 1 + size(right);
+			this.height = Math.max(height(left), height(right)) + 1;
+			final int leftPower = left == null ? 1 : left.power, rightPower = right == null ? 1 : right.power;
+			final int leftHash = left == null ? 0 : left.hash, rightHash = right == null ? 0 : right.hash;
+			this.power = leftPower * 31 * rightPower;
+			this.hash = (leftHash * 31 + value.hashCode()) * rightPower + rightHash;
+		}
+	}
+}
@@ -0,0 +1,314 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.util;
+
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Immutable, persistent multiset backed by a balanced (AVL) tree over element hash codes. Adding or removing an
+ * occurrence of an element creates a new multiset in {@code O(log n)} time that shares most of its structure with the
+ * original one; the original multiset remains unchanged.
+ * <p/>
+ * As a {@link java.util.Set}, a multiset contains each element that occurs in it at least once, i.e. {@link #size()}
+ * is the number of distinct elements. The number of occurrences of an element can be queried with {@link
+ * #count(Object)}.
+ * <p/>
+ * {@code null} elements are not permitted.
+ *
+ * @param <E>
+ * 		the type of elements in this multiset
+ * @author agent
+ * @since 2026-10-18
+ */
+public final class PersistentMultiset<E> extends AbstractSet<E> implements Immutable {
+	// ===============================================================================================================
+	// ====  Static fields and methods  ==============================================================================
+	// ===============================================================================================================
+	private static final PersistentMultiset<?> EMPTY = new PersistentMultiset<>(null);
+
+	@SuppressWarnings("unchecked")
+	public static <E> PersistentMultiset<E> empty() {
+		return (PersistentMultiset<E>) EMPTY;
+	}
+
+	private static int size(final Node<?> node) {
+		return node == null ? 0 : node.size;
+	}
+
+	private static int height(final Node<?> node) {
+		return node == null ? 0 : node.height;
+	}
+
+	private static <E> Node<E> find(Node<E> node, final int key) {
+		while (node != null && node.key != key) {
+			node = key < node.key ? node.left : node.right;
+		}
+		return node;
+	}
+
+	private static <E> Node<E> add(final Node<E> node, final int key, final E element, final int count) {
+		if (node == null) {
+			return new Node<>(null, key, new Object[]{element}, new int[]{count}, null);
+		} else if (key < node.key) {
+			return balance(add(node.left, key, element, count), node, node.right);
+		} else if (key > node.key) {
+			return balance(node.left, node, add(node.right, key, element, count));
+		}
+		final int position = node.indexOf(element);
+		final Object[] elements;
+		final int[] counts;
+		if (position < 0) {
+			elements = new Object[node.elements.length + 1];
+			counts = new int[node.counts.length + 1];
+			System.arraycopy(node.elements, 0, elements, 0, node.elements.length);
+			System.arraycopy(node.counts, 0, counts, 0, node.counts.length);
+			elements[node.elements.length] = element;
+			counts[node.counts.length] = count;
+		} else {
+			elements = node.elements;
+			counts = node.counts.clone();
+			counts[position] += count;
+		}
+		return new Node<>(node.left, key, elements, counts, node.right);
+	}
+
+	/**
+	 * Remove one occurrence of {@code element}, which must be contained in the subtree of {@code node}.
+	 */
+	private static <E> Node<E> remove(final Node<E> node, final int key, final Object element) {
+		if (key < node.key) {
+			return balance(remove(node.left, key, element), node, node.right);
+		} else if (key > node.key) {
+			return balance(node.left, node, remove(node.right, key, element));
+		}
+		final int position = node.indexOf(element);
+		if (node.counts[position] > 1) {
+			final int[] counts = node.counts.clone();
+			counts[position]--;
+			return new Node<>(node.left, key, node.elements, counts, node.right);
+		} else if (node.elements.length > 1) {
+			final Object[] elements = new Object[node.elements.length - 1];
+			final int[] counts = new int[node.counts.length - 1];
+			System.arraycopy(node.elements, 0, elements, 0, position);
+			System.arraycopy(node.elements, position + 1, elements, position, elements.length - position);
+			System.arraycopy(node.counts, 0, counts, 0, position);
+			System.arraycopy(node.counts, position + 1, counts, position, counts.length - position);
+			return new Node<>(node.left, key, elements, counts, node.right);
+		} else if (node.left == null) {
+			return node.right;
+		} else if (node.right == null) {
+			return node.left;
+		} else {
+			Node<E> successor = node.right;
+			while (successor.left != null) {
+				successor = successor.left;
+			}
+			return balance(node.left, successor, removeMin(node.right));
+		}
+	}
+
+	private static <E> Node<E> removeMin(final Node<E> node) {
+		if (node.left == null) {
+			return node.right;
+		}
+		return balance(removeMin(node.left), node, node.right);
+	}
+
+	/**
+	 * Create a balanced node with the given subtrees and the key and bucket of {@code center}.
+	 */
+	private static <E> Node<E> balance(final Node<E> left, final Node<E> center, final Node<E> right) {
+		final int leftHeight = height(left), rightHeight = height(right);
+		if (leftHeight > rightHeight + 1) {
+			if (height(left.left) >= height(left.right)) {
+				return left.with(left.left, center.with(left.right, right));
+			} else {
+				final Node<E> pivot = left.right;
+				return pivot.with(left.with(left.left, pivot.left), center.with(pivot.right, right));
+			}
+		} else if (rightHeight > leftHeight + 1) {
+			if (height(right.right) >= height(right.left)) {
+				return right.with(center.with(left, right.left), right.right);
+			} else {
+				final Node<E> pivot = right.left;
+				return pivot.with(center.with(left, pivot.left), right.with(pivot.right, right.right));
+			}
+		}
+		return center.with(left, right);
+	}
+
+	// ===============================================================================================================
+	// ====  Instance fields and methods  ============================================================================
+	// ===============================================================================================================
+
+	private final Node<E> root;
+
+	private PersistentMultiset(final Node<E> root) {
+		this.root = root;
+	}
+
+	/**
+	 * @return the number of occurrences of {@code element} in this multiset
+	 */
+	public int count(final Object element) {
+		if (element == null) {
+			return 0;
+		}
+		final Node<E> node = find(this.root, element.hashCode());
+		if (node == null) {
+			return 0;
+		}
+		final int position = node.indexOf(element);
+		return position < 0 ? 0 : node.counts[position];
+	}
+
+	@Override
+	public boolean contains(final Object element) {
+		return this.count(element) > 0;
+	}
+
+	@Override
+	public int size() {
+		return size(this.root);
+	}
+
+	/**
+	 * Create a new multiset that contains one more occurrence of the given element.
+	 */
+	public PersistentMultiset<E> plus(final E element) {
+		return new PersistentMultiset<>(add(this.root, element.hashCode(), Objects.requireNonNull(element), 1));
+	}
+
+	/**
+	 * Create a new multiset that contains one more occurrence of each of the given elements.
+	 */
+	public PersistentMultiset<E> plusAll(final Collection<? extends E> elements) {
+		Node<E> root = this.root;
+		for (final E element : elements) {
+			root = add(root, element.hashCode(), Objects.requireNonNull(element), 1);
+		}
+		return root == this.root ? this : new PersistentMultiset<>(root);
+	}
+
+	/**
+	 * Create a new multiset that contains one less occurrence of the given element.
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if {@code element} is not contained in this multiset
+	 */
+	public PersistentMultiset<E> minus(final Object element) {
+		if (!this.contains(element)) {
+			throw new IllegalArgumentException("Element is not contained in this multiset: " + element);
+		}
+		return new PersistentMultiset<>(remove(this.root, element.hashCode(), element));
+	}
+
+	/**
+	 * Create a new multiset that contains one less occurrence of each of the given elements.
+	 *
+	 * @throws java.lang.IllegalArgumentException
+	 * 		if any of {@code elements} is not contained in this multiset often enough
+	 */
+	public PersistentMultiset<E> minusAll(final Collection<?> elements) {
+		PersistentMultiset<E> result = this;
+		for (final Object element : elements) {
+			result = result.minus(element);
+		}
+		return result;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new Iterator<E>() {
+			private final ArrayDeque<Node<E>> path = new ArrayDeque<>();
+			private Node<E> current;
+			private int position;
+
+			{
+				this.descendLeft(PersistentMultiset.this.root);
+			}
+
+			private void descendLeft(Node<E> node) {
+				while (node != null) {
+					this.path.push(node);
+					node = node.left;
+				}
+			}
+
+			@Override
+			public boolean hasNext() {
+				return this.current != null || !this.path.isEmpty();
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public E next() {
+				if (this.current == null) {
+					if (this.path.isEmpty()) {
+						throw new NoSuchElementException();
+					}
+					this.current = this.path.pop();
+					this.position = 0;
+					this.descendLeft(this.current.right);
+				}
+				final E element = (E) this.current.elements[this.position++];
+				if (this.position == this.current.elements.length) {
+					this.current = null;
+				}
+				return element;
+			}
+		};
+	}
+
+	/**
+	 * Tree node, holding all (distinct) elements with the same hash code and their numbers of occurrences.
+	 */
+	private static final class Node<E> {
+		final Node<E> left, right;
+		final int key;
+		final Object[] elements;
+		final int[] counts;
+		final int size, height;
+
+		Node(final Node<E> left, final int key, final Object[] elements, final int[] counts, final Node<E> right) {
+			this.left = left;
+			this.key = key;
+			this.elements = elements;
+			this.counts = counts;
+			this.right = right;
+			this.size = size(left) + elements.length + size(right);
+			this.height = Math.max(height(left), height(right)) + 1;
+		}
+
+		Node<E> with(final Node<E> left, final Node<E> right) {
+			return new Node<>(left, this.key, this.elements, this.counts, right);
+		}
+
+		int indexOf(final Object element) {
+			for (int i = 0; i < this.elements.length; i++) {
+				if (this.elements[i].equals(element)) {
+					return i;
+				}
+			}
+			return -1;
+		}
+	}
+}
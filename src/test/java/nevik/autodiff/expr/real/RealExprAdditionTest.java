@@ -0,0 +1,94 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static nevik.autodiff.expr.real.RealConstant.reCons;
+import static nevik.autodiff.expr.real.RealExprAddition.reAdd;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMult;
+import static nevik.autodiff.expr.real.RealExprNegation.reNeg;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealExprAdditionTest {
+	private RealVariable x, y, z;
+
+	@Before
+	public void setUp() throws Exception {
+		x = new RealVariable("x");
+		y = new RealVariable("y");
+		z = new RealVariable("z");
+	}
+
+	@Test
+	public void testWithTermEqualsSortedSum() throws Exception {
+		final List<RealExpression> terms = new ArrayList<>();
+		terms.add(x);
+		RealExprAddition sum = reAdd(x);
+		for (int i = 0; i < 500; i++) {
+			final RealExpression term = reMult(reCons(i), (i % 2 == 0) ? y : z);
+			terms.add(term);
+			sum = sum.withTerm(term);
+		}
+		final RealExprAddition expected = reAdd(terms);
+		assertEquals(expected, sum);
+		assertEquals(expected.subexpressions, sum.subexpressions);
+		assertEquals(expected.getVariables(), sum.getVariables());
+		assertEquals(expected.usedTypes, sum.usedTypes);
+	}
+
+	@Test
+	public void testWithoutTerm() throws Exception {
+		final RealExprAddition sum = reAdd(x, reNeg(y), reMult(y, z));
+		final RealExprAddition reduced = sum.withoutTerm(reMult(y, z));
+		assertEquals(reAdd(x, reNeg(y)), reduced);
+		assertEquals(new HashSet<>(Arrays.asList(x, y)), reduced.getVariables());
+		assertTrue(reduced.usedTypes.contains(RealExprNegation.class));
+		assertEquals(new HashSet<>(Arrays.asList(RealExprAddition.class, RealVariable.class,
+				RealExprNegation.class)), reduced.usedTypes);
+		assertEquals(new HashSet<>(Arrays.asList(x)), reduced.withoutTerm(reNeg(y)).getVariables());
+		// the original is unchanged
+		assertEquals(reAdd(x, reNeg(y), reMult(y, z)), sum);
+		assertEquals(3, sum.subexpressions.size());
+	}
+
+	@Test
+	public void testWithFactor() throws Exception {
+		final RealExprMultiplication product = reMult(x, y).withFactor(reCons(2)).withoutFactor(x);
+		assertEquals(reMult(y, reCons(2)), product);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWithoutAbsentTerm() throws Exception {
+		reAdd(x, y).withoutTerm(z);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWithoutOnlyTerm() throws Exception {
+		reAdd(x).withoutTerm(x);
+	}
+}
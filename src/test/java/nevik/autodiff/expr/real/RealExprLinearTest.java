@@ -0,0 +1,142 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real;
+
+import nevik.autodiff.expr.real.table.RealExpressionArena;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static nevik.autodiff.expr.real.RealConstant.ONE;
+import static nevik.autodiff.expr.real.RealConstant.reCons;
+import static nevik.autodiff.expr.real.RealExprAddition.reAdd;
+import static nevik.autodiff.expr.real.RealExprLinear.reLinear;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMult;
+import static nevik.autodiff.expr.real.RealExprNegation.reNeg;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionBatchEvaluator.evaluateBatch;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionDerivative.derive;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionEvaluator.evaluateExpression;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionGradient.gradient;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionSimplifier.simplify;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionSimplifier.specialize;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealExprLinearTest {
+	private static final double EPS = 1e-12;
+
+	private RealVariable[] variables;
+	private RealAssignment assignment;
+	/**
+	 * 1.5 + sum_i (i - 2.5) * v_i, as an addition of scaled terms
+	 */
+	private RealExpression sum;
+
+	@Before
+	public void setUp() throws Exception {
+		variables = new RealVariable[6];
+		assignment = new RealAssignment();
+		final List<RealExpression> summands = new ArrayList<>();
+		summands.add(reCons(1.5));
+		for (int i = 0; i < variables.length; i++) {
+			variables[i] = new RealVariable("v" + i);
+			assignment.put(variables[i], 0.5 * i - 1);
+			summands.add(reMult(reCons(i - 2.5), variables[i]));
+		}
+		sum = reAdd(summands);
+	}
+
+	@Test
+	public void testSimplifierEmitsLinearForm() throws Exception {
+		final RealExpression simplified = simplify(sum);
+		assertTrue(simplified instanceof RealExprLinear);
+		final RealExprLinear linear = (RealExprLinear) simplified;
+		assertEquals(1.5, linear.constant, 0);
+		assertEquals(variables.length, linear.getTermCount());
+		assertEquals(evaluateExpression(sum, assignment), evaluateExpression(linear, assignment), EPS);
+		assertSame(linear, simplify(linear));
+	}
+
+	@Test
+	public void testSimplifierMergesLikeTerms() throws Exception {
+		final RealVariable a = variables[0], b = variables[1], c = variables[2], d = variables[3];
+		// 2a + 3a - b + c + c + d - d + 4 - 1  has only three terms left
+		final RealExpression expression = reAdd(reMult(reCons(2), a), reMult(a, reCons(3)), reNeg(b), c, c, d,
+				reNeg(d), reCons(4), reNeg(ONE));
+		assertEquals(reAdd(reCons(3), reMult(reCons(5), a), reNeg(b), reMult(reCons(2), c)), simplify(expression));
+		// adding a fourth variable turns it into a linear form
+		final RealExpression linear = simplify(reAdd(expression, variables[4]));
+		assertEquals(reLinear(3, new double[]{5, -1, 2, 1}, Arrays.asList(a, b, c, variables[4])), linear);
+		// nested linear forms are merged, and fixed variables are folded into the constant
+		assertEquals(reLinear(6, new double[]{10, -2, 4, 2}, Arrays.asList(a, b, c, variables[4])),
+				simplify(reAdd(linear, linear)));
+		final RealAssignment fixed = new RealAssignment();
+		fixed.put(a, 1.0);
+		assertEquals(reAdd(reCons(8), reNeg(b), reMult(reCons(2), c), variables[4]), specialize(linear, fixed));
+	}
+
+	@Test
+	public void testEquality() throws Exception {
+		final RealVariable a = variables[0], b = variables[1];
+		assertEquals(reLinear(1, new double[]{2, 3}, Arrays.asList(a, b)),
+				reLinear(1, new double[]{3, 2}, Arrays.asList(b, a)));
+		assertTrue(!reLinear(1, new double[]{2, 3}, Arrays.asList(a, b)).equals(
+				reLinear(1, new double[]{3, 2}, Arrays.asList(a, b))));
+	}
+
+	@Test
+	public void testDerivatives() throws Exception {
+		final RealExpression linear = simplify(sum);
+		// linear form nested in a non-linear expression
+		final RealExpression expression = reMult(linear, reAdd(linear, variables[0]));
+		final Map<RealVariable, Double> gradient = gradient(expression, assignment);
+		for (final RealVariable variable : variables) {
+			assertEquals(variable.name, evaluateExpression(derive(sum, variable), assignment),
+					evaluateExpression(derive(linear, variable), assignment), EPS);
+			assertEquals(variable.name, gradient.get(variable),
+					evaluateExpression(derive(expression, variable), assignment), EPS);
+		}
+		assertEquals(-2.5, gradient(linear, assignment).get(variables[0]), 0);
+	}
+
+	@Test
+	public void testBatchEvaluationAndNodeTable() throws Exception {
+		final RealExpression linear = simplify(sum);
+		final Map<RealVariable, double[]> rowValues = new HashMap<>();
+		rowValues.put(variables[1], new double[]{1, 2, 3});
+		rowValues.put(variables[4], new double[]{-1, 0, 7});
+		final double[] batch = evaluateBatch(linear, rowValues, assignment, 3);
+		for (int row = 0; row < 3; row++) {
+			final RealAssignment rowAssignment = new RealAssignment(assignment);
+			rowAssignment.put(variables[1], rowValues.get(variables[1])[row]);
+			rowAssignment.put(variables[4], rowValues.get(variables[4])[row]);
+			assertEquals(evaluateExpression(sum, rowAssignment), batch[row], EPS);
+		}
+		final RealExpressionArena arena = RealExpressionArena.of(linear);
+		assertEquals(evaluateExpression(sum, assignment),
+				evaluateExpression(arena.toExpression(arena.getRootIndex()), assignment), EPS);
+	}
+}
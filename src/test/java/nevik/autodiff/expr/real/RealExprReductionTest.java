@@ -0,0 +1,210 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static nevik.autodiff.expr.real.RealConstant.reCons;
+import static nevik.autodiff.expr.real.RealExprAddition.reAdd;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMult;
+import static nevik.autodiff.expr.real.RealExprNegation.reNeg;
+import static nevik.autodiff.expr.real.RealExprReduction.reMean;
+import static nevik.autodiff.expr.real.RealExprReduction.reProduct;
+import static nevik.autodiff.expr.real.RealExprReduction.reSum;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionDerivative.derive;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionEvaluator.evaluateExpression;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionGradient.gradient;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionSimplifier.simplify;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionSimplifier.specialize;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealExprReductionTest {
+	private static final int ROWS = 10000;
+
+	private RealVariable x, y, a, b;
+	private double[] xs, ys;
+	private Map<RealVariable, double[]> columns;
+	private RealAssignment parameters;
+	/**
+	 * Squared error of a linear model: (a*x + b - y)^2
+	 */
+	private RealExpression body;
+
+	@Before
+	public void setUp() throws Exception {
+		x = new RealVariable("x");
+		y = new RealVariable("y");
+		a = new RealVariable("a");
+		b = new RealVariable("b");
+		xs = new double[ROWS];
+		ys = new double[ROWS];
+		for (int i = 0; i < ROWS; i++) {
+			xs[i] = i * 1e-3;
+			ys[i] = 2 * xs[i] + 1 + Math.sin(i);
+		}
+		columns = new LinkedHashMap<>();
+		columns.put(x, xs);
+		columns.put(y, ys);
+		parameters = new RealAssignment();
+		parameters.put(a, 1.5);
+		parameters.put(b, 0.5);
+		final RealExpression residual = reAdd(reMult(a, x), b, reNeg(y));
+		body = reMult(residual, residual);
+	}
+
+	private double residual(final int i) {
+		return 1.5 * xs[i] + 0.5 - ys[i];
+	}
+
+	@Test
+	public void testVariables() throws Exception {
+		assertEquals(Collections.<RealVariable>emptySet(), reSum(reAdd(x, y), columns, ROWS).getVariables());
+		final RealExprReduction loss = reSum(body, columns, ROWS);
+		assertTrue(loss.getVariables().contains(a));
+		assertFalse(loss.getVariables().contains(x));
+	}
+
+	@Test
+	public void testEqualsComparesColumnContents() throws Exception {
+		final Map<RealVariable, double[]> copies = new HashMap<>();
+		copies.put(x, xs.clone());
+		copies.put(y, ys.clone());
+		assertEquals(reSum(body, columns, ROWS), reSum(body, copies, ROWS));
+		copies.get(y)[ROWS / 2] += 1;
+		assertFalse(reSum(body, columns, ROWS).equals(reSum(body, copies, ROWS)));
+	}
+
+	@Test
+	public void testEvaluate() throws Exception {
+		double sum = 0, product = 1;
+		for (int i = 0; i < ROWS; i++) {
+			sum += residual(i) * residual(i);
+		}
+		for (int i = 0; i < 100; i++) {
+			product *= 1 + residual(i) * residual(i);
+		}
+		assertEquals(sum, evaluateExpression(reSum(body, columns, ROWS), parameters), 1e-9 * sum);
+		assertEquals(sum / ROWS, evaluateExpression(reMean(body, columns, ROWS), parameters), 1e-9 * sum / ROWS);
+		assertEquals(product, evaluateExpression(reProduct(reAdd(reCons(1), body), columns, 100), parameters),
+				1e-9 * product);
+		assertEquals(0, evaluateExpression(reSum(body, columns, 0), parameters), 0);
+	}
+
+	@Test
+	public void testGradient() throws Exception {
+		double da = 0, db = 0;
+		for (int i = 0; i < ROWS; i++) {
+			da += 2 * residual(i) * xs[i];
+			db += 2 * residual(i);
+		}
+		final Map<RealVariable, Double> gradient = gradient(reMean(body, columns, ROWS), parameters);
+		assertEquals(da / ROWS, gradient.get(a), 1e-9 * Math.abs(da / ROWS));
+		assertEquals(db / ROWS, gradient.get(b), 1e-9 * Math.abs(db / ROWS));
+		assertEquals(2, gradient.size());
+
+		// the symbolic derivative agrees with the numeric one
+		assertEquals(gradient.get(a), evaluateExpression(derive(reMean(body, columns, ROWS), a), parameters),
+				1e-9 * Math.abs(da / ROWS));
+	}
+
+	@Test
+	public void testProductGradientMatchesMaterialized() throws Exception {
+		final int rows = 20;
+		final RealExpression factorBody = reAdd(reMult(a, x), reNeg(b));
+		final List<RealExpression> factors = new ArrayList<>();
+		for (int i = 0; i < rows; i++) {
+			factors.add(reAdd(reMult(a, reCons(xs[i * 100])), reNeg(b)));
+		}
+		final double[] sampled = new double[rows];
+		for (int i = 0; i < rows; i++) {
+			sampled[i] = xs[i * 100];
+		}
+		final Map<RealVariable, double[]> sampledColumns = new HashMap<>();
+		sampledColumns.put(x, sampled);
+		parameters.put(b, 0.5 * 1.5); // makes one factor zero
+		final Map<RealVariable, Double> expected = gradient(reMult(factors), parameters);
+		final Map<RealVariable, Double> actual = gradient(reProduct(factorBody, sampledColumns, rows), parameters);
+		assertEquals(expected.get(a), actual.get(a), 1e-12);
+		assertEquals(expected.get(b), actual.get(b), 1e-12);
+	}
+
+	@Test
+	public void testProductGradientWithSubnormalRow() throws Exception {
+		// d/da prod_i (a + r_i) = (a + r_2) + (a + r_1); dividing by the subnormal factor overflows
+		final RealVariable r = new RealVariable("r");
+		final Map<RealVariable, double[]> rows = new HashMap<>();
+		rows.put(r, new double[]{1e-320, 2});
+		parameters.put(a, 0.0);
+		assertEquals(2, gradient(reProduct(reAdd(a, r), rows, 2), parameters).get(a), 1e-12);
+	}
+
+	@Test
+	public void testProductWithZeroRow() throws Exception {
+		// d/da prod_i (a*r_i) with r = {0, 2, 3} is 0, but prod_i (a*r_i) * sum_i (r_i / (a*r_i)) is NaN
+		final RealVariable r = new RealVariable("r");
+		final Map<RealVariable, double[]> rows = new HashMap<>();
+		rows.put(r, new double[]{0, 2, 3});
+		final RealExprReduction product = reProduct(reMult(a, r), rows, 3);
+		assertEquals(0, gradient(product, parameters).get(a), 0);
+		try {
+			derive(product, a);
+			fail("Product reduction was differentiated symbolically");
+		} catch (final UnsupportedOperationException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testSimplifyPullsOutInvariantTerms() throws Exception {
+		// sum_i (3*a*x_i + b) = 3*a*sum_i x_i + n*b
+		final RealExpression simplified = simplify(reSum(reAdd(reMult(reCons(3), a, x), b), columns, ROWS));
+		double sumX = 0;
+		for (int i = 0; i < ROWS; i++) {
+			sumX += xs[i];
+		}
+		assertEquals(reAdd(reMult(reCons(3), a, reSum(x, columns, ROWS)), reMult(reCons(ROWS), b)), simplified);
+		assertEquals(3 * 1.5 * sumX + ROWS * 0.5, evaluateExpression(simplified, parameters), 1e-6);
+		assertEquals(reCons(ROWS * 2.0), simplify(reSum(reCons(2), columns, ROWS)));
+		assertEquals(a, simplify(reMean(a, columns, ROWS)));
+	}
+
+	@Test
+	public void testSpecializeKeepsRowVariables() throws Exception {
+		final RealAssignment fixed = new RealAssignment();
+		fixed.put(x, 100.0);
+		fixed.put(a, 1.5);
+		final RealExpression specialized = specialize(reSum(body, columns, ROWS), fixed);
+		assertTrue(specialized.getVariables().contains(b));
+		assertFalse(specialized.getVariables().contains(a));
+		assertEquals(evaluateExpression(reSum(body, columns, ROWS), parameters),
+				evaluateExpression(specialized, parameters), 1e-6);
+	}
+}
@@ -0,0 +1,121 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.batch;
+
+import nevik.autodiff.expr.real.RealAssignment;
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static nevik.autodiff.expr.real.RealConstant.reCons;
+import static nevik.autodiff.expr.real.RealExprAddition.reAdd;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMult;
+import static nevik.autodiff.expr.real.RealExprReciprocal.reRecip;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionBatchEvaluator.evaluateBatch;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealExpressionColumnarEvaluatorTest {
+	private static final int ROWS = 10001;
+
+	private Path directory;
+	private RealVariable x, y, p;
+	private double[] xs, ys;
+	private Map<RealVariable, MappedDoubleColumn> columns;
+	private RealAssignment batchValues;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("columns");
+		x = new RealVariable("x");
+		y = new RealVariable("y");
+		p = new RealVariable("p");
+		xs = new double[ROWS];
+		ys = new double[ROWS];
+		for (int i = 0; i < ROWS; i++) {
+			xs[i] = 0.5 * i;
+			ys[i] = 1 + Math.cos(i);
+		}
+		columns = new HashMap<>();
+		columns.put(x, MappedDoubleColumn.open(writeColumn("x.bin", xs)));
+		columns.put(y, MappedDoubleColumn.open(writeColumn("y.bin", ys)));
+		batchValues = new RealAssignment();
+		batchValues.put(p, 3.0);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		columns = null;
+		try {
+			Files.walk(directory).sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+		} catch (final Exception e) {
+			// still mapped on some platforms
+		}
+	}
+
+	private Path writeColumn(final String name, final double[] values) throws Exception {
+		final ByteBuffer buffer = ByteBuffer.allocate(values.length * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.asDoubleBuffer().put(values);
+		final Path path = directory.resolve(name);
+		Files.write(path, buffer.array());
+		return path;
+	}
+
+	@Test
+	public void testEvaluateIntoMappedColumn() throws Exception {
+		final RealExpression expression = reAdd(reMult(p, x), reRecip(y), reCons(-1));
+		final Path outputPath = directory.resolve("out.bin");
+		final MappedDoubleColumn output = MappedDoubleColumn.create(outputPath, ROWS);
+		new RealExpressionColumnarEvaluator(expression, columns, batchValues, 1000).evaluate(output);
+		output.force();
+
+		final Map<RealVariable, double[]> rowValues = new HashMap<>();
+		rowValues.put(x, xs);
+		rowValues.put(y, ys);
+		final double[] expected = evaluateBatch(expression, rowValues, batchValues, ROWS);
+		final double[] actual = new double[ROWS];
+		MappedDoubleColumn.open(outputPath).get(0, actual, 0, ROWS);
+		assertArrayEquals(expected, actual, 0);
+		assertEquals(expected[ROWS - 1], ByteBuffer.wrap(Files.readAllBytes(outputPath))
+				.order(ByteOrder.LITTLE_ENDIAN).getDouble((ROWS - 1) * Double.BYTES), 0);
+	}
+
+	@Test
+	public void testEvaluateIntoConsumer() throws Exception {
+		final double[] sum = new double[1];
+		new RealExpressionColumnarEvaluator(x, columns, batchValues).evaluate(value -> sum[0] += value);
+		assertEquals(0.5 * (ROWS - 1) * ROWS / 2, sum[0], 1e-6);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMismatchingColumns() throws Exception {
+		columns.put(p, MappedDoubleColumn.open(writeColumn("p.bin", new double[ROWS - 1])));
+		new RealExpressionColumnarEvaluator(x, columns, batchValues);
+	}
+}
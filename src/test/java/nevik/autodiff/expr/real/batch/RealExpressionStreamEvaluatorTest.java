@@ -0,0 +1,133 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.batch;
+
+import nevik.autodiff.expr.real.RealAssignment;
+import nevik.autodiff.expr.real.RealVariable;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static nevik.autodiff.expr.real.RealExprAddition.reAdd;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMult;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealExpressionStreamEvaluatorTest {
+	private static final double EPS = 1e-12;
+
+	private RealVariable x, y, p;
+	private RealExpressionStreamEvaluator evaluator;
+	private List<double[]> rows;
+	private double[] expected;
+
+	@Before
+	public void setUp() throws Exception {
+		x = new RealVariable("x");
+		y = new RealVariable("y");
+		p = new RealVariable("p");
+		final RealAssignment batchValues = new RealAssignment();
+		batchValues.put(p, 2.0);
+		// p*x + y
+		evaluator = new RealExpressionStreamEvaluator(reAdd(reMult(p, x), y), Arrays.asList(x, y), batchValues, 3,
+				1, TimeUnit.SECONDS);
+		rows = new ArrayList<>();
+		expected = new double[10];
+		for (int i = 0; i < 10; i++) {
+			rows.add(new double[]{i, -i * 0.5});
+			expected[i] = 1.5 * i;
+		}
+	}
+
+	@Test
+	public void testEvaluateIterator() throws Exception {
+		final PrimitiveIterator.OfDouble results = evaluator.evaluate(rows.iterator());
+		for (int i = 0; i < 10; i++) {
+			assertEquals(expected[i], results.nextDouble(), EPS);
+		}
+		assertFalse(results.hasNext());
+	}
+
+	@Test
+	public void testEvaluateSpliterator() throws Exception {
+		assertArrayEquals(expected, evaluator.evaluate(rows.spliterator()).toArray(), EPS);
+	}
+
+	@Test
+	public void testEvaluateQueue() throws Exception {
+		final BlockingQueue<double[]> queue = new ArrayBlockingQueue<>(4);
+		final Thread producer = new Thread(() -> {
+			try {
+				for (final double[] row : rows) {
+					queue.put(row);
+				}
+				queue.put(RealExpressionStreamEvaluator.END_OF_STREAM);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		producer.start();
+		final double[] results = new double[10];
+		final int[] count = {0};
+		evaluator.evaluate(queue, result -> results[count[0]++] = result);
+		producer.join();
+		assertEquals(10, count[0]);
+		assertArrayEquals(expected, results, EPS);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEvaluateRowOfWrongWidth() throws Exception {
+		evaluator.evaluate(Arrays.asList(new double[]{1}).iterator()).nextDouble();
+	}
+
+	@Test
+	public void testRowVariablesAreCopied() throws Exception {
+		final List<RealVariable> rowVariables = new ArrayList<>(Arrays.asList(x, y));
+		final RealExpressionStreamEvaluator copying = new RealExpressionStreamEvaluator(reAdd(x, y), rowVariables,
+				new RealAssignment(), 3, 1, TimeUnit.SECONDS);
+		rowVariables.set(0, p);
+		assertEquals(Arrays.asList(x, y), copying.rowVariables);
+		assertArrayEquals(new double[]{3}, copying.evaluate(Arrays.asList(new double[]{1, 2}).spliterator())
+				.toArray(), 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDuplicateRowVariables() throws Exception {
+		new RealExpressionStreamEvaluator(reAdd(x, y), Arrays.asList(x, y, x), new RealAssignment(), 3, 1,
+				TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void testZeroLatency() throws Exception {
+		final RealAssignment batchValues = new RealAssignment();
+		batchValues.put(p, 2.0);
+		final RealExpressionStreamEvaluator unbatched = new RealExpressionStreamEvaluator(reAdd(reMult(p, x), y),
+				Arrays.asList(x, y), batchValues, 3, 0, TimeUnit.SECONDS);
+		assertArrayEquals(expected, unbatched.evaluate(rows.spliterator()).toArray(), EPS);
+	}
+}
@@ -0,0 +1,163 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.io;
+
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealSuperExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import nevik.autodiff.expr.real.visitor.VisitorRealExpressionPrintingInfix;
+import nevik.autodiff.expr.real.visitor.VisitorRealExpressionPrintingInfix.PrintingInfixParams;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static nevik.autodiff.expr.real.RealConstant.reCons;
+import static nevik.autodiff.expr.real.RealExprAddition.reAdd;
+import static nevik.autodiff.expr.real.RealExprAddition.reAddUsrtd;
+import static nevik.autodiff.expr.real.RealExprFunction.reExp;
+import static nevik.autodiff.expr.real.RealExprFunction.reLog;
+import static nevik.autodiff.expr.real.RealExprFunction.reSin;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMult;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMultUsrtd;
+import static nevik.autodiff.expr.real.RealExprNegation.reNeg;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reAbs;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reMax;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reSelect;
+import static nevik.autodiff.expr.real.RealExprPower.rePow;
+import static nevik.autodiff.expr.real.RealExprReciprocal.reRecip;
+import static nevik.autodiff.expr.real.io.RealExpressionInfixParser.parse;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealExpressionInfixParserTest {
+	private RealVariable x, y, z;
+	private Map<RealVariable, String> varNames;
+	private Map<String, RealVariable> variables;
+
+	@Before
+	public void setUp() throws Exception {
+		x = new RealVariable("x");
+		y = new RealVariable("y");
+		z = new RealVariable("z");
+		varNames = new HashMap<>();
+		variables = new HashMap<>();
+		for (final RealVariable variable : new RealVariable[]{x, y, z}) {
+			varNames.put(variable, variable.name);
+			variables.put(variable.name, variable);
+		}
+	}
+
+	private String print(final RealExpression expression) {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		VisitorRealExpressionPrintingInfix.printExpression(expression, varNames, new PrintStream(output));
+		return new String(output.toByteArray(), StandardCharsets.US_ASCII);
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		final RealExpression[] expressions = {
+				reAdd(reMult(reCons(2.5), x), reNeg(y), reRecip(reAdd(z, reCons(-1e-7)))),
+				reMult(reRecip(x), reNeg(reNeg(reCons(-3))), reAdd(x, y, z)),
+				reNeg(reRecip(
+						reMult(x, reCons(Double.NEGATIVE_INFINITY), reCons(0.1), reCons(1.2345678901234567e300)))),
+				reAdd(reExp(rePow(x, reCons(2))), reLog(reSin(reMult(y, z))), rePow(reAdd(x, y), z)),
+				reSelect(reAdd(x, reNeg(y)), reMax(x, reCons(0)), reAbs(reMult(y, z))),
+		};
+		for (final RealExpression expression : expressions) {
+			final String printed = print(expression);
+			assertEquals(printed, expression, parse(printed, variables));
+			assertEquals(printed, expression,
+					parse(ByteBuffer.wrap(printed.getBytes(StandardCharsets.US_ASCII)), variables));
+		}
+	}
+
+	@Test
+	public void testRoundTripTemporaries() throws Exception {
+		final RealExpression shared = reAddUsrtd(x, y);
+		final RealExpression twice = reMultUsrtd(shared, shared);
+		final RealExpression expression = reAddUsrtd(twice, reNeg(twice), shared);
+		final StringBuilder printed = new StringBuilder();
+		VisitorRealExpressionPrintingInfix.printExpression(expression,
+				new PrintingInfixParams(varNames, printed, /*sharedAsTemporaries=*/true));
+		final RealExpression parsed = parse(printed, variables);
+		assertEquals(expression, parsed);
+		// the shared sub-expressions are shared again, and the temporaries are no variables
+		final RealExpression parsedTwice = ((RealSuperExpression) parsed).subexpressions.get(0);
+		assertSame(parsedTwice, ((RealSuperExpression) ((RealSuperExpression) parsed).subexpressions.get(1))
+				.subexpressions.get(0));
+		assertSame(((RealSuperExpression) parsedTwice).subexpressions.get(0),
+				((RealSuperExpression) parsed).subexpressions.get(2));
+		assertEquals(3, variables.size());
+	}
+
+	@Test
+	public void testUndefinedTemporaryIsVariable() throws Exception {
+		final RealExpression parsed = parse("$1 = x\n($1 + $0)", variables);
+		assertEquals(reAddUsrtd(x, variables.get("$0")), parsed);
+		assertNull(variables.get("$1"));
+	}
+
+	@Test
+	public void testParseNumbers() throws Exception {
+		assertSame(reCons(0.1), parse("0.1", variables));
+		assertSame(reCons(-1.5e-3), parse("-1.5E-3", variables));
+		assertSame(reCons(123456789.0), parse("123456789", variables));
+		assertSame(reCons(0.30000000000000004), parse("0.30000000000000004", variables));
+		assertSame(reCons(Double.NaN), parse("NaN", variables));
+	}
+
+	@Test
+	public void testParseGeneralInfix() throws Exception {
+		assertEquals(reAddUsrtd(x, reNeg(y), reMultUsrtd(reCons(2), z)), parse(" x - y + 2*z ", variables));
+		assertEquals(reMultUsrtd(x, reRecip(y)), parse("x / y", variables));
+		assertEquals(reRecip(reAddUsrtd(x, y)), parse("1 / (x + y)", variables));
+	}
+
+	@Test
+	public void testParseUnknownVariable() throws Exception {
+		final RealExpression parsed = parse("(w * w)", variables);
+		final RealVariable w = variables.get("w");
+		assertEquals(reMultUsrtd(w, w), parsed);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParseUnbalanced() throws Exception {
+		parse("(x + y", variables);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParseTrailingInput() throws Exception {
+		parse("x y", variables);
+	}
+
+	@Test
+	public void testFunctionNamesAsVariables() throws Exception {
+		final RealExpression parsed = parse("exp + pow(exp, 3) * log (x)", variables);
+		final RealVariable exp = variables.get("exp");
+		assertEquals(reAddUsrtd(exp, reMultUsrtd(rePow(exp, reCons(3)), reLog(x))), parsed);
+	}
+}
@@ -0,0 +1,109 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.poly;
+
+import nevik.autodiff.expr.real.RealAssignment;
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import org.junit.Before;
+import org.junit.Test;
+
+import static nevik.autodiff.expr.real.RealConstant.ONE;
+import static nevik.autodiff.expr.real.RealConstant.reCons;
+import static nevik.autodiff.expr.real.RealExprAddition.reAdd;
+import static nevik.autodiff.expr.real.RealExprFunction.reExp;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMult;
+import static nevik.autodiff.expr.real.RealExprNegation.reNeg;
+import static nevik.autodiff.expr.real.RealExprPower.rePow;
+import static nevik.autodiff.expr.real.RealExprReciprocal.reRecip;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionDerivative.derive;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionEvaluator.evaluateExpression;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealPolynomialTest {
+	private static final double EPS = 1e-9;
+
+	private RealVariable x, y, z;
+	private RealAssignment assignment;
+
+	@Before
+	public void setUp() throws Exception {
+		x = new RealVariable("x");
+		y = new RealVariable("y");
+		z = new RealVariable("z");
+		assignment = new RealAssignment();
+		assignment.put(x, 1.5);
+		assignment.put(y, -0.7);
+		assignment.put(z, 2.25);
+	}
+
+	@Test
+	public void testExpansion() throws Exception {
+		// (x + 1)^2 - x*x - 2*x = 1
+		final RealPolynomial constant =
+				RealPolynomial.of(reAdd(rePow(reAdd(x, ONE), 2), reNeg(reMult(x, x)), reMult(reCons(-2), x)));
+		assertEquals(1, constant.getTermCount());
+		assertEquals(0, constant.getDegree());
+		assertEquals(1.0, constant.getCoefficient(0), 0);
+
+		final RealPolynomial cube = RealPolynomial.of(reMult(x, x, reRecip(reCons(4)), x));
+		assertEquals(1, cube.getTermCount());
+		assertEquals(3, cube.getExponent(0, 0));
+		assertEquals(0.25, cube.getCoefficient(0), 0);
+
+		assertEquals(-1, RealPolynomial.of(reAdd(x, reNeg(x))).getDegree());
+	}
+
+	@Test
+	public void testEvaluationAndDerivatives() throws Exception {
+		// (x*y + z)^3 * (x - 2*y*z + 0.5) + x^7 + y^2*z
+		final RealExpression expression = reAdd(
+				reMult(rePow(reAdd(reMult(x, y), z), 3), reAdd(x, reMult(reCons(-2), y, z), reCons(0.5))),
+				rePow(x, 7), reMult(rePow(y, 2), z));
+		final RealPolynomial polynomial = RealPolynomial.of(expression);
+		final double expected = evaluateExpression(expression, assignment);
+		assertEquals(expected, polynomial.evaluate(assignment), EPS * Math.abs(expected));
+		assertEquals(expected, evaluateExpression(polynomial.toExpression(), assignment), EPS * Math.abs(expected));
+		assertEquals(8, polynomial.getDegree());
+		for (final RealVariable variable : new RealVariable[]{x, y, z}) {
+			final double derivative = evaluateExpression(derive(expression, variable), assignment);
+			assertEquals(variable.name, derivative, polynomial.derivative(variable).evaluate(assignment),
+					EPS * Math.abs(derivative));
+		}
+		assertEquals(0, polynomial.derivative(new RealVariable("w")).getTermCount());
+		// differentiating in the polynomial representation gives the canonical form of the derivative
+		assertEquals(RealPolynomial.of(rePow(x, 2)).derivative(x), RealPolynomial.of(reMult(reCons(2), x)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNonPolynomialReciprocal() throws Exception {
+		RealPolynomial.of(reAdd(x, reRecip(y)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNonPolynomialExponent() throws Exception {
+		RealPolynomial.of(rePow(x, 0.5));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsupportedType() throws Exception {
+		RealPolynomial.of(reExp(x));
+	}
+}
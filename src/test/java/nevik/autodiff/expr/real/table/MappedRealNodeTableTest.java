@@ -0,0 +1,229 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.table;
+
+import nevik.autodiff.expr.real.RealAssignment;
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import nevik.autodiff.expr.real.visitor.VisitorRealExpressionGradient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static nevik.autodiff.expr.real.RealConstant.reCons;
+import static nevik.autodiff.expr.real.RealExprAddition.reAdd;
+import static nevik.autodiff.expr.real.RealExprFunction.reExp;
+import static nevik.autodiff.expr.real.RealExprFunction.reSin;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMult;
+import static nevik.autodiff.expr.real.RealExprNegation.reNeg;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reAbs;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reMax;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reMin;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reSelect;
+import static nevik.autodiff.expr.real.RealExprPower.rePow;
+import static nevik.autodiff.expr.real.RealExprReciprocal.reRecip;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionEvaluator.evaluateExpression;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author agent
+ * @since 2026-10-18
+ */
+public class MappedRealNodeTableTest {
+	private static final double EPS = 1e-12;
+
+	private RealVariable x, y, z;
+	private RealExpression shared, expression;
+	private Path file;
+	private MappedRealNodeTable table;
+
+	@Before
+	public void setUp() throws Exception {
+		x = new RealVariable("x");
+		y = new RealVariable("y");
+		z = new RealVariable("z");
+		shared = reMult(x, y);
+		// x*y*z + 3*(x*y) - 1/z
+		expression = reAdd(reMult(shared, z), reMult(reCons(3), shared), reNeg(reRecip(z)));
+		file = Files.createTempFile("expression", ".adnt");
+		try (OutputStream output = Files.newOutputStream(file)) {
+			RealNodeTableWriter.write(expression, output);
+		}
+		table = MappedRealNodeTable.open(file);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		table = null;
+		try {
+			Files.deleteIfExists(file);
+		} catch (final IOException e) {
+			// still mapped on some platforms
+		}
+	}
+
+	private double[] values(final double xValue, final double yValue, final double zValue) {
+		final double[] values = new double[3];
+		values[table.getVariableIndex("x")] = xValue;
+		values[table.getVariableIndex("y")] = yValue;
+		values[table.getVariableIndex("z")] = zValue;
+		return values;
+	}
+
+	@Test
+	public void testEvaluate() throws Exception {
+		final RealAssignment assignment = new RealAssignment();
+		assignment.put(x, 2.0);
+		assignment.put(y, -1.5);
+		assignment.put(z, 4.0);
+		assertEquals(evaluateExpression(expression, assignment), table.evaluate(values(2, -1.5, 4)), EPS);
+	}
+
+	@Test
+	public void testGradient() throws Exception {
+		final double[] gradient = new double[3];
+		final double value = table.gradient(values(2, -1.5, 4), gradient);
+		assertEquals(table.evaluate(values(2, -1.5, 4)), value, EPS);
+		// d/dx = y*z + 3*y, d/dy = x*z + 3*x, d/dz = x*y + 1/z^2
+		assertEquals(-1.5 * 4 + 3 * -1.5, gradient[table.getVariableIndex("x")], EPS);
+		assertEquals(2 * 4 + 3 * 2, gradient[table.getVariableIndex("y")], EPS);
+		assertEquals(2 * -1.5 + 1 / 16.0, gradient[table.getVariableIndex("z")], EPS);
+	}
+
+	@Test
+	public void testGradientWithZeroFactor() throws Exception {
+		final double[] gradient = new double[3];
+		table.gradient(values(0, -1.5, 4), gradient);
+		assertEquals(-1.5 * 4 + 3 * -1.5, gradient[table.getVariableIndex("x")], EPS);
+		assertEquals(0, gradient[table.getVariableIndex("y")], EPS);
+	}
+
+	@Test
+	public void testGradientWithUnderflowingProduct() throws Exception {
+		// the product of all factors underflows to 0, but the partial derivatives w.r.t. x and y do not
+		final RealExpressionArena arena = RealExpressionArena.of(reMult(x, y, z));
+		final MappedRealNodeTable product = arena.toOffHeap();
+		final double[] values = new double[3], gradient = new double[3];
+		values[arena.getVariableIndex(x)] = 1e-200;
+		values[arena.getVariableIndex(y)] = 1e-200;
+		values[arena.getVariableIndex(z)] = 1e300;
+		product.gradient(values, gradient);
+		assertEquals(1e100, gradient[arena.getVariableIndex(x)], 1e88);
+		assertEquals(1e100, gradient[arena.getVariableIndex(y)], 1e88);
+		assertEquals(0, gradient[arena.getVariableIndex(z)], 0);
+	}
+
+	@Test
+	public void testFunctionsPowersAndPiecewise() throws Exception {
+		// exp(x*y) + |y|^1.5 + x^z + select(x - y, max(x, z), sin(z)) + min(y, z)
+		final RealExpression mixed = reAdd(reExp(reMult(x, y)), rePow(reAbs(y), reCons(1.5)), rePow(x, z),
+				reSelect(reAdd(x, reNeg(y)), reMax(x, z), reSin(z)), reMin(y, z));
+		final RealExpressionArena arena = RealExpressionArena.of(mixed);
+		final MappedRealNodeTable mapped = arena.toOffHeap();
+		final RealAssignment assignment = new RealAssignment();
+		assignment.put(x, 2.0);
+		assignment.put(y, -1.5);
+		assignment.put(z, 4.0);
+		final double[] values = new double[3], gradient = new double[3];
+		for (final RealVariable variable : assignment.keySet()) {
+			values[arena.getVariableIndex(variable)] = assignment.get(variable);
+		}
+		assertEquals(evaluateExpression(mixed, assignment), mapped.gradient(values, gradient), EPS);
+		final Map<RealVariable, Double> expected = VisitorRealExpressionGradient.gradient(mixed, assignment);
+		for (final RealVariable variable : assignment.keySet()) {
+			assertEquals(expected.get(variable), gradient[arena.getVariableIndex(variable)], EPS);
+		}
+		assertEquals(mixed, mapped.getExpression(mapped.getRootIndex(), new RealVariable[]{
+				arena.getVariable(0), arena.getVariable(1), arena.getVariable(2)}));
+	}
+
+	@Test(expected = IOException.class)
+	public void testRejectsPiecewiseKindOutOfRange() throws Exception {
+		final RealExpressionArena arena = RealExpressionArena.of(reAbs(x));
+		final ByteBuffer buffer = RealNodeTableWriter.toByteBuffer(arena, /*direct=*/false);
+		final int root = buffer.limit() - RealNodeTableFormat.NODE_SIZE;
+		assertEquals(RealNodeTableFormat.OP_PIECEWISE, buffer.getInt(root));
+		buffer.putInt(root + 2 * Integer.BYTES, 42);
+		new MappedRealNodeTable(buffer);
+	}
+
+	@Test
+	public void testGetExpression() throws Exception {
+		final Map<String, RealVariable> variables = new HashMap<>();
+		variables.put("x", x);
+		variables.put("y", y);
+		variables.put("z", z);
+		final RealVariable[] resolved = RealNodeTables.resolveVariables(table, variables);
+		assertEquals(expression, table.getExpression(table.getRootIndex(), resolved));
+	}
+
+	@Test(expected = IOException.class)
+	public void testRejectsNameBeyondEnd() throws Exception {
+		final byte[] data = Files.readAllBytes(file);
+		// the length of the first variable name
+		ByteBuffer.wrap(data).putInt(RealNodeTableFormat.HEADER_SIZE, data.length);
+		new MappedRealNodeTable(ByteBuffer.wrap(data));
+	}
+
+	@Test(expected = IOException.class)
+	public void testRejectsDuplicateNames() throws Exception {
+		final byte[] data = Files.readAllBytes(file);
+		// all names are one byte long and follow their lengths
+		data[RealNodeTableFormat.HEADER_SIZE + Integer.BYTES] = 'x';
+		data[RealNodeTableFormat.HEADER_SIZE + 2 * Integer.BYTES + 1] = 'x';
+		new MappedRealNodeTable(ByteBuffer.wrap(data));
+	}
+
+	@Test(expected = IOException.class)
+	public void testRejectsOperandAfterNode() throws Exception {
+		final byte[] data = Files.readAllBytes(file);
+		// let the first node (a leaf) be the negation of the root, which comes after it
+		final int firstNode = data.length - table.getNodeCount() * RealNodeTableFormat.NODE_SIZE;
+		ByteBuffer.wrap(data).putInt(firstNode, RealNodeTableFormat.OP_NEGATION)
+				.putInt(firstNode + Integer.BYTES, table.getRootIndex());
+		new MappedRealNodeTable(ByteBuffer.wrap(data));
+	}
+
+	@Test(expected = IOException.class)
+	public void testRejectsUnknownOpcode() throws Exception {
+		final byte[] data = Files.readAllBytes(file);
+		ByteBuffer.wrap(data).putInt(data.length - RealNodeTableFormat.NODE_SIZE, 42);
+		new MappedRealNodeTable(ByteBuffer.wrap(data));
+	}
+
+	@Test(expected = IOException.class)
+	public void testRejectsVariableIndexOutOfRange() throws Exception {
+		final byte[] data = Files.readAllBytes(file);
+		final ByteBuffer buffer = ByteBuffer.wrap(data);
+		// find the first variable node and let it refer to a variable beyond the variable table
+		for (int node = data.length - table.getNodeCount() * RealNodeTableFormat.NODE_SIZE; ;
+				node += RealNodeTableFormat.NODE_SIZE) {
+			if (buffer.getInt(node) == RealNodeTableFormat.OP_VARIABLE) {
+				buffer.putInt(node + Integer.BYTES, table.getVariableCount());
+				break;
+			}
+		}
+		new MappedRealNodeTable(ByteBuffer.wrap(data));
+	}
+}
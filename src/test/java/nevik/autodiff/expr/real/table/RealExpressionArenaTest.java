@@ -0,0 +1,155 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.table;
+
+import nevik.autodiff.expr.real.RealAssignment;
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import org.junit.Before;
+import org.junit.Test;
+
+import static nevik.autodiff.expr.real.RealConstant.reCons;
+import static nevik.autodiff.expr.real.RealExprAddition.reAdd;
+import static nevik.autodiff.expr.real.RealExprFunction.reTanh;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMult;
+import static nevik.autodiff.expr.real.RealExprNegation.reNeg;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reSelect;
+import static nevik.autodiff.expr.real.RealExprPower.rePow;
+import static nevik.autodiff.expr.real.RealExprReciprocal.reRecip;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_ADDITION;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_FUNCTION;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_MULTIPLICATION;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_PIECEWISE;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_POWER;
+import static nevik.autodiff.expr.real.table.RealNodeTableFormat.OP_VARIABLE;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionEvaluator.evaluateExpression;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealExpressionArenaTest {
+	private static final double EPS = 1e-12;
+
+	private RealVariable x, y, z;
+	private RealExpression shared, expression;
+	private RealExpressionArena arena;
+
+	@Before
+	public void setUp() throws Exception {
+		x = new RealVariable("x");
+		y = new RealVariable("y");
+		z = new RealVariable("z");
+		shared = reMult(x, y);
+		// x*y*z + 3*(x*y) - 1/z
+		expression = reAdd(reMult(shared, z), reMult(reCons(3), shared), reNeg(reRecip(z)));
+		arena = RealExpressionArena.of(expression);
+	}
+
+	private double[] values(final double xValue, final double yValue, final double zValue) {
+		final double[] values = new double[arena.getVariableCount()];
+		values[arena.getVariableIndex(x)] = xValue;
+		values[arena.getVariableIndex(y)] = yValue;
+		values[arena.getVariableIndex(z)] = zValue;
+		return values;
+	}
+
+	@Test
+	public void testToExpression() throws Exception {
+		assertEquals(expression, arena.toExpression(arena.getRootIndex()));
+		assertSame(x, arena.getVariable(arena.getVariableIndex(x)));
+	}
+
+	@Test
+	public void testSharedNodesStoredOnce() throws Exception {
+		// x, y, z, x*y, x*y*z, 3, 3*(x*y), 1/z, -(1/z), sum
+		assertEquals(10, arena.getNodeCount());
+		assertEquals(3, arena.getVariableCount());
+		assertEquals(1, arena.getConstantCount());
+	}
+
+	@Test
+	public void testHandles() throws Exception {
+		final RealNodeHandle root = arena.getHandle(arena.getRootIndex());
+		assertEquals(OP_ADDITION, root.getOpcode());
+		assertEquals(3, root.getSubexpressionCount());
+		final RealNodeHandle sharedHandle = arena.add(shared);
+		assertEquals(shared, sharedHandle.toExpression());
+		assertEquals(OP_MULTIPLICATION, sharedHandle.getOpcode());
+		assertEquals(OP_VARIABLE, sharedHandle.getSubexpression(0).getOpcode());
+		for (int i = 0; i < root.getSubexpressionCount(); i++) {
+			assertEquals(arena, root.getSubexpression(i).arena);
+		}
+	}
+
+	@Test
+	public void testPowerAndPiecewiseHandles() throws Exception {
+		final RealNodeHandle power = arena.add(rePow(x, reSelect(y, z, reCons(2))));
+		assertEquals(OP_POWER, power.getOpcode());
+		assertEquals(2, power.getSubexpressionCount());
+		assertEquals(x, power.getSubexpression(0).getVariable());
+		final RealNodeHandle select = power.getSubexpression(1);
+		assertEquals(OP_PIECEWISE, select.getOpcode());
+		assertEquals(3, select.getSubexpressionCount());
+		assertEquals(2, select.getSubexpression(2).getConstantValue(), 0);
+		assertEquals(OP_FUNCTION, arena.add(reTanh(x)).getOpcode());
+	}
+
+	@Test
+	public void testAddMultipleExpressions() throws Exception {
+		final RealNodeHandle first = arena.getHandle(arena.getRootIndex());
+		final RealNodeHandle second = arena.add(reAdd(x, reCons(3)));
+		assertEquals(second.node, arena.getRootIndex());
+		assertEquals(3, arena.getVariableCount());
+		assertEquals(1, arena.getConstantCount());
+		assertEquals(expression, first.toExpression());
+		assertEquals(reAdd(x, reCons(3)), second.toExpression());
+	}
+
+	@Test
+	public void testEvaluateAndGradient() throws Exception {
+		final RealAssignment assignment = new RealAssignment();
+		assignment.put(x, 2.0);
+		assignment.put(y, -1.5);
+		assignment.put(z, 4.0);
+		final double[] nodeValues = new double[arena.getNodeCount()];
+		assertEquals(evaluateExpression(expression, assignment),
+				RealNodeTables.evaluate(arena, values(2, -1.5, 4), nodeValues), EPS);
+
+		final double[] gradient = new double[arena.getVariableCount()];
+		RealNodeTables.gradient(arena, values(2, -1.5, 4), gradient, nodeValues, new double[arena.getNodeCount()]);
+		assertEquals(-1.5 * 4 + 3 * -1.5, gradient[arena.getVariableIndex(x)], EPS);
+		assertEquals(2 * 4 + 3 * 2, gradient[arena.getVariableIndex(y)], EPS);
+		assertEquals(2 * -1.5 + 1 / 16.0, gradient[arena.getVariableIndex(z)], EPS);
+	}
+
+	@Test
+	public void testToOffHeap() throws Exception {
+		arena.trimToSize();
+		final MappedRealNodeTable offHeap = arena.toOffHeap();
+		assertEquals(arena.getNodeCount(), offHeap.getNodeCount());
+		assertEquals(RealNodeTables.evaluate(arena, values(2, -1.5, 4), new double[arena.getNodeCount()]),
+				offHeap.evaluate(values(2, -1.5, 4)), EPS);
+		assertEquals(arena.getVariableIndex(y), offHeap.getVariableIndex("y"));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testEmptyArenaToOffHeap() throws Exception {
+		new RealExpressionArena().toOffHeap();
+	}
+}
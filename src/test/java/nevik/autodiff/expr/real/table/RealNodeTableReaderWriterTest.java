@@ -0,0 +1,171 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.table;
+
+import nevik.autodiff.expr.real.RealExprAddition;
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import static nevik.autodiff.expr.real.RealConstant.reCons;
+import static nevik.autodiff.expr.real.RealExprAddition.reAdd;
+import static nevik.autodiff.expr.real.RealExprFunction.reExp;
+import static nevik.autodiff.expr.real.RealExprFunction.reLog;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMult;
+import static nevik.autodiff.expr.real.RealExprNegation.reNeg;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reAbs;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reMax;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reSelect;
+import static nevik.autodiff.expr.real.RealExprPower.rePow;
+import static nevik.autodiff.expr.real.RealExprReciprocal.reRecip;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealNodeTableReaderWriterTest {
+	private RealVariable x, y;
+
+	@Before
+	public void setUp() throws Exception {
+		x = new RealVariable("x");
+		y = new RealVariable("y");
+	}
+
+	private static byte[] write(final RealExpression expression) throws IOException {
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		RealNodeTableWriter.write(expression, output);
+		return output.toByteArray();
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		final RealExpression expression = reAdd(reMult(reCons(2.5), x), reNeg(reRecip(y)), reCons(-1));
+		final Map<String, RealVariable> variables = new HashMap<>();
+		variables.put("x", x);
+		variables.put("y", y);
+		assertEquals(expression, RealNodeTableReader.read(new ByteArrayInputStream(write(expression)), variables));
+	}
+
+	@Test
+	public void testRoundTripFunctionsPowersAndPiecewise() throws Exception {
+		final RealExpression expression = reAdd(reExp(reMult(reCons(0.5), x)), rePow(reAbs(y), reCons(1.5)),
+				reSelect(reAdd(x, reNeg(y)), reMax(x, y), reLog(rePow(x, y))));
+		final Map<String, RealVariable> variables = new HashMap<>();
+		variables.put("x", x);
+		variables.put("y", y);
+		assertEquals(expression, RealNodeTableReader.read(new ByteArrayInputStream(write(expression)), variables));
+	}
+
+	@Test
+	public void testReadVersion1() throws Exception {
+		// version 1 has no opcodes beyond OP_RECIPROCAL, so tables using only those are unchanged
+		final RealExpression expression = reAdd(reMult(reCons(2.5), x), reNeg(reRecip(y)));
+		final byte[] data = write(expression);
+		ByteBuffer.wrap(data).putInt(Integer.BYTES, 1);
+		final Map<String, RealVariable> variables = new HashMap<>();
+		variables.put("x", x);
+		variables.put("y", y);
+		assertEquals(expression, RealNodeTableReader.read(new ByteArrayInputStream(data), variables));
+	}
+
+	@Test(expected = IOException.class)
+	public void testReadRejectsFutureVersion() throws Exception {
+		final byte[] data = write(reMult(x, y));
+		ByteBuffer.wrap(data).putInt(Integer.BYTES, RealNodeTableFormat.VERSION + 1);
+		RealNodeTableReader.read(new ByteArrayInputStream(data));
+	}
+
+	@Test
+	public void testReadCreatesVariables() throws Exception {
+		final Map<String, RealVariable> variables = new HashMap<>();
+		variables.put("x", x);
+		final RealExpression read = RealNodeTableReader.read(new ByteArrayInputStream(write(reMult(x, y))),
+				variables);
+		assertEquals(2, variables.size());
+		assertTrue(read.getVariables().contains(x));
+		assertEquals("y", variables.get("y").name);
+		assertTrue(read.getVariables().contains(variables.get("y")));
+	}
+
+	@Test
+	public void testSharedSubexpressionsWrittenOnce() throws Exception {
+		// every level doubles the size of the tree, but adds only one node to the DAG
+		RealExpression expression = reAdd(x, y);
+		for (int i = 0; i < 30; i++) {
+			expression = reAdd(expression, expression);
+		}
+		final byte[] data = write(expression);
+		assertTrue(data.length < 1000);
+		final RealExprAddition read = (RealExprAddition) RealNodeTableReader.read(new ByteArrayInputStream(data));
+		assertSame(read.subexpressions.get(0), read.subexpressions.get(1));
+	}
+
+	@Test(expected = IOException.class)
+	public void testReadRejectsGarbage() throws Exception {
+		RealNodeTableReader.read(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}));
+	}
+
+	@Test(expected = IOException.class)
+	public void testReadRejectsNegativeChildCount() throws Exception {
+		final byte[] data = write(reMult(x, y));
+		// the second argument of the last node (the product) is its number of children
+		ByteBuffer.wrap(data).putInt(data.length - Integer.BYTES, -1);
+		RealNodeTableReader.read(new ByteArrayInputStream(data));
+	}
+
+	@Test(expected = IOException.class)
+	public void testReadRejectsTruncatedTableWithHugeCounts() throws Exception {
+		final byte[] data = write(reMult(x, y));
+		// claim far more constants and children than the file contains
+		ByteBuffer.wrap(data).putInt(3 * Integer.BYTES, Integer.MAX_VALUE).putInt(4 * Integer.BYTES,
+				Integer.MAX_VALUE);
+		RealNodeTableReader.read(new ByteArrayInputStream(data));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWriteRejectsDuplicateNames() throws Exception {
+		// two distinct variables named "x" would be merged into one when read
+		write(reMult(x, reAdd(new RealVariable("x"), reCons(3))));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWriteRejectsDuplicateStoredNames() throws Exception {
+		final Map<RealVariable, String> varNames = new HashMap<>();
+		varNames.put(y, "x");
+		RealNodeTableWriter.write(reMult(x, y), varNames, new ByteArrayOutputStream());
+	}
+
+	@Test(expected = IOException.class)
+	public void testReadRejectsDuplicateNames() throws Exception {
+		final byte[] data = write(reMult(x, y));
+		// both names are one byte long and follow their lengths
+		data[RealNodeTableFormat.HEADER_SIZE + Integer.BYTES] = 'x';
+		data[RealNodeTableFormat.HEADER_SIZE + 2 * Integer.BYTES + 1] = 'x';
+		RealNodeTableReader.read(new ByteArrayInputStream(data));
+	}
+}
@@ -0,0 +1,151 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.tape;
+
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static nevik.autodiff.expr.real.RealConstant.reCons;
+import static nevik.autodiff.expr.real.RealExprAddition.reAdd;
+import static nevik.autodiff.expr.real.RealExprFunction.reExp;
+import static nevik.autodiff.expr.real.RealExprFunction.reLog;
+import static nevik.autodiff.expr.real.RealExprFunction.reSin;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMult;
+import static nevik.autodiff.expr.real.RealExprNegation.reNeg;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reAbs;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reMax;
+import static nevik.autodiff.expr.real.RealExprPower.rePow;
+import static nevik.autodiff.expr.real.RealExprReciprocal.reRecip;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealCheckpointedGradientTest {
+	private static final int N = 60;
+	private static final int STEPS = 200;
+
+	private RealExpressionTape tape;
+	private double[] point;
+	private double expectedValue;
+	private double[] expectedGradient;
+
+	@Before
+	public void setUp() throws Exception {
+		final RealVariable[] x = new RealVariable[N];
+		for (int i = 0; i < N; i++) {
+			x[i] = new RealVariable("x" + i);
+		}
+		// explicit time stepping of y' = f(y, x_j): a long chain in which only a few values are alive at a time
+		RealExpression y = reCons(0.5);
+		for (int k = 0; k < STEPS; k++) {
+			final RealVariable xj = x[k % N];
+			final RealExpression slope = reAdd(reMult(reSin(y), xj), reNeg(reMult(reCons(0.1), y, y)),
+					reRecip(reAdd(reCons(2), rePow(xj, 2))), reMult(reCons(0.1), reMax(xj, reLog(reAdd(reCons(3), y)))),
+					reMult(reCons(0.01), rePow(reAbs(y), reAdd(reCons(1), reMult(reCons(0.01), x[N - 1])))),
+					reExp(reNeg(reMult(y, x[0]))));
+			y = reAdd(y, reMult(reCons(0.05), slope));
+		}
+		tape = RealExpressionTape.record(y);
+		point = new double[N];
+		for (int j = 0; j < N; j++) {
+			point[j] = 1.5 * Math.sin(0.7 * j + 0.3);
+		}
+		expectedGradient = new double[N];
+		expectedValue = new RealExpressionHessian(tape).gradient(point, expectedGradient);
+	}
+
+	private RealCheckpointedGradient assertIdentical(final long budget) {
+		final RealCheckpointedGradient engine = new RealCheckpointedGradient(tape, budget);
+		assertTrue(engine.getMemoryUsage() <= budget);
+		final double[] gradient = new double[N];
+		// repeated calls reuse the same buffers
+		for (int k = 0; k < 2; k++) {
+			assertEquals(expectedValue, engine.gradient(point, gradient), 0);
+			assertArrayEquals(expectedGradient, gradient, 0);
+		}
+		return engine;
+	}
+
+	@Test
+	public void testFullBudget() {
+		final RealCheckpointedGradient engine = assertIdentical(Long.MAX_VALUE);
+		assertEquals(1, engine.getCheckpointCount());
+		assertEquals(tape.getNodeCount(), engine.getEvaluationCount());
+		// values of the expression tree are short-lived
+		assertTrue(engine.getRegisterCount() < tape.getNodeCount() / 10);
+	}
+
+	@Test
+	public void testSmallerBudgetsRecomputeMore() {
+		final long fullMemory = 2L * Double.BYTES * tape.getNodeCount();
+		long previousEvaluations = 0;
+		for (final long budget : new long[]{fullMemory / 4, fullMemory / 8, fullMemory / 20}) {
+			final RealCheckpointedGradient engine = assertIdentical(budget);
+			assertTrue(engine.getEvaluationCount() >= previousEvaluations);
+			previousEvaluations = engine.getEvaluationCount();
+		}
+		assertTrue(previousEvaluations > 2 * tape.getNodeCount());
+	}
+
+	@Test
+	public void testMinimalBudget() {
+		// find the smallest budget that is accepted
+		long budget = Double.BYTES;
+		while (true) {
+			try {
+				new RealCheckpointedGradient(tape, budget);
+				break;
+			} catch (IllegalArgumentException e) {
+				budget += Double.BYTES;
+			}
+		}
+		final RealCheckpointedGradient engine = assertIdentical(budget);
+		assertEquals(1, engine.getSegmentLength());
+		assertEquals(1, engine.getCheckpointCount());
+	}
+
+	@Test
+	public void testPowerAtZeroBase() {
+		// at x = 0, the terms of x^0 and x^y have the limit 0 (as with the full tape), not 0 * infinity = NaN
+		final RealVariable x = new RealVariable("x"), y = new RealVariable("y");
+		final RealExpressionTape powerTape = RealExpressionTape.record(reAdd(rePow(x, 0), rePow(x, y)));
+		final double[] zeroBase = new double[2];
+		zeroBase[powerTape.indexOf(y)] = 2;
+		final double[] gradient = new double[2];
+		new RealCheckpointedGradient(powerTape, Long.MAX_VALUE).gradient(zeroBase, gradient);
+		assertArrayEquals(new double[2], gradient, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBudgetTooSmall() {
+		new RealCheckpointedGradient(tape, 64);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsMultipleOutputs() {
+		final RealVariable x = new RealVariable("x");
+		new RealCheckpointedGradient(RealExpressionTape.record(Arrays.<RealExpression>asList(x, reExp(x))),
+				Long.MAX_VALUE);
+	}
+}
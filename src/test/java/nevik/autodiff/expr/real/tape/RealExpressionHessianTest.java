@@ -0,0 +1,192 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.tape;
+
+import nevik.autodiff.expr.real.RealAssignment;
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import org.junit.Before;
+import org.junit.Test;
+
+import static nevik.autodiff.expr.real.RealConstant.reCons;
+import static nevik.autodiff.expr.real.RealExprAddition.reAdd;
+import static nevik.autodiff.expr.real.RealExprFunction.reExp;
+import static nevik.autodiff.expr.real.RealExprFunction.reLog;
+import static nevik.autodiff.expr.real.RealExprFunction.reSin;
+import static nevik.autodiff.expr.real.RealExprFunction.reTanh;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMult;
+import static nevik.autodiff.expr.real.RealExprNegation.reNeg;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reAbs;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reMin;
+import static nevik.autodiff.expr.real.RealExprPower.rePow;
+import static nevik.autodiff.expr.real.RealExprReciprocal.reRecip;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionDerivative.derive;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionEvaluator.evaluateExpression;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealExpressionHessianTest {
+	private static final double EPS = 1e-9;
+
+	private RealVariable x, y, z;
+	private RealVariable[] variables;
+	private RealExpression objective;
+	private RealExpressionHessian engine;
+
+	@Before
+	public void setUp() throws Exception {
+		x = new RealVariable("x");
+		y = new RealVariable("y");
+		z = new RealVariable("z");
+		// x*y*z + exp(x)*sin(y) + x^3 + y^z + 1/(x+z) - tanh(x*z) + log(y) * min(x, z^2) + abs(x - y)
+		objective = reAdd(reMult(x, y, z), reMult(reExp(x), reSin(y)), rePow(x, 3), rePow(y, z),
+				reRecip(reAdd(x, z)), reNeg(reTanh(reMult(x, z))), reMult(reLog(y), reMin(x, rePow(z, 2))),
+				reAbs(reAdd(x, reNeg(y))), reCons(4));
+		engine = new RealExpressionHessian(objective);
+		variables = new RealVariable[engine.tape.getVariableCount()];
+		for (int i = 0; i < variables.length; i++) {
+			variables[i] = engine.tape.getVariable(i);
+		}
+	}
+
+	/**
+	 * Create a point on the tape of {@link #engine}, whose variable order depends on the (identity) hashes of the
+	 * variables.
+	 */
+	private double[] point(final double xValue, final double yValue, final double zValue) {
+		final double[] point = new double[3];
+		point[engine.tape.indexOf(x)] = xValue;
+		point[engine.tape.indexOf(y)] = yValue;
+		point[engine.tape.indexOf(z)] = zValue;
+		return point;
+	}
+
+	private RealAssignment assignment(final double[] point) {
+		final RealAssignment assignment = new RealAssignment();
+		for (int i = 0; i < variables.length; i++) {
+			assignment.put(variables[i], point[i]);
+		}
+		return assignment;
+	}
+
+	private double[] expectedHessian(final double[] point) {
+		final int n = variables.length;
+		final double[] hessian = new double[n * n];
+		for (int i = 0; i < n; i++) {
+			final RealExpression derivative = derive(objective, variables[i]);
+			for (int j = 0; j < n; j++) {
+				hessian[i * n + j] = evaluateExpression(derive(derivative, variables[j]), assignment(point));
+			}
+		}
+		return hessian;
+	}
+
+	@Test
+	public void testGradient() throws Exception {
+		final double[] point = point(0.7, 1.3, 0.4);
+		final double[] gradient = new double[3];
+		assertEquals(evaluateExpression(objective, assignment(point)), engine.gradient(point, gradient), EPS);
+		for (int i = 0; i < 3; i++) {
+			assertEquals(evaluateExpression(derive(objective, variables[i]), assignment(point)), gradient[i], EPS);
+		}
+	}
+
+	@Test
+	public void testHessian() throws Exception {
+		for (final double[] point : new double[][]{point(0.7, 1.3, 0.4), point(-0.5, 2.5, 1.5),
+				point(1.2, 0.6, -0.8)}) {
+			final double[] hessian = new double[9];
+			final double[] gradient = new double[3];
+			assertEquals(evaluateExpression(objective, assignment(point)), engine.hessian(point, gradient, hessian),
+					EPS);
+			assertArrayEquals(expectedHessian(point), hessian, EPS);
+			for (int i = 0; i < 3; i++) {
+				assertEquals(hessian[i * 3 + 1], hessian[3 + i], 0);
+				assertEquals(evaluateExpression(derive(objective, variables[i]), assignment(point)), gradient[i], EPS);
+			}
+		}
+	}
+
+	@Test
+	public void testHessianVectorProduct() throws Exception {
+		final double[] point = point(-0.5, 2.5, 1.5);
+		final double[] expected = expectedHessian(point);
+		final double[] product = new double[3];
+		// repeated calls reuse the same buffers and must not be affected by earlier ones
+		for (final double[] vector : new double[][]{{1, 0, 0}, {0.5, -2, 3}, {0, 0, 0}, {0.5, -2, 3}}) {
+			engine.hessianVectorProduct(point, vector, null, product);
+			for (int i = 0; i < 3; i++) {
+				double expectedProduct = 0;
+				for (int j = 0; j < 3; j++) {
+					expectedProduct += expected[i * 3 + j] * vector[j];
+				}
+				assertEquals(expectedProduct, product[i], EPS);
+			}
+		}
+	}
+
+	@Test
+	public void testMultiplicationWithZeroOperand() throws Exception {
+		// the partial derivatives of x*y*z must not be computed by dividing by the operands
+		final RealExpressionHessian product = new RealExpressionHessian(reMult(x, y, z));
+		final double[] hessian = new double[9];
+		final double[] point = new double[3];
+		point[product.tape.indexOf(x)] = 0;
+		point[product.tape.indexOf(y)] = 2;
+		point[product.tape.indexOf(z)] = 3;
+		product.hessian(point, null, hessian);
+		assertEquals(3, hessian[product.tape.indexOf(x) * 3 + product.tape.indexOf(y)], 0);
+		assertEquals(2, hessian[product.tape.indexOf(x) * 3 + product.tape.indexOf(z)], 0);
+		assertEquals(0, hessian[product.tape.indexOf(y) * 3 + product.tape.indexOf(z)], 0);
+	}
+
+	@Test
+	public void testPowerAtZeroBase() throws Exception {
+		// at x = 0, the terms g * f^(g-1) of x^0 and f^g * log(f) of x^y have the limit 0, not 0 * infinity = NaN
+		final RealExpression power = reAdd(rePow(x, 0), rePow(x, y));
+		final RealExpressionHessian engine = new RealExpressionHessian(power);
+		final int xIndex = engine.tape.indexOf(x), yIndex = engine.tape.indexOf(y);
+		final double[] point = new double[2];
+		point[yIndex] = 2;
+		final RealAssignment assignment = new RealAssignment();
+		assignment.put(x, 0.0);
+		assignment.put(y, 2.0);
+
+		final double[] gradient = new double[2];
+		engine.gradient(point, gradient);
+		assertEquals(evaluateExpression(derive(power, x), assignment), gradient[xIndex], 0);
+		assertEquals(evaluateExpression(derive(power, y), assignment), gradient[yIndex], 0);
+		assertArrayEquals(new double[2], gradient, 0);
+
+		// d^2/dx^2 = y * (y-1) * x^(y-2) = 2, and the other second derivatives vanish
+		final double[] hessian = new double[4];
+		engine.hessian(point, gradient, hessian);
+		assertEquals(2, hessian[xIndex * 2 + xIndex], 0);
+		assertEquals(0, hessian[xIndex * 2 + yIndex], 0);
+		assertEquals(0, hessian[yIndex * 2 + xIndex], 0);
+		assertEquals(0, hessian[yIndex * 2 + yIndex], 0);
+		assertArrayEquals(new double[2], gradient, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWrongDimension() throws Exception {
+		engine.hessianVectorProduct(new double[3], new double[2], null, new double[3]);
+	}
+}
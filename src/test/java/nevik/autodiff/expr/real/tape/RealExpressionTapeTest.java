@@ -0,0 +1,181 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.tape;
+
+import nevik.autodiff.expr.real.RealAssignment;
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static nevik.autodiff.expr.real.RealConstant.reCons;
+import static nevik.autodiff.expr.real.RealExprAddition.reAdd;
+import static nevik.autodiff.expr.real.RealExprFunction.reSin;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMult;
+import static nevik.autodiff.expr.real.RealExprNegation.reNeg;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reMax;
+import static nevik.autodiff.expr.real.RealExprPower.rePow;
+import static nevik.autodiff.expr.real.RealExprReciprocal.reRecip;
+import static nevik.autodiff.expr.real.RealExprReduction.reSum;
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_MULTIPLICATION;
+import static nevik.autodiff.expr.real.tape.RealExpressionTape.OP_VARIABLE;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionEvaluator.evaluateExpression;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionGradient.gradient;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealExpressionTapeTest {
+	private static final double EPS = 1e-12;
+
+	private RealVariable x, y;
+	private RealExpression shared, expression;
+
+	@Before
+	public void setUp() throws Exception {
+		x = new RealVariable("x");
+		y = new RealVariable("y");
+		shared = reMult(x, y);
+		// x*y + sin(x*y)^2 - max(1/x, 2)
+		expression = reAdd(shared, rePow(reSin(shared), 2), reNeg(reMax(reRecip(x), reCons(2))));
+	}
+
+	@Test
+	public void testRecordStructure() throws Exception {
+		final RealExpressionTape tape = RealExpressionTape.record(expression);
+		assertEquals(2, tape.getVariableCount());
+		assertSame(x, tape.getVariable(tape.indexOf(x)));
+		assertEquals(-1, tape.indexOf(new RealVariable("z")));
+		// shared nodes and variables are recorded once, and operands precede the nodes using them
+		int multiplications = 0, variables = 0;
+		for (int node = 0; node < tape.getNodeCount(); node++) {
+			multiplications += tape.getOpcode(node) == OP_MULTIPLICATION ? 1 : 0;
+			variables += tape.getOpcode(node) == OP_VARIABLE ? 1 : 0;
+			for (int i = 0; i < tape.getChildCount(node); i++) {
+				assertTrue(tape.getChild(node, i) < node);
+			}
+		}
+		assertEquals(1, multiplications);
+		assertEquals(2, variables);
+		assertEquals(3, tape.getMaxChildCount());
+		assertTrue(tape.isActive(tape.getRootIndex()));
+	}
+
+	@Test
+	public void testEvaluate() throws Exception {
+		final RealExpressionTape tape = RealExpressionTape.record(expression);
+		final double[] values = new double[tape.getNodeCount()];
+		final RealAssignment assignment = new RealAssignment();
+		for (final double[] point : new double[][]{{0.3, 2}, {-1.5, 0.25}, {4, -3}}) {
+			assignment.put(x, point[0]);
+			assignment.put(y, point[1]);
+			assertEquals(evaluateExpression(expression, assignment), tape.evaluate(tape.toPoint(assignment), values),
+					EPS);
+		}
+		// constant subtrees are inactive
+		for (int node = 0; node < tape.getNodeCount(); node++) {
+			if (tape.getOpcode(node) == RealExpressionTape.OP_CONSTANT) {
+				assertFalse(tape.isActive(node));
+			}
+		}
+	}
+
+	@Test
+	public void testRecordWithVariableOrder() throws Exception {
+		final RealVariable z = new RealVariable("z");
+		for (final List<RealVariable> variables : Arrays.asList(Arrays.asList(x, y, z), Arrays.asList(z, y, x))) {
+			final RealExpressionTape tape = RealExpressionTape.record(expression, variables);
+			assertEquals(3, tape.getVariableCount());
+			for (int i = 0; i < variables.size(); i++) {
+				assertEquals(i, tape.indexOf(variables.get(i)));
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRecordWithMissingVariable() throws Exception {
+		RealExpressionTape.record(expression, Collections.singletonList(x));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRecordWithDuplicateVariable() throws Exception {
+		RealExpressionTape.record(expression, Arrays.asList(x, y, x));
+	}
+
+	@Test
+	public void testRecordSubset() throws Exception {
+		final RealVariable z = new RealVariable("z"), w = new RealVariable("w");
+		// expression + z*y + sum_{i} (x + c_i)
+		final RealExpression extended = reAdd(expression, reMult(z, y),
+				reSum(reAdd(x, y), Collections.singletonMap(y, new double[]{1, 2}), 2));
+		final RealAssignment assignment = new RealAssignment();
+		assignment.put(x, 0.3);
+		assignment.put(y, 2.0);
+		assignment.put(z, -1.25);
+		final RealExpressionTape tape = RealExpressionTape.record(extended, Arrays.asList(z, w), assignment);
+		// the variables are exactly the requested ones, in the given order
+		assertEquals(2, tape.getVariableCount());
+		assertEquals(0, tape.indexOf(z));
+		assertEquals(1, tape.indexOf(w));
+		assertEquals(-1, tape.indexOf(x));
+		// only z*y and the sum are recorded as such; y and the other terms become constants
+		int multiplications = 0, variables = 0;
+		for (int node = 0; node < tape.getNodeCount(); node++) {
+			multiplications += tape.getOpcode(node) == OP_MULTIPLICATION ? 1 : 0;
+			variables += tape.getOpcode(node) == OP_VARIABLE ? 1 : 0;
+			assertEquals(tape.getOpcode(node) != RealExpressionTape.OP_CONSTANT, tape.isActive(node));
+		}
+		assertEquals(1, multiplications);
+		assertEquals(1, variables);
+
+		final double[] point = {-1.25, 7};
+		assertEquals(evaluateExpression(extended, assignment), tape.evaluate(point, new double[tape.getNodeCount()]),
+				EPS);
+		final double[] tapeGradient = new double[2];
+		new RealExpressionHessian(tape).gradient(point, tapeGradient);
+		assertEquals(gradient(extended, assignment).get(z), tapeGradient[0], EPS);
+		assertEquals(0, tapeGradient[1], 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRecordSubsetReduction() throws Exception {
+		final RealAssignment assignment = new RealAssignment();
+		assignment.put(x, 1.0);
+		RealExpressionTape.record(reSum(x, Collections.singletonMap(y, new double[]{1, 2}), 2),
+				Collections.singletonList(x), assignment);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRecordReduction() throws Exception {
+		RealExpressionTape.record(reSum(x, Collections.singletonMap(y, new double[]{1, 2}), 2));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMissingVariable() throws Exception {
+		final RealAssignment assignment = new RealAssignment();
+		assignment.put(x, 1.0);
+		RealExpressionTape.record(expression).toPoint(assignment);
+	}
+}
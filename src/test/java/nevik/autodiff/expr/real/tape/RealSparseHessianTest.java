@@ -0,0 +1,117 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.tape;
+
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static nevik.autodiff.expr.real.RealExprAddition.reAdd;
+import static nevik.autodiff.expr.real.RealExprFunction.reExp;
+import static nevik.autodiff.expr.real.RealExprFunction.reSin;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMult;
+import static nevik.autodiff.expr.real.RealExprPower.rePow;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealSparseHessianTest {
+	private static final double EPS = 1e-9;
+	private static final int N = 30;
+
+	private static void assertMatchesDense(final RealExpression objective, final RealVariable[] variables,
+			final double[] point, final int colorCount) {
+		final RealSparseHessian sparse = new RealSparseHessian(objective, Arrays.asList(variables));
+		assertEquals(colorCount, sparse.getColorCount());
+		// with an explicit variable order, the coloring does not depend on hash codes
+		assertArrayEquals(sparse.getColors(), new RealSparseHessian(objective, Arrays.asList(variables)).getColors());
+		final RealExpressionHessian dense = new RealExpressionHessian(sparse.tape);
+		final int n = sparse.tape.getVariableCount();
+
+		final double[] expectedGradient = new double[n];
+		final double[] expectedHessian = new double[n * n];
+		final double expectedValue = dense.hessian(point, expectedGradient, expectedHessian);
+		final double[] gradient = new double[n];
+		final double[] hessian = new double[sparse.pattern.getNonZeroCount()];
+		assertEquals(expectedValue, sparse.evaluate(point, gradient, hessian), EPS);
+		assertArrayEquals(expectedGradient, gradient, EPS);
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				final int k = sparse.pattern.indexOf(i, j);
+				assertEquals("H[" + i + "][" + j + "]", expectedHessian[i * n + j], k < 0 ? 0 : hessian[k], EPS);
+			}
+		}
+	}
+
+	private static double[] point(final int n) {
+		final double[] point = new double[n];
+		for (int i = 0; i < n; i++) {
+			point[i] = 0.5 + 0.4 * Math.cos(i);
+		}
+		return point;
+	}
+
+	@Test
+	public void testChain() {
+		final RealVariable[] x = new RealVariable[N];
+		for (int i = 0; i < N; i++) {
+			x[i] = new RealVariable("x" + i);
+		}
+		// sum of x_i * x_{i+1} + exp(x_i): tridiagonal Hessian
+		final List<RealExpression> summands = new ArrayList<>();
+		for (int i = 0; i < N; i++) {
+			summands.add(reExp(x[i]));
+			if (i + 1 < N) {
+				summands.add(reMult(x[i], x[i + 1]));
+			}
+		}
+		assertMatchesDense(reAdd(summands), x, point(N), 3);
+	}
+
+	@Test
+	public void testArrowhead() {
+		final RealVariable[] x = new RealVariable[N];
+		for (int i = 0; i < N; i++) {
+			x[i] = new RealVariable("x" + i);
+		}
+		// sum of sin(x_0 * x_i) + x_i^3: arrowhead Hessian, recovered with two colors
+		final List<RealExpression> summands = new ArrayList<>();
+		for (int i = 1; i < N; i++) {
+			summands.add(reSin(reMult(x[0], x[i])));
+			summands.add(rePow(x[i], 3));
+		}
+		assertMatchesDense(reAdd(summands), x, point(N), 2);
+	}
+
+	@Test
+	public void testLinearObjective() {
+		final RealVariable x = new RealVariable("x"), y = new RealVariable("y");
+		final RealSparseHessian sparse = new RealSparseHessian(reAdd(x, y, y));
+		assertEquals(0, sparse.pattern.getNonZeroCount());
+		assertEquals(0, sparse.getColorCount());
+		final double[] gradient = new double[2];
+		sparse.evaluate(new double[]{1, 2}, gradient, new double[0]);
+		assertEquals(1, gradient[sparse.tape.indexOf(x)], 0);
+		assertEquals(2, gradient[sparse.tape.indexOf(y)], 0);
+	}
+}
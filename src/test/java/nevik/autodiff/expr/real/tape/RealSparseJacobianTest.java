@@ -0,0 +1,108 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.tape;
+
+import nevik.autodiff.expr.real.RealAssignment;
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static nevik.autodiff.expr.real.RealConstant.reCons;
+import static nevik.autodiff.expr.real.RealExprAddition.reAdd;
+import static nevik.autodiff.expr.real.RealExprFunction.reCos;
+import static nevik.autodiff.expr.real.RealExprFunction.reExp;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMult;
+import static nevik.autodiff.expr.real.RealExprNegation.reNeg;
+import static nevik.autodiff.expr.real.RealExprPower.rePow;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionDerivative.derive;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionEvaluator.evaluateExpression;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealSparseJacobianTest {
+	private static final double EPS = 1e-9;
+	private static final int N = 40;
+
+	@Test
+	public void testBandedJacobian() {
+		final RealVariable[] x = new RealVariable[N];
+		for (int i = 0; i < N; i++) {
+			x[i] = new RealVariable("x" + i);
+		}
+		// discretized boundary value problem: c_i = x_{i-1} - 2 x_i + x_{i+1} + exp(x_i) * cos(x_{i+1})
+		final List<RealExpression> constraints = new ArrayList<>();
+		for (int i = 0; i + 1 < N; i++) {
+			final List<RealExpression> summands = new ArrayList<>();
+			if (i > 0) {
+				summands.add(x[i - 1]);
+			}
+			summands.add(reMult(reCons(-2), x[i]));
+			summands.add(x[i + 1]);
+			summands.add(reMult(reExp(x[i]), reCos(x[i + 1])));
+			constraints.add(reAdd(summands));
+		}
+		constraints.add(reNeg(rePow(x[N - 1], 3)));
+		final RealSparseJacobian engine = new RealSparseJacobian(constraints, Arrays.asList(x));
+		// columns in band order need three colors, whatever the size of the system
+		assertEquals(3, engine.getColorCount());
+		assertArrayEquals(engine.getColors(), new RealSparseJacobian(constraints, Arrays.asList(x)).getColors());
+
+		final double[] point = new double[N];
+		final RealAssignment assignment = new RealAssignment();
+		for (int j = 0; j < N; j++) {
+			point[j] = Math.sin(j) * 0.7;
+			assignment.put(engine.tape.getVariable(j), point[j]);
+		}
+		final double[] values = new double[N];
+		final double[] jacobian = new double[engine.pattern.getNonZeroCount()];
+		engine.evaluate(point, values, jacobian);
+
+		final int[] rowOffsets = engine.pattern.getRowOffsets();
+		final int[] columnIndices = engine.pattern.getColumnIndices();
+		for (int i = 0; i < N; i++) {
+			assertEquals(evaluateExpression(constraints.get(i), assignment), values[i], EPS);
+			for (int j = 0; j < N; j++) {
+				final double expected =
+						evaluateExpression(derive(constraints.get(i), engine.tape.getVariable(j)), assignment);
+				final int k = engine.pattern.indexOf(i, j);
+				if (k < 0) {
+					assertEquals(0, expected, 0);
+				} else {
+					assertEquals(j, columnIndices[k]);
+					assertTrue(k >= rowOffsets[i] && k < rowOffsets[i + 1]);
+					assertEquals("d c" + i + " / d x" + j, expected, jacobian[k], EPS);
+				}
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsWrongJacobianLength() {
+		final RealVariable x = new RealVariable("x");
+		final List<RealExpression> constraints = new ArrayList<>();
+		constraints.add(reExp(x));
+		new RealSparseJacobian(constraints).evaluate(new double[1], null, new double[2]);
+	}
+}
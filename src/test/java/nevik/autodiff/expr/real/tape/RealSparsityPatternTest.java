@@ -0,0 +1,217 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.tape;
+
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static nevik.autodiff.expr.real.RealExprAddition.reAdd;
+import static nevik.autodiff.expr.real.RealExprFunction.reExp;
+import static nevik.autodiff.expr.real.RealExprFunction.reSin;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMult;
+import static nevik.autodiff.expr.real.RealExprPower.rePow;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealSparsityPatternTest {
+	private static final int GRAPH_COUNT = 200;
+
+	@Test
+	public void testJacobianPattern() {
+		final RealVariable x = new RealVariable("x"), y = new RealVariable("y"), z = new RealVariable("z");
+		final RealExpressionTape tape = RealExpressionTape.record(Arrays.<RealExpression>asList(
+				reMult(x, y), reExp(z), reAdd(x, rePow(z, 2))));
+		final RealSparsityPattern pattern = RealSparsityPattern.jacobianPattern(tape);
+		assertEquals(3, pattern.rowCount);
+		assertEquals(3, pattern.columnCount);
+		assertEquals(5, pattern.getNonZeroCount());
+		final int ix = tape.indexOf(x), iy = tape.indexOf(y), iz = tape.indexOf(z);
+		assertTrue(pattern.indexOf(0, ix) >= 0);
+		assertTrue(pattern.indexOf(0, iy) >= 0);
+		assertEquals(-1, pattern.indexOf(0, iz));
+		assertTrue(pattern.indexOf(1, iz) >= 0);
+		assertEquals(-1, pattern.indexOf(1, ix));
+		assertTrue(pattern.indexOf(2, ix) >= 0);
+		assertTrue(pattern.indexOf(2, iz) >= 0);
+
+		final List<RealVariable> variables = Arrays.asList(tape.getVariable(0), tape.getVariable(1),
+				tape.getVariable(2));
+		final RealSparsityPattern symbolic = RealSparsityPattern.jacobianPattern(
+				Arrays.<RealExpression>asList(reMult(x, y), reExp(z), reAdd(x, rePow(z, 2))), variables);
+		assertArrayEquals(pattern.getRowOffsets(), symbolic.getRowOffsets());
+		assertArrayEquals(pattern.getColumnIndices(), symbolic.getColumnIndices());
+	}
+
+	@Test
+	public void testHessianPattern() {
+		final RealVariable x = new RealVariable("x"), y = new RealVariable("y"), z = new RealVariable("z");
+		// x*y + sin(z) + x: interactions x-y and z-z only
+		final RealExpressionTape tape = RealExpressionTape.record(reAdd(reMult(x, y), reSin(z), x));
+		final RealSparsityPattern pattern = RealSparsityPattern.hessianPattern(tape);
+		final int ix = tape.indexOf(x), iy = tape.indexOf(y), iz = tape.indexOf(z);
+		assertEquals(3, pattern.getNonZeroCount());
+		assertTrue(pattern.indexOf(ix, iy) >= 0);
+		assertTrue(pattern.indexOf(iy, ix) >= 0);
+		assertTrue(pattern.indexOf(iz, iz) >= 0);
+		assertEquals(-1, pattern.indexOf(ix, ix));
+		assertEquals(-1, pattern.indexOf(ix, iz));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testHessianPatternRejectsMultipleOutputs() {
+		final RealVariable x = new RealVariable("x");
+		RealSparsityPattern.hessianPattern(RealExpressionTape.record(Arrays.<RealExpression>asList(x, reExp(x))));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testConstructorRejectsUnsortedColumns() {
+		new RealSparsityPattern(1, 3, new int[]{0, 2}, new int[]{2, 1});
+	}
+
+	@Test
+	public void testToCsc() {
+		// [1 0 2]
+		// [0 3 0]
+		// [4 0 5]
+		final RealSparsityPattern pattern = new RealSparsityPattern(3, 3, new int[]{0, 2, 3, 5},
+				new int[]{0, 2, 1, 0, 2});
+		assertArrayEquals(new int[]{0, 2, 3, 5}, pattern.getColumnOffsets());
+		assertArrayEquals(new int[]{0, 2, 1, 0, 2}, pattern.getRowIndices());
+		final double[] csc = new double[5];
+		pattern.toCsc(new double[]{1, 2, 3, 4, 5}, csc);
+		assertArrayEquals(new double[]{1, 4, 3, 2, 5}, csc, 0);
+	}
+
+	@Test
+	public void testColumnColoring() {
+		final Random random = new Random(46);
+		for (int g = 0; g < GRAPH_COUNT; g++) {
+			final RealSparsityPattern pattern = randomPattern(random, 1 + random.nextInt(12),
+					1 + random.nextInt(12), random.nextDouble() * 0.5, false);
+			final int[] colors = pattern.columnColoring();
+			final int[] rowOffsets = pattern.getRowOffsets(), columnIndices = pattern.getColumnIndices();
+			for (int i = 0; i < pattern.rowCount; i++) {
+				for (int k = rowOffsets[i]; k < rowOffsets[i + 1]; k++) {
+					for (int l = k + 1; l < rowOffsets[i + 1]; l++) {
+						assertNotEquals(colors[columnIndices[k]], colors[columnIndices[l]]);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testStarColoring() {
+		final Random random = new Random(4646);
+		for (int g = 0; g < GRAPH_COUNT; g++) {
+			final int n = 1 + random.nextInt(14);
+			final RealSparsityPattern pattern = randomPattern(random, n, n, random.nextDouble() * 0.6, true);
+			final int[] colors = pattern.starColoring();
+			final boolean[][] adjacent = new boolean[n][n];
+			for (int i = 0; i < n; i++) {
+				for (int j = 0; j < n; j++) {
+					adjacent[i][j] = i != j && pattern.indexOf(i, j) >= 0;
+					if (adjacent[i][j]) {
+						assertNotEquals(colors[i], colors[j]);
+					}
+				}
+			}
+			// no path a - b - c - d on four distinct vertices may be two-colored
+			for (int a = 0; a < n; a++) {
+				for (int b = 0; b < n; b++) {
+					for (int c = 0; c < n; c++) {
+						for (int d = 0; d < n; d++) {
+							if (adjacent[a][b] && adjacent[b][c] && adjacent[c][d] && a != c && b != d &&
+									a != d) {
+								assertTrue(colors[a] != colors[c] || colors[b] != colors[d]);
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testStarColoringOfArrowhead() {
+		// an arrowhead matrix (dense first row and column, plus diagonal) needs only two colors
+		final int n = 50;
+		final List<Integer> offsets = new ArrayList<>(), columns = new ArrayList<>();
+		offsets.add(0);
+		for (int j = 0; j < n; j++) {
+			columns.add(j);
+		}
+		offsets.add(columns.size());
+		for (int i = 1; i < n; i++) {
+			columns.add(0);
+			columns.add(i);
+			offsets.add(columns.size());
+		}
+		final RealSparsityPattern pattern = new RealSparsityPattern(n, n, toArray(offsets), toArray(columns));
+		final int[] colors = pattern.starColoring();
+		int colorCount = 0;
+		for (final int color : colors) {
+			colorCount = Math.max(colorCount, color + 1);
+		}
+		assertEquals(2, colorCount);
+	}
+
+	private static RealSparsityPattern randomPattern(final Random random, final int rowCount, final int columnCount,
+			final double density, final boolean symmetric) {
+		final boolean[][] entries = new boolean[rowCount][columnCount];
+		for (int i = 0; i < rowCount; i++) {
+			for (int j = 0; j < columnCount; j++) {
+				if (random.nextDouble() < density) {
+					entries[i][j] = true;
+					if (symmetric) {
+						entries[j][i] = true;
+					}
+				}
+			}
+		}
+		final List<Integer> offsets = new ArrayList<>(), columns = new ArrayList<>();
+		offsets.add(0);
+		for (int i = 0; i < rowCount; i++) {
+			for (int j = 0; j < columnCount; j++) {
+				if (entries[i][j]) {
+					columns.add(j);
+				}
+			}
+			offsets.add(columns.size());
+		}
+		return new RealSparsityPattern(rowCount, columnCount, toArray(offsets), toArray(columns));
+	}
+
+	private static int[] toArray(final List<Integer> list) {
+		final int[] array = new int[list.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = list.get(i);
+		}
+		return array;
+	}
+}
@@ -0,0 +1,153 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.tape;
+
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import static nevik.autodiff.expr.real.RealConstant.reCons;
+import static nevik.autodiff.expr.real.RealExprAddition.reAdd;
+import static nevik.autodiff.expr.real.RealExprFunction.reCos;
+import static nevik.autodiff.expr.real.RealExprFunction.reTanh;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMult;
+import static nevik.autodiff.expr.real.RealExprNegation.reNeg;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reMin;
+import static nevik.autodiff.expr.real.RealExprPower.rePow;
+import static nevik.autodiff.expr.real.RealExprReciprocal.reRecip;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealSpillingGradientTest {
+	private static final int N = 40;
+	private static final int STEPS = 150;
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private RealExpressionTape tape;
+	private double[] point;
+	private double expectedValue;
+	private double[] expectedGradient;
+
+	@Before
+	public void setUp() throws Exception {
+		final RealVariable[] x = new RealVariable[N];
+		for (int i = 0; i < N; i++) {
+			x[i] = new RealVariable("x" + i);
+		}
+		// explicit time stepping of y' = f(y, x_j)
+		RealExpression y = reCons(0.2);
+		for (int k = 0; k < STEPS; k++) {
+			final RealVariable xj = x[k % N];
+			final RealExpression slope = reAdd(reMult(reCos(y), xj), reNeg(reTanh(reMult(y, x[0]))),
+					reRecip(reAdd(reCons(1.5), rePow(y, 2))), reMin(xj, reMult(reCons(0.5), y)));
+			y = reAdd(y, reMult(reCons(0.1), slope));
+		}
+		tape = RealExpressionTape.record(y);
+		point = new double[N];
+		for (int j = 0; j < N; j++) {
+			point[j] = Math.cos(1.3 * j);
+		}
+		expectedGradient = new double[N];
+		expectedValue = new RealExpressionHessian(tape).gradient(point, expectedGradient);
+	}
+
+	private void assertIdentical(final RealSpillingGradient engine) {
+		final double[] gradient = new double[N];
+		// repeated calls reuse the same file
+		for (int k = 0; k < 2; k++) {
+			assertEquals(expectedValue, engine.gradient(point, gradient), 0);
+			assertArrayEquals(expectedGradient, gradient, 0);
+		}
+	}
+
+	private int fileCount() {
+		final File[] files = folder.getRoot().listFiles();
+		return files == null ? 0 : files.length;
+	}
+
+	@Test
+	public void testWithoutSpilling() throws Exception {
+		try (RealSpillingGradient engine = new RealSpillingGradient(tape, Long.MAX_VALUE, folder.getRoot().toPath())) {
+			assertEquals(0, engine.getSpilledSegmentCount());
+			assertEquals(0, fileCount());
+			assertIdentical(engine);
+		}
+	}
+
+	@Test
+	public void testSpilling() throws Exception {
+		final long budget = Double.BYTES * (long) tape.getNodeCount() / 8;
+		final Path directory = folder.getRoot().toPath();
+		try (RealSpillingGradient engine = new RealSpillingGradient(tape, budget, directory)) {
+			assertTrue(engine.getMemoryUsage() <= budget);
+			assertTrue(engine.getSpilledSegmentCount() > 0);
+			assertTrue(engine.getFileSize() > 0);
+			// only the values are spilled; the tape stays on the heap
+			assertTrue(engine.getTapeMemoryUsage() > engine.getFileSize());
+			assertIdentical(engine);
+		}
+		// the file is deleted on close at the latest
+		assertEquals(0, fileCount());
+	}
+
+	@Test
+	public void testManyRegions() throws Exception {
+		// regions of 4 KiB hold only a few records each
+		try (RealSpillingGradient engine = new RealSpillingGradient(tape, 2048, folder.getRoot().toPath(), 4096)) {
+			assertTrue(engine.getSpilledSegmentCount() > 10);
+			assertIdentical(engine);
+		}
+	}
+
+	@Test
+	public void testPowerAtZeroBase() throws Exception {
+		// at x = 0, the terms of x^0 and x^y have the limit 0 (as with the full tape), not 0 * infinity = NaN
+		final RealVariable x = new RealVariable("x"), y = new RealVariable("y");
+		final RealExpressionTape powerTape = RealExpressionTape.record(reAdd(rePow(x, 0), rePow(x, y)));
+		final double[] zeroBase = new double[2];
+		zeroBase[powerTape.indexOf(y)] = 2;
+		final double[] gradient = new double[2];
+		try (RealSpillingGradient engine = new RealSpillingGradient(powerTape, Long.MAX_VALUE, folder.getRoot().toPath())) {
+			engine.gradient(zeroBase, gradient);
+		}
+		assertArrayEquals(new double[2], gradient, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBudgetTooSmall() throws Exception {
+		new RealSpillingGradient(tape, 64, folder.getRoot().toPath());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testClosed() throws Exception {
+		final RealSpillingGradient engine = new RealSpillingGradient(tape, 4096, folder.getRoot().toPath());
+		engine.close();
+		engine.gradient(point, new double[N]);
+	}
+}
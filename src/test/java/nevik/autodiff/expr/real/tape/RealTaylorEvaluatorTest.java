@@ -0,0 +1,184 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.tape;
+
+import nevik.autodiff.expr.real.RealAssignment;
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.function.BinaryOperator;
+
+import static nevik.autodiff.expr.real.RealConstant.reCons;
+import static nevik.autodiff.expr.real.RealExprAddition.reAdd;
+import static nevik.autodiff.expr.real.RealExprFunction.reCos;
+import static nevik.autodiff.expr.real.RealExprFunction.reExp;
+import static nevik.autodiff.expr.real.RealExprFunction.reLog;
+import static nevik.autodiff.expr.real.RealExprFunction.reSin;
+import static nevik.autodiff.expr.real.RealExprFunction.reSqrt;
+import static nevik.autodiff.expr.real.RealExprFunction.reTanh;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMult;
+import static nevik.autodiff.expr.real.RealExprNegation.reNeg;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reAbs;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reMax;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reMin;
+import static nevik.autodiff.expr.real.RealExprPower.rePow;
+import static nevik.autodiff.expr.real.RealExprReciprocal.reRecip;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionDerivative.derive;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionEvaluator.evaluateExpression;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author agent
+ * @since 2026-10-18
+ */
+public class RealTaylorEvaluatorTest {
+	private static final double EPS = 1e-9;
+	private static final int ORDER = 4;
+	private static final double[] POINT = {0.7, 0.4};
+	private static final double[] DIRECTION = {0.3, -1.1};
+
+	/**
+	 * Compare the directional derivatives of {@code f(a, b)} with the derivatives of {@code f(x_a + t v_a, x_b + t
+	 * v_b)} with respect to {@code t} at {@code t = 0}, computed by nesting symbolic differentiation.
+	 */
+	private static void assertDerivatives(final BinaryOperator<RealExpression> f) {
+		final RealVariable a = new RealVariable("a"), b = new RealVariable("b"), t = new RealVariable("t");
+		final RealTaylorEvaluator evaluator = new RealTaylorEvaluator(f.apply(a, b), ORDER);
+		final double[] point = new double[2], direction = new double[2];
+		point[evaluator.tape.indexOf(a)] = POINT[0];
+		point[evaluator.tape.indexOf(b)] = POINT[1];
+		direction[evaluator.tape.indexOf(a)] = DIRECTION[0];
+		direction[evaluator.tape.indexOf(b)] = DIRECTION[1];
+		final double[] derivatives = new double[ORDER + 1];
+		evaluator.derivatives(point, direction, derivatives);
+
+		RealExpression line = f.apply(reAdd(reCons(POINT[0]), reMult(reCons(DIRECTION[0]), t)),
+				reAdd(reCons(POINT[1]), reMult(reCons(DIRECTION[1]), t)));
+		final RealAssignment origin = new RealAssignment();
+		origin.put(t, 0.0);
+		for (int k = 0; k <= ORDER; k++) {
+			final double expected = evaluateExpression(line, origin);
+			assertEquals("order " + k, expected, derivatives[k], EPS * Math.max(1, Math.abs(expected)));
+			line = derive(line, t);
+		}
+	}
+
+	@Test
+	public void testExpLogSqrt() {
+		assertDerivatives((a, b) -> reAdd(reExp(reMult(a, b)), reMult(reLog(reAdd(rePow(a, 2), reCons(1))),
+				reSqrt(reAdd(b, reCons(2))))));
+	}
+
+	@Test
+	public void testTrigonometric() {
+		assertDerivatives((a, b) -> reAdd(reMult(reSin(a), reCos(reMult(reCons(2), b))), reNeg(reTanh(reAdd(a,
+				reNeg(b))))));
+	}
+
+	@Test
+	public void testReciprocalAndPowers() {
+		assertDerivatives((a, b) -> reAdd(reRecip(reAdd(reCons(1), reMult(a, a, b))), rePow(a, b), rePow(b, 3),
+				rePow(reAdd(a, b), -1.5)));
+	}
+
+	@Test
+	public void testPiecewise() {
+		assertDerivatives((a, b) -> reAdd(reMin(a, b), reAbs(reMult(a, b)), reMax(reMult(a, b), reSin(b))));
+	}
+
+	@Test
+	public void testPolynomialAtZero() {
+		final RealVariable a = new RealVariable("a"), b = new RealVariable("b");
+		// (a + 2b - 1)^5 vanishes at (0.5, 0.25), where the power recurrence cannot divide by the base
+		final RealTaylorEvaluator evaluator = new RealTaylorEvaluator(
+				rePow(reAdd(a, reMult(reCons(2), b), reCons(-1)), 5), 6);
+		final double[] point = new double[2], direction = new double[2];
+		point[evaluator.tape.indexOf(a)] = 0.5;
+		point[evaluator.tape.indexOf(b)] = 0.25;
+		direction[evaluator.tape.indexOf(a)] = 3;
+		direction[evaluator.tape.indexOf(b)] = -0.5;
+		final double[] derivatives = new double[7];
+		evaluator.derivatives(point, direction, derivatives);
+		// the base is 2t along the line, so the fifth derivative is 5! * 2^5
+		assertArrayEquals(new double[]{0, 0, 0, 0, 0, 120 * 32, 0}, derivatives, 0);
+	}
+
+	@Test
+	public void testFractionalPowerAtZero() {
+		final RealVariable a = new RealVariable("a");
+		final double[] derivatives = new double[5];
+		// t^1.5 and t^2.5 along the line: the derivatives below the order of the power are 0, the others diverge
+		new RealTaylorEvaluator(rePow(a, 1.5), 4).derivatives(new double[]{0}, new double[]{1}, derivatives);
+		assertArrayEquals(new double[]{0, 0, Double.NaN, Double.NaN, Double.NaN}, derivatives, 0);
+		new RealTaylorEvaluator(rePow(a, 2.5), 4).derivatives(new double[]{0}, new double[]{1}, derivatives);
+		assertArrayEquals(new double[]{0, 0, 0, Double.NaN, Double.NaN}, derivatives, 0);
+		// (t^2)^1.5 = |t|^3
+		new RealTaylorEvaluator(rePow(reMult(a, a), 1.5), 4).derivatives(new double[]{0}, new double[]{1},
+				derivatives);
+		assertArrayEquals(new double[]{0, 0, 0, Double.NaN, Double.NaN}, derivatives, 0);
+		final double[] pole = new double[3];
+		new RealTaylorEvaluator(rePow(a, -0.5), 2).derivatives(new double[]{0}, new double[]{1}, pole);
+		assertArrayEquals(new double[]{Double.POSITIVE_INFINITY, Double.NaN, Double.NaN}, pole, 0);
+	}
+
+	@Test
+	public void testReuse() {
+		final RealVariable a = new RealVariable("a"), b = new RealVariable("b");
+		final RealExpression expression = reMult(reExp(a), reSin(b), reRecip(reAdd(a, b)));
+		final RealTaylorEvaluator evaluator = new RealTaylorEvaluator(expression, 5);
+		final double[] first = new double[6], second = new double[6], again = new double[6];
+		evaluator.derivatives(new double[]{0.3, 0.9}, new double[]{1, 0}, first);
+		evaluator.derivatives(new double[]{-0.2, 1.9}, new double[]{0.5, 2}, second);
+		evaluator.derivatives(new double[]{0.3, 0.9}, new double[]{1, 0}, again);
+		assertArrayEquals(first, again, 0);
+		final double[] fresh = new double[6];
+		new RealTaylorEvaluator(evaluator.tape, 5).derivatives(new double[]{-0.2, 1.9}, new double[]{0.5, 2}, fresh);
+		assertArrayEquals(fresh, second, 0);
+	}
+
+	@Test
+	public void testMultipleOutputs() {
+		final RealVariable a = new RealVariable("a"), b = new RealVariable("b");
+		final RealTaylorEvaluator evaluator =
+				new RealTaylorEvaluator(Arrays.<RealExpression>asList(reExp(a), reMult(a, b)), 3);
+		final double[] point = new double[2], direction = new double[2];
+		point[evaluator.tape.indexOf(a)] = 2;
+		point[evaluator.tape.indexOf(b)] = 3;
+		direction[evaluator.tape.indexOf(a)] = 5;
+		direction[evaluator.tape.indexOf(b)] = 7;
+		evaluator.evaluate(point, direction);
+		// (2 + 5t) * (3 + 7t) = 6 + 29t + 35t^2
+		assertEquals(6, evaluator.getCoefficient(1, 0), 0);
+		assertEquals(29, evaluator.getCoefficient(1, 1), 0);
+		assertEquals(35, evaluator.getCoefficient(1, 2), 0);
+		assertEquals(0, evaluator.getCoefficient(1, 3), 0);
+		// exp(2 + 5t) has coefficients e^2 * 5^k / k!
+		assertEquals(Math.exp(2) * 125 / 6, evaluator.getCoefficient(0, 3), EPS);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeOrder() {
+		new RealTaylorEvaluator(new RealVariable("a"), -1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWrongDirectionLength() {
+		new RealTaylorEvaluator(new RealVariable("a"), 2).evaluate(new double[1], new double[2]);
+	}
+}
@@ -0,0 +1,160 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.visitor;
+
+import nevik.autodiff.expr.real.RealAssignment;
+import nevik.autodiff.expr.real.RealExprAddition;
+import nevik.autodiff.expr.real.RealExprMultiplication;
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealSuperExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static nevik.autodiff.expr.real.RealConstant.reCons;
+import static nevik.autodiff.expr.real.RealExprAddition.reAddUsrtd;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMult;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMultUsrtd;
+import static nevik.autodiff.expr.real.RealExprNegation.reNeg;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionBalancer.balance;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionEvaluator.evaluateExpression;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ * @since 2026-10-18
+ */
+public class VisitorRealExpressionBalancerTest {
+	private RealVariable x, y, z;
+	private RealAssignment assignment;
+
+	@Before
+	public void setUp() throws Exception {
+		x = new RealVariable("x");
+		y = new RealVariable("y");
+		z = new RealVariable("z");
+		assignment = new RealAssignment();
+		assignment.put(x, 0.1);
+		assignment.put(y, 2.5);
+		assignment.put(z, -0.7);
+	}
+
+	private static int depth(final RealExpression expression) {
+		int depth = 0;
+		if (expression instanceof RealSuperExpression) {
+			for (final RealExpression subexpression : ((RealSuperExpression) expression).subexpressions) {
+				depth = Math.max(depth, depth(subexpression));
+			}
+		}
+		return depth + 1;
+	}
+
+	private static void collectOperands(final RealExpression expression, final List<RealExpression> operands) {
+		if (expression instanceof RealExprAddition) {
+			for (final RealExpression subexpression : ((RealExprAddition) expression).subexpressions) {
+				collectOperands(subexpression, operands);
+			}
+		} else {
+			operands.add(expression);
+		}
+	}
+
+	@Test
+	public void testLeftDeepChain() throws Exception {
+		final RealVariable[] variables = {x, y, z};
+		final List<RealExpression> operands = new ArrayList<>();
+		RealExpression chain = reMult(reCons(0), x);
+		operands.add(chain);
+		for (int i = 1; i < 20000; i++) {
+			final RealExpression operand = reMult(reCons(i), variables[i % 3]);
+			operands.add(operand);
+			chain = reAddUsrtd(chain, operand);
+		}
+		final RealExpression balanced = balance(chain, 2, /*preserveOrder=*/true);
+		// 15 levels of additions for 20000 operands, plus the multiplications and their operands
+		assertTrue("Balanced tree is too deep: " + depth(balanced), depth(balanced) <= 17);
+
+		final List<RealExpression> balancedOperands = new ArrayList<>();
+		collectOperands(balanced, balancedOperands);
+		assertEquals(operands.size(), balancedOperands.size());
+		for (int i = 0; i < operands.size(); i++) {
+			assertSame(operands.get(i), balancedOperands.get(i));
+		}
+
+		double expected = 0;
+		for (final RealExpression operand : operands) {
+			expected += evaluateExpression(operand, assignment);
+		}
+		assertEquals(expected, evaluateExpression(balanced, assignment), 1e-6);
+	}
+
+	@Test
+	public void testFanOut() throws Exception {
+		final List<RealExpression> factors = new ArrayList<>();
+		for (int i = 0; i < 64; i++) {
+			factors.add(i % 2 == 0 ? x : y);
+		}
+		final RealExpression balanced = balance(reMultUsrtd(factors), 4, /*preserveOrder=*/false);
+		assertEquals(4, depth(balanced)); // 3 levels of multiplications with 4 factors each, plus variables
+		assertTrue(balanced instanceof RealExprMultiplication);
+		assertEquals(Math.pow(0.1 * 2.5, 32), evaluateExpression(balanced, assignment), 1e-30);
+	}
+
+	@Test
+	public void testNestedChains() throws Exception {
+		final RealExpression shared = reAddUsrtd(reAddUsrtd(x, y), z);
+		final RealExpression expression = reMultUsrtd(reMultUsrtd(shared, reNeg(shared)), x);
+		final RealExpression balanced = balance(expression, 3, /*preserveOrder=*/true);
+		assertEquals(evaluateExpression(expression, assignment), evaluateExpression(balanced, assignment), 1e-12);
+		assertEquals(2, depth(((RealSuperExpression) balanced).subexpressions.get(0)));
+	}
+
+	@Test(timeout = 10000)
+	public void testSharedChains() throws Exception {
+		// 25 nodes, but 2^24 operands if the shared chain nodes were flattened
+		RealExpression doubling = reAddUsrtd(x, y);
+		for (int i = 0; i < 24; i++) {
+			doubling = reAddUsrtd(doubling, doubling);
+		}
+		assertSame(doubling, balance(doubling, 4, /*preserveOrder=*/true));
+
+		// shared nodes with 3 operands each are split into 2 binary nodes each, once per shared node
+		RealExpression tripling = reAddUsrtd(x, y, z);
+		for (int i = 0; i < 24; i++) {
+			tripling = reAddUsrtd(tripling, tripling, z);
+		}
+		final RealExpression balanced = balance(tripling, 2, /*preserveOrder=*/true);
+		final Set<RealExpression> nodes = Collections.newSetFromMap(new IdentityHashMap<>());
+		final ArrayDeque<RealExpression> pending = new ArrayDeque<>();
+		pending.push(balanced);
+		while (!pending.isEmpty()) {
+			final RealExpression expression = pending.pop();
+			if (nodes.add(expression) && expression instanceof RealSuperExpression) {
+				((RealSuperExpression) expression).subexpressions.forEach(pending::push);
+			}
+		}
+		assertEquals(2 * 25 + 3, nodes.size());
+	}
+}
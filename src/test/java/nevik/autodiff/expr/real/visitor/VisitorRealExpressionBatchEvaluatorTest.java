@@ -0,0 +1,128 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.visitor;
+
+import nevik.autodiff.expr.real.RealAssignment;
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static nevik.autodiff.expr.real.RealConstant.reCons;
+import static nevik.autodiff.expr.real.RealExprAddition.reAdd;
+import static nevik.autodiff.expr.real.RealExprFunction.reExp;
+import static nevik.autodiff.expr.real.RealExprFunction.reTanh;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMult;
+import static nevik.autodiff.expr.real.RealExprNegation.reNeg;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reAbs;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reMax;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reMin;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reSelect;
+import static nevik.autodiff.expr.real.RealExprPower.rePow;
+import static nevik.autodiff.expr.real.RealExprReciprocal.reRecip;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionBatchEvaluator.evaluateBatch;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionEvaluator.evaluateExpression;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author agent
+ * @since 2026-10-18
+ */
+public class VisitorRealExpressionBatchEvaluatorTest {
+	private static final double EPS = 1e-12;
+
+	private RealVariable x, y, p, q;
+	private Map<RealVariable, double[]> rowValues;
+	private RealAssignment batchValues;
+
+	@Before
+	public void setUp() throws Exception {
+		x = new RealVariable("x");
+		y = new RealVariable("y");
+		p = new RealVariable("p");
+		q = new RealVariable("q");
+		rowValues = new HashMap<>();
+		rowValues.put(x, new double[]{1, 2, 3, 4});
+		rowValues.put(y, new double[]{-1, 0.5, 8, 2});
+		batchValues = new RealAssignment();
+		batchValues.put(p, 3.0);
+		batchValues.put(q, -0.25);
+	}
+
+	private void assertMatchesScalarEvaluation(final RealExpression expression) {
+		final double[] batchResult = evaluateBatch(expression, rowValues, batchValues, 4);
+		assertEquals(4, batchResult.length);
+		for (int row = 0; row < 4; row++) {
+			final RealAssignment assignment = new RealAssignment(batchValues);
+			assignment.put(x, rowValues.get(x)[row]);
+			assignment.put(y, rowValues.get(y)[row]);
+			assertEquals(evaluateExpression(expression, assignment), batchResult[row], EPS);
+		}
+	}
+
+	@Test
+	public void testEvaluateScalar() throws Exception {
+		final RealAssignment assignment = new RealAssignment(batchValues);
+		assertEquals(-0.75, evaluateExpression(reMult(p, q), assignment), EPS);
+		assertEquals(2.0 + 1 / 3.0, evaluateExpression(reAdd(reCons(2), reRecip(p)), assignment), EPS);
+		assertEquals(0.25, evaluateExpression(reNeg(q), assignment), EPS);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEvaluateScalarMissingVariable() throws Exception {
+		evaluateExpression(reAdd(x, p), batchValues);
+	}
+
+	@Test
+	public void testEvaluateBatchMixed() throws Exception {
+		assertMatchesScalarEvaluation(reAdd(x, reMult(p, q)));
+		assertMatchesScalarEvaluation(reMult(reAdd(x, p), reRecip(reAdd(y, q, reCons(2)))));
+		assertMatchesScalarEvaluation(reNeg(reMult(x, y, reAdd(p, reNeg(q)))));
+	}
+
+	@Test
+	public void testEvaluateBatchInvariantRoot() throws Exception {
+		assertArrayEquals(new double[]{2.75, 2.75, 2.75, 2.75}, evaluateBatch(reAdd(p, q), rowValues, batchValues, 4),
+				EPS);
+	}
+
+	@Test
+	public void testEvaluateBatchVariableRootIsCopied() throws Exception {
+		final double[] result = evaluateBatch(x, rowValues, batchValues, 3);
+		assertArrayEquals(new double[]{1, 2, 3}, result, EPS);
+		result[0] = 42;
+		assertEquals(1, rowValues.get(x)[0], EPS);
+	}
+
+	@Test
+	public void testFunctionsAndPowers() throws Exception {
+		assertMatchesScalarEvaluation(reAdd(reExp(reMult(q, x)), reTanh(y)));
+		assertMatchesScalarEvaluation(reAdd(rePow(x, p), rePow(p, y), rePow(x, reMult(q, y))));
+	}
+
+	@Test
+	public void testPiecewise() throws Exception {
+		// clip(y, q, x), relu(x - p), abs and select with mixed row-invariant operands
+		assertMatchesScalarEvaluation(reMin(reMax(y, q), x));
+		assertMatchesScalarEvaluation(reMax(reAdd(x, reNeg(p)), reCons(0)));
+		assertMatchesScalarEvaluation(reAdd(reAbs(y), reSelect(reAdd(y, reNeg(x)), p, reMult(x, y))));
+		assertArrayEquals(new double[]{-1, 0.5, 3, 2}, evaluateBatch(reMin(x, y), rowValues, batchValues, 4), 0);
+	}
+}
@@ -0,0 +1,156 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.visitor;
+
+import nevik.autodiff.expr.real.RealAssignment;
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static nevik.autodiff.expr.real.RealConstant.ZERO;
+import static nevik.autodiff.expr.real.RealConstant.reCons;
+import static nevik.autodiff.expr.real.RealExprAddition.reAdd;
+import static nevik.autodiff.expr.real.RealExprFunction.reCos;
+import static nevik.autodiff.expr.real.RealExprFunction.reExp;
+import static nevik.autodiff.expr.real.RealExprFunction.reLog;
+import static nevik.autodiff.expr.real.RealExprFunction.reSin;
+import static nevik.autodiff.expr.real.RealExprFunction.reSqrt;
+import static nevik.autodiff.expr.real.RealExprFunction.reTanh;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMult;
+import static nevik.autodiff.expr.real.RealExprNegation.reNeg;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reAbs;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reMax;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reMin;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reSelect;
+import static nevik.autodiff.expr.real.RealExprPower.rePow;
+import static nevik.autodiff.expr.real.RealExprReciprocal.reRecip;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionDerivative.derive;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionEvaluator.evaluateExpression;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionGradient.gradient;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionSimplifier.simplify;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author agent
+ * @since 2026-10-18
+ */
+public class VisitorRealExpressionDerivativeTest {
+	private static final double EPS = 1e-12;
+
+	private RealVariable x, y, z;
+	private RealAssignment assignment;
+
+	@Before
+	public void setUp() throws Exception {
+		x = new RealVariable("x");
+		y = new RealVariable("y");
+		z = new RealVariable("z");
+		assignment = new RealAssignment();
+		assignment.put(x, 2.0);
+		assignment.put(y, -1.5);
+		assignment.put(z, 4.0);
+	}
+
+	@Test
+	public void testMatchesGradient() throws Exception {
+		final RealExpression shared = reMult(x, y);
+		// x*y*z + 3*(x*y) - 1/z + 1/(x+y)
+		final RealExpression expression = reAdd(reMult(shared, z), reMult(reCons(3), shared), reNeg(reRecip(z)),
+				reRecip(reAdd(x, y)));
+		final Map<RealVariable, Double> gradient = gradient(expression, assignment);
+		for (final RealVariable variable : new RealVariable[]{x, y, z}) {
+			assertEquals(gradient.get(variable), evaluateExpression(derive(expression, variable), assignment), EPS);
+		}
+	}
+
+	@Test
+	public void testElementaryFunctions() throws Exception {
+		// exp(x*y) + log(z) * sqrt(x) + sin(x)*cos(y) + tanh(y/z) + x^3 + z^y + x^(-2)
+		final RealExpression expression = reAdd(reExp(reMult(x, y)), reMult(reLog(z), reSqrt(x)),
+				reMult(reSin(x), reCos(y)), reTanh(reMult(y, reRecip(z))), rePow(x, 3), rePow(z, y), rePow(x, -2));
+		final Map<RealVariable, Double> gradient = gradient(expression, assignment);
+		final double h = 1e-6;
+		for (final RealVariable variable : new RealVariable[]{x, y, z}) {
+			final double symbolic = evaluateExpression(derive(expression, variable), assignment);
+			assertEquals(gradient.get(variable), symbolic, EPS);
+			// central difference
+			final double value = assignment.get(variable);
+			assignment.put(variable, value + h);
+			final double upper = evaluateExpression(expression, assignment);
+			assignment.put(variable, value - h);
+			final double lower = evaluateExpression(expression, assignment);
+			assignment.put(variable, value);
+			assertEquals((upper - lower) / (2 * h), symbolic, 1e-6);
+		}
+	}
+
+	@Test
+	public void testPowersAtZeroBase() throws Exception {
+		// x^0 + x^y + x^(z-4) at x = 0, y = 2, z = 4: where g or f^g is zero, the terms g * f^(g-1) and f^g * log(f)
+		// take their limit 0 rather than 0 * infinity = NaN
+		assignment.put(x, 0.0);
+		assignment.put(y, 2.0);
+		final RealExpression expression = reAdd(rePow(x, 0), rePow(x, y), rePow(x, reAdd(z, reCons(-4))));
+		final Map<RealVariable, Double> gradient = gradient(expression, assignment);
+		for (final RealVariable variable : new RealVariable[]{x, y}) {
+			assertEquals(0.0, gradient.get(variable), 0);
+			assertEquals(0.0, evaluateExpression(derive(expression, variable), assignment), 0);
+		}
+		assertEquals(ZERO, derive(rePow(x, 0), x));
+	}
+
+	@Test
+	public void testPiecewiseSubgradients() throws Exception {
+		// max(x*y, 0) + min(x, z) + abs(y) + select(y, x*x, z*z), evaluated at several points including ties
+		final RealExpression expression = reAdd(reMax(reMult(x, y), ZERO), reMin(x, z), reAbs(y),
+				reSelect(y, reMult(x, x), reMult(z, z)));
+		final double[][] points = {{2.0, -1.5, 4.0}, {3.0, 0.5, -1.0}, {0.0, 2.0, 0.0}, {4.0, 0.0, 4.0}};
+		for (final double[] point : points) {
+			assignment.put(x, point[0]);
+			assignment.put(y, point[1]);
+			assignment.put(z, point[2]);
+			final Map<RealVariable, Double> gradient = gradient(expression, assignment);
+			for (final RealVariable variable : new RealVariable[]{x, y, z}) {
+				assertEquals(gradient.get(variable), evaluateExpression(derive(expression, variable), assignment),
+						EPS);
+			}
+		}
+		// at the tie x = z = 4, min(x, z) is differentiated as x; abs(y) has derivative 0 at y = 0
+		assertEquals(1.0, evaluateExpression(derive(reMin(x, z), x), assignment), 0);
+		assertEquals(0.0, evaluateExpression(derive(reMin(x, z), z), assignment), 0);
+		assertEquals(0.0, evaluateExpression(derive(reAbs(y), y), assignment), 0);
+	}
+
+	@Test
+	public void testDeriveSubset() throws Exception {
+		final RealExpression expression = reAdd(reMult(x, y), reSin(reMult(y, z)));
+		final Map<RealVariable, RealExpression> derivatives = derive(expression, Arrays.asList(z, x));
+		assertEquals(Arrays.asList(z, x), Arrays.asList(derivatives.keySet().toArray()));
+		assertEquals(derive(expression, z), derivatives.get(z));
+		assertEquals(y, simplify(derivatives.get(x)));
+	}
+
+	@Test
+	public void testIndependentSubexpressionsOmitted() throws Exception {
+		assertEquals(ZERO, derive(reMult(y, z), x));
+		assertEquals(reMult(reCons(1), y), derive(reMult(x, y), x));
+		assertEquals(y, simplify(derive(reAdd(reMult(x, y), z), x)));
+	}
+}
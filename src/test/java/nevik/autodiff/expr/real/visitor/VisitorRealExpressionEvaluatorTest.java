@@ -0,0 +1,111 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.visitor;
+
+import nevik.autodiff.expr.real.RealAssignment;
+import nevik.autodiff.expr.real.RealExprPower;
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static nevik.autodiff.expr.real.RealConstant.reCons;
+import static nevik.autodiff.expr.real.RealExprAddition.reAdd;
+import static nevik.autodiff.expr.real.RealExprFunction.reSqrt;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMult;
+import static nevik.autodiff.expr.real.RealExprPower.rePow;
+import static nevik.autodiff.expr.real.RealExprReciprocal.reRecip;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionEvaluator.evaluateExpression;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author agent
+ * @since 2026-10-18
+ */
+public class VisitorRealExpressionEvaluatorTest {
+	private RealVariable x, y;
+	private RealAssignment assignment;
+
+	@Before
+	public void setUp() throws Exception {
+		x = new RealVariable("x");
+		y = new RealVariable("y");
+		assignment = new RealAssignment();
+		assignment.put(x, 0.3);
+		assignment.put(y, -1.7);
+	}
+
+	private RealExpression wideSum(final int termCount) {
+		final List<RealExpression> terms = new ArrayList<>();
+		for (int i = 0; i < termCount; i++) {
+			terms.add(reMult(reCons(1.0 / (i + 1)), (i % 3 == 0) ? x : reRecip(reAdd(y, reCons(i)))));
+		}
+		return reAdd(terms);
+	}
+
+	@Test
+	public void testParallelMatchesSequential() throws Exception {
+		final RealExpression expression = wideSum(20000);
+		final double sequential = evaluateExpression(expression, assignment);
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			assertEquals(sequential, evaluateExpression(expression, assignment, pool, 100), 1e-9);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testParallelIndependentOfThreadCount() throws Exception {
+		final RealExpression expression = reMult(wideSum(5000), wideSum(3000), reAdd(x, y));
+		final ForkJoinPool single = new ForkJoinPool(1), multiple = new ForkJoinPool(8);
+		try {
+			final double expected = evaluateExpression(expression, assignment, single, 64);
+			for (int run = 0; run < 5; run++) {
+				assertEquals(Double.doubleToLongBits(expected),
+						Double.doubleToLongBits(evaluateExpression(expression, assignment, multiple, 64)));
+			}
+		} finally {
+			single.shutdown();
+			multiple.shutdown();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMissingVariableInParallel() throws Exception {
+		final ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			evaluateExpression(wideSum(1000), new RealAssignment(), pool, 10);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testPower() throws Exception {
+		for (int n = -12; n <= 12; n++) {
+			assertEquals(Math.pow(-1.7, n), RealExprPower.power(-1.7, n), 1e-12 * Math.abs(Math.pow(-1.7, n)));
+		}
+		assertEquals(1.0, RealExprPower.power(0, 0), 0);
+		assertEquals(Double.POSITIVE_INFINITY, RealExprPower.power(0, -3), 0);
+		assertEquals(Math.pow(0.3, 2.5), evaluateExpression(rePow(x, 2.5), assignment), 0);
+		assertEquals(Math.sqrt(0.3) * 0.3 * 0.3, evaluateExpression(reMult(reSqrt(x), rePow(x, 2)), assignment), 1e-15);
+	}
+}
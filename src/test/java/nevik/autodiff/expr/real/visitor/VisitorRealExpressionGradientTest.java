@@ -0,0 +1,172 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.visitor;
+
+import nevik.autodiff.expr.real.RealAssignment;
+import nevik.autodiff.expr.real.RealExprReduction;
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static nevik.autodiff.expr.real.RealConstant.reCons;
+import static nevik.autodiff.expr.real.RealExprAddition.reAdd;
+import static nevik.autodiff.expr.real.RealExprFunction.reExp;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMult;
+import static nevik.autodiff.expr.real.RealExprNegation.reNeg;
+import static nevik.autodiff.expr.real.RealExprReciprocal.reRecip;
+import static nevik.autodiff.expr.real.RealExprReduction.reSum;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionGradient.gradient;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author agent
+ * @since 2026-10-18
+ */
+public class VisitorRealExpressionGradientTest {
+	private static final double EPS = 1e-12;
+
+	private RealVariable x, y, z;
+	private RealAssignment assignment;
+
+	@Before
+	public void setUp() throws Exception {
+		x = new RealVariable("x");
+		y = new RealVariable("y");
+		z = new RealVariable("z");
+		assignment = new RealAssignment();
+		assignment.put(x, 2.0);
+		assignment.put(y, -1.5);
+		assignment.put(z, 4.0);
+	}
+
+	@Test
+	public void testGradient() throws Exception {
+		final RealExpression shared = reMult(x, y);
+		// x*y*z + 3*(x*y) - 1/z
+		final RealExpression expression = reAdd(reMult(shared, z), reMult(reCons(3), shared), reNeg(reRecip(z)));
+		final Map<RealVariable, Double> gradient = gradient(expression, assignment);
+		assertEquals(3, gradient.size());
+		assertEquals(-1.5 * 4 + 3 * -1.5, gradient.get(x), EPS);
+		assertEquals(2 * 4 + 3 * 2, gradient.get(y), EPS);
+		assertEquals(2 * -1.5 + 1 / 16.0, gradient.get(z), EPS);
+	}
+
+	@Test
+	public void testGradientOfSubset() throws Exception {
+		final RealVariable w = new RealVariable("w");
+		// x*y + exp(z) - 1/z
+		final RealExpression expression = reAdd(reMult(x, y), reExp(z), reNeg(reRecip(z)));
+		final Map<RealVariable, Double> full = gradient(expression, assignment);
+		final Map<RealVariable, Double> subset = gradient(expression, assignment, Arrays.asList(x, w));
+		assertEquals(2, subset.size());
+		assertEquals(full.get(x), subset.get(x), 0);
+		assertEquals(0, subset.get(w), 0);
+		// the terms in z are not visited, so z needs no value
+		assignment.remove(z);
+		assertEquals(full.get(x), gradient(expression, assignment, Arrays.asList(x, w)).get(x), 0);
+	}
+
+	@Test
+	public void testGradientWithZeroFactor() throws Exception {
+		assignment.put(x, 0.0);
+		final Map<RealVariable, Double> gradient = gradient(reMult(x, y, z), assignment);
+		assertEquals(-1.5 * 4, gradient.get(x), EPS);
+		assertEquals(0, gradient.get(y), EPS);
+		assertEquals(0, gradient.get(z), EPS);
+	}
+
+	@Test
+	public void testGradientWithUnderflowingProduct() throws Exception {
+		// the product of all factors underflows to 0, but the partial derivatives w.r.t. x and y do not
+		assignment.put(x, 1e-200);
+		assignment.put(y, 1e-200);
+		assignment.put(z, 1e300);
+		final Map<RealVariable, Double> gradient = gradient(reMult(x, y, z), assignment);
+		assertEquals(1e100, gradient.get(x), 1e88);
+		assertEquals(1e100, gradient.get(y), 1e88);
+		assertEquals(1e-200 * 1e-200, gradient.get(z), 0);
+
+		final ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			assertEquals(gradient, gradient(reMult(x, y, z), assignment, pool, 2));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testParallelGradient() throws Exception {
+		final List<RealExpression> terms = new ArrayList<>();
+		final List<RealExpression> factors = new ArrayList<>();
+		for (int i = 0; i < 10000; i++) {
+			terms.add(reMult(reCons(1.0 / (i + 1)), (i % 2 == 0) ? x : reMult(y, z)));
+			if (i < 2000) {
+				factors.add(reAdd(reCons(1 + 1e-4 * i), reMult(reCons(1e-6), x)));
+			}
+		}
+		final RealExpression expression = reAdd(reAdd(terms), reMult(factors));
+
+		final Map<RealVariable, Double> sequential = gradient(expression, assignment);
+		final ForkJoinPool single = new ForkJoinPool(1), multiple = new ForkJoinPool(8);
+		try {
+			final Map<RealVariable, Double> expected = gradient(expression, assignment, single, 50);
+			final Map<RealVariable, Double> actual = gradient(expression, assignment, multiple, 50);
+			for (final RealVariable variable : new RealVariable[]{x, y, z}) {
+				assertEquals(sequential.get(variable), expected.get(variable), 1e-9 * Math.abs(expected.get(variable)));
+				assertEquals(Double.doubleToLongBits(expected.get(variable)),
+						Double.doubleToLongBits(actual.get(variable)));
+			}
+		} finally {
+			single.shutdown();
+			multiple.shutdown();
+		}
+	}
+
+	@Test
+	public void testGradientKeepsReductionBodyDerivatives() throws Exception {
+		final Map<RealVariable, double[]> columns = new HashMap<>();
+		columns.put(z, new double[]{1, 2, 3});
+		final RealExprReduction sum = reSum(reMult(x, y, z), columns, 3);
+		final Map<RealVariable, Double> expected = gradient(sum, assignment);
+		final RealExpression derivative = ReductionEvaluation.bodyDerivative(sum, x);
+		assertSame(derivative, ReductionEvaluation.bodyDerivative(sum, x));
+		assertEquals(expected, gradient(sum, assignment));
+		// d/dx sum_i x*y*z_i = y * sum_i z_i
+		assertEquals(-1.5 * 6, expected.get(x), EPS);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testReductionBodyDerivativeOfRowVariable() throws Exception {
+		final Map<RealVariable, double[]> columns = new HashMap<>();
+		columns.put(z, new double[]{1, 2, 3});
+		ReductionEvaluation.bodyDerivative(reSum(reMult(x, z), columns, 3), z);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMissingVariable() throws Exception {
+		assignment.remove(z);
+		gradient(reAdd(x, z), assignment);
+	}
+}
@@ -0,0 +1,103 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.expr.real.visitor;
+
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealVariable;
+import nevik.autodiff.expr.real.io.ChannelAppendable;
+import nevik.autodiff.expr.real.visitor.VisitorRealExpressionPrintingInfix.PrintingInfixParams;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static nevik.autodiff.expr.real.RealConstant.reCons;
+import static nevik.autodiff.expr.real.RealExprAddition.reAddUsrtd;
+import static nevik.autodiff.expr.real.RealExprMultiplication.reMultUsrtd;
+import static nevik.autodiff.expr.real.RealExprNegation.reNeg;
+import static nevik.autodiff.expr.real.RealExprReciprocal.reRecip;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionPrintingInfix.printExpression;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author agent
+ * @since 2026-10-18
+ */
+public class VisitorRealExpressionPrintingInfixTest {
+	private RealVariable x, y;
+	private Map<RealVariable, String> varNames;
+
+	@Before
+	public void setUp() throws Exception {
+		x = new RealVariable("x");
+		y = new RealVariable("y");
+		varNames = new HashMap<>();
+		varNames.put(x, "x");
+		varNames.put(y, "y");
+	}
+
+	@Test
+	public void testPrintToAppendable() throws Exception {
+		final StringBuilder output = new StringBuilder();
+		printExpression(reAddUsrtd(reMultUsrtd(reCons(2), x), reNeg(y), reRecip(reCons(-0.0)), reCons(1e10)), varNames,
+				output);
+		assertEquals("((2.0 * x) + -y + (1/-0.0) + 1.0E10)", output.toString());
+	}
+
+	@Test
+	public void testPrintSharedAsTemporaries() throws Exception {
+		final RealExpression shared = reAddUsrtd(x, y);
+		final RealExpression twice = reMultUsrtd(shared, shared);
+		final StringBuilder output = new StringBuilder();
+		printExpression(reAddUsrtd(twice, reNeg(twice), shared),
+				new PrintingInfixParams(varNames, output, /*sharedAsTemporaries=*/true));
+		assertEquals("$0 = (x + y)\n$1 = ($0 * $0)\n($1 + -$1 + $0)", output.toString());
+	}
+
+	@Test
+	public void testPrintSharedAsTemporariesIsLinear() throws Exception {
+		RealExpression expression = x;
+		for (int i = 0; i < 40; i++) {
+			expression = reAddUsrtd(expression, expression);
+		}
+		final StringBuilder output = new StringBuilder();
+		printExpression(expression, new PrintingInfixParams(varNames, output, /*sharedAsTemporaries=*/true));
+		assertEquals(39, output.chars().filter(c -> c == '\n').count());
+	}
+
+	@Test
+	public void testPrintToChannel() throws Exception {
+		final List<RealExpression> summands = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			summands.add(reMultUsrtd(x, reCons(i * 0.1)));
+		}
+		final RealExpression expression = reAddUsrtd(summands);
+		final StringBuilder expected = new StringBuilder();
+		printExpression(expression, varNames, expected);
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		printExpression(expression, varNames,
+				new ChannelAppendable(Channels.newChannel(bytes), ByteBuffer.allocate(100)));
+		assertEquals(expected.toString(), new String(bytes.toByteArray(), StandardCharsets.US_ASCII));
+	}
+}
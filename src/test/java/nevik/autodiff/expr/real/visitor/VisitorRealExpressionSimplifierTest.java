@@ -15,19 +15,39 @@
 
 package nevik.autodiff.expr.real.visitor;
 
+import nevik.autodiff.expr.real.RealAssignment;
+import nevik.autodiff.expr.real.RealExpression;
+import nevik.autodiff.expr.real.RealSuperExpression;
 import nevik.autodiff.expr.real.RealVariable;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import static nevik.autodiff.expr.real.RealConstant.ONE;
 import static nevik.autodiff.expr.real.RealConstant.ZERO;
 import static nevik.autodiff.expr.real.RealConstant.reCons;
 import static nevik.autodiff.expr.real.RealExprAddition.reAdd;
+import static nevik.autodiff.expr.real.RealExprFunction.reExp;
+import static nevik.autodiff.expr.real.RealExprFunction.reLog;
+import static nevik.autodiff.expr.real.RealExprFunction.reSin;
 import static nevik.autodiff.expr.real.RealExprMultiplication.reMult;
 import static nevik.autodiff.expr.real.RealExprNegation.reNeg;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reAbs;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reMax;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reMin;
+import static nevik.autodiff.expr.real.RealExprPiecewise.reSelect;
+import static nevik.autodiff.expr.real.RealExprPower.rePow;
 import static nevik.autodiff.expr.real.RealExprReciprocal.reRecip;
 import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionSimplifier.simplify;
+import static nevik.autodiff.expr.real.visitor.VisitorRealExpressionSimplifier.specialize;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 
 /**
  * @author Patrick Lehner
@@ -138,4 +158,146 @@ public class VisitorRealExpressionSimplifierTest {
 		assertEquals(ZERO, simplify(reMult(reAdd(x, y), reMult(x, reMult(ZERO)))));
 		assertEquals(ZERO, simplify(reMult(x, y, reAdd(z, reNeg(z)))));
 	}
+
+	@Test
+	public void testSpecializeFoldsFixedVariables() throws Exception {
+		final RealAssignment fixed = new RealAssignment();
+		fixed.put(y, 2.0);
+		fixed.put(z, 3.0);
+		assertEquals(reAdd(reCons(6), x), specialize(reAdd(x, reMult(y, z)), fixed));
+		assertEquals(reMult(reCons(0.5), x), specialize(reMult(x, reRecip(y)), fixed));
+		assertEquals(reCons(-5), specialize(reNeg(reAdd(y, z)), fixed));
+	}
+
+	@Test
+	public void testSpecializeKeepsFreeVariables() throws Exception {
+		final RealAssignment fixed = new RealAssignment();
+		fixed.put(z, 1.0);
+		assertEquals(reAdd(x, y), specialize(reAdd(x, y), fixed));
+		assertEquals(ZERO, specialize(reMult(x, reAdd(z, reNeg(z))), fixed));
+	}
+
+	@Test
+	public void testSimplifyFunctions() throws Exception {
+		assertEquals(reCons(Math.exp(2)), simplify(reExp(reAdd(ONE, ONE))));
+		assertEquals(x, simplify(reExp(reLog(x))));
+		assertEquals(reAdd(x, y), simplify(reLog(reExp(reAdd(x, y)))));
+		assertEquals(reSin(x), simplify(reSin(reMult(ONE, x))));
+	}
+
+	@Test
+	public void testSimplifyPowers() throws Exception {
+		assertEquals(reCons(1024), simplify(rePow(reCons(2), reCons(10))));
+		assertEquals(x, simplify(rePow(x, 1)));
+		assertEquals(ONE, simplify(rePow(x, 0)));
+		assertEquals(ONE, simplify(rePow(ONE, y)));
+		assertEquals(reRecip(x), simplify(rePow(x, -1)));
+		assertEquals(rePow(x, 6), simplify(rePow(rePow(x, 2), 3)));
+		assertEquals(rePow(rePow(x, 0.5), 2), simplify(rePow(rePow(x, 0.5), 2)));
+	}
+
+	@Test
+	public void testSimplifyPiecewise() throws Exception {
+		assertEquals(reCons(-2), simplify(reMin(reCons(3), reCons(-2))));
+		assertEquals(reCons(2), simplify(reAbs(reNeg(reCons(2)))));
+		assertEquals(x, simplify(reMax(x, reMult(ONE, x))));
+		assertEquals(reAbs(x), simplify(reAbs(reAbs(reNeg(x)))));
+		assertEquals(y, simplify(reSelect(reCons(0.5), y, z)));
+		assertEquals(z, simplify(reSelect(ZERO, y, z)));
+		assertEquals(y, simplify(reSelect(x, y, reAdd(y, ZERO))));
+		assertEquals(reMax(x, y), simplify(reMax(x, reMult(y, ONE))));
+	}
+
+	@Test
+	public void testSimplifyMultiplicativeCollection() throws Exception {
+		assertEquals(rePow(x, 3), simplify(reMult(x, x, x)));
+		assertEquals(y, simplify(reMult(x, y, reRecip(x))));
+		assertEquals(reMult(reCons(-6), x), simplify(reMult(reNeg(x), reCons(2), rePow(x, 2), reRecip(reMult(x, x)),
+				reCons(3))));
+		assertEquals(x, simplify(reMult(rePow(x, 3), reRecip(rePow(x, 2)))));
+		assertEquals(reMult(reCons(0.5), reRecip(x)), simplify(reRecip(reMult(reCons(2), x))));
+	}
+
+	@Test
+	public void testSimplifyMergesReciprocals() throws Exception {
+		// x * (1/y) * (1/z) * (1/y) = x * 1/(y^2 * z)
+		assertEquals(reMult(x, reRecip(reMult(rePow(y, 2), z))),
+				simplify(reMult(x, reRecip(y), reRecip(z), reRecip(y))));
+	}
+
+	@Test
+	public void testSimplifyMinimizingDivisions() throws Exception {
+		// x/y + 1/z  =>  (x*z + y) / (y*z)
+		final RealExpression expression = reAdd(reMult(x, reRecip(y)), reRecip(z));
+		assertEquals(reAdd(reMult(x, reRecip(y)), reRecip(z)), simplify(expression));
+		assertEquals(reMult(reAdd(reMult(x, z), y), reRecip(reMult(y, z))), simplify(expression, true));
+		// equal denominators are only counted once: x/y - 2/y + z  =>  (x - 2 + z*y) / y
+		assertEquals(reMult(reAdd(x, reCons(-2), reMult(y, z)), reRecip(y)),
+				simplify(reAdd(reMult(x, reRecip(y)), reNeg(reMult(reCons(2), reRecip(y))), z), true));
+	}
+
+	@Test
+	public void testSimplifyFlattensSingleSummand() throws Exception {
+		// the only summand simplifies to an addition, which must be returned as a whole
+		assertEquals(reAdd(x, y), simplify(reAdd(Collections.singletonList(reAdd(x, ZERO, y)))));
+		assertEquals(reMult(x, y), simplify(reMult(Collections.singletonList(reMult(x, ONE, y)))));
+	}
+
+	@Test
+	public void testSimplifyReturnsSimplifiedExpressionUnchanged() throws Exception {
+		final RealExpression simplified = simplify(reAdd(reMult(reCons(2), x, reRecip(y)), reNeg(z), reCons(1),
+				reMult(x, z), rePow(y, 3), reExp(reNeg(x))));
+		assertSame(simplified, simplify(simplified));
+		assertSame(simplified, simplify(simplify(simplified)));
+	}
+
+	@Test
+	public void testSimplifyAllocation() throws Exception {
+		final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		assumeTrue(bean instanceof com.sun.management.ThreadMXBean &&
+				((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported());
+		final com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+		threadBean.setThreadAllocatedMemoryEnabled(true);
+
+		final RealVariable[] variables = new RealVariable[500];
+		for (int i = 0; i < variables.length; i++) {
+			variables[i] = new RealVariable("v" + i);
+		}
+		final List<RealExpression> summands = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			summands.add(reMult(reCons(i % 7 + 2), variables[i % 500], reRecip(variables[i * 7 % 500]),
+					rePow(variables[i * 3 % 500], 2)));
+			summands.add(reNeg(reMult(variables[i * 11 % 500], reExp(variables[i % 500]))));
+		}
+		final RealExpression expression = reAdd(summands);
+		long fresh = 0;
+		for (int run = 0; run < 20; run++) {
+			final long before = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			simplify(expression);
+			fresh = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+		}
+		// the nodes of the result make up most of the allocated memory
+		assertTrue("allocated " + fresh + " bytes", fresh < 512L * countNodes(expression));
+		final RealExpression simplified = simplify(expression);
+		final int nodeCount = countNodes(simplified);
+
+		long bytes = 0;
+		for (int run = 0; run < 20; run++) {
+			final long before = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			assertSame(simplified, simplify(simplified));
+			bytes = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+		}
+		// simplifying an already simplified expression allocates hardly anything besides some product terms
+		assertTrue("allocated " + bytes + " bytes", bytes < 256L * nodeCount);
+	}
+
+	private static int countNodes(final RealExpression expression) {
+		int count = 1;
+		if (expression instanceof RealSuperExpression) {
+			for (final RealExpression subexpression : ((RealSuperExpression) expression).subexpressions) {
+				count += countNodes(subexpression);
+			}
+		}
+		return count;
+	}
 }
@@ -0,0 +1,78 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.util;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ * @since 2026-10-18
+ */
+public class ObjectDoubleHashMapTest {
+	@Test
+	public void testRandomAdd() throws Exception {
+		final Random random = new Random(42);
+		final ObjectDoubleHashMap<Integer> map = new ObjectDoubleHashMap<>();
+		for (int round = 0; round < 3; round++) {
+			final Map<Integer, Double> expected = new HashMap<>();
+			for (int i = 0; i < 1000 * (round + 1); i++) {
+				final int key = random.nextInt(500 * (round + 1)) << 16; // keys differing in the upper bits only
+				final double delta = random.nextInt(10);
+				final int index = map.add(key, delta);
+				expected.merge(key, delta, Double::sum);
+				assertEquals(key, (int) map.getKey(index));
+				assertEquals(expected.get(key), map.getValue(index), 0);
+			}
+			assertEquals(expected.size(), map.size());
+			for (int i = 0; i < map.size(); i++) {
+				assertEquals(i, map.indexOf(map.getKey(i)));
+				assertEquals(expected.get(map.getKey(i)), map.getValue(i), 0);
+			}
+			map.clear();
+			assertTrue(map.isEmpty());
+			assertEquals(-1, map.indexOf(0));
+		}
+	}
+
+	@Test
+	public void testInsertionOrder() throws Exception {
+		final ObjectDoubleHashMap<String> map = new ObjectDoubleHashMap<>(2);
+		assertEquals(0, map.add("c", 1));
+		assertEquals(1, map.add("a", 2));
+		assertEquals(0, map.add("c", -1));
+		assertEquals(2, map.add("b", 3));
+		assertEquals("c", map.getKey(0));
+		assertEquals(0, map.getValue(0), 0);
+		assertEquals("a", map.getKey(1));
+		assertEquals("b", map.getKey(2));
+		assertEquals(-1, map.indexOf("d"));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetKeyOutOfBounds() throws Exception {
+		final ObjectDoubleHashMap<String> map = new ObjectDoubleHashMap<>();
+		map.add("a", 1);
+		map.clear();
+		map.getKey(0);
+	}
+}
@@ -0,0 +1,115 @@
+/**
+ * ISC License Terms (http://opensource.org/licenses/isc-license):
+ *
+ * Copyright (c) 2015, Patrick Lehner <lehner dot patrick at gmx dot de>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any purpose with or without fee is hereby
+ * granted, provided that the above copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES WITH REGARD TO THIS SOFTWARE INCLUDING ALL
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN
+ * AN ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package nevik.autodiff.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author agent
+ * @since 2026-10-18
+ */
+public class PersistentListTest {
+	@Test
+	public void testRandomInsertAndRemove() throws Exception {
+		final Random random = new Random(42);
+		final List<Integer> expected = new ArrayList<>();
+		PersistentList<Integer> list = PersistentList.empty();
+		for (int i = 0; i < 2000; i++) {
+			if (expected.isEmpty() || random.nextInt(3) > 0) {
+				final int index = random.nextInt(expected.size() + 1);
+				final int value = random.nextInt();
+				expected.add(index, value);
+				list = list.insert(index, value);
+			} else {
+				final int index = random.nextInt(expected.size());
+				expected.remove(index);
+				list = list.without(index);
+			}
+			assertEquals(expected.size(), list.size());
+			assertEquals(expected.hashCode(), list.hashCode());
+		}
+		assertEquals(expected, list);
+		assertEquals(list, expected);
+		assertEquals(expected, new ArrayList<>(list));
+	}
+
+	@Test
+	public void testOriginalUnchanged() throws Exception {
+		final PersistentList<String> original = PersistentList.of(Arrays.asList("a", "b", "c"));
+		final PersistentList<String> derived = original.insert(1, "x").without(3);
+		assertEquals(Arrays.asList("a", "b", "c"), original);
+		assertEquals(Arrays.asList("a", "x", "b"), derived);
+	}
+
+	@Test
+	public void testBounds() throws Exception {
+		final PersistentList<Integer> list = PersistentList.of(Arrays.asList(1, 3, 3, 3, 5));
+		assertEquals(1, list.lowerBound(3, Integer::compare));
+		assertEquals(4, list.upperBound(3, Integer::compare));
+		assertEquals(0, list.lowerBound(0, Integer::compare));
+		assertEquals(5, list.upperBound(7, Integer::compare));
+	}
+
+	@Test
+	public void testMultiset() throws Exception {
+		final PersistentMultiset<String> empty = PersistentMultiset.empty();
+		final PersistentMultiset<String> multiset = empty.plusAll(Arrays.asList("a", "b", "a", "c"));
+		assertEquals(3, multiset.size());
+		assertEquals(2, multiset.count("a"));
+		assertEquals(new HashSet<>(Arrays.asList("a", "b", "c")), multiset);
+
+		final PersistentMultiset<String> reduced = multiset.minus("a").minus("b");
+		assertEquals(new HashSet<>(Arrays.asList("a", "c")), reduced);
+		assertEquals(new HashSet<>(Arrays.asList("a", "b", "c")), multiset);
+		assertTrue(reduced.minusAll(Arrays.asList("a", "c")).isEmpty());
+		assertFalse(reduced.contains("b"));
+	}
+
+	@Test
+	public void testMultisetHashCollisions() throws Exception {
+		// "Aa" and "BB" have the same hash code
+		PersistentMultiset<String> multiset = PersistentMultiset.empty();
+		final List<String> elements = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			elements.add(Integer.toString(i));
+		}
+		elements.add("Aa");
+		elements.add("BB");
+		Collections.shuffle(elements, new Random(7));
+		multiset = multiset.plusAll(elements);
+		assertEquals(new HashSet<>(elements), multiset);
+		multiset = multiset.minus("Aa");
+		assertFalse(multiset.contains("Aa"));
+		assertTrue(multiset.contains("BB"));
+		assertEquals(101, multiset.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMultisetMinusAbsent() throws Exception {
+		PersistentMultiset.<String>empty().plus("a").minus("b");
+	}
+}